@@ -5,6 +5,8 @@ import com.juegito.protocol.MessageType;
 import com.juegito.client.state.ClientGameState;
 import com.juegito.client.state.LobbyClientState;
 import com.juegito.client.state.ServerUpdateProcessor;
+import com.juegito.protocol.dto.ReconnectRequestDTO;
+import com.juegito.protocol.dto.SessionAckDTO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,15 +34,16 @@ public class ConnectionManager {
     private Thread receiveThread;
     private Thread heartbeatThread;
     private volatile boolean running;
+    private long acknowledgedSequence; // Último número de la sesión confirmado al servidor
     
     private final List<ConnectionListener> listeners;
     
     public ConnectionManager(String host, int port, ClientGameState gameState, LobbyClientState lobbyState) {
-        this.networkClient = new NetworkClient(host, port);
         this.messageHandler = new MessageHandler();
+        this.networkClient = new NetworkClient(host, port, messageHandler);
         this.gameState = gameState;
         this.lobbyState = lobbyState;
-        this.updateProcessor = new ServerUpdateProcessor(gameState, lobbyState);
+        this.updateProcessor = new ServerUpdateProcessor(gameState, lobbyState, this::sendMessage);
         this.listeners = new ArrayList<>();
         this.running = false;
     }
@@ -78,6 +81,12 @@ public class ConnectionManager {
         logger.info("Attempting to reconnect...");
         notifyListeners(ConnectionState.RECONNECTING);
         
+        // Si había una partida en curso, recuperar la sesión en lugar de entrar como jugador nuevo
+        String previousPlayerId = gameState.getPlayerId();
+        boolean wasPlaying = gameState.getCurrentPhase() == ClientGameState.GamePhase.PLAYING;
+        // Con un mensaje fragmentado a medias lo procesado no es un prefijo: pedir resincronización completa
+        long lastSequence = networkClient.hasIncompleteMessage() ? 0 : gameState.getSessionSequence();
+        
         for (int attempt = 1; attempt <= RECONNECT_ATTEMPTS; attempt++) {
             logger.info("Reconnection attempt {}/{}", attempt, RECONNECT_ATTEMPTS);
             
@@ -90,6 +99,9 @@ public class ConnectionManager {
             
             if (connect()) {
                 logger.info("Reconnected successfully");
+                if (wasPlaying && previousPlayerId != null) {
+                    sendReconnectRequest(previousPlayerId, lastSequence);
+                }
                 return true;
             }
         }
@@ -99,6 +111,15 @@ public class ConnectionManager {
         return false;
     }
     
+    /**
+     * Solicita al servidor recuperar la sesión de la partida, indicando el último mensaje
+     * procesado para que reenvíe solo lo que siguió.
+     */
+    private void sendReconnectRequest(String playerId, long lastSequence) {
+        ReconnectRequestDTO request = new ReconnectRequestDTO(playerId, null, lastSequence);
+        sendMessage(messageHandler.createMessage(MessageType.RECONNECT_REQUEST, playerId, request));
+    }
+    
     /**
      * Desconecta del servidor.
      */
@@ -169,18 +190,15 @@ public class ConnectionManager {
             
             while (running && networkClient.isConnected()) {
                 try {
-                    String messageJson = networkClient.receiveMessage();
+                    Message message = networkClient.receiveMessage();
                     
-                    if (messageJson == null) {
+                    if (message == null) {
                         logger.warn("Connection closed by server");
                         handleConnectionLost();
                         break;
                     }
                     
-                    Message message = messageHandler.parseMessage(messageJson);
-                    if (message != null) {
-                        updateProcessor.processMessage(message);
-                    }
+                    updateProcessor.processMessage(message);
                     
                 } catch (IOException e) {
                     if (running) {
@@ -210,6 +228,7 @@ public class ConnectionManager {
                     
                     if (networkClient.isConnected()) {
                         sendPing();
+                        sendSessionAck();
                     }
                     
                 } catch (InterruptedException e) {
@@ -234,12 +253,26 @@ public class ConnectionManager {
         sendMessage(ping);
     }
     
+    /**
+     * Confirma el último mensaje de la sesión procesado, si cambió desde la confirmación anterior.
+     * El servidor libera esos mensajes del buffer de reenvío.
+     */
+    private void sendSessionAck() {
+        long sequence = gameState.getSessionSequence();
+        if (sequence != acknowledgedSequence) {
+            sendMessage(messageHandler.createMessage(MessageType.SESSION_ACK, gameState.getPlayerId(),
+                new SessionAckDTO(sequence)));
+            acknowledgedSequence = sequence;
+        }
+    }
+    
     /**
      * Maneja la pérdida de conexión.
      */
     private void handleConnectionLost() {
         logger.warn("Connection lost");
         running = false;
+        gameState.pauseSession();
         notifyListeners(ConnectionState.CONNECTION_LOST);
         
         // Intentar reconectar automáticamente
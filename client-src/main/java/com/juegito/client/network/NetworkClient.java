@@ -1,18 +1,35 @@
 package com.juegito.client.network;
 
 import com.google.gson.Gson;
+import com.juegito.protocol.Message;
+import com.juegito.protocol.MessageTypeAdapter;
+import com.juegito.protocol.binary.BinaryCodec;
+import com.juegito.protocol.binary.PlayerHandleTable;
+import com.juegito.protocol.wire.FragmentAssembler;
+import com.juegito.protocol.wire.Frame;
+import com.juegito.protocol.wire.FrameCodec;
+import com.juegito.protocol.wire.FrameCompressor;
+import com.juegito.protocol.wire.FrameType;
+import com.juegito.protocol.wire.Handshake;
+import com.juegito.protocol.wire.WireDecoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ProtocolException;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.zip.Inflater;
 
 /**
  * Gestiona la conexión de red con el servidor.
  * Maneja socket TCP, envío y recepción de datos.
+ * Al conectar ofrece frames con prefijo de longitud, el codec binario y compresión;
+ * si el servidor no responde el handshake, se sigue usando JSON por líneas.
  */
 public class NetworkClient {
     private static final Logger logger = LoggerFactory.getLogger(NetworkClient.class);
@@ -20,16 +37,38 @@ public class NetworkClient {
     private final String host;
     private final int port;
     private final Gson gson;
+    private final MessageHandler messageHandler;
+    private static final PlayerHandleTable OUTBOUND_HANDLES = PlayerHandleTable.learning(); // Siempre vacía
+    private final PlayerHandleTable playerHandles;
     
     private Socket socket;
-    private PrintWriter output;
-    private BufferedReader input;
+    private OutputStream output;
+    private InputStream input;
+    private WireDecoder decoder;
+    private final ArrayDeque<Message> received; // Solo accedido por el hilo lector
+    private final byte[] readBuffer;
+    private final WireListener wireListener;
+    private final Inflater inflater; // Reutilizado entre mensajes: solo lo usa el hilo lector
+    private final FragmentAssembler fragments; // Solo accedido por el hilo lector
+    private long inflatedFrames;
+    private long compressedBytes;
+    private long inflatedBytes;
+    private long inflateNanos;
+    private volatile boolean framedOutput;
+    private volatile boolean binaryOutput;
     private volatile boolean connected;
     
-    public NetworkClient(String host, int port) {
+    public NetworkClient(String host, int port, MessageHandler messageHandler) {
         this.host = host;
         this.port = port;
-        this.gson = new Gson();
+        this.gson = MessageTypeAdapter.createGson();
+        this.messageHandler = messageHandler;
+        this.playerHandles = PlayerHandleTable.learning();
+        this.received = new ArrayDeque<>();
+        this.readBuffer = new byte[NetworkConstants.READ_BUFFER_SIZE];
+        this.wireListener = new WireListener();
+        this.inflater = new Inflater(true);
+        this.fragments = new FragmentAssembler(NetworkConstants.MAX_MESSAGE_BYTES);
         this.connected = false;
     }
     
@@ -45,8 +84,19 @@ public class NetworkClient {
         logger.info("Connecting to server {}:{}", host, port);
         
         socket = new Socket(host, port);
-        output = new PrintWriter(socket.getOutputStream(), true);
-        input = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+        output = new BufferedOutputStream(socket.getOutputStream());
+        input = socket.getInputStream();
+        decoder = new WireDecoder(NetworkConstants.MAX_MESSAGE_BYTES);
+        received.clear();
+        fragments.reset();
+        playerHandles.clear(); // Los handles son por sesión
+        framedOutput = false;
+        binaryOutput = false;
+        
+        // Se ofrecen frames, codec binario, compresión, lotes y fragmentos; el servidor responde con lo que acepta
+        output.write(Handshake.encode(Handshake.CAP_FRAMES | Handshake.CAP_BINARY | Handshake.CAP_DEFLATE
+            | Handshake.CAP_BATCH | Handshake.CAP_FRAGMENTS));
+        output.flush();
         connected = true;
         
         logger.info("Connected successfully");
@@ -62,8 +112,15 @@ public class NetworkClient {
         }
         
         try {
-            String json = gson.toJson(message);
-            output.println(json);
+            if (binaryOutput && message instanceof Message && BinaryCodec.supports((Message) message)) {
+                // IDs como texto: la tabla del servidor cambia si la conexión pasa a otra partida
+                byte[] body = BinaryCodec.encode((Message) message, OUTBOUND_HANDLES).toByteArray();
+                write(FrameCodec.encode(FrameType.BINARY, 0, body));
+            } else if (framedOutput) {
+                write(FrameCodec.encode(FrameType.JSON, 0, gson.toJson(message).getBytes(StandardCharsets.UTF_8)));
+            } else {
+                write((gson.toJson(message) + "\n").getBytes(StandardCharsets.UTF_8));
+            }
             logger.debug("Sent message: {}", message.getClass().getSimpleName());
         } catch (Exception e) {
             logger.error("Error sending message: {}", e.getMessage());
@@ -71,19 +128,32 @@ public class NetworkClient {
     }
     
     /**
-     * Recibe un mensaje del servidor (bloqueante).
+     * Escribe un mensaje completo; sincronizado porque envían varios hilos (UI, heartbeat).
      */
-    public String receiveMessage() throws IOException {
+    private synchronized void write(byte[] data) throws IOException {
+        output.write(data);
+        output.flush();
+    }
+    
+    /**
+     * Recibe y decodifica un mensaje del servidor (bloqueante).
+     * Retorna null si el servidor cerró la conexión.
+     */
+    public Message receiveMessage() throws IOException {
         if (!connected) {
             throw new IOException("Not connected to server");
         }
         
-        String message = input.readLine();
-        if (message == null) {
-            logger.warn("Server closed connection");
-            disconnect();
+        while (received.isEmpty()) {
+            int read = input.read(readBuffer);
+            if (read < 0) {
+                logger.warn("Server closed connection");
+                disconnect();
+                return null;
+            }
+            decoder.feed(readBuffer, 0, read, wireListener);
         }
-        return message;
+        return received.poll();
     }
     
     /**
@@ -96,6 +166,10 @@ public class NetworkClient {
         
         logger.info("Disconnecting from server");
         connected = false;
+        if (inflatedFrames > 0) {
+            logger.info("Decompressed {} frames: {} -> {} bytes, {} us/frame",
+                inflatedFrames, compressedBytes, inflatedBytes, inflateNanos / inflatedFrames / 1000);
+        }
         
         closeResource(input, "input stream");
         closeResource(output, "output stream");
@@ -116,6 +190,15 @@ public class NetworkClient {
         }
     }
     
+    /**
+     * True si la conexión se cortó con un mensaje fragmentado a medio recibir. Los mensajes
+     * que lo adelantaron ya se procesaron, así que lo recibido no es un prefijo de la sesión.
+     * Consultar antes de volver a conectar (connect() descarta las partes).
+     */
+    public boolean hasIncompleteMessage() {
+        return fragments.hasPartial();
+    }
+    
     public boolean isConnected() {
         return connected && socket != null && !socket.isClosed();
     }
@@ -127,4 +210,67 @@ public class NetworkClient {
     public int getPort() {
         return port;
     }
+    
+    /**
+     * Receptor del decodificador: encola los mensajes y aplica la respuesta del handshake.
+     */
+    private class WireListener implements WireDecoder.Listener {
+        @Override
+        public void onHandshake(int capabilities) {
+            framedOutput = (capabilities & Handshake.CAP_FRAMES) != 0;
+            binaryOutput = (capabilities & Handshake.CAP_BINARY) != 0;
+            logger.info("Server accepted wire capabilities {}", capabilities);
+        }
+        
+        @Override
+        public void onLine(String line) {
+            addParsed(line);
+        }
+        
+        @Override
+        public void onFrame(Frame frame) throws IOException {
+            byte[] payload = frame.hasFlag(Frame.FLAG_COMPRESSED) ? inflate(frame.getPayload()) : frame.getPayload();
+            switch (frame.getType()) {
+                case JSON:
+                    addParsed(new String(payload, StandardCharsets.UTF_8));
+                    break;
+                case BINARY:
+                    received.add(BinaryCodec.decode(payload, playerHandles));
+                    break;
+                case HANDLES:
+                    playerHandles.applyDefinitions(payload);
+                    break;
+                case BATCH:
+                    // Mensajes de un mismo comando del servidor: quedan encolados juntos
+                    decoder.feedBatch(payload, this);
+                    break;
+                case FRAGMENT:
+                    // Parte de un mensaje grande; al completarse se decodifica como un lote
+                    byte[] unit = fragments.add(frame);
+                    if (unit != null) {
+                        decoder.feedBatch(unit, this);
+                    }
+                    break;
+                default:
+                    throw new ProtocolException("Unsupported frame type " + frame.getType());
+            }
+        }
+        
+        private byte[] inflate(byte[] compressed) throws ProtocolException {
+            long start = System.nanoTime();
+            byte[] payload = FrameCompressor.inflate(inflater, compressed, NetworkConstants.MAX_MESSAGE_BYTES);
+            inflateNanos += System.nanoTime() - start;
+            inflatedFrames++;
+            compressedBytes += compressed.length;
+            inflatedBytes += payload.length;
+            return payload;
+        }
+        
+        private void addParsed(String json) {
+            Message message = messageHandler.parseMessage(json);
+            if (message != null) {
+                received.add(message);
+            }
+        }
+    }
 }
@@ -16,6 +16,10 @@ public final class NetworkConstants {
     public static final int CONNECTION_TIMEOUT_MS = 10000;
     public static final int READ_TIMEOUT_MS = 5000;
     
+    // === PROTOCOLO ===
+    public static final int MAX_MESSAGE_BYTES = 8 * 1024 * 1024;
+    public static final int READ_BUFFER_SIZE = 8192;
+    
     // === RETRY ===
     public static final int MAX_RECONNECT_ATTEMPTS = 3;
     public static final int RECONNECT_DELAY_MS = 2000;
@@ -1,5 +1,7 @@
 package com.juegito.client.state;
 
+import com.juegito.protocol.MessageType;
+import com.juegito.protocol.StateChecksum;
 import com.juegito.protocol.dto.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,15 +32,28 @@ public class ClientGameState {
     private String currentTurnPlayerId;
     private int turnNumber;
     private Map<String, Object> worldState;
+    private final Map<String, Integer> playerHealth; // playerId -> HP, del heartbeat
+    private long stateVersion; // Versión del último heartbeat aplicado (0 = ninguno)
+    // Último mensaje de la sesión de partida procesado; se lee desde los hilos de red
+    private volatile long sessionSequence;
+    private volatile boolean sessionCounting; // False entre una pérdida de conexión y RECONNECT_ACCEPTED
     private GamePhase currentPhase;
     
     // Estado del mapa
-    private GameMapDTO gameMap;
+    private MapTerrainDTO terrain;
+    private int terrainPages; // Páginas recibidas, si el terreno llega paginado
+    private MapOccupancyDTO pendingOccupancy; // Llegó antes que su terreno
+    private GameMapDTO gameMap; // Terreno + ocupación, lo que dibuja la interfaz
+    private MapTerrainDTO mapTerrain; // Terreno sobre el que está armado gameMap
+    private long mapVersion;
+    private Map<Long, Integer> tileIndex; // Posición de cada casilla en la lista, por coordenada
     private MovementDTO lastMovement;
     
     public ClientGameState() {
         this.lobbyPlayers = new ArrayList<>();
         this.worldState = new HashMap<>();
+        this.playerHealth = new HashMap<>();
+        this.tileIndex = new HashMap<>();
         this.currentPhase = GamePhase.DISCONNECTED;
         this.ready = false;
         this.gameStarted = false;
@@ -77,6 +92,69 @@ public class ClientGameState {
             turnNumber, currentTurnPlayerId);
     }
     
+    /**
+     * Aplica un heartbeat del servidor: turno y HP que cambiaron, o todo si es completo.
+     * Retorna false si falta el heartbeat en el que se basa o si, aplicado, el checksum
+     * no coincide con el del servidor; en ese caso hay que pedir REQUEST_STATE_SYNC.
+     */
+    public boolean applyHeartbeat(GameHeartbeatDTO heartbeat) {
+        if (heartbeat.isFull()) {
+            playerHealth.clear();
+        } else if (stateVersion == 0 || stateVersion < heartbeat.getBaseVersion()) {
+            logger.debug("Heartbeat from version {} but client has {}", heartbeat.getBaseVersion(), stateVersion);
+            return false;
+        } else if (stateVersion > heartbeat.getVersion()) {
+            return true; // Ya aplicado un estado más nuevo (respuesta a REQUEST_STATE_SYNC)
+        }
+        
+        if (heartbeat.getTurnNumber() > 0) {
+            this.turnNumber = heartbeat.getTurnNumber();
+            this.currentTurnPlayerId = heartbeat.getCurrentTurnPlayerId();
+        }
+        if (heartbeat.getPlayerHP() != null) {
+            playerHealth.putAll(heartbeat.getPlayerHP());
+        }
+        stateVersion = heartbeat.getVersion();
+        
+        return StateChecksum.of(turnNumber, currentTurnPlayerId, playerHealth) == heartbeat.getChecksum();
+    }
+    
+    /**
+     * La sesión de partida empieza con START_GAME: se numera desde ahí.
+     */
+    public void startSession() {
+        sessionSequence = 0;
+        sessionCounting = true;
+    }
+    
+    /**
+     * Se perdió la conexión: lo que llegue antes de RECONNECT_ACCEPTED no es de la sesión.
+     */
+    public void pauseSession() {
+        sessionCounting = false;
+    }
+    
+    /**
+     * El servidor aceptó la reconexión: los mensajes que siguen continúan desde sequence.
+     */
+    public void resumeSession(long sequence) {
+        sessionSequence = sequence;
+        sessionCounting = true;
+    }
+    
+    /**
+     * Cuenta un mensaje ya procesado si forma parte de la secuencia de la sesión.
+     */
+    public void recordSessionMessage(MessageType type) {
+        if (sessionCounting && type.isSequenced()) {
+            sessionSequence++;
+        }
+    }
+    
+    public long getSessionSequence() {
+        return sessionSequence;
+    }
+    
     /**
      * Verifica si es el turno del jugador local.
      */
@@ -153,14 +231,12 @@ public class ClientGameState {
     }
     
     /**
-     * Obtiene el HP de un jugador desde el worldState.
+     * Obtiene el HP de un jugador según el último heartbeat.
      * Retorna el porcentaje de HP (0.0 a 1.0).
      */
     public float getPlayerHP(String playerId) {
-        // El servidor envía el HP en el heartbeat, almacenado en worldState
-        Object hpObj = worldState.get("hp_" + playerId);
-        if (hpObj instanceof Number) {
-            int hp = ((Number) hpObj).intValue();
+        Integer hp = playerHealth.get(playerId);
+        if (hp != null) {
             int maxHP = 100; // Por defecto
             return Math.max(0f, Math.min(1f, hp / (float) maxHP));
         }
@@ -180,10 +256,181 @@ public class ClientGameState {
         return gameMap;
     }
     
-    public void setGameMap(GameMapDTO gameMap) {
-        this.gameMap = gameMap;
-        logger.debug("Map state updated: {} tiles", 
-            gameMap != null && gameMap.getTiles() != null ? gameMap.getTiles().size() : 0);
+    /**
+     * Guarda el terreno del mapa (llega una vez por conexión). Si ya había una
+     * ocupación esperando este terreno, arma el mapa.
+     * Un terreno paginado llega sin casillas: se agregan con addTerrainPage y el mapa
+     * se puede armar y dibujar antes de tenerlas todas.
+     * Retorna true si el mapa quedó armado.
+     */
+    public boolean setMapTerrain(MapTerrainDTO terrain) {
+        if (terrain.getTiles() == null) {
+            terrain.setTiles(new ArrayList<>());
+        }
+        this.terrain = terrain;
+        this.terrainPages = 0;
+        logger.debug("Map terrain received: {} tiles, {} pages (hash {})",
+            terrain.getTileCount(), terrain.getPageCount(), terrain.getTerrainHash());
+        return pendingOccupancy != null && applyMapState(pendingOccupancy);
+    }
+    
+    /**
+     * Agrega una página de casillas al terreno y, si el mapa ya está armado sobre él,
+     * también al mapa, así la interfaz dibuja lo que ya llegó.
+     * Retorna true si el mapa cambió.
+     */
+    public boolean addTerrainPage(MapTerrainPageDTO page) {
+        if (terrain == null || terrain.getTerrainHash() != page.getTerrainHash() || page.getTiles() == null) {
+            logger.warn("Ignoring terrain page {} of an unknown terrain", page.getPage());
+            return false;
+        }
+        terrain.getTiles().addAll(page.getTiles());
+        terrainPages++;
+        if (terrainPages == terrain.getPageCount()) {
+            logger.debug("Map terrain complete: {} tiles", terrain.getTiles().size());
+        }
+        if (gameMap == null || mapTerrain != terrain) {
+            return false; // Se usa al llegar la ocupación
+        }
+        
+        // Copia nueva: la interfaz puede estar recorriendo las casillas actuales
+        List<TileDTO> tiles = new ArrayList<>(gameMap.getTiles().size() + page.getTiles().size());
+        tiles.addAll(gameMap.getTiles());
+        int firstAdded = tiles.size();
+        addTerrainTiles(tiles, tileIndex, page.getTiles());
+        
+        // Jugadores que ya estaban en casillas de esta página
+        for (Map.Entry<String, HexCoordinateDTO> entry : gameMap.getPlayerPositions().entrySet()) {
+            HexCoordinateDTO coordinate = entry.getValue();
+            Integer position = tileIndex.get(coordinateKey(coordinate.getQ(), coordinate.getR()));
+            if (position != null && position >= firstAdded) {
+                tiles.get(position).setOccupyingPlayerId(entry.getKey());
+            }
+        }
+        gameMap.setTiles(tiles);
+        return true;
+    }
+    
+    /**
+     * Reemplaza la ocupación del mapa y arma el mapa sobre el terreno.
+     * Si el terreno de esa ocupación todavía no llegó, la guarda hasta recibirlo
+     * y retorna false. Un snapshot fragmentado puede llegar después de deltas más
+     * nuevos: si es anterior a la versión aplicada sobre el mismo terreno, se ignora
+     * y también retorna false.
+     */
+    public boolean applyMapState(MapOccupancyDTO occupancy) {
+        if (terrain == null || terrain.getTerrainHash() != occupancy.getTerrainHash()) {
+            pendingOccupancy = occupancy;
+            return false;
+        }
+        pendingOccupancy = null;
+        if (gameMap != null && mapTerrain != null && mapTerrain.getTerrainHash() == occupancy.getTerrainHash()
+                && occupancy.getVersion() < mapVersion) {
+            logger.debug("Ignoring map state version {} older than {}", occupancy.getVersion(), mapVersion);
+            return false;
+        }
+        
+        List<TileDTO> tiles = new ArrayList<>();
+        Map<Long, Integer> index = new HashMap<>();
+        if (terrain.getTiles() != null) {
+            addTerrainTiles(tiles, index, terrain.getTiles());
+        }
+        this.tileIndex = index;
+        this.mapTerrain = terrain;
+        
+        Map<String, HexCoordinateDTO> positions = new HashMap<>();
+        placePlayers(tiles, positions, occupancy.getPlayers());
+        
+        GameMapDTO map = new GameMapDTO(terrain.getRadius(), tiles, positions,
+            terrain.getSpawnPoints(), terrain.getResourceNodes(), terrain.getStrategicNodes());
+        mapVersion = occupancy.getVersion();
+        map.setVersion(mapVersion);
+        this.gameMap = map;
+        logger.debug("Map state updated: {} players (version {})", positions.size(), mapVersion);
+        return true;
+    }
+    
+    /**
+     * Agrega copias de las casillas del terreno (las del terreno no se modifican) y las indexa.
+     */
+    private static void addTerrainTiles(List<TileDTO> tiles, Map<Long, Integer> index, List<TileDTO> source) {
+        for (TileDTO tile : source) {
+            HexCoordinateDTO coordinate = tile.getCoordinate();
+            index.put(coordinateKey(coordinate.getQ(), coordinate.getR()), tiles.size());
+            tiles.add(new TileDTO(coordinate, tile.getBiome(), tile.getType(), null,
+                tile.getMovementCost(), tile.getDefenseBonus()));
+        }
+    }
+    
+    /**
+     * Aplica un delta del mapa sobre el estado local.
+     * Retorna false si el delta parte de una versión que el cliente no tiene
+     * (hace falta el mapa completo); un delta ya aplicado se ignora.
+     */
+    public boolean applyMapDelta(MapDeltaDTO delta) {
+        if (gameMap == null || delta.getBaseVersion() > mapVersion) {
+            return false;
+        }
+        if (delta.getVersion() <= mapVersion) {
+            return true;
+        }
+        
+        // Copia nueva: la interfaz puede estar recorriendo las posiciones actuales
+        Map<String, HexCoordinateDTO> positions = new HashMap<>(gameMap.getPlayerPositions());
+        if (delta.getRemovedPlayers() != null) {
+            for (String removed : delta.getRemovedPlayers()) {
+                vacate(gameMap.getTiles(), positions.remove(removed), removed);
+            }
+        }
+        placePlayers(gameMap.getTiles(), positions, delta.getMovedPlayers());
+        gameMap.setPlayerPositions(positions);
+        
+        mapVersion = delta.getVersion();
+        gameMap.setVersion(mapVersion);
+        logger.debug("Map delta applied: {} players moved (version {})",
+            delta.getMovedPlayers() != null ? delta.getMovedPlayers().size() : 0, mapVersion);
+        return true;
+    }
+    
+    public long getMapVersion() {
+        return mapVersion;
+    }
+    
+    /**
+     * Mueve a cada jugador a su casilla, liberando la que ocupaba.
+     */
+    private void placePlayers(List<TileDTO> tiles, Map<String, HexCoordinateDTO> positions,
+                              PositionArraysDTO players) {
+        if (players == null) {
+            return;
+        }
+        for (int i = 0; i < players.size(); i++) {
+            String playerId = players.getPlayerIds()[i];
+            int q = players.getQ()[i];
+            int r = players.getR()[i];
+            
+            vacate(tiles, positions.get(playerId), playerId);
+            positions.put(playerId, new HexCoordinateDTO(q, r, -q - r));
+            Integer position = tileIndex.get(coordinateKey(q, r));
+            if (position != null) {
+                tiles.get(position).setOccupyingPlayerId(playerId);
+            }
+        }
+    }
+    
+    // Solo si sigue ocupada por ese jugador: otro pudo haberse movido ahí en el mismo delta
+    private void vacate(List<TileDTO> tiles, HexCoordinateDTO coordinate, String playerId) {
+        if (coordinate == null) {
+            return;
+        }
+        Integer position = tileIndex.get(coordinateKey(coordinate.getQ(), coordinate.getR()));
+        if (position != null && playerId.equals(tiles.get(position).getOccupyingPlayerId())) {
+            tiles.get(position).setOccupyingPlayerId(null);
+        }
+    }
+    
+    private static long coordinateKey(int q, int r) {
+        return ((long) q << 32) | (r & 0xffffffffL);
     }
     
     public MovementDTO getLastMovement() {
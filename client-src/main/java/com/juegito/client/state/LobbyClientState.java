@@ -1,5 +1,6 @@
 package com.juegito.client.state;
 
+import com.juegito.protocol.StateChecksum;
 import com.juegito.protocol.dto.lobby.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,7 +11,8 @@ import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Estado del lobby en el cliente.
- * Sincronizado con los mensajes LobbySnapshot del servidor.
+ * Sincronizado con los mensajes LobbySnapshot del servidor y actualizado con sus
+ * eventos (PLAYER_JOINED, PLAYER_UPDATED...); el keep-alive verifica la copia.
  */
 public class LobbyClientState {
     private static final Logger logger = LoggerFactory.getLogger(LobbyClientState.class);
@@ -129,6 +131,13 @@ public class LobbyClientState {
             .allMatch(p -> p.getConnectionStatus() == ConnectionStatus.READY);
     }
     
+    /**
+     * Checksum de la copia local, para comparar con el del keep-alive del servidor.
+     */
+    public int getChecksum() {
+        return StateChecksum.ofLobby(hostId, status, players);
+    }
+    
     /**
      * Obtiene el número de jugadores conectados.
      */
@@ -10,7 +10,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Procesa actualizaciones del servidor y las aplica al estado local.
@@ -22,11 +22,17 @@ public class ServerUpdateProcessor {
     private final ClientGameState gameState;
     private final LobbyClientState lobbyState;
     private final List<StateChangeListener> listeners;
+    private final Consumer<Message> replySender;
     
-    public ServerUpdateProcessor(ClientGameState gameState, LobbyClientState lobbyState) {
+    /**
+     * @param replySender Envía al servidor las respuestas automáticas (confirmaciones del mapa)
+     */
+    public ServerUpdateProcessor(ClientGameState gameState, LobbyClientState lobbyState,
+                                 Consumer<Message> replySender) {
         this.gameState = gameState;
         this.lobbyState = lobbyState;
         this.listeners = new ArrayList<>();
+        this.replySender = replySender;
     }
     
     /**
@@ -54,6 +60,10 @@ public class ServerUpdateProcessor {
                 handleLobbySnapshot(message);
                 break;
             
+            case LOBBY_KEEPALIVE:
+                handleLobbyKeepAlive(message);
+                break;
+            
             case PLAYER_JOINED:
                 handlePlayerJoined(message);
                 break;
@@ -119,6 +129,18 @@ public class ServerUpdateProcessor {
                 handleMapState(message);
                 break;
                 
+            case MAP_DELTA:
+                handleMapDelta(message);
+                break;
+            
+            case MAP_TERRAIN:
+                handleMapTerrain(message);
+                break;
+            
+            case MAP_TERRAIN_PAGE:
+                handleMapTerrainPage(message);
+                break;
+            
             case MOVEMENT_RESULT:
                 handleMovementResult(message);
                 break;
@@ -143,6 +165,10 @@ public class ServerUpdateProcessor {
                 handleError(message);
                 break;
                 
+            case PING:
+                handlePing();
+                break;
+            
             case PONG:
                 handlePong(message);
                 break;
@@ -150,6 +176,9 @@ public class ServerUpdateProcessor {
             default:
                 logger.warn("Unhandled message type: {}", message.getType());
         }
+        
+        // Número de secuencia de la sesión: lo que se confirma al reconectar
+        gameState.recordSessionMessage(message.getType());
     }
     
     private void handlePlayerConnect(Message message) {
@@ -182,6 +211,18 @@ public class ServerUpdateProcessor {
         notifyListeners(StateChangeType.LOBBY_SNAPSHOT_UPDATED, dto);
     }
     
+    /**
+     * El servidor envía versión y checksum mientras el lobby no cambia; si la copia
+     * local no coincide (se perdió un evento), se pide el snapshot.
+     */
+    private void handleLobbyKeepAlive(Message message) {
+        LobbyKeepAliveDTO dto = (LobbyKeepAliveDTO) message.getPayload();
+        if (lobbyState.getChecksum() != dto.getChecksum()) {
+            logger.info("Lobby state out of sync at version {}, requesting snapshot", dto.getVersion());
+            replySender.accept(new Message(MessageType.REQUEST_STATE_SYNC, gameState.getPlayerId(), null));
+        }
+    }
+    
     private void handlePlayerJoined(Message message) {
         PlayerJoinedDTO dto = (PlayerJoinedDTO) message.getPayload();
         lobbyState.addPlayer(dto.getPlayer());
@@ -237,6 +278,7 @@ public class ServerUpdateProcessor {
     }
     
     private void handleStartGame(Message message) {
+        gameState.startSession();
         gameState.setGameStarted(true);
         gameState.setCurrentPhase(ClientGameState.GamePhase.STARTING);
         
@@ -281,11 +323,50 @@ public class ServerUpdateProcessor {
         logger.warn("Action rejected: {}", reason);
     }
     
+    private void handleMapTerrain(Message message) {
+        if (gameState.setMapTerrain((MapTerrainDTO) message.getPayload())) {
+            mapUpdated();
+        }
+    }
+    
+    /**
+     * Una página más de un terreno grande: se dibuja sin esperar al resto.
+     * La versión del mapa no cambia, así que no hace falta MAP_ACK.
+     */
+    private void handleMapTerrainPage(Message message) {
+        if (gameState.addTerrainPage((MapTerrainPageDTO) message.getPayload())) {
+            notifyListeners(StateChangeType.MAP_UPDATED, gameState.getGameMap());
+        }
+    }
+    
     private void handleMapState(Message message) {
-        GameMapDTO mapDTO = (GameMapDTO) message.getPayload();
-        gameState.setGameMap(mapDTO);
-        notifyListeners(StateChangeType.MAP_UPDATED, mapDTO);
-        logger.debug("Map state updated");
+        if (gameState.applyMapState((MapOccupancyDTO) message.getPayload())) {
+            mapUpdated();
+        } else {
+            logger.debug("Map state not applied (waiting for its terrain or stale)");
+        }
+    }
+    
+    private void handleMapDelta(Message message) {
+        MapDeltaDTO delta = (MapDeltaDTO) message.getPayload();
+        if (!gameState.applyMapDelta(delta)) {
+            // Falta la base del delta: se pide el estado completo
+            logger.warn("Map delta from version {} cannot be applied at version {} - requesting resync",
+                delta.getBaseVersion(), gameState.getMapVersion());
+            replySender.accept(new Message(MessageType.REQUEST_RESYNC, gameState.getPlayerId(), null));
+            return;
+        }
+        mapUpdated();
+    }
+    
+    /**
+     * Notifica el mapa actualizado e informa al servidor la versión aplicada:
+     * sus próximos deltas parten de ella.
+     */
+    private void mapUpdated() {
+        notifyListeners(StateChangeType.MAP_UPDATED, gameState.getGameMap());
+        replySender.accept(new Message(MessageType.MAP_ACK, gameState.getPlayerId(),
+            new MapAckDTO(gameState.getMapVersion())));
     }
     
     private void handleMovementResult(Message message) {
@@ -305,17 +386,15 @@ public class ServerUpdateProcessor {
     private void handleGameHeartbeat(Message message) {
         GameHeartbeatDTO heartbeat = (GameHeartbeatDTO) message.getPayload();
         
-        // Actualizar HP de jugadores en worldState
-        if (heartbeat.getPlayerHP() != null) {
-            for (Map.Entry<String, Integer> entry : heartbeat.getPlayerHP().entrySet()) {
-                gameState.getWorldState().put("hp_" + entry.getKey(), entry.getValue());
-            }
+        // Si la copia local no coincide, se pide solo el heartbeat completo (no una resincronización total)
+        if (!gameState.applyHeartbeat(heartbeat)) {
+            logger.info("Game state out of sync at version {}, requesting state sync", heartbeat.getVersion());
+            replySender.accept(new Message(MessageType.REQUEST_STATE_SYNC, gameState.getPlayerId(), null));
+            return;
         }
         
-        // El heartbeat es solo para verificar conexión y mantener info básica actualizada
-        logger.trace("Game heartbeat received - Turn: {}, Player: {}, HP data: {}", 
-            heartbeat.getTurnNumber(), heartbeat.getCurrentTurnPlayerId(),
-            heartbeat.getPlayerHP() != null ? heartbeat.getPlayerHP().size() : 0);
+        logger.trace("Game heartbeat received - Version: {}, HP changes: {}",
+            heartbeat.getVersion(), heartbeat.getPlayerHP() != null ? heartbeat.getPlayerHP().size() : 0);
     }
     
     private void handleFullResync(Message message) {
@@ -329,7 +408,9 @@ public class ServerUpdateProcessor {
     
     private void handleReconnectAccepted(Message message) {
         ReconnectResponseDTO response = (ReconnectResponseDTO) message.getPayload();
-        logger.info("Reconnection accepted: {}", response.getReason());
+        gameState.resumeSession(response.getSequence());
+        logger.info("Reconnection accepted: {} ({} from sequence {})", response.getReason(),
+            response.isResumed() ? "replaying missed messages" : "full resync", response.getSequence());
         notifyListeners(StateChangeType.RECONNECT_ACCEPTED, response);
     }
     
@@ -344,6 +425,13 @@ public class ServerUpdateProcessor {
         logger.error("Error from server: {}", message.getPayload());
     }
     
+    /**
+     * El servidor pregunta si la conexión sigue viva tras un rato sin mensajes.
+     */
+    private void handlePing() {
+        replySender.accept(new Message(MessageType.PONG, gameState.getPlayerId(), null));
+    }
+    
     private void handlePong(Message message) {
         // Respuesta a ping - usado para keepalive
         logger.trace("Pong received");
@@ -0,0 +1,73 @@
+package com.juegito.client.state;
+
+import com.juegito.protocol.dto.HexCoordinateDTO;
+import com.juegito.protocol.dto.MapDeltaDTO;
+import com.juegito.protocol.dto.MapOccupancyDTO;
+import com.juegito.protocol.dto.MapTerrainDTO;
+import com.juegito.protocol.dto.PositionArraysDTO;
+import com.juegito.protocol.dto.TileDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClientGameStateTest {
+    private static final long TERRAIN_HASH = 7;
+    private static final String PLAYER = "player-1";
+    
+    /**
+     * El resto de un MAP_STATE fragmentado llega después del MAP_DELTA que lo sigue.
+     */
+    @Test
+    void fragmentedSnapshotArrivingAfterDeltaIsIgnored() {
+        ClientGameState state = new ClientGameState();
+        state.setMapTerrain(terrain());
+        assertTrue(state.applyMapState(occupancy(2, 0, 0)));
+        
+        assertTrue(state.applyMapDelta(new MapDeltaDTO(2, 3, positions(1, 0), new String[0])));
+        assertFalse(state.applyMapState(occupancy(2, 0, 0)));
+        
+        assertEquals(3, state.getMapVersion());
+        HexCoordinateDTO position = state.getGameMap().getPlayerPositions().get(PLAYER);
+        assertEquals(1, position.getQ());
+        assertEquals(0, position.getR());
+    }
+    
+    @Test
+    void newerSnapshotReplacesMap() {
+        ClientGameState state = new ClientGameState();
+        state.setMapTerrain(terrain());
+        assertTrue(state.applyMapState(occupancy(2, 0, 0)));
+        
+        assertTrue(state.applyMapState(occupancy(5, -1, 1)));
+        
+        assertEquals(5, state.getMapVersion());
+        assertEquals(-1, state.getGameMap().getPlayerPositions().get(PLAYER).getQ());
+    }
+    
+    /**
+     * Terreno de radio 1: el centro y sus seis vecinos.
+     */
+    private static MapTerrainDTO terrain() {
+        int[][] coordinates = {{0, 0}, {1, 0}, {1, -1}, {0, -1}, {-1, 0}, {-1, 1}, {0, 1}};
+        List<TileDTO> tiles = new ArrayList<>();
+        for (int[] coordinate : coordinates) {
+            int q = coordinate[0];
+            int r = coordinate[1];
+            tiles.add(new TileDTO(new HexCoordinateDTO(q, r, -q - r), "PLAINS", "NORMAL", null, 1, 0));
+        }
+        return new MapTerrainDTO(TERRAIN_HASH, 1, tiles, new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+    }
+    
+    private static MapOccupancyDTO occupancy(long version, int q, int r) {
+        return new MapOccupancyDTO(TERRAIN_HASH, version, positions(q, r));
+    }
+    
+    private static PositionArraysDTO positions(int q, int r) {
+        return new PositionArraysDTO(new String[] {PLAYER}, new int[] {q}, new int[] {r});
+    }
+}
@@ -0,0 +1,258 @@
+package com.juegito.protocol;
+
+import com.google.gson.Gson;
+import com.juegito.protocol.binary.BinaryCodec;
+import com.juegito.protocol.binary.BinaryWriter;
+import com.juegito.protocol.binary.PlayerHandleTable;
+import com.juegito.protocol.wire.FrameCodec;
+import com.juegito.protocol.wire.FrameCompressor;
+import com.juegito.protocol.wire.FrameType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mensaje ya serializado, listo para enviarse.
+ * Se codifica una sola vez y los mismos bytes se comparten entre todos los destinatarios
+ * de un broadcast, en lugar de llamar a toJson por cada jugador.
+ * Cada formato de cable (línea, frame JSON o frame binario, comprimidos o no) se
+ * construye la primera vez que se pide: un mensaje que solo viaja en binario nunca pasa
+ * por toJson. El payload se suelta cuando ya no hace falta para construir ninguno.
+ * Los handles de jugador son de la partida, así que todos sus destinatarios comparten la
+ * forma binaria (y su versión comprimida). Solo una conexión con otra tabla (p. ej. todavía
+ * sin partida) la recodifica, sin guardarla; la forma que no usa handles sirve a cualquiera.
+ */
+public final class EncodedMessage {
+    private static final Gson GSON = MessageTypeAdapter.createGson();
+    private static final AtomicLong SERIALIZATIONS = new AtomicLong();
+    private static final AtomicLong SERIALIZATIONS_AVOIDED = new AtomicLong();
+    
+    private final MessageType type;
+    private final boolean binaryCapable;
+    private final AtomicInteger jsonDeliveries; // Entregas en cualquier forma derivada de la línea
+    // Se suelta con la línea construida y, si hay binario, una forma que no depende de la tabla
+    private volatile Message source;
+    private volatile byte[] line;
+    private volatile byte[] frame;
+    private volatile byte[] compressedFrame;
+    private volatile BinaryForm binary;
+    private BinaryForm recoded; // Última recodificación para otra tabla: frame y handles de la misma entrega
+    
+    private EncodedMessage(Message source) {
+        this.type = source.getType();
+        this.binaryCapable = BinaryCodec.supports(source);
+        this.jsonDeliveries = new AtomicInteger();
+        this.source = source;
+    }
+    
+    /**
+     * Envuelve el mensaje para codificarlo una sola vez; no serializa nada hasta que
+     * se pide un formato.
+     */
+    public static EncodedMessage of(Message message) {
+        return new EncodedMessage(message);
+    }
+    
+    public MessageType getType() {
+        return type;
+    }
+    
+    /**
+     * JSON en UTF-8 terminado en '\n', listo para escribir en el socket. Compartidos: no modificar.
+     */
+    public byte[] getLine() {
+        byte[] encoded = line;
+        if (encoded == null) {
+            synchronized (this) {
+                encoded = line;
+                if (encoded == null) {
+                    SERIALIZATIONS.incrementAndGet();
+                    encoded = (GSON.toJson(source) + "\n").getBytes(StandardCharsets.UTF_8);
+                    line = encoded;
+                    releaseSource();
+                }
+            }
+        }
+        return encoded;
+    }
+    
+    /**
+     * El mismo JSON como frame con prefijo de longitud (tipo JSON).
+     */
+    public byte[] getFrame() {
+        byte[] encoded = frame;
+        if (encoded == null) {
+            // Carrera benigna: en el peor caso dos hilos construyen el mismo arreglo
+            byte[] json = getLine();
+            encoded = FrameCodec.encode(FrameType.JSON, 0, json, 0, json.length - 1);
+            frame = encoded;
+        }
+        return encoded;
+    }
+    
+    /**
+     * Frame JSON pasado por el compresor (comprimido solo si supera su umbral).
+     */
+    public byte[] getFrame(FrameCompressor compressor) {
+        byte[] encoded = compressedFrame;
+        if (encoded == null) {
+            encoded = compressor.compress(type, getFrame());
+            compressedFrame = encoded;
+        }
+        return encoded;
+    }
+    
+    /**
+     * Indica si el mensaje tiene forma binaria; si no, se envía como frame JSON.
+     */
+    public boolean hasBinary() {
+        return binaryCapable;
+    }
+    
+    /**
+     * Frame BINARY del mensaje con los handles de la tabla dada. Llamar solo si hasBinary().
+     */
+    public byte[] getBinaryFrame(PlayerHandleTable handles) {
+        return binaryForm(handles).frame;
+    }
+    
+    /**
+     * Frame BINARY pasado por el compresor. Llamar solo si hasBinary().
+     */
+    public byte[] getBinaryFrame(PlayerHandleTable handles, FrameCompressor compressor) {
+        return compressed(binaryForm(handles), compressor);
+    }
+    
+    /**
+     * Tamaño del frame BINARY (pasado por el compresor si se da uno) sin recodificar para
+     * cada tabla: usa la forma guardada aunque sea de otra tabla (solo cambia el ancho
+     * de algún handle) o la construye para esta. Llamar solo si hasBinary().
+     */
+    public int getBinarySize(PlayerHandleTable handles, FrameCompressor compressor) {
+        BinaryForm form = binary;
+        if (form == null) {
+            form = binaryForm(handles);
+        }
+        return compressor == null ? form.frame.length : compressed(form, compressor).length;
+    }
+    
+    private byte[] compressed(BinaryForm form, FrameCompressor compressor) {
+        byte[] encoded = form.compressedFrame;
+        if (encoded == null) {
+            encoded = compressor.compress(type, form.frame);
+            form.compressedFrame = encoded;
+        }
+        return encoded;
+    }
+    
+    /**
+     * Handles de jugador que referencia el frame binario; el receptor
+     * debe tenerlos definidos antes de recibirlo.
+     */
+    public int[] getPlayerHandles(PlayerHandleTable handles) {
+        return binaryForm(handles).handles;
+    }
+    
+    /**
+     * Construye ya la línea JSON y la forma binaria sin handles (los IDs de jugador, si hay,
+     * van como texto) y suelta el payload, así el mensaje no lo retiene (p. ej. páginas de
+     * terreno que quedan cacheadas toda la partida).
+     */
+    public EncodedMessage detachPayload() {
+        getLine();
+        if (binaryCapable) {
+            binaryForm(PlayerHandleTable.learning());
+        }
+        return this;
+    }
+    
+    private BinaryForm binaryForm(PlayerHandleTable handles) {
+        BinaryForm form = binary;
+        if (form != null && (form.table == handles || form.handles.length == 0)) {
+            return form;
+        }
+        synchronized (this) {
+            form = binary;
+            if (form != null && (form.table == handles || form.handles.length == 0)) {
+                return form;
+            }
+            if (recoded != null && recoded.table == handles) {
+                return recoded;
+            }
+            // Con una forma ya guardada que usa handles, el origen sigue disponible
+            SERIALIZATIONS.incrementAndGet();
+            BinaryWriter writer = BinaryCodec.encode(source, handles);
+            BinaryForm encoded = new BinaryForm(handles,
+                FrameCodec.encode(FrameType.BINARY, 0, writer.toByteArray()), writer.getUsedHandles());
+            if (form == null) {
+                binary = encoded;
+                releaseSource();
+            } else {
+                recoded = encoded;
+            }
+            return encoded;
+        }
+    }
+    
+    /**
+     * Suelta el payload si ya no hace falta para ningún formato. Llamar con el lock tomado.
+     */
+    private void releaseSource() {
+        BinaryForm form = binary;
+        if (line != null && (!binaryCapable || (form != null && form.handles.length == 0))) {
+            source = null;
+        }
+    }
+    
+    /**
+     * Registra una entrega escrita como línea o frame JSON. Todas salen de la misma línea:
+     * a partir de la segunda, cada una es una serialización evitada.
+     */
+    public void recordDelivery() {
+        if (jsonDeliveries.incrementAndGet() > 1) {
+            SERIALIZATIONS_AVOIDED.incrementAndGet();
+        }
+    }
+    
+    /**
+     * Registra una entrega escrita como frame BINARY con la tabla dada. Solo cuenta como
+     * evitada si reutilizó la forma guardada; una recodificación para otra tabla no.
+     */
+    public void recordDelivery(PlayerHandleTable handles) {
+        BinaryForm form = binary;
+        if (form != null && (form.table == handles || form.handles.length == 0)
+                && form.deliveries.incrementAndGet() > 1) {
+            SERIALIZATIONS_AVOIDED.incrementAndGet();
+        }
+    }
+    
+    /**
+     * Total de codificaciones (línea JSON o forma binaria, guardada o no) desde el arranque.
+     */
+    public static long getSerializationCount() {
+        return SERIALIZATIONS.get();
+    }
+    
+    /**
+     * Total de serializaciones ahorradas al compartir bytes entre destinatarios.
+     */
+    public static long getSerializationsAvoided() {
+        return SERIALIZATIONS_AVOIDED.get();
+    }
+    
+    private static final class BinaryForm {
+        final PlayerHandleTable table;
+        final byte[] frame;
+        final int[] handles;
+        final AtomicInteger deliveries;
+        volatile byte[] compressedFrame;
+        
+        BinaryForm(PlayerHandleTable table, byte[] frame, int[] handles) {
+            this.table = table;
+            this.frame = frame;
+            this.handles = handles;
+            this.deliveries = new AtomicInteger();
+        }
+    }
+}
@@ -37,13 +37,13 @@ public enum MessageType {
     
     // Mensajes de juego
     GAME_STATE,
-    GAME_HEARTBEAT,          // Heartbeat periódico del estado del juego
+    GAME_HEARTBEAT,          // Versión y checksum del estado del juego, con turno/HP que cambiaron
     PLAYER_ACTION,
     TURN_START,
     TURN_END,
     
     // Mensajes de mapa y movimiento
-    MAP_STATE,
+    MAP_STATE,               // Posiciones de todos los jugadores (el terreno va en MAP_TERRAIN)
     MOVEMENT_REQUEST,
     MOVEMENT_RESULT,
     REACHABLE_TILES,
@@ -84,5 +84,32 @@ public enum MessageType {
     // Mensajes de sistema
     ERROR,
     PING,
-    PONG
+    PONG,
+    
+    // Sincronización incremental del mapa (al final: el orden es parte del protocolo binario)
+    MAP_DELTA,               // Servidor envía solo las posiciones que cambiaron
+    MAP_ACK,                 // Cliente informa la última versión del mapa que aplicó
+    MAP_TERRAIN,             // Servidor envía una vez el terreno estático del mapa
+    REQUEST_STATE_SYNC,      // Cliente pide el heartbeat o el snapshot del lobby (checksum no coincide)
+    LOBBY_KEEPALIVE,         // Servidor envía versión y checksum del lobby mientras no cambia
+    SESSION_ACK,             // Cliente informa el último número de secuencia de la sesión que procesó
+    MAP_TERRAIN_PAGE;        // Servidor envía una página de casillas de un terreno que no entra en MAP_TERRAIN
+    
+    /**
+     * True si el mensaje cuenta en la secuencia de la sesión de partida (ver ReconnectRequestDTO).
+     * No cuentan los de control de la conexión, que el servidor envía fuera de la partida.
+     */
+    public boolean isSequenced() {
+        switch (this) {
+            case PING:
+            case PONG:
+            case JOIN_RESPONSE:
+            case RECONNECT_ACCEPTED:
+            case RECONNECT_REJECTED:
+            case SESSION_ACK:
+                return false;
+            default:
+                return true;
+        }
+    }
 }
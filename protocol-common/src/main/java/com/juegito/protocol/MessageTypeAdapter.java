@@ -0,0 +1,165 @@
+package com.juegito.protocol;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Adaptador de streaming para Message: lee el tipo y decodifica el payload directo
+ * al DTO registrado en PayloadRegistry, en una sola pasada sobre el JSON.
+ * Evita el doble viaje toJson/fromJson (o JsonObject → String → DTO) de cada mensaje.
+ * La salida es la misma que la serialización por reflexión de Gson.
+ */
+public class MessageTypeAdapter extends TypeAdapter<Message> {
+    private final Gson payloadGson;
+    private final Map<MessageType, TypeAdapter<?>> payloadAdapters;
+    
+    /**
+     * @param payloadGson Gson para los DTO (los payloads nunca contienen otro Message)
+     */
+    public MessageTypeAdapter(Gson payloadGson) {
+        this.payloadGson = payloadGson;
+        this.payloadAdapters = new EnumMap<>(MessageType.class);
+        for (MessageType type : MessageType.values()) {
+            Class<?> payloadClass = PayloadRegistry.payloadClass(type);
+            if (payloadClass != null) {
+                payloadAdapters.put(type, payloadGson.getAdapter(payloadClass));
+            }
+        }
+    }
+    
+    /**
+     * Gson con este adaptador registrado. Es thread-safe: se puede compartir.
+     */
+    public static Gson createGson() {
+        return new GsonBuilder()
+            .registerTypeAdapter(Message.class, new MessageTypeAdapter(new Gson()))
+            .create();
+    }
+    
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void write(JsonWriter out, Message message) throws IOException {
+        if (message == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        if (message.getType() != null) {
+            out.name("type").value(message.getType().name());
+        }
+        out.name("timestamp").value(message.getTimestamp());
+        if (message.getSenderId() != null) {
+            out.name("senderId").value(message.getSenderId());
+        }
+        Object payload = message.getPayload();
+        if (payload != null) {
+            out.name("payload");
+            TypeAdapter adapter = payloadGson.getAdapter(payload.getClass());
+            adapter.write(out, payload);
+        }
+        out.endObject();
+    }
+    
+    @Override
+    public Message read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        Message message = new Message();
+        JsonElement payloadTree = null; // Solo si el payload llega antes que el tipo
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "type":
+                    message.setType(readType(in));
+                    break;
+                case "timestamp":
+                    message.setTimestamp(in.nextLong());
+                    break;
+                case "senderId":
+                    message.setSenderId(readNullableString(in));
+                    break;
+                case "payload":
+                    if (message.getType() != null) {
+                        message.setPayload(readPayload(in, message.getType()));
+                    } else {
+                        payloadTree = JsonParser.parseReader(in);
+                    }
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        if (payloadTree != null && !payloadTree.isJsonNull()) {
+            TypeAdapter<?> adapter = payloadAdapters.get(message.getType());
+            message.setPayload(adapter != null ? adapter.fromJsonTree(payloadTree) : payloadTree);
+        }
+        return message;
+    }
+    
+    /**
+     * Solo el tipo de un mensaje JSON, sin construir el payload: se saltean los campos
+     * hasta "type" (que el servidor y el cliente escriben primero). Retorna null si el
+     * JSON está mal formado o el tipo falta o es desconocido.
+     */
+    public static MessageType peekType(String json) {
+        try (JsonReader in = new JsonReader(new StringReader(json))) {
+            in.beginObject();
+            while (in.hasNext()) {
+                if ("type".equals(in.nextName())) {
+                    return readType(in);
+                }
+                in.skipValue();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Se descarta al deserializarlo
+        }
+        return null;
+    }
+    
+    private Object readPayload(JsonReader in, MessageType type) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        TypeAdapter<?> adapter = payloadAdapters.get(type);
+        // Tipos sin DTO: se entregan como árbol JSON
+        return adapter != null ? adapter.read(in) : JsonParser.parseReader(in);
+    }
+    
+    /**
+     * Un tipo desconocido queda en null, igual que con la deserialización por reflexión.
+     */
+    private static MessageType readType(JsonReader in) throws IOException {
+        String name = readNullableString(in);
+        if (name == null) {
+            return null;
+        }
+        try {
+            return MessageType.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+    
+    private static String readNullableString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+}
@@ -0,0 +1,91 @@
+package com.juegito.protocol;
+
+import com.juegito.protocol.dto.*;
+import com.juegito.protocol.dto.lobby.*;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Registro único de la clase de payload de cada tipo de mensaje.
+ * Cliente y servidor lo usan para decodificar el payload directo al DTO correcto,
+ * sin pasar por un árbol JSON intermedio (DRY: antes cada extremo tenía su propio switch).
+ * Los tipos sin DTO (payloads armados con Map en el servidor) no se registran y
+ * se decodifican como JsonElement.
+ */
+public final class PayloadRegistry {
+    private static final Map<MessageType, Class<?>> PAYLOAD_CLASSES = new EnumMap<>(MessageType.class);
+    
+    static {
+        // Conexión
+        register(PlayerConnectDTO.class, MessageType.PLAYER_CONNECT);
+        
+        // Lobby (cliente → servidor)
+        register(JoinRequestDTO.class, MessageType.JOIN_REQUEST);
+        register(LeaveLobbyDTO.class, MessageType.LEAVE_LOBBY);
+        register(ReadyStatusChangeDTO.class, MessageType.READY_STATUS_CHANGE);
+        register(ClassSelectionDTO.class, MessageType.CLASS_SELECTION);
+        register(ColorSelectionDTO.class, MessageType.COLOR_SELECTION);
+        register(KickPlayerDTO.class, MessageType.KICK_PLAYER);
+        register(StartMatchRequestDTO.class, MessageType.START_MATCH_REQUEST);
+        register(ChangeLobbySettingsDTO.class, MessageType.CHANGE_LOBBY_SETTINGS);
+        register(ChatMessageRequestDTO.class, MessageType.CHAT_MESSAGE_REQUEST);
+        register(ChangePlayerNameDTO.class, MessageType.CHANGE_PLAYER_NAME);
+        
+        // Lobby (servidor → cliente)
+        register(JoinResponseDTO.class, MessageType.JOIN_RESPONSE);
+        register(LobbySnapshotDTO.class, MessageType.LOBBY_SNAPSHOT);
+        register(LobbyKeepAliveDTO.class, MessageType.LOBBY_KEEPALIVE);
+        register(PlayerJoinedDTO.class, MessageType.PLAYER_JOINED);
+        register(PlayerLeftDTO.class, MessageType.PLAYER_LEFT);
+        register(PlayerUpdatedDTO.class, MessageType.PLAYER_UPDATED);
+        register(InvalidActionDTO.class, MessageType.INVALID_ACTION);
+        register(StartMatchDTO.class, MessageType.START_MATCH);
+        register(KickedFromLobbyDTO.class, MessageType.KICKED_FROM_LOBBY);
+        register(ChatMessageDTO.class, MessageType.CHAT_MESSAGE);
+        // LOBBY_STATE se mantiene para clientes viejos aunque su DTO esté deprecado
+        @SuppressWarnings("deprecation")
+        Class<?> legacyLobbyState = LobbyStateDTO.class;
+        register(legacyLobbyState, MessageType.LOBBY_STATE);
+        
+        // Juego
+        register(GameStateDTO.class, MessageType.GAME_STATE, MessageType.FULL_RESYNC);
+        register(GameHeartbeatDTO.class, MessageType.GAME_HEARTBEAT);
+        register(PlayerActionDTO.class, MessageType.PLAYER_ACTION, MessageType.ACTION_VALID);
+        register(MapOccupancyDTO.class, MessageType.MAP_STATE);
+        register(MapTerrainDTO.class, MessageType.MAP_TERRAIN);
+        register(MapTerrainPageDTO.class, MessageType.MAP_TERRAIN_PAGE);
+        register(MapDeltaDTO.class, MessageType.MAP_DELTA);
+        register(MapAckDTO.class, MessageType.MAP_ACK);
+        register(MovementDTO.class, MessageType.MOVEMENT_RESULT);
+        
+        // Reconexión
+        register(ReconnectRequestDTO.class, MessageType.RECONNECT_REQUEST);
+        register(ReconnectResponseDTO.class, MessageType.RECONNECT_ACCEPTED, MessageType.RECONNECT_REJECTED);
+        register(SessionAckDTO.class, MessageType.SESSION_ACK);
+        
+        // Combate, habilidades, eventos y loot
+        register(AttackRequestDTO.class, MessageType.ATTACK_REQUEST);
+        register(CombatResultDTO.class, MessageType.COMBAT_RESULT);
+        register(AbilityRequestDTO.class, MessageType.ABILITY_REQUEST);
+        register(EventInteractionDTO.class, MessageType.EVENT_INTERACTION);
+        register(EventResultDTO.class, MessageType.EVENT_RESULT);
+        register(LootDistributionDTO.class, MessageType.LOOT_DISTRIBUTION);
+    }
+    
+    private PayloadRegistry() {
+    }
+    
+    private static void register(Class<?> payloadClass, MessageType... types) {
+        for (MessageType type : types) {
+            PAYLOAD_CLASSES.put(type, payloadClass);
+        }
+    }
+    
+    /**
+     * Clase del payload del tipo dado, o null si el tipo no tiene DTO.
+     */
+    public static Class<?> payloadClass(MessageType type) {
+        return type == null ? null : PAYLOAD_CLASSES.get(type);
+    }
+}
@@ -0,0 +1,56 @@
+package com.juegito.protocol;
+
+import com.juegito.protocol.dto.lobby.LobbyStatus;
+import com.juegito.protocol.dto.lobby.PlayerLobbyDataDTO;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Checksums del estado que resumen el heartbeat (turno, jugador en turno y HP) y el
+ * keep-alive del lobby (host, estado y jugadores).
+ * Servidor y cliente lo calculan igual, así el cliente detecta si su copia se desvió.
+ * Cada jugador aporta un término que se suma al total, así que no depende del orden
+ * de la colección y no hace falta ordenarla ni copiarla.
+ */
+public final class StateChecksum {
+    
+    private StateChecksum() {
+    }
+    
+    public static int of(int turnNumber, String currentTurnPlayerId, Map<String, Integer> playerHP) {
+        int checksum = mix(turnNumber * 31 + (currentTurnPlayerId == null ? 0 : currentTurnPlayerId.hashCode()));
+        for (Map.Entry<String, Integer> entry : playerHP.entrySet()) {
+            int hp = entry.getValue() == null ? -1 : entry.getValue();
+            checksum += mix(entry.getKey().hashCode() * 31 + hp);
+        }
+        return checksum;
+    }
+    
+    /**
+     * Checksum del lobby. No incluye la configuración: sus cambios viajan en el snapshot.
+     */
+    public static int ofLobby(String hostId, LobbyStatus status, Collection<PlayerLobbyDataDTO> players) {
+        int checksum = mix(Objects.hashCode(hostId) * 31 + (status == null ? 0 : status.ordinal() + 1));
+        for (PlayerLobbyDataDTO player : players) {
+            int hash = Objects.hashCode(player.getPlayerId());
+            hash = hash * 31 + Objects.hashCode(player.getPlayerName());
+            hash = hash * 31 + (player.getConnectionStatus() == null ? 0 : player.getConnectionStatus().ordinal() + 1);
+            hash = hash * 31 + Objects.hashCode(player.getSelectedClass());
+            hash = hash * 31 + Objects.hashCode(player.getSelectedColor());
+            checksum += mix(hash);
+        }
+        return checksum;
+    }
+    
+    // Mezcla de bits (finalizador de MurmurHash3) para que valores cercanos no se compensen en la suma
+    private static int mix(int value) {
+        value ^= value >>> 16;
+        value *= 0x85EBCA6B;
+        value ^= value >>> 13;
+        value *= 0xC2B2AE35;
+        value ^= value >>> 16;
+        return value;
+    }
+}
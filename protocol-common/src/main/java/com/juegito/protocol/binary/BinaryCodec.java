@@ -0,0 +1,510 @@
+package com.juegito.protocol.binary;
+
+import com.juegito.protocol.Message;
+import com.juegito.protocol.MessageType;
+import com.juegito.protocol.dto.GameHeartbeatDTO;
+import com.juegito.protocol.dto.HexCoordinateDTO;
+import com.juegito.protocol.dto.MapAckDTO;
+import com.juegito.protocol.dto.MapDeltaDTO;
+import com.juegito.protocol.dto.MapOccupancyDTO;
+import com.juegito.protocol.dto.MapTerrainDTO;
+import com.juegito.protocol.dto.MapTerrainPageDTO;
+import com.juegito.protocol.dto.PlayerConnectDTO;
+import com.juegito.protocol.dto.PositionArraysDTO;
+import com.juegito.protocol.dto.SessionAckDTO;
+import com.juegito.protocol.dto.TileDTO;
+import com.juegito.protocol.dto.lobby.ConnectionStatus;
+import com.juegito.protocol.dto.lobby.LobbyConfigDTO;
+import com.juegito.protocol.dto.lobby.LobbyKeepAliveDTO;
+import com.juegito.protocol.dto.lobby.LobbySnapshotDTO;
+import com.juegito.protocol.dto.lobby.LobbyStatus;
+import com.juegito.protocol.dto.lobby.PlayerJoinedDTO;
+import com.juegito.protocol.dto.lobby.PlayerLobbyDataDTO;
+import com.juegito.protocol.dto.lobby.PlayerUpdatedDTO;
+
+import java.net.ProtocolException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Codec binario compacto para Message.
+ * Cubre los mensajes sin payload y los payloads registrados abajo (los de mayor volumen);
+ * el resto sigue viajando como JSON, que el receptor acepta en cualquier momento.
+ *
+ * Formato: [tipo varint][timestamp varlong][senderId][payload presente 0/1][payload].
+ * El orden de MessageType y de las tablas de símbolos es parte del protocolo:
+ * solo se agregan valores al final.
+ */
+public final class BinaryCodec {
+    // Nombres de los enums del servidor (BiomeType, TileType, PlayerClass...)
+    private static final String[] BIOMES = {"FOREST", "MOUNTAIN", "PLAINS"};
+    private static final String[] TILE_TYPES = {"NORMAL", "SPAWN", "RESOURCE", "STRATEGIC", "BLOCKED"};
+    private static final String[] PLAYER_CLASSES = {"GUARDIAN", "RANGER", "MAGE", "CLERIC", "ROGUE"};
+    private static final String[] DIFFICULTIES = {"EASY", "NORMAL", "HARD"};
+    private static final String[] MAP_SIZES = {"SMALL", "MEDIUM", "LARGE"};
+    
+    private static final MessageType[] MESSAGE_TYPES = MessageType.values();
+    private static final Map<MessageType, PayloadCodec<?>> CODECS = new EnumMap<>(MessageType.class);
+    
+    static {
+        register(MessageType.MAP_STATE, MapOccupancyDTO.class,
+            BinaryCodec::writeOccupancy, BinaryCodec::readOccupancy);
+        register(MessageType.MAP_TERRAIN, MapTerrainDTO.class, BinaryCodec::writeTerrain, BinaryCodec::readTerrain);
+        register(MessageType.MAP_TERRAIN_PAGE, MapTerrainPageDTO.class,
+            (out, dto) -> {
+                out.writeVarlong(dto.getTerrainHash());
+                out.writeVarint(dto.getPage());
+                writeTiles(out, dto.getTiles());
+            },
+            in -> new MapTerrainPageDTO(in.readVarlong(), in.readVarint(), readTiles(in)));
+        register(MessageType.MAP_DELTA, MapDeltaDTO.class, BinaryCodec::writeMapDelta, BinaryCodec::readMapDelta);
+        register(MessageType.MAP_ACK, MapAckDTO.class,
+            (out, dto) -> out.writeVarlong(dto.getVersion()),
+            in -> new MapAckDTO(in.readVarlong()));
+        register(MessageType.SESSION_ACK, SessionAckDTO.class,
+            (out, dto) -> out.writeVarlong(dto.getSequence()),
+            in -> new SessionAckDTO(in.readVarlong()));
+        register(MessageType.LOBBY_SNAPSHOT, LobbySnapshotDTO.class,
+            BinaryCodec::writeLobbySnapshot, BinaryCodec::readLobbySnapshot);
+        register(MessageType.LOBBY_KEEPALIVE, LobbyKeepAliveDTO.class,
+            (out, dto) -> {
+                out.writeVarlong(dto.getVersion());
+                out.writeSignedVarint(dto.getChecksum());
+            },
+            in -> new LobbyKeepAliveDTO(in.readVarlong(), in.readSignedVarint()));
+        register(MessageType.GAME_HEARTBEAT, GameHeartbeatDTO.class,
+            BinaryCodec::writeHeartbeat, BinaryCodec::readHeartbeat);
+        register(MessageType.PLAYER_CONNECT, PlayerConnectDTO.class,
+            BinaryCodec::writePlayerConnect, BinaryCodec::readPlayerConnect);
+        register(MessageType.PLAYER_JOINED, PlayerJoinedDTO.class,
+            (out, dto) -> writeLobbyPlayer(out, dto.getPlayer()),
+            in -> new PlayerJoinedDTO(readLobbyPlayer(in)));
+        register(MessageType.PLAYER_UPDATED, PlayerUpdatedDTO.class,
+            (out, dto) -> writeLobbyPlayer(out, dto.getPlayer()),
+            in -> new PlayerUpdatedDTO(readLobbyPlayer(in)));
+    }
+    
+    private BinaryCodec() {
+    }
+    
+    interface PayloadWriter<T> {
+        void write(BinaryWriter out, T payload);
+    }
+    
+    interface PayloadReader<T> {
+        T read(BinaryReader in) throws ProtocolException;
+    }
+    
+    private static final class PayloadCodec<T> {
+        final Class<T> payloadClass;
+        final PayloadWriter<T> writer;
+        final PayloadReader<T> reader;
+        
+        PayloadCodec(Class<T> payloadClass, PayloadWriter<T> writer, PayloadReader<T> reader) {
+            this.payloadClass = payloadClass;
+            this.writer = writer;
+            this.reader = reader;
+        }
+    }
+    
+    private static <T> void register(MessageType type, Class<T> payloadClass,
+                                     PayloadWriter<T> writer, PayloadReader<T> reader) {
+        CODECS.put(type, new PayloadCodec<>(payloadClass, writer, reader));
+    }
+    
+    /**
+     * Indica si el mensaje puede codificarse en binario.
+     */
+    public static boolean supports(Message message) {
+        if (message.getType() == null) {
+            return false;
+        }
+        Object payload = message.getPayload();
+        if (payload == null) {
+            return true;
+        }
+        PayloadCodec<?> codec = CODECS.get(message.getType());
+        return codec != null && codec.payloadClass == payload.getClass();
+    }
+    
+    /**
+     * Codifica el mensaje. Llamar solo si supports(message).
+     * El writer retornado expone los bytes y los handles usados.
+     */
+    public static BinaryWriter encode(Message message, PlayerHandleTable handles) {
+        BinaryWriter out = new BinaryWriter(handles);
+        out.writeVarint(message.getType().ordinal());
+        out.writeVarlong(message.getTimestamp());
+        out.writePlayerId(message.getSenderId());
+        
+        Object payload = message.getPayload();
+        out.writeBoolean(payload != null);
+        if (payload != null) {
+            writePayload(out, CODECS.get(message.getType()), payload);
+        }
+        return out;
+    }
+    
+    /**
+     * Solo el tipo del mensaje (el primer varint), sin decodificar el resto; null si no es válido.
+     */
+    public static MessageType peekType(byte[] data) {
+        try {
+            int ordinal = new BinaryReader(data, null).readVarint();
+            return ordinal >= 0 && ordinal < MESSAGE_TYPES.length ? MESSAGE_TYPES[ordinal] : null;
+        } catch (ProtocolException e) {
+            return null;
+        }
+    }
+    
+    public static Message decode(byte[] data, PlayerHandleTable handles) throws ProtocolException {
+        BinaryReader in = new BinaryReader(data, handles);
+        int ordinal = in.readVarint();
+        if (ordinal < 0 || ordinal >= MESSAGE_TYPES.length) {
+            throw new ProtocolException("Unknown message type " + ordinal);
+        }
+        Message message = new Message();
+        message.setType(MESSAGE_TYPES[ordinal]);
+        message.setTimestamp(in.readVarlong());
+        message.setSenderId(in.readPlayerId());
+        
+        if (in.readBoolean()) {
+            PayloadCodec<?> codec = CODECS.get(message.getType());
+            if (codec == null) {
+                throw new ProtocolException("No binary payload codec for " + message.getType());
+            }
+            message.setPayload(codec.reader.read(in));
+        }
+        return message;
+    }
+    
+    private static <T> void writePayload(BinaryWriter out, PayloadCodec<T> codec, Object payload) {
+        codec.writer.write(out, codec.payloadClass.cast(payload));
+    }
+    
+    // ========== Coordenadas ==========
+    
+    // s se deriva: en coordenadas cúbicas q + r + s = 0
+    private static void writeCoordinate(BinaryWriter out, HexCoordinateDTO coordinate) {
+        out.writeBoolean(coordinate != null);
+        if (coordinate != null) {
+            out.writeSignedVarint(coordinate.getQ());
+            out.writeSignedVarint(coordinate.getR());
+        }
+    }
+    
+    private static HexCoordinateDTO readCoordinate(BinaryReader in) throws ProtocolException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        int q = in.readSignedVarint();
+        int r = in.readSignedVarint();
+        return new HexCoordinateDTO(q, r, -q - r);
+    }
+    
+    private static void writeCoordinates(BinaryWriter out, List<HexCoordinateDTO> coordinates) {
+        out.writeSize(coordinates == null ? -1 : coordinates.size());
+        if (coordinates != null) {
+            for (HexCoordinateDTO coordinate : coordinates) {
+                writeCoordinate(out, coordinate);
+            }
+        }
+    }
+    
+    private static List<HexCoordinateDTO> readCoordinates(BinaryReader in) throws ProtocolException {
+        int size = in.readSize();
+        if (size < 0) {
+            return null;
+        }
+        List<HexCoordinateDTO> coordinates = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            coordinates.add(readCoordinate(in));
+        }
+        return coordinates;
+    }
+    
+    // ========== Mapa ==========
+    
+    private static void writeTerrain(BinaryWriter out, MapTerrainDTO terrain) {
+        out.writeVarlong(terrain.getTerrainHash());
+        out.writeVarint(terrain.getRadius());
+        out.writeVarint(terrain.getTileCount());
+        out.writeVarint(terrain.getPageCount());
+        writeTiles(out, terrain.getTiles());
+        writeCoordinates(out, terrain.getSpawnPoints());
+        writeCoordinates(out, terrain.getResourceNodes());
+        writeCoordinates(out, terrain.getStrategicNodes());
+    }
+    
+    private static MapTerrainDTO readTerrain(BinaryReader in) throws ProtocolException {
+        MapTerrainDTO terrain = new MapTerrainDTO();
+        terrain.setTerrainHash(in.readVarlong());
+        terrain.setRadius(in.readVarint());
+        terrain.setTileCount(in.readVarint());
+        terrain.setPageCount(in.readVarint());
+        terrain.setTiles(readTiles(in));
+        terrain.setSpawnPoints(readCoordinates(in));
+        terrain.setResourceNodes(readCoordinates(in));
+        terrain.setStrategicNodes(readCoordinates(in));
+        return terrain;
+    }
+    
+    private static void writeOccupancy(BinaryWriter out, MapOccupancyDTO occupancy) {
+        out.writeVarlong(occupancy.getTerrainHash());
+        out.writeVarlong(occupancy.getVersion());
+        writePositionArrays(out, occupancy.getPlayers());
+    }
+    
+    private static MapOccupancyDTO readOccupancy(BinaryReader in) throws ProtocolException {
+        long terrainHash = in.readVarlong();
+        long version = in.readVarlong();
+        return new MapOccupancyDTO(terrainHash, version, readPositionArrays(in));
+    }
+    
+    private static void writeMapDelta(BinaryWriter out, MapDeltaDTO delta) {
+        out.writeVarlong(delta.getBaseVersion());
+        out.writeVarlong(delta.getVersion());
+        writePositionArrays(out, delta.getMovedPlayers());
+        writePlayerIds(out, delta.getRemovedPlayers());
+    }
+    
+    private static MapDeltaDTO readMapDelta(BinaryReader in) throws ProtocolException {
+        long baseVersion = in.readVarlong();
+        long version = in.readVarlong();
+        PositionArraysDTO moved = readPositionArrays(in);
+        return new MapDeltaDTO(baseVersion, version, moved, readPlayerIds(in));
+    }
+    
+    private static void writeTiles(BinaryWriter out, List<TileDTO> tiles) {
+        out.writeSize(tiles == null ? -1 : tiles.size());
+        if (tiles != null) {
+            for (TileDTO tile : tiles) {
+                writeCoordinate(out, tile.getCoordinate());
+                out.writeSymbol(tile.getBiome(), BIOMES);
+                out.writeSymbol(tile.getType(), TILE_TYPES);
+                out.writePlayerId(tile.getOccupyingPlayerId());
+                out.writeSignedVarint(tile.getMovementCost());
+                out.writeSignedVarint(tile.getDefenseBonus());
+            }
+        }
+    }
+    
+    private static List<TileDTO> readTiles(BinaryReader in) throws ProtocolException {
+        int tileCount = in.readSize();
+        if (tileCount < 0) {
+            return null;
+        }
+        List<TileDTO> tiles = new ArrayList<>(tileCount);
+        for (int i = 0; i < tileCount; i++) {
+            HexCoordinateDTO coordinate = readCoordinate(in);
+            String biome = in.readSymbol(BIOMES);
+            String type = in.readSymbol(TILE_TYPES);
+            String occupant = in.readPlayerId();
+            int movementCost = in.readSignedVarint();
+            int defenseBonus = in.readSignedVarint();
+            tiles.add(new TileDTO(coordinate, biome, type, occupant, movementCost, defenseBonus));
+        }
+        return tiles;
+    }
+    
+    // Arreglos paralelos: [cantidad][ID, q, r]...
+    private static void writePositionArrays(BinaryWriter out, PositionArraysDTO positions) {
+        out.writeBoolean(positions != null);
+        if (positions != null) {
+            out.writeSize(positions.size());
+            for (int i = 0; i < positions.size(); i++) {
+                out.writePlayerId(positions.getPlayerIds()[i]);
+                out.writeSignedVarint(positions.getQ()[i]);
+                out.writeSignedVarint(positions.getR()[i]);
+            }
+        }
+    }
+    
+    private static PositionArraysDTO readPositionArrays(BinaryReader in) throws ProtocolException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        int size = in.readSize();
+        String[] playerIds = new String[size];
+        int[] q = new int[size];
+        int[] r = new int[size];
+        for (int i = 0; i < size; i++) {
+            playerIds[i] = in.readPlayerId();
+            q[i] = in.readSignedVarint();
+            r[i] = in.readSignedVarint();
+        }
+        return new PositionArraysDTO(playerIds, q, r);
+    }
+    
+    private static void writePlayerIds(BinaryWriter out, String[] playerIds) {
+        out.writeSize(playerIds == null ? -1 : playerIds.length);
+        if (playerIds != null) {
+            for (String playerId : playerIds) {
+                out.writePlayerId(playerId);
+            }
+        }
+    }
+    
+    private static String[] readPlayerIds(BinaryReader in) throws ProtocolException {
+        int size = in.readSize();
+        if (size < 0) {
+            return null;
+        }
+        String[] playerIds = new String[size];
+        for (int i = 0; i < size; i++) {
+            playerIds[i] = in.readPlayerId();
+        }
+        return playerIds;
+    }
+    
+    // ========== Lobby ==========
+    
+    private static void writeLobbySnapshot(BinaryWriter out, LobbySnapshotDTO snapshot) {
+        out.writeString(snapshot.getLobbyId());
+        out.writePlayerId(snapshot.getHostId());
+        out.writeVarint(snapshot.getMaxPlayers());
+        
+        List<PlayerLobbyDataDTO> players = snapshot.getPlayers();
+        out.writeSize(players == null ? -1 : players.size());
+        if (players != null) {
+            for (PlayerLobbyDataDTO player : players) {
+                writeLobbyPlayer(out, player);
+            }
+        }
+        
+        LobbyConfigDTO settings = snapshot.getLobbySettings();
+        out.writeBoolean(settings != null);
+        if (settings != null) {
+            out.writeSymbol(settings.getDifficulty(), DIFFICULTIES);
+            out.writeSymbol(settings.getMapSize(), MAP_SIZES);
+            out.writeSignedVarint(settings.getRunLengthMinutes());
+            out.writeBoolean(settings.isRandomSeed());
+            out.writeBoolean(settings.getCustomSeed() != null);
+            if (settings.getCustomSeed() != null) {
+                out.writeVarlong(settings.getCustomSeed());
+            }
+            out.writeBoolean(settings.isAllowJoinInProgress());
+        }
+        
+        out.writeEnum(snapshot.getLobbyStatus());
+        out.writeVarlong(snapshot.getCreatedTimestamp());
+    }
+    
+    private static LobbySnapshotDTO readLobbySnapshot(BinaryReader in) throws ProtocolException {
+        LobbySnapshotDTO snapshot = new LobbySnapshotDTO();
+        snapshot.setLobbyId(in.readString());
+        snapshot.setHostId(in.readPlayerId());
+        snapshot.setMaxPlayers(in.readVarint());
+        
+        int playerCount = in.readSize();
+        if (playerCount < 0) {
+            snapshot.setPlayers(null);
+        } else {
+            List<PlayerLobbyDataDTO> players = new ArrayList<>(playerCount);
+            for (int i = 0; i < playerCount; i++) {
+                players.add(readLobbyPlayer(in));
+            }
+            snapshot.setPlayers(players);
+        }
+        
+        if (in.readBoolean()) {
+            LobbyConfigDTO settings = new LobbyConfigDTO();
+            settings.setDifficulty(in.readSymbol(DIFFICULTIES));
+            settings.setMapSize(in.readSymbol(MAP_SIZES));
+            settings.setRunLengthMinutes(in.readSignedVarint());
+            settings.setRandomSeed(in.readBoolean());
+            settings.setCustomSeed(in.readBoolean() ? in.readVarlong() : null);
+            settings.setAllowJoinInProgress(in.readBoolean());
+            snapshot.setLobbySettings(settings);
+        } else {
+            snapshot.setLobbySettings(null);
+        }
+        
+        snapshot.setLobbyStatus(in.readEnum(LobbyStatus.values()));
+        snapshot.setCreatedTimestamp(in.readVarlong());
+        return snapshot;
+    }
+    
+    private static void writeLobbyPlayer(BinaryWriter out, PlayerLobbyDataDTO player) {
+        out.writeBoolean(player != null);
+        if (player != null) {
+            out.writePlayerId(player.getPlayerId());
+            out.writeString(player.getPlayerName());
+            out.writeEnum(player.getConnectionStatus());
+            out.writeSymbol(player.getSelectedClass(), PLAYER_CLASSES);
+            out.writeString(player.getSelectedColor());
+            out.writeBoolean(player.isHost());
+        }
+    }
+    
+    private static PlayerLobbyDataDTO readLobbyPlayer(BinaryReader in) throws ProtocolException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        PlayerLobbyDataDTO player = new PlayerLobbyDataDTO();
+        player.setPlayerId(in.readPlayerId());
+        player.setPlayerName(in.readString());
+        player.setConnectionStatus(in.readEnum(ConnectionStatus.values()));
+        player.setSelectedClass(in.readSymbol(PLAYER_CLASSES));
+        player.setSelectedColor(in.readString());
+        player.setHost(in.readBoolean());
+        return player;
+    }
+    
+    // ========== Juego ==========
+    
+    private static void writeHeartbeat(BinaryWriter out, GameHeartbeatDTO heartbeat) {
+        out.writeVarlong(heartbeat.getVersion());
+        out.writeVarlong(heartbeat.getBaseVersion());
+        out.writeSignedVarint(heartbeat.getChecksum());
+        out.writeSignedVarint(heartbeat.getTurnNumber());
+        out.writePlayerId(heartbeat.getCurrentTurnPlayerId());
+        
+        Map<String, Integer> playerHP = heartbeat.getPlayerHP();
+        out.writeSize(playerHP == null ? -1 : playerHP.size());
+        if (playerHP != null) {
+            for (Map.Entry<String, Integer> entry : playerHP.entrySet()) {
+                out.writePlayerId(entry.getKey());
+                out.writeBoolean(entry.getValue() != null);
+                if (entry.getValue() != null) {
+                    out.writeSignedVarint(entry.getValue());
+                }
+            }
+        }
+        out.writeVarlong(heartbeat.getTimestamp());
+    }
+    
+    private static GameHeartbeatDTO readHeartbeat(BinaryReader in) throws ProtocolException {
+        GameHeartbeatDTO heartbeat = new GameHeartbeatDTO();
+        heartbeat.setVersion(in.readVarlong());
+        heartbeat.setBaseVersion(in.readVarlong());
+        heartbeat.setChecksum(in.readSignedVarint());
+        heartbeat.setTurnNumber(in.readSignedVarint());
+        heartbeat.setCurrentTurnPlayerId(in.readPlayerId());
+        
+        int size = in.readSize();
+        if (size >= 0) {
+            Map<String, Integer> playerHP = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                String playerId = in.readPlayerId();
+                playerHP.put(playerId, in.readBoolean() ? in.readSignedVarint() : null);
+            }
+            heartbeat.setPlayerHP(playerHP);
+        }
+        heartbeat.setTimestamp(in.readVarlong());
+        return heartbeat;
+    }
+    
+    private static void writePlayerConnect(BinaryWriter out, PlayerConnectDTO connect) {
+        out.writeString(connect.getPlayerName());
+        out.writePlayerId(connect.getPlayerId());
+    }
+    
+    private static PlayerConnectDTO readPlayerConnect(BinaryReader in) throws ProtocolException {
+        String playerName = in.readString();
+        return new PlayerConnectDTO(playerName, in.readPlayerId());
+    }
+}
@@ -0,0 +1,132 @@
+package com.juegito.protocol.binary;
+
+import java.net.ProtocolException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lector del codec binario. Contraparte de BinaryWriter.
+ * Cualquier dato truncado o fuera de rango lanza ProtocolException.
+ */
+public class BinaryReader {
+    private final byte[] data;
+    private final PlayerHandleTable handles;
+    private int position;
+    private final int end;
+    
+    public BinaryReader(byte[] data, PlayerHandleTable handles) {
+        this.data = data;
+        this.handles = handles;
+        this.position = 0;
+        this.end = data.length;
+    }
+    
+    public int readByte() throws ProtocolException {
+        if (position >= end) {
+            throw new ProtocolException("Truncated binary message");
+        }
+        return data[position++] & 0xFF;
+    }
+    
+    public boolean readBoolean() throws ProtocolException {
+        return readByte() != 0;
+    }
+    
+    public int readVarint() throws ProtocolException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new ProtocolException("Malformed varint");
+    }
+    
+    public int readSignedVarint() throws ProtocolException {
+        int value = readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+    
+    public long readVarlong() throws ProtocolException {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new ProtocolException("Malformed varlong");
+    }
+    
+    public String readString() throws ProtocolException {
+        int length = readVarint();
+        if (length == 0) {
+            return null;
+        }
+        length--;
+        if (length < 0 || length > end - position) {
+            throw new ProtocolException("Invalid string length " + length);
+        }
+        String value = new String(data, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+    
+    public <E extends Enum<E>> E readEnum(E[] values) throws ProtocolException {
+        int index = readVarint();
+        if (index == 0) {
+            return null;
+        }
+        if (index > values.length) {
+            throw new ProtocolException("Unknown enum ordinal " + (index - 1));
+        }
+        return values[index - 1];
+    }
+    
+    public String readSymbol(String[] symbols) throws ProtocolException {
+        int index = readVarint();
+        if (index == 0) {
+            return null;
+        }
+        if (index == 1) {
+            return readString();
+        }
+        if (index - 2 >= symbols.length) {
+            throw new ProtocolException("Unknown symbol " + index);
+        }
+        return symbols[index - 2];
+    }
+    
+    public String readPlayerId() throws ProtocolException {
+        int value = readVarint();
+        if (value == 0) {
+            return null;
+        }
+        if (value == 1) {
+            return readString();
+        }
+        String playerId = handles.idFor(value);
+        if (playerId == null) {
+            throw new ProtocolException("Unknown player handle " + value);
+        }
+        return playerId;
+    }
+    
+    /**
+     * Tamaño de una colección, o -1 si es null. Se valida contra los bytes restantes
+     * (cada elemento ocupa al menos uno) para que un tamaño malicioso no reserve memoria.
+     */
+    public int readSize() throws ProtocolException {
+        int size = readVarint() - 1;
+        if (size < -1 || size > end - position) {
+            throw new ProtocolException("Invalid collection size " + size);
+        }
+        return size;
+    }
+    
+    public boolean hasRemaining() {
+        return position < end;
+    }
+}
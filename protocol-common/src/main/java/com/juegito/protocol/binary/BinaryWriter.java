@@ -0,0 +1,153 @@
+package com.juegito.protocol.binary;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Escritor del codec binario sobre un arreglo que crece según necesidad.
+ * Enteros como varints (zigzag si pueden ser negativos), enums como ordinal
+ * y IDs de jugador como handles de la tabla de la sesión.
+ * Los valores anulables reservan el 0 para null.
+ */
+public class BinaryWriter {
+    private static final int INITIAL_CAPACITY = 256;
+    
+    private final PlayerHandleTable handles;
+    private byte[] buffer;
+    private int position;
+    private int[] usedHandles;
+    private int usedHandleCount;
+    
+    public BinaryWriter(PlayerHandleTable handles) {
+        this.handles = handles;
+        this.buffer = new byte[INITIAL_CAPACITY];
+        this.usedHandles = new int[8];
+    }
+    
+    public void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) value;
+    }
+    
+    public void writeBoolean(boolean value) {
+        writeByte(value ? 1 : 0);
+    }
+    
+    /**
+     * Entero no negativo (LEB128).
+     */
+    public void writeVarint(int value) {
+        ensureCapacity(5);
+        while ((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+    
+    /**
+     * Entero con signo: zigzag para que valores chicos negativos ocupen un byte.
+     */
+    public void writeSignedVarint(int value) {
+        writeVarint((value << 1) ^ (value >> 31));
+    }
+    
+    public void writeVarlong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+    
+    public void writeString(String value) {
+        if (value == null) {
+            writeVarint(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(bytes.length + 1);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+    
+    /**
+     * Tamaño de una colección; -1 representa null.
+     */
+    public void writeSize(int size) {
+        writeVarint(size + 1);
+    }
+    
+    public void writeEnum(Enum<?> value) {
+        writeVarint(value == null ? 0 : value.ordinal() + 1);
+    }
+    
+    /**
+     * Cadena de un conjunto conocido (nombre de enum del servidor) como índice en symbols.
+     * Un valor desconocido viaja como texto para no romper si las tablas difieren.
+     */
+    public void writeSymbol(String value, String[] symbols) {
+        if (value == null) {
+            writeVarint(0);
+            return;
+        }
+        for (int i = 0; i < symbols.length; i++) {
+            if (symbols[i].equals(value)) {
+                writeVarint(i + 2);
+                return;
+            }
+        }
+        writeVarint(1);
+        writeString(value);
+    }
+    
+    /**
+     * ID de jugador: 0 = null, 1 = texto a continuación, n ≥ 2 = handle.
+     */
+    public void writePlayerId(String playerId) {
+        if (playerId == null) {
+            writeVarint(0);
+            return;
+        }
+        int handle = handles.handleFor(playerId);
+        if (handle == PlayerHandleTable.NO_HANDLE) {
+            writeVarint(1);
+            writeString(playerId);
+            return;
+        }
+        writeVarint(handle);
+        recordHandle(handle);
+    }
+    
+    /**
+     * Handles referenciados por lo escrito, sin repetir.
+     * El receptor debe conocerlos antes de decodificar el mensaje.
+     */
+    public int[] getUsedHandles() {
+        return Arrays.copyOf(usedHandles, usedHandleCount);
+    }
+    
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+    
+    private void recordHandle(int handle) {
+        for (int i = 0; i < usedHandleCount; i++) {
+            if (usedHandles[i] == handle) {
+                return;
+            }
+        }
+        if (usedHandleCount == usedHandles.length) {
+            usedHandles = Arrays.copyOf(usedHandles, usedHandleCount * 2);
+        }
+        usedHandles[usedHandleCount++] = handle;
+    }
+    
+    private void ensureCapacity(int extra) {
+        if (position + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+        }
+    }
+}
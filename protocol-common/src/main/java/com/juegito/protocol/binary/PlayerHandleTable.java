@@ -0,0 +1,111 @@
+package com.juegito.protocol.binary;
+
+import java.net.ProtocolException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tabla de handles enteros para los IDs de jugador (UUID de 36 caracteres).
+ * El servidor asigna los handles, con una tabla por partida compartida por sus conexiones;
+ * el cliente solo aprende los que el servidor le define en frames HANDLES. Los handles no
+ * se reciclan dentro de una tabla, así una definición ya enviada nunca queda desactualizada.
+ */
+public class PlayerHandleTable {
+    public static final int NO_HANDLE = 0;
+    private static final int FIRST_HANDLE = 2; // 0 = null y 1 = texto en el codec
+    
+    private final boolean assigning;
+    private final int maxHandles;
+    private final Map<String, Integer> handlesById;
+    private final Map<Integer, String> idsByHandle;
+    private final AtomicInteger nextHandle;
+    
+    private PlayerHandleTable(boolean assigning, int maxHandles) {
+        this.assigning = assigning;
+        this.maxHandles = maxHandles;
+        this.handlesById = new ConcurrentHashMap<>();
+        this.idsByHandle = new ConcurrentHashMap<>();
+        this.nextHandle = new AtomicInteger(FIRST_HANDLE);
+    }
+    
+    /**
+     * Tabla del servidor: asigna handle a cada ID nuevo hasta maxHandles.
+     * Pasado el límite los IDs nuevos viajan como texto.
+     */
+    public static PlayerHandleTable assigning(int maxHandles) {
+        return new PlayerHandleTable(true, maxHandles);
+    }
+    
+    /**
+     * Tabla de una sesión de cliente: solo conoce lo definido por el servidor.
+     */
+    public static PlayerHandleTable learning() {
+        return new PlayerHandleTable(false, 0);
+    }
+    
+    /**
+     * Handle para el ID, o NO_HANDLE si no tiene.
+     */
+    public int handleFor(String playerId) {
+        Integer handle = handlesById.get(playerId);
+        if (handle != null) {
+            return handle;
+        }
+        if (!assigning || nextHandle.get() >= FIRST_HANDLE + maxHandles) {
+            return NO_HANDLE;
+        }
+        return handlesById.computeIfAbsent(playerId, id -> {
+            int assigned = nextHandle.getAndIncrement();
+            idsByHandle.put(assigned, id);
+            return assigned;
+        });
+    }
+    
+    public String idFor(int handle) {
+        return idsByHandle.get(handle);
+    }
+    
+    /**
+     * Registra una definición recibida del servidor.
+     */
+    public void define(int handle, String playerId) {
+        idsByHandle.put(handle, playerId);
+        handlesById.put(playerId, handle);
+    }
+    
+    /**
+     * Payload de un frame HANDLES con las definiciones de los handles indicados:
+     * [cantidad]{[handle][ID]}.
+     */
+    public byte[] encodeDefinitions(int[] handles, int count) {
+        BinaryWriter out = new BinaryWriter(this);
+        out.writeSize(count);
+        for (int i = 0; i < count; i++) {
+            out.writeVarint(handles[i]);
+            out.writeString(idFor(handles[i]));
+        }
+        return out.toByteArray();
+    }
+    
+    /**
+     * Registra las definiciones de un frame HANDLES.
+     */
+    public void applyDefinitions(byte[] payload) throws ProtocolException {
+        BinaryReader in = new BinaryReader(payload, this);
+        int count = Math.max(0, in.readSize());
+        for (int i = 0; i < count; i++) {
+            int handle = in.readVarint();
+            String playerId = in.readString();
+            if (handle < FIRST_HANDLE || playerId == null) {
+                throw new ProtocolException("Invalid handle definition " + handle);
+            }
+            define(handle, playerId);
+        }
+    }
+    
+    public void clear() {
+        handlesById.clear();
+        idsByHandle.clear();
+    }
+}
@@ -4,26 +4,66 @@ import java.util.Map;
 
 /**
  * DTO para heartbeat periódico del estado del juego.
- * Envía información resumida cada pocos segundos para mantener sincronización.
+ * Lleva la versión del estado y su checksum (StateChecksum); si algo cambió desde
+ * baseVersion (la versión del heartbeat anterior) agrega el turno y el HP de los
+ * jugadores que cambiaron. baseVersion 0 significa heartbeat completo: turno y HP de todos.
+ * Si nada cambió, turnNumber es 0 y playerHP es null.
  */
 public class GameHeartbeatDTO {
+    private long version;
+    private long baseVersion;
+    private int checksum;
     private int turnNumber;
     private String currentTurnPlayerId;
-    private Map<String, Integer> playerHP;  // playerId -> HP
+    private Map<String, Integer> playerHP;  // playerId -> HP (solo los que cambiaron)
     private long timestamp;
     
     public GameHeartbeatDTO() {}
     
-    public GameHeartbeatDTO(int turnNumber, String currentTurnPlayerId, 
-                           Map<String, Integer> playerHP) {
+    public GameHeartbeatDTO(long version, long baseVersion, int checksum, int turnNumber,
+                            String currentTurnPlayerId, Map<String, Integer> playerHP) {
+        this.version = version;
+        this.baseVersion = baseVersion;
+        this.checksum = checksum;
         this.turnNumber = turnNumber;
         this.currentTurnPlayerId = currentTurnPlayerId;
         this.playerHP = playerHP;
         this.timestamp = System.currentTimeMillis();
     }
     
+    /**
+     * Heartbeat completo: el cliente reemplaza su copia del estado.
+     */
+    public boolean isFull() {
+        return baseVersion == 0;
+    }
+    
     // Getters y Setters
     
+    public long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(long version) {
+        this.version = version;
+    }
+    
+    public long getBaseVersion() {
+        return baseVersion;
+    }
+    
+    public void setBaseVersion(long baseVersion) {
+        this.baseVersion = baseVersion;
+    }
+    
+    public int getChecksum() {
+        return checksum;
+    }
+    
+    public void setChecksum(int checksum) {
+        this.checksum = checksum;
+    }
+    
     public int getTurnNumber() {
         return turnNumber;
     }
@@ -4,9 +4,12 @@ import java.util.List;
 import java.util.Map;
 
 /**
- * DTO para transferir el mapa completo del juego.
+ * DTO con el mapa completo del juego: terreno y ocupación.
+ * El cliente lo arma con MAP_TERRAIN y MAP_STATE; version es la del último
+ * estado o MAP_DELTA aplicado.
  */
 public class GameMapDTO {
+    private long version;
     private int radius;
     private List<TileDTO> tiles;
     private Map<String, HexCoordinateDTO> playerPositions;
@@ -29,6 +32,14 @@ public class GameMapDTO {
         this.strategicNodes = strategicNodes;
     }
     
+    public long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(long version) {
+        this.version = version;
+    }
+    
     public int getRadius() {
         return radius;
     }
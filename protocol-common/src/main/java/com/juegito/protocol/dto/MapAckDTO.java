@@ -0,0 +1,22 @@
+package com.juegito.protocol.dto;
+
+/**
+ * DTO con la última versión del mapa que el cliente aplicó.
+ */
+public class MapAckDTO {
+    private long version;
+    
+    public MapAckDTO() {}
+    
+    public MapAckDTO(long version) {
+        this.version = version;
+    }
+    
+    public long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
@@ -0,0 +1,56 @@
+package com.juegito.protocol.dto;
+
+/**
+ * DTO con los cambios del mapa entre dos versiones.
+ * Lleva la posición actual de cada jugador que se movió desde baseVersion y los que
+ * salieron del mapa, así que aplicarlo sobre cualquier versión entre baseVersion y
+ * version deja el mapa en version. La ocupación de las casillas se deduce de ahí.
+ */
+public class MapDeltaDTO {
+    private long baseVersion;
+    private long version;
+    private PositionArraysDTO movedPlayers;
+    private String[] removedPlayers;
+    
+    public MapDeltaDTO() {}
+    
+    public MapDeltaDTO(long baseVersion, long version, PositionArraysDTO movedPlayers,
+                       String[] removedPlayers) {
+        this.baseVersion = baseVersion;
+        this.version = version;
+        this.movedPlayers = movedPlayers;
+        this.removedPlayers = removedPlayers;
+    }
+    
+    public long getBaseVersion() {
+        return baseVersion;
+    }
+    
+    public void setBaseVersion(long baseVersion) {
+        this.baseVersion = baseVersion;
+    }
+    
+    public long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(long version) {
+        this.version = version;
+    }
+    
+    public PositionArraysDTO getMovedPlayers() {
+        return movedPlayers;
+    }
+    
+    public void setMovedPlayers(PositionArraysDTO movedPlayers) {
+        this.movedPlayers = movedPlayers;
+    }
+    
+    public String[] getRemovedPlayers() {
+        return removedPlayers;
+    }
+    
+    public void setRemovedPlayers(String[] removedPlayers) {
+        this.removedPlayers = removedPlayers;
+    }
+}
@@ -0,0 +1,44 @@
+package com.juegito.protocol.dto;
+
+/**
+ * DTO con el estado dinámico completo del mapa: la posición de cada jugador.
+ * La ocupación de cada casilla se deduce de las posiciones; el terreno llega
+ * aparte (MAP_TERRAIN) y se identifica por terrainHash.
+ */
+public class MapOccupancyDTO {
+    private long terrainHash;
+    private long version;
+    private PositionArraysDTO players;
+    
+    public MapOccupancyDTO() {}
+    
+    public MapOccupancyDTO(long terrainHash, long version, PositionArraysDTO players) {
+        this.terrainHash = terrainHash;
+        this.version = version;
+        this.players = players;
+    }
+    
+    public long getTerrainHash() {
+        return terrainHash;
+    }
+    
+    public void setTerrainHash(long terrainHash) {
+        this.terrainHash = terrainHash;
+    }
+    
+    public long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(long version) {
+        this.version = version;
+    }
+    
+    public PositionArraysDTO getPlayers() {
+        return players;
+    }
+    
+    public void setPlayers(PositionArraysDTO players) {
+        this.players = players;
+    }
+}
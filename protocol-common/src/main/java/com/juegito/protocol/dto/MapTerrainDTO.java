@@ -0,0 +1,100 @@
+package com.juegito.protocol.dto;
+
+import java.util.List;
+
+/**
+ * DTO con el terreno del mapa: lo que no cambia después de generarlo
+ * (bioma, tipo, costo y defensa de cada casilla, y los nodos especiales).
+ * Se envía una vez; los mensajes de ocupación lo referencian por terrainHash.
+ * Las casillas no llevan ocupante.
+ * En un mapa grande es solo la cabecera: tiles es null y las tileCount casillas
+ * llegan después en pageCount mensajes MAP_TERRAIN_PAGE (pageCount 0 = vienen aquí).
+ */
+public class MapTerrainDTO {
+    private long terrainHash;
+    private int radius;
+    private List<TileDTO> tiles;
+    private List<HexCoordinateDTO> spawnPoints;
+    private List<HexCoordinateDTO> resourceNodes;
+    private List<HexCoordinateDTO> strategicNodes;
+    private int tileCount;
+    private int pageCount;
+    
+    public MapTerrainDTO() {}
+    
+    public MapTerrainDTO(long terrainHash, int radius, List<TileDTO> tiles,
+                         List<HexCoordinateDTO> spawnPoints,
+                         List<HexCoordinateDTO> resourceNodes,
+                         List<HexCoordinateDTO> strategicNodes) {
+        this.terrainHash = terrainHash;
+        this.radius = radius;
+        this.tiles = tiles;
+        this.spawnPoints = spawnPoints;
+        this.resourceNodes = resourceNodes;
+        this.strategicNodes = strategicNodes;
+    }
+    
+    public long getTerrainHash() {
+        return terrainHash;
+    }
+    
+    public void setTerrainHash(long terrainHash) {
+        this.terrainHash = terrainHash;
+    }
+    
+    public int getRadius() {
+        return radius;
+    }
+    
+    public void setRadius(int radius) {
+        this.radius = radius;
+    }
+    
+    public List<TileDTO> getTiles() {
+        return tiles;
+    }
+    
+    public void setTiles(List<TileDTO> tiles) {
+        this.tiles = tiles;
+    }
+    
+    public int getTileCount() {
+        return tileCount;
+    }
+    
+    public void setTileCount(int tileCount) {
+        this.tileCount = tileCount;
+    }
+    
+    public int getPageCount() {
+        return pageCount;
+    }
+    
+    public void setPageCount(int pageCount) {
+        this.pageCount = pageCount;
+    }
+    
+    public List<HexCoordinateDTO> getSpawnPoints() {
+        return spawnPoints;
+    }
+    
+    public void setSpawnPoints(List<HexCoordinateDTO> spawnPoints) {
+        this.spawnPoints = spawnPoints;
+    }
+    
+    public List<HexCoordinateDTO> getResourceNodes() {
+        return resourceNodes;
+    }
+    
+    public void setResourceNodes(List<HexCoordinateDTO> resourceNodes) {
+        this.resourceNodes = resourceNodes;
+    }
+    
+    public List<HexCoordinateDTO> getStrategicNodes() {
+        return strategicNodes;
+    }
+    
+    public void setStrategicNodes(List<HexCoordinateDTO> strategicNodes) {
+        this.strategicNodes = strategicNodes;
+    }
+}
@@ -0,0 +1,46 @@
+package com.juegito.protocol.dto;
+
+import java.util.List;
+
+/**
+ * DTO con una página de casillas del terreno anunciado por un MAP_TERRAIN sin casillas.
+ * Cada casilla trae su coordenada, así que las páginas se pueden aplicar en cualquier
+ * orden y el cliente dibuja las que ya llegaron mientras espera el resto.
+ */
+public class MapTerrainPageDTO {
+    private long terrainHash;
+    private int page;
+    private List<TileDTO> tiles;
+    
+    public MapTerrainPageDTO() {}
+    
+    public MapTerrainPageDTO(long terrainHash, int page, List<TileDTO> tiles) {
+        this.terrainHash = terrainHash;
+        this.page = page;
+        this.tiles = tiles;
+    }
+    
+    public long getTerrainHash() {
+        return terrainHash;
+    }
+    
+    public void setTerrainHash(long terrainHash) {
+        this.terrainHash = terrainHash;
+    }
+    
+    public int getPage() {
+        return page;
+    }
+    
+    public void setPage(int page) {
+        this.page = page;
+    }
+    
+    public List<TileDTO> getTiles() {
+        return tiles;
+    }
+    
+    public void setTiles(List<TileDTO> tiles) {
+        this.tiles = tiles;
+    }
+}
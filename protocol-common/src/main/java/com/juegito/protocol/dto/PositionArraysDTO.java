@@ -0,0 +1,47 @@
+package com.juegito.protocol.dto;
+
+/**
+ * Posiciones de varias entidades como arreglos paralelos: el ID en playerIds[i]
+ * está en (q[i], r[i]). Evita un objeto coordenada (y su s redundante) por entidad.
+ */
+public class PositionArraysDTO {
+    private String[] playerIds;
+    private int[] q;
+    private int[] r;
+    
+    public PositionArraysDTO() {}
+    
+    public PositionArraysDTO(String[] playerIds, int[] q, int[] r) {
+        this.playerIds = playerIds;
+        this.q = q;
+        this.r = r;
+    }
+    
+    public int size() {
+        return playerIds == null ? 0 : playerIds.length;
+    }
+    
+    public String[] getPlayerIds() {
+        return playerIds;
+    }
+    
+    public void setPlayerIds(String[] playerIds) {
+        this.playerIds = playerIds;
+    }
+    
+    public int[] getQ() {
+        return q;
+    }
+    
+    public void setQ(int[] q) {
+        this.q = q;
+    }
+    
+    public int[] getR() {
+        return r;
+    }
+    
+    public void setR(int[] r) {
+        this.r = r;
+    }
+}
@@ -2,16 +2,25 @@ package com.juegito.protocol.dto;
 
 /**
  * DTO para solicitud de reconexión del cliente.
+ * Los mensajes de la partida (MessageType.isSequenced) se numeran por sesión desde
+ * START_GAME; lastSequence es el último que el cliente procesó. Si el servidor aún
+ * guarda los siguientes, reenvía solo esos en lugar de una resincronización completa.
  */
 public class ReconnectRequestDTO {
     private String playerId;
     private String sessionToken;  // Token opcional para validar sesión
+    private long lastSequence;
     
     public ReconnectRequestDTO() {}
     
     public ReconnectRequestDTO(String playerId, String sessionToken) {
+        this(playerId, sessionToken, 0);
+    }
+    
+    public ReconnectRequestDTO(String playerId, String sessionToken, long lastSequence) {
         this.playerId = playerId;
         this.sessionToken = sessionToken;
+        this.lastSequence = lastSequence;
     }
     
     public String getPlayerId() {
@@ -29,4 +38,12 @@ public class ReconnectRequestDTO {
     public void setSessionToken(String sessionToken) {
         this.sessionToken = sessionToken;
     }
+    
+    public long getLastSequence() {
+        return lastSequence;
+    }
+    
+    public void setLastSequence(long lastSequence) {
+        this.lastSequence = lastSequence;
+    }
 }
@@ -2,10 +2,15 @@ package com.juegito.protocol.dto;
 
 /**
  * DTO para respuesta de reconexión.
+ * Al aceptar, sequence es el número desde el que el cliente sigue contando los mensajes
+ * de la sesión; resumed indica si lo que sigue es solo lo que se perdió o una
+ * resincronización completa.
  */
 public class ReconnectResponseDTO {
     private boolean accepted;
     private String reason;
+    private boolean resumed;
+    private long sequence;
     
     public ReconnectResponseDTO() {}
     
@@ -14,8 +19,11 @@ public class ReconnectResponseDTO {
         this.reason = reason;
     }
     
-    public static ReconnectResponseDTO accepted() {
-        return new ReconnectResponseDTO(true, "Reconnection successful");
+    public static ReconnectResponseDTO accepted(boolean resumed, long sequence) {
+        ReconnectResponseDTO response = new ReconnectResponseDTO(true, "Reconnection successful");
+        response.resumed = resumed;
+        response.sequence = sequence;
+        return response;
     }
     
     public static ReconnectResponseDTO rejected(String reason) {
@@ -37,4 +45,20 @@ public class ReconnectResponseDTO {
     public void setReason(String reason) {
         this.reason = reason;
     }
+    
+    public boolean isResumed() {
+        return resumed;
+    }
+    
+    public void setResumed(boolean resumed) {
+        this.resumed = resumed;
+    }
+    
+    public long getSequence() {
+        return sequence;
+    }
+    
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
 }
@@ -0,0 +1,23 @@
+package com.juegito.protocol.dto;
+
+/**
+ * DTO con el último número de secuencia de la sesión de partida que el cliente procesó.
+ * El servidor libera del buffer de reenvío todo lo confirmado.
+ */
+public class SessionAckDTO {
+    private long sequence;
+    
+    public SessionAckDTO() {}
+    
+    public SessionAckDTO(long sequence) {
+        this.sequence = sequence;
+    }
+    
+    public long getSequence() {
+        return sequence;
+    }
+    
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+}
@@ -2,9 +2,11 @@ package com.juegito.protocol.dto.lobby;
 
 /**
  * Solicitud de un jugador para unirse al lobby.
+ * Con lobbyId el servidor mueve la conexión al lobby de esa partida.
  */
 public class JoinRequestDTO {
     private String playerName;
+    private String lobbyId; // Opcional: null = lobby actual
     
     public JoinRequestDTO() {}
     
@@ -12,6 +14,11 @@ public class JoinRequestDTO {
         this.playerName = playerName;
     }
     
+    public JoinRequestDTO(String playerName, String lobbyId) {
+        this.playerName = playerName;
+        this.lobbyId = lobbyId;
+    }
+    
     public String getPlayerName() {
         return playerName;
     }
@@ -19,4 +26,12 @@ public class JoinRequestDTO {
     public void setPlayerName(String playerName) {
         this.playerName = playerName;
     }
+    
+    public String getLobbyId() {
+        return lobbyId;
+    }
+    
+    public void setLobbyId(String lobbyId) {
+        this.lobbyId = lobbyId;
+    }
 }
@@ -0,0 +1,34 @@
+package com.juegito.protocol.dto.lobby;
+
+/**
+ * Keep-alive del lobby: versión y checksum del estado (StateChecksum.ofLobby).
+ * Si el checksum no coincide con su copia, el cliente pide REQUEST_STATE_SYNC
+ * y recibe el snapshot completo.
+ */
+public class LobbyKeepAliveDTO {
+    private long version;
+    private int checksum;
+    
+    public LobbyKeepAliveDTO() {}
+    
+    public LobbyKeepAliveDTO(long version, int checksum) {
+        this.version = version;
+        this.checksum = checksum;
+    }
+    
+    public long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(long version) {
+        this.version = version;
+    }
+    
+    public int getChecksum() {
+        return checksum;
+    }
+    
+    public void setChecksum(int checksum) {
+        this.checksum = checksum;
+    }
+}
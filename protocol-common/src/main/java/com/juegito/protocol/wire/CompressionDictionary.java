@@ -0,0 +1,42 @@
+package com.juegito.protocol.wire;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Diccionario predefinido para deflate, armado con fragmentos típicos de los
+ * payloads de mapa y lobby. Con él, incluso el primer mensaje comprime bien
+ * porque las claves JSON y los nombres de enums ya están "vistos".
+ * Es parte del protocolo: cliente y servidor deben usar exactamente los mismos bytes.
+ * Deflate aprovecha mejor el final del diccionario, así que lo más frecuente va al final.
+ */
+public final class CompressionDictionary {
+    private static final String CONTENT =
+        "\"lobbySettings\":{\"difficulty\":\"NORMAL\",\"mapSize\":\"MEDIUM\",\"runLengthMinutes\":30,"
+        + "\"randomSeed\":true,\"allowJoinInProgress\":false},\"lobbyStatus\":\"WAITING\","
+        + "\"createdTimestamp\":,\"maxPlayers\":6,\"hostId\":\"\",\"lobbyId\":\"\",\"players\":["
+        + "{\"playerId\":\"\",\"playerName\":\"Player_\",\"connectionStatus\":\"CONNECTED\","
+        + "\"selectedClass\":\"GUARDIAN\",\"selectedColor\":\"\",\"isHost\":false}],"
+        + "{\"type\":\"FULL_RESYNC\",\"currentTurnPlayerId\":\"\",\"turnNumber\":,\"worldState\":{},"
+        + "{\"type\":\"LOBBY_SNAPSHOT\",\"timestamp\":,\"senderId\":\"server\",\"payload\":"
+        + "{\"type\":\"MAP_STATE\",\"timestamp\":,\"senderId\":\"server\",\"payload\":{\"radius\":5,"
+        + "\"playerPositions\":{},\"spawnPoints\":[],\"resourceNodes\":[],\"strategicNodes\":[{\"q\":"
+        + "\"biome\":\"MOUNTAIN\",\"type\":\"BLOCKED\",\"biome\":\"PLAINS\",\"type\":\"SPAWN\","
+        + "\"type\":\"RESOURCE\",\"type\":\"STRATEGIC\",\"occupyingPlayerId\":\"\","
+        + "\"tiles\":[{\"coordinate\":{\"q\":0,\"r\":-1,\"s\":1},\"biome\":\"FOREST\",\"type\":\"NORMAL\","
+        + "\"movementCost\":1,\"defenseBonus\":0},{\"coordinate\":{\"q\":-1,\"r\":0,\"s\":1},"
+        + "\"biome\":\"PLAINS\",\"type\":\"NORMAL\",\"movementCost\":1,\"defenseBonus\":0},"
+        + "{\"coordinate\":{\"q\":1,\"r\":-1,\"s\":0},\"biome\":\"FOREST\",\"type\":\"NORMAL\","
+        + "\"movementCost\":2,\"defenseBonus\":1},{\"coordinate\":{\"q\":";
+    
+    private static final byte[] BYTES = CONTENT.getBytes(StandardCharsets.UTF_8);
+    
+    private CompressionDictionary() {
+    }
+    
+    /**
+     * Bytes del diccionario. Compartidos: no modificar.
+     */
+    public static byte[] bytes() {
+        return BYTES;
+    }
+}
@@ -0,0 +1,84 @@
+package com.juegito.protocol.wire;
+
+import java.net.ProtocolException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reensambla las unidades que llegan en frames FRAGMENT.
+ * El emisor parte los mensajes grandes de baja prioridad para intercalar otros entre sus
+ * partes; cada unidad tiene su stream y varias pueden estar en curso a la vez. La unidad
+ * completa son frames enteros, que se decodifican como el contenido de un BATCH.
+ * No es thread-safe: lo usa solo el hilo lector.
+ */
+public class FragmentAssembler {
+    private final int maxUnitBytes;
+    private final Map<Integer, Partial> partials;
+    
+    /**
+     * @param maxMessageBytes Máximo de un mensaje; la unidad admite además sus cabeceras
+     */
+    public FragmentAssembler(int maxMessageBytes) {
+        this.maxUnitBytes = maxMessageBytes + 64;
+        this.partials = new HashMap<>();
+    }
+    
+    /**
+     * Agrega una parte. Retorna los bytes de la unidad si esta parte la completó, o null.
+     */
+    public byte[] add(Frame frame) throws ProtocolException {
+        byte[] payload = frame.getPayload();
+        int stream = 0;
+        int position = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (position >= payload.length || shift >= 7 * Varint.MAX_INT_BYTES) {
+                throw new ProtocolException("Malformed fragment stream");
+            }
+            byte b = payload[position++];
+            stream |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        
+        Partial partial = partials.computeIfAbsent(stream, key -> new Partial());
+        partial.append(payload, position, payload.length - position, maxUnitBytes);
+        if (!frame.hasFlag(Frame.FLAG_LAST_FRAGMENT)) {
+            return null;
+        }
+        partials.remove(stream);
+        return partial.toBytes();
+    }
+    
+    /**
+     * True si hay alguna unidad a medio recibir (se perdería al cortarse la conexión).
+     */
+    public boolean hasPartial() {
+        return !partials.isEmpty();
+    }
+    
+    public void reset() {
+        partials.clear();
+    }
+    
+    private static final class Partial {
+        private byte[] data = new byte[1024];
+        private int length;
+        
+        void append(byte[] source, int offset, int count, int maxBytes) throws ProtocolException {
+            if (length + count > maxBytes) {
+                throw new ProtocolException("Fragmented unit exceeds " + maxBytes + " bytes");
+            }
+            if (length + count > data.length) {
+                data = Arrays.copyOf(data, Math.min(maxBytes, Math.max(length + count, data.length * 2)));
+            }
+            System.arraycopy(source, offset, data, length, count);
+            length += count;
+        }
+        
+        byte[] toBytes() {
+            return Arrays.copyOf(data, length);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.juegito.protocol.wire;
+
+/**
+ * Frame decodificado: tipo, flags y payload.
+ * Formato en el cable: [tipo:1][flags:1][longitud:varint][payload].
+ */
+public class Frame {
+    /** El payload está comprimido con deflate (ver FrameCompressor). */
+    public static final int FLAG_COMPRESSED = 0x01;
+    
+    /** Último FRAGMENT de su stream: con él se completa la unidad. */
+    public static final int FLAG_LAST_FRAGMENT = 0x02;
+    
+    private final FrameType type;
+    private final int flags;
+    private final byte[] payload;
+    
+    public Frame(FrameType type, int flags, byte[] payload) {
+        this.type = type;
+        this.flags = flags;
+        this.payload = payload;
+    }
+    
+    public FrameType getType() {
+        return type;
+    }
+    
+    public int getFlags() {
+        return flags;
+    }
+    
+    public boolean hasFlag(int flag) {
+        return (flags & flag) != 0;
+    }
+    
+    public byte[] getPayload() {
+        return payload;
+    }
+}
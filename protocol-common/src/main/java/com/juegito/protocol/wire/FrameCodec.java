@@ -0,0 +1,40 @@
+package com.juegito.protocol.wire;
+
+/**
+ * Codificación de frames con prefijo de longitud.
+ */
+public final class FrameCodec {
+    
+    private FrameCodec() {
+    }
+    
+    /**
+     * Codifica un frame completo (cabecera + payload) en un solo arreglo.
+     */
+    public static byte[] encode(FrameType type, int flags, byte[] payload) {
+        return encode(type, flags, payload, 0, payload.length);
+    }
+    
+    /**
+     * Codifica una parte de los bytes de una unidad fragmentada (uno o más frames completos).
+     */
+    public static byte[] encodeFragment(int stream, boolean last, byte[] unit, int offset, int length) {
+        int payloadLength = Varint.size(stream) + length;
+        byte[] frame = new byte[2 + Varint.size(payloadLength) + payloadLength];
+        frame[0] = (byte) FrameType.FRAGMENT.getCode();
+        frame[1] = (byte) (last ? Frame.FLAG_LAST_FRAGMENT : 0);
+        int position = Varint.write(payloadLength, frame, 2);
+        position = Varint.write(stream, frame, position);
+        System.arraycopy(unit, offset, frame, position, length);
+        return frame;
+    }
+    
+    public static byte[] encode(FrameType type, int flags, byte[] payload, int offset, int length) {
+        byte[] frame = new byte[2 + Varint.size(length) + length];
+        frame[0] = (byte) type.getCode();
+        frame[1] = (byte) flags;
+        int position = Varint.write(length, frame, 2);
+        System.arraycopy(payload, offset, frame, position, length);
+        return frame;
+    }
+}
@@ -0,0 +1,177 @@
+package com.juegito.protocol.wire;
+
+import com.juegito.protocol.MessageType;
+
+import java.net.ProtocolException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresión deflate de frames por encima de un umbral.
+ * Cada payload se comprime de forma independiente (con el diccionario predefinido),
+ * así el resultado se comparte entre todos los destinatarios igual que el resto
+ * de los bytes de EncodedMessage. Los Deflater/Inflater se reutilizan desde un pool
+ * en lugar de crearse por mensaje (su memoria nativa es costosa).
+ * Lleva estadísticas por tipo de mensaje: ratio y tiempo de CPU.
+ */
+public class FrameCompressor {
+    private static final int HEADER_BYTES = 2;
+    
+    private final int thresholdBytes;
+    private final int level;
+    private final ConcurrentLinkedQueue<Deflater> deflaters;
+    private final ConcurrentLinkedQueue<Inflater> inflaters;
+    private final Map<MessageType, TypeStats> stats;
+    
+    /**
+     * @param thresholdBytes Payloads más chicos se envían sin comprimir
+     * @param level Nivel de Deflater (1 = más rápido, 9 = más compacto)
+     */
+    public FrameCompressor(int thresholdBytes, int level) {
+        this.thresholdBytes = thresholdBytes;
+        this.level = level;
+        this.deflaters = new ConcurrentLinkedQueue<>();
+        this.inflaters = new ConcurrentLinkedQueue<>();
+        this.stats = new ConcurrentHashMap<>();
+    }
+    
+    /**
+     * Retorna el frame comprimido, o el mismo frame si es chico o no se gana espacio.
+     */
+    public byte[] compress(MessageType type, byte[] frame) {
+        int payloadOffset = payloadOffset(frame);
+        int payloadLength = frame.length - payloadOffset;
+        if (payloadLength < thresholdBytes || (frame[1] & Frame.FLAG_COMPRESSED) != 0) {
+            return frame;
+        }
+        
+        long start = System.nanoTime();
+        Deflater deflater = deflaters.poll();
+        if (deflater == null) {
+            deflater = new Deflater(level, true);
+        }
+        byte[] compressed;
+        int compressedLength = 0;
+        try {
+            deflater.setDictionary(CompressionDictionary.bytes());
+            deflater.setInput(frame, payloadOffset, payloadLength);
+            deflater.finish();
+            compressed = new byte[payloadLength];
+            while (!deflater.finished() && compressedLength < compressed.length) {
+                compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+            }
+            if (!deflater.finished()) {
+                compressed = null; // No se achica: se envía tal cual
+            }
+        } finally {
+            deflater.reset();
+            deflaters.offer(deflater);
+        }
+        
+        byte[] result = compressed == null
+            ? frame
+            : FrameCodec.encode(FrameType.fromCode(frame[0]), (frame[1] & 0xFF) | Frame.FLAG_COMPRESSED,
+                compressed, 0, compressedLength);
+        statsFor(type).record(frame.length, result.length, System.nanoTime() - start);
+        return result;
+    }
+    
+    /**
+     * Descomprime el payload de un frame con FLAG_COMPRESSED usando un Inflater del pool.
+     */
+    public byte[] inflate(byte[] payload, int maxBytes) throws ProtocolException {
+        Inflater inflater = inflaters.poll();
+        if (inflater == null) {
+            inflater = new Inflater(true);
+        }
+        try {
+            return inflate(inflater, payload, maxBytes);
+        } finally {
+            inflater.reset();
+            inflaters.offer(inflater);
+        }
+    }
+    
+    /**
+     * Descomprime con el Inflater dado (el cliente reutiliza uno por conexión).
+     * El Inflater debe ser raw (nowrap) y se deja listo para reutilizar.
+     * Rechaza payloads que al descomprimirse superan maxBytes.
+     */
+    public static byte[] inflate(Inflater inflater, byte[] payload, int maxBytes) throws ProtocolException {
+        try {
+            inflater.reset();
+            inflater.setDictionary(CompressionDictionary.bytes());
+            inflater.setInput(payload);
+            byte[] output = new byte[Math.min(maxBytes, Math.max(256, payload.length * 8))];
+            int length = 0;
+            while (!inflater.finished()) {
+                if (length == output.length) {
+                    if (output.length >= maxBytes) {
+                        throw new ProtocolException("Compressed frame expands beyond " + maxBytes + " bytes");
+                    }
+                    output = Arrays.copyOf(output, (int) Math.min(maxBytes, output.length * 2L));
+                }
+                int inflated = inflater.inflate(output, length, output.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new ProtocolException("Truncated compressed frame");
+                }
+                length += inflated;
+            }
+            return length == output.length ? output : Arrays.copyOf(output, length);
+        } catch (DataFormatException e) {
+            throw new ProtocolException("Invalid compressed frame: " + e.getMessage());
+        } finally {
+            inflater.reset();
+        }
+    }
+    
+    /**
+     * Resumen por tipo: mensajes, bytes antes/después, ratio y microsegundos por mensaje.
+     */
+    public List<String> describeStats() {
+        List<String> lines = new ArrayList<>();
+        stats.forEach((type, typeStats) -> lines.add(type + ": " + typeStats.describe()));
+        return lines;
+    }
+    
+    private TypeStats statsFor(MessageType type) {
+        return stats.computeIfAbsent(type, key -> new TypeStats());
+    }
+    
+    private static int payloadOffset(byte[] frame) {
+        int position = HEADER_BYTES;
+        while ((frame[position] & 0x80) != 0) {
+            position++;
+        }
+        return position + 1;
+    }
+    
+    private static final class TypeStats {
+        final LongAdder messages = new LongAdder();
+        final LongAdder bytesIn = new LongAdder();
+        final LongAdder bytesOut = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        
+        void record(int before, int after, long elapsedNanos) {
+            messages.increment();
+            bytesIn.add(before);
+            bytesOut.add(after);
+            nanos.add(elapsedNanos);
+        }
+        
+        String describe() {
+            long count = Math.max(1, messages.sum());
+            double ratio = bytesOut.sum() == 0 ? 1.0 : (double) bytesIn.sum() / bytesOut.sum();
+            return String.format("%d messages, %d -> %d bytes (%.1fx), %d us/message",
+                messages.sum(), bytesIn.sum(), bytesOut.sum(), ratio, nanos.sum() / count / 1000);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.juegito.protocol.wire;
+
+/**
+ * Tipos de frame del protocolo binario.
+ * Los códigos son bytes de control que nunca inician una línea JSON,
+ * así el decodificador distingue frames de líneas por el primer byte.
+ */
+public enum FrameType {
+    JSON(1),      // Payload: Message serializado como JSON UTF-8
+    BINARY(2),    // Payload: Message en el codec binario compacto
+    HANDLES(3),   // Payload: definiciones handle → ID de jugador de la sesión
+    BATCH(4),     // Payload: frames completos seguidos, para aplicarse juntos (nunca otro BATCH)
+    FRAGMENT(5);  // Payload: [stream varint][parte de frames completos] (ver FragmentAssembler)
+    
+    private final int code;
+    
+    FrameType(int code) {
+        this.code = code;
+    }
+    
+    public int getCode() {
+        return code;
+    }
+    
+    /**
+     * Retorna el tipo para un código, o null si no es un frame conocido.
+     */
+    public static FrameType fromCode(int code) {
+        for (FrameType type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
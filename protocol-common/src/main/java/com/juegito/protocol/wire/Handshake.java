@@ -0,0 +1,65 @@
+package com.juegito.protocol.wire;
+
+import java.net.ProtocolException;
+
+/**
+ * Negociación del formato de cable al conectar.
+ * El cliente envía MAGIC + versión + capacidades; el servidor responde lo mismo con
+ * las capacidades aceptadas. Si el primer byte no es el de MAGIC, se asume un cliente
+ * antiguo y se mantiene JSON delimitado por '\n'.
+ */
+public final class Handshake {
+    public static final int VERSION = 1;
+    public static final int LENGTH = 6;
+    
+    /** Frames con prefijo de longitud en lugar de líneas. */
+    public static final int CAP_FRAMES = 0x01;
+    
+    /** Codec binario compacto (requiere CAP_FRAMES). */
+    public static final int CAP_BINARY = 0x02;
+    
+    /** Payloads grandes comprimidos con deflate y diccionario predefinido. */
+    public static final int CAP_DEFLATE = 0x04;
+    
+    /** Frames BATCH: los mensajes de un mismo comando llegan juntos (requiere CAP_FRAMES). */
+    public static final int CAP_BATCH = 0x08;
+    
+    /** Frames FRAGMENT: los mensajes grandes llegan en partes intercaladas con el resto (requiere CAP_FRAMES). */
+    public static final int CAP_FRAGMENTS = 0x10;
+    
+    // El primer byte (0x00) nunca aparece al inicio de una línea JSON
+    private static final byte[] MAGIC = {0x00, 'J', 'G', 'F'};
+    
+    private Handshake() {
+    }
+    
+    public static byte[] encode(int capabilities) {
+        byte[] handshake = new byte[LENGTH];
+        System.arraycopy(MAGIC, 0, handshake, 0, MAGIC.length);
+        handshake[4] = (byte) VERSION;
+        handshake[5] = (byte) capabilities;
+        return handshake;
+    }
+    
+    /**
+     * Indica si el byte puede iniciar un handshake.
+     */
+    public static boolean isStart(byte first) {
+        return first == MAGIC[0];
+    }
+    
+    /**
+     * Valida un handshake de LENGTH bytes y retorna las capacidades.
+     */
+    public static int parseCapabilities(byte[] data, int offset) throws ProtocolException {
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data[offset + i] != MAGIC[i]) {
+                throw new ProtocolException("Invalid handshake");
+            }
+        }
+        if (data[offset + 4] != VERSION) {
+            throw new ProtocolException("Unsupported protocol version " + data[offset + 4]);
+        }
+        return data[offset + 5] & 0xFF;
+    }
+}
@@ -0,0 +1,36 @@
+package com.juegito.protocol.wire;
+
+/**
+ * Enteros sin signo de longitud variable (LEB128): 7 bits por byte,
+ * el bit alto indica que sigue otro byte. Valores chicos ocupan un byte.
+ */
+public final class Varint {
+    public static final int MAX_INT_BYTES = 5;
+    
+    private Varint() {
+    }
+    
+    /**
+     * Cantidad de bytes que ocupa el valor codificado.
+     */
+    public static int size(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+    
+    /**
+     * Escribe el valor en target a partir de offset. Retorna la posición siguiente.
+     */
+    public static int write(int value, byte[] target, int offset) {
+        while ((value & ~0x7F) != 0) {
+            target[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        target[offset++] = (byte) value;
+        return offset;
+    }
+}
@@ -0,0 +1,197 @@
+package com.juegito.protocol.wire;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Decodificador incremental del flujo de entrada.
+ * Acepta lecturas parciales de cualquier tamaño y entrega cada unidad completa:
+ * handshake, frame con prefijo de longitud o línea JSON (formato de respaldo).
+ * El primer byte de cada unidad decide su tipo. Solo retiene memoria mientras
+ * hay una unidad incompleta, y nunca más que el máximo configurado.
+ */
+public class WireDecoder {
+    private static final int HEADER_BYTES = 2;
+    private static final int MIN_PENDING_CAPACITY = 256;
+    
+    private final int maxMessageBytes;
+    private byte[] pending;
+    private int pendingLength;
+    private int scannedLineBytes; // Bytes de una línea incompleta ya revisados sin '\n'
+    
+    public WireDecoder(int maxMessageBytes) {
+        this.maxMessageBytes = maxMessageBytes;
+    }
+    
+    /**
+     * Receptor de las unidades decodificadas.
+     */
+    public interface Listener {
+        void onHandshake(int capabilities) throws IOException;
+        
+        void onLine(String line) throws IOException;
+        
+        void onFrame(Frame frame) throws IOException;
+    }
+    
+    /**
+     * Consume length bytes de data a partir de offset.
+     * Lanza ProtocolException si el flujo es inválido o excede el tamaño máximo.
+     */
+    public void feed(byte[] data, int offset, int length, Listener listener) throws IOException {
+        if (pendingLength == 0) {
+            // Caso común: se decodifica directamente sobre el buffer de lectura
+            int end = offset + length;
+            int consumed = decode(data, offset, end, listener);
+            if (consumed < end) {
+                append(data, consumed, end - consumed);
+            }
+            return;
+        }
+        
+        append(data, offset, length);
+        int consumed = decode(pending, 0, pendingLength, listener);
+        int remaining = pendingLength - consumed;
+        if (remaining == 0) {
+            pending = null;
+            pendingLength = 0;
+        } else if (consumed > 0) {
+            System.arraycopy(pending, consumed, pending, 0, remaining);
+            pendingLength = remaining;
+        }
+    }
+    
+    /**
+     * Entrega los frames contenidos en el payload de un frame BATCH.
+     * El payload debe traer frames completos; no admite líneas ni otro BATCH.
+     */
+    public void feedBatch(byte[] payload, Listener listener) throws IOException {
+        int position = 0;
+        while (position < payload.length) {
+            FrameType type = FrameType.fromCode(payload[position]);
+            if (type == null || type == FrameType.BATCH) {
+                throw new ProtocolException("Invalid frame inside batch");
+            }
+            position = decodeFrame(type, payload, position, payload.length, listener);
+            if (position < 0) {
+                throw new ProtocolException("Truncated frame inside batch");
+            }
+        }
+    }
+    
+    /**
+     * Descarta cualquier unidad incompleta.
+     */
+    public void reset() {
+        pending = null;
+        pendingLength = 0;
+        scannedLineBytes = 0;
+    }
+    
+    private int decode(byte[] buffer, int position, int end, Listener listener) throws IOException {
+        while (position < end) {
+            int next = decodeUnit(buffer, position, end, listener);
+            if (next < 0) {
+                return position;
+            }
+            position = next;
+        }
+        return position;
+    }
+    
+    /**
+     * Decodifica una unidad en position. Retorna la posición siguiente, o -1 si está incompleta.
+     */
+    private int decodeUnit(byte[] buffer, int position, int end, Listener listener) throws IOException {
+        byte first = buffer[position];
+        
+        if (Handshake.isStart(first)) {
+            if (end - position < Handshake.LENGTH) {
+                return -1;
+            }
+            listener.onHandshake(Handshake.parseCapabilities(buffer, position));
+            return position + Handshake.LENGTH;
+        }
+        
+        FrameType frameType = FrameType.fromCode(first);
+        if (frameType != null) {
+            return decodeFrame(frameType, buffer, position, end, listener);
+        }
+        
+        return decodeLine(buffer, position, end, listener);
+    }
+    
+    private int decodeFrame(FrameType type, byte[] buffer, int position, int end, Listener listener) throws IOException {
+        if (end - position < HEADER_BYTES + 1) {
+            return -1;
+        }
+        int flags = buffer[position + 1] & 0xFF;
+        
+        // Longitud varint: se valida contra el máximo antes de esperar el payload
+        int length = 0;
+        int cursor = position + HEADER_BYTES;
+        for (int shift = 0; ; shift += 7) {
+            if (cursor >= end) {
+                return -1;
+            }
+            if (shift >= 7 * Varint.MAX_INT_BYTES) {
+                throw new ProtocolException("Malformed frame length");
+            }
+            byte b = buffer[cursor++];
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        if (length < 0 || length > maxMessageBytes) {
+            throw new ProtocolException("Frame of " + length + " bytes exceeds " + maxMessageBytes);
+        }
+        if (end - cursor < length) {
+            return -1;
+        }
+        
+        byte[] payload = Arrays.copyOfRange(buffer, cursor, cursor + length);
+        listener.onFrame(new Frame(type, flags, payload));
+        return cursor + length;
+    }
+    
+    private int decodeLine(byte[] buffer, int position, int end, Listener listener) throws IOException {
+        int scanFrom = position + (buffer == pending ? scannedLineBytes : 0);
+        for (int i = scanFrom; i < end; i++) {
+            if (buffer[i] == '\n') {
+                scannedLineBytes = 0;
+                int length = i - position;
+                if (length > 0 && buffer[i - 1] == '\r') {
+                    length--;
+                }
+                listener.onLine(new String(buffer, position, length, StandardCharsets.UTF_8));
+                return i + 1;
+            }
+        }
+        
+        int lineBytes = end - position;
+        if (lineBytes > maxMessageBytes) {
+            throw new ProtocolException("Line exceeds " + maxMessageBytes + " bytes");
+        }
+        // Quedará al inicio de pending: la próxima vez se sigue buscando desde aquí
+        scannedLineBytes = lineBytes;
+        return -1;
+    }
+    
+    private void append(byte[] data, int offset, int length) throws ProtocolException {
+        int required = pendingLength + length;
+        if (required > maxMessageBytes + HEADER_BYTES + Varint.MAX_INT_BYTES + 1) {
+            throw new ProtocolException("Inbound message exceeds " + maxMessageBytes + " bytes");
+        }
+        if (pending == null) {
+            pending = new byte[Math.max(MIN_PENDING_CAPACITY, required)];
+        } else if (pending.length < required) {
+            pending = Arrays.copyOf(pending, Math.max(required, Math.min(pending.length * 2,
+                maxMessageBytes + HEADER_BYTES + Varint.MAX_INT_BYTES + 1)));
+        }
+        System.arraycopy(data, offset, pending, pendingLength, length);
+        pendingLength = required;
+    }
+}
@@ -0,0 +1,151 @@
+package com.juegito.protocol.wire;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FragmentAssemblerTest {
+    private static final int MAX_MESSAGE_BYTES = 4096;
+    
+    @Test
+    void unitIsReturnedWithLastPart() throws IOException {
+        byte[] unit = unit(3000);
+        List<Frame> parts = fragment(1, unit, 1000);
+        FragmentAssembler assembler = new FragmentAssembler(MAX_MESSAGE_BYTES);
+        
+        assertNull(assembler.add(parts.get(0)));
+        assertNull(assembler.add(parts.get(1)));
+        assertTrue(assembler.hasPartial());
+        
+        assertArrayEquals(unit, assembler.add(parts.get(2)));
+        assertFalse(assembler.hasPartial());
+    }
+    
+    @Test
+    void interleavedStreamsAreKeptApart() throws IOException {
+        byte[] first = unit(1500);
+        byte[] second = unit(900);
+        List<Frame> firstParts = fragment(1, first, 500);
+        List<Frame> secondParts = fragment(300, second, 500);
+        FragmentAssembler assembler = new FragmentAssembler(MAX_MESSAGE_BYTES);
+        
+        assembler.add(firstParts.get(0));
+        assembler.add(secondParts.get(0));
+        assembler.add(firstParts.get(1));
+        
+        assertArrayEquals(second, assembler.add(secondParts.get(1)));
+        assertArrayEquals(first, assembler.add(firstParts.get(2)));
+    }
+    
+    /**
+     * La unidad armada son frames enteros que se decodifican como un BATCH.
+     */
+    @Test
+    void assembledUnitDecodesAsBatch() throws IOException {
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        frames.write(FrameCodec.encode(FrameType.JSON, 0, unit(2000)));
+        frames.write(FrameCodec.encode(FrameType.BINARY, 0, unit(10)));
+        FragmentAssembler assembler = new FragmentAssembler(MAX_MESSAGE_BYTES);
+        
+        byte[] assembled = null;
+        for (Frame part : fragment(7, frames.toByteArray(), 700)) {
+            assembled = assembler.add(part);
+        }
+        List<FrameType> types = new ArrayList<>();
+        new WireDecoder(MAX_MESSAGE_BYTES).feedBatch(assembled, new WireDecoder.Listener() {
+            @Override
+            public void onHandshake(int capabilities) {
+            }
+            
+            @Override
+            public void onLine(String line) {
+            }
+            
+            @Override
+            public void onFrame(Frame frame) {
+                types.add(frame.getType());
+            }
+        });
+        
+        assertEquals(List.of(FrameType.JSON, FrameType.BINARY), types);
+    }
+    
+    @Test
+    void unitBeyondLimitIsRejected() throws IOException {
+        List<Frame> parts = fragment(1, unit(MAX_MESSAGE_BYTES + 1000), 1000);
+        FragmentAssembler assembler = new FragmentAssembler(MAX_MESSAGE_BYTES);
+        
+        assertThrows(ProtocolException.class, () -> {
+            for (Frame part : parts) {
+                assembler.add(part);
+            }
+        });
+    }
+    
+    @Test
+    void malformedStreamIsRejected() {
+        Frame part = new Frame(FrameType.FRAGMENT, Frame.FLAG_LAST_FRAGMENT, new byte[] {(byte) 0x80});
+        
+        assertThrows(ProtocolException.class, () -> new FragmentAssembler(MAX_MESSAGE_BYTES).add(part));
+    }
+    
+    @Test
+    void resetDropsPartialUnits() throws IOException {
+        List<Frame> parts = fragment(1, unit(2000), 1000);
+        FragmentAssembler assembler = new FragmentAssembler(MAX_MESSAGE_BYTES);
+        assembler.add(parts.get(0));
+        
+        assembler.reset();
+        
+        assertFalse(assembler.hasPartial());
+        assertEquals(1000, assembler.add(parts.get(1)).length);
+    }
+    
+    /**
+     * Parte la unidad como el emisor y decodifica cada FRAGMENT como lo recibe el cliente.
+     */
+    private static List<Frame> fragment(int stream, byte[] unit, int partBytes) throws IOException {
+        List<Frame> parts = new ArrayList<>();
+        WireDecoder decoder = new WireDecoder(MAX_MESSAGE_BYTES);
+        for (int offset = 0; offset < unit.length; offset += partBytes) {
+            int length = Math.min(partBytes, unit.length - offset);
+            byte[] frame = FrameCodec.encodeFragment(stream, offset + length == unit.length, unit, offset, length);
+            decoder.feed(frame, 0, frame.length, new WireDecoder.Listener() {
+                @Override
+                public void onHandshake(int capabilities) {
+                }
+                
+                @Override
+                public void onLine(String line) {
+                }
+                
+                @Override
+                public void onFrame(Frame part) {
+                    parts.add(part);
+                }
+            });
+        }
+        return parts;
+    }
+    
+    private static byte[] unit(int length) {
+        byte[] data = new byte[length];
+        Arrays.fill(data, (byte) 'x');
+        for (int i = 0; i < length; i += 97) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+}
@@ -0,0 +1,164 @@
+package com.juegito.protocol.wire;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FrameCodecTest {
+    private static final int MAX_MESSAGE_BYTES = 1024;
+    
+    @Test
+    void frameRoundTripsThroughDecoder() throws IOException {
+        byte[] payload = bytes(300);
+        
+        List<Object> units = decode(FrameCodec.encode(FrameType.JSON, Frame.FLAG_COMPRESSED, payload));
+        
+        assertEquals(1, units.size());
+        Frame frame = (Frame) units.get(0);
+        assertEquals(FrameType.JSON, frame.getType());
+        assertEquals(Frame.FLAG_COMPRESSED, frame.getFlags());
+        assertArrayEquals(payload, frame.getPayload());
+    }
+    
+    @Test
+    void headerUsesVarintLength() {
+        byte[] frame = FrameCodec.encode(FrameType.BINARY, 0, bytes(200));
+        
+        assertEquals(2 + Varint.size(200) + 200, frame.length);
+        assertEquals(FrameType.BINARY.getCode(), frame[0]);
+    }
+    
+    @Test
+    void encodesSliceOfPayload() throws IOException {
+        byte[] payload = bytes(10);
+        
+        Frame frame = (Frame) decode(FrameCodec.encode(FrameType.BINARY, 0, payload, 3, 4)).get(0);
+        
+        assertArrayEquals(Arrays.copyOfRange(payload, 3, 7), frame.getPayload());
+    }
+    
+    /**
+     * Lecturas parciales de un byte: handshake, frame y línea JSON mezclados en el flujo.
+     */
+    @Test
+    void decoderHandlesByteAtATimeReads() throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        stream.write(Handshake.encode(Handshake.CAP_FRAMES));
+        stream.write(FrameCodec.encode(FrameType.JSON, 0, bytes(200)));
+        stream.write("{\"type\":\"PING\"}\r\n".getBytes(StandardCharsets.UTF_8));
+        byte[] written = stream.toByteArray();
+        
+        List<Object> units = new ArrayList<>();
+        WireDecoder decoder = new WireDecoder(MAX_MESSAGE_BYTES);
+        for (int i = 0; i < written.length; i++) {
+            decoder.feed(written, i, 1, collector(units));
+        }
+        
+        assertEquals(3, units.size());
+        assertEquals(Handshake.CAP_FRAMES, units.get(0));
+        assertArrayEquals(bytes(200), ((Frame) units.get(1)).getPayload());
+        assertEquals("{\"type\":\"PING\"}", units.get(2));
+    }
+    
+    @Test
+    void frameAtLimitIsAccepted() throws IOException {
+        List<Object> units = decode(FrameCodec.encode(FrameType.JSON, 0, bytes(MAX_MESSAGE_BYTES)));
+        
+        assertEquals(MAX_MESSAGE_BYTES, ((Frame) units.get(0)).getPayload().length);
+    }
+    
+    /**
+     * El largo se valida con la cabecera, antes de esperar (y acumular) el payload.
+     */
+    @Test
+    void oversizedFrameIsRejectedFromItsHeader() {
+        byte[] frame = FrameCodec.encode(FrameType.JSON, 0, bytes(MAX_MESSAGE_BYTES + 1));
+        byte[] header = Arrays.copyOf(frame, 2 + Varint.size(MAX_MESSAGE_BYTES + 1));
+        
+        assertThrows(ProtocolException.class, () -> decode(header));
+    }
+    
+    @Test
+    void malformedLengthIsRejected() {
+        byte[] frame = {(byte) FrameType.JSON.getCode(), 0, (byte) 0x80, (byte) 0x80, (byte) 0x80,
+            (byte) 0x80, (byte) 0x80, 0x01};
+        
+        assertThrows(ProtocolException.class, () -> decode(frame));
+    }
+    
+    @Test
+    void oversizedLineIsRejectedBeforeNewline() {
+        byte[] line = new byte[MAX_MESSAGE_BYTES + 1];
+        Arrays.fill(line, (byte) 'a');
+        
+        assertThrows(ProtocolException.class, () -> decode(line));
+    }
+    
+    @Test
+    void batchDeliversEachFrame() throws IOException {
+        ByteArrayOutputStream batch = new ByteArrayOutputStream();
+        batch.write(FrameCodec.encode(FrameType.JSON, 0, bytes(5)));
+        batch.write(FrameCodec.encode(FrameType.BINARY, 0, bytes(7)));
+        
+        List<Object> units = new ArrayList<>();
+        new WireDecoder(MAX_MESSAGE_BYTES).feedBatch(batch.toByteArray(), collector(units));
+        
+        assertEquals(2, units.size());
+        assertEquals(FrameType.BINARY, ((Frame) units.get(1)).getType());
+    }
+    
+    @Test
+    void truncatedFrameInsideBatchIsRejected() {
+        byte[] frame = FrameCodec.encode(FrameType.JSON, 0, bytes(5));
+        byte[] truncated = Arrays.copyOf(frame, frame.length - 1);
+        
+        assertThrows(ProtocolException.class,
+            () -> new WireDecoder(MAX_MESSAGE_BYTES).feedBatch(truncated, collector(new ArrayList<>())));
+    }
+    
+    private static byte[] bytes(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (i * 31);
+        }
+        return data;
+    }
+    
+    private static List<Object> decode(byte[] written) throws IOException {
+        List<Object> units = new ArrayList<>();
+        new WireDecoder(MAX_MESSAGE_BYTES).feed(written, 0, written.length, collector(units));
+        return units;
+    }
+    
+    /**
+     * Guarda cada unidad: capacidades del handshake, línea o frame.
+     */
+    private static WireDecoder.Listener collector(List<Object> units) {
+        return new WireDecoder.Listener() {
+            @Override
+            public void onHandshake(int capabilities) {
+                units.add(capabilities);
+            }
+            
+            @Override
+            public void onLine(String line) {
+                units.add(line);
+            }
+            
+            @Override
+            public void onFrame(Frame frame) {
+                units.add(frame);
+            }
+        };
+    }
+}
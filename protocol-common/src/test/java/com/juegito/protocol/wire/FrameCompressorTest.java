@@ -0,0 +1,124 @@
+package com.juegito.protocol.wire;
+
+import com.juegito.protocol.MessageType;
+import org.junit.jupiter.api.Test;
+
+import java.net.ProtocolException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Inflater;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FrameCompressorTest {
+    private static final int THRESHOLD_BYTES = 256;
+    private static final int MAX_MESSAGE_BYTES = 64 * 1024;
+    
+    private final FrameCompressor compressor = new FrameCompressor(THRESHOLD_BYTES, 6);
+    
+    @Test
+    void largeFrameRoundTrips() throws ProtocolException {
+        byte[] payload = mapJson(40);
+        byte[] frame = FrameCodec.encode(FrameType.JSON, 0, payload);
+        
+        byte[] compressed = compressor.compress(MessageType.MAP_STATE, frame);
+        
+        assertTrue(compressed.length < frame.length);
+        assertEquals(FrameType.JSON.getCode(), compressed[0]);
+        assertEquals(Frame.FLAG_COMPRESSED, compressed[1]);
+        assertArrayEquals(payload, compressor.inflate(payloadOf(compressed), MAX_MESSAGE_BYTES));
+    }
+    
+    /**
+     * El cliente descomprime con su propio Inflater, reutilizado entre frames.
+     */
+    @Test
+    void connectionInflaterIsReusable() throws ProtocolException {
+        Inflater inflater = new Inflater(true);
+        for (int players = 20; players <= 60; players += 20) {
+            byte[] payload = mapJson(players);
+            byte[] compressed = compressor.compress(MessageType.MAP_STATE, FrameCodec.encode(FrameType.JSON, 0, payload));
+            
+            assertArrayEquals(payload, FrameCompressor.inflate(inflater, payloadOf(compressed), MAX_MESSAGE_BYTES));
+        }
+        inflater.end();
+    }
+    
+    @Test
+    void smallFrameIsLeftAlone() {
+        byte[] frame = FrameCodec.encode(FrameType.JSON, 0, mapJson(1));
+        
+        assertSame(frame, compressor.compress(MessageType.MAP_STATE, frame));
+    }
+    
+    @Test
+    void incompressibleFrameIsLeftAlone() {
+        byte[] payload = new byte[2048];
+        new Random(7).nextBytes(payload);
+        byte[] frame = FrameCodec.encode(FrameType.BINARY, 0, payload);
+        
+        assertSame(frame, compressor.compress(MessageType.MAP_STATE, frame));
+    }
+    
+    @Test
+    void alreadyCompressedFrameIsLeftAlone() {
+        byte[] frame = compressor.compress(MessageType.MAP_STATE, FrameCodec.encode(FrameType.JSON, 0, mapJson(40)));
+        
+        assertSame(frame, compressor.compress(MessageType.MAP_STATE, frame));
+    }
+    
+    /**
+     * Un payload chico que se expande más allá del máximo se corta sin reservar todo.
+     */
+    @Test
+    void inflationBeyondLimitIsRejected() {
+        byte[] payload = new byte[32 * 1024];
+        byte[] compressed = compressor.compress(MessageType.MAP_STATE, FrameCodec.encode(FrameType.JSON, 0, payload));
+        
+        assertThrows(ProtocolException.class, () -> compressor.inflate(payloadOf(compressed), 16 * 1024));
+    }
+    
+    @Test
+    void truncatedPayloadIsRejected() {
+        byte[] compressed = compressor.compress(MessageType.MAP_STATE, FrameCodec.encode(FrameType.JSON, 0, mapJson(40)));
+        byte[] payload = payloadOf(compressed);
+        byte[] truncated = Arrays.copyOf(payload, payload.length / 2);
+        
+        assertThrows(ProtocolException.class, () -> compressor.inflate(truncated, MAX_MESSAGE_BYTES));
+    }
+    
+    @Test
+    void garbageIsRejected() {
+        byte[] garbage = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF};
+        
+        assertThrows(ProtocolException.class, () -> compressor.inflate(garbage, MAX_MESSAGE_BYTES));
+    }
+    
+    /**
+     * JSON parecido al de MAP_STATE, que el diccionario cubre.
+     */
+    private static byte[] mapJson(int players) {
+        StringBuilder json = new StringBuilder("{\"type\":\"MAP_STATE\",\"payload\":{\"positions\":[");
+        for (int i = 0; i < players; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"playerId\":\"player-").append(i).append("\",\"q\":").append(i % 7)
+                .append(",\"r\":").append(-i % 5).append('}');
+        }
+        return json.append("]}}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    private static byte[] payloadOf(byte[] frame) {
+        int position = 2;
+        while ((frame[position] & 0x80) != 0) {
+            position++;
+        }
+        return Arrays.copyOfRange(frame, position + 1, frame.length);
+    }
+}
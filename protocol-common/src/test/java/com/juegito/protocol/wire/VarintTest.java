@@ -0,0 +1,51 @@
+package com.juegito.protocol.wire;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VarintTest {
+    
+    @Test
+    void sizeGrowsEverySevenBits() {
+        assertEquals(1, Varint.size(0));
+        assertEquals(1, Varint.size(127));
+        assertEquals(2, Varint.size(128));
+        assertEquals(2, Varint.size(16383));
+        assertEquals(3, Varint.size(16384));
+        assertEquals(Varint.MAX_INT_BYTES, Varint.size(Integer.MAX_VALUE));
+        assertEquals(Varint.MAX_INT_BYTES, Varint.size(-1));
+    }
+    
+    @Test
+    void writesLowGroupFirstWithContinuationBit() {
+        byte[] target = new byte[4];
+        
+        int end = Varint.write(300, target, 1);
+        
+        assertEquals(3, end);
+        assertArrayEquals(new byte[] {0, (byte) 0xAC, 0x02, 0}, target);
+    }
+    
+    @Test
+    void writtenBytesMatchSize() {
+        int[] values = {0, 1, 127, 128, 255, 16383, 16384, 2_097_151, 2_097_152, Integer.MAX_VALUE};
+        for (int value : values) {
+            byte[] target = new byte[Varint.MAX_INT_BYTES];
+            assertEquals(Varint.size(value), Varint.write(value, target, 0));
+            assertEquals(value, read(target));
+        }
+    }
+    
+    private static int read(byte[] data) {
+        int value = 0;
+        for (int i = 0, shift = 0; i < data.length; i++, shift += 7) {
+            value |= (data[i] & 0x7F) << shift;
+            if ((data[i] & 0x80) == 0) {
+                break;
+            }
+        }
+        return value;
+    }
+}
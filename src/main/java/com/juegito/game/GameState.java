@@ -3,37 +3,50 @@ package com.juegito.game;
 import com.juegito.game.inventory.InventoryManager;
 import com.juegito.game.inventory.LootInventoryBridge;
 import com.juegito.game.loot.LootSystem;
+import com.juegito.model.EntityRegistry;
 import com.juegito.model.GameMap;
 import com.juegito.model.HexCoordinate;
 import com.juegito.model.Player;
+import com.juegito.protocol.StateChecksum;
 import com.juegito.protocol.dto.GameStateDTO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Gestiona el estado completo del mundo del juego.
  * Mantiene toda la información necesaria para la simulación del juego.
+ * El estado por jugador va en arrays indexados por el handle del EntityRegistry de la
+ * partida; los UUID solo se traducen al armar los DTOs.
  */
 public class GameState {
     private static final Logger logger = LoggerFactory.getLogger(GameState.class);
     
     private final Map<String, Object> worldState;
     private final List<String> playerOrder;
-    private final Set<String> playersWhoActedThisTurn;
-    private final Map<String, Integer> playerHealth;
-    private final Map<String, String> playerClass;
+    private final EntityRegistry entities;
+    private final BitSet playersWhoActedThisTurn; // Por handle
+    private int[] playerHealth; // Por handle; -1 = sin HP asignado
+    private long[] healthVersions; // Por handle: versión del último cambio de HP (0 = nunca)
+    private String[] playerClass; // Por handle
     private int currentTurnIndex;
     private int turnNumber;
     private boolean gameActive;
     
+    // Versión del estado que resume el heartbeat (turno y HP): sube con cada cambio
+    private long stateVersion;
+    private long turnVersion;
+    private long checksumVersion;
+    private int checksum;
+    
     // Sistema de mapa
     private GameMap gameMap;
     private MapGenerator mapGenerator;
@@ -44,17 +57,21 @@ public class GameState {
     private LootSystem lootSystem;
     private LootInventoryBridge lootBridge;
     
-    public GameState() {
+    public GameState(EntityRegistry entities) {
         this.worldState = new ConcurrentHashMap<>();
         this.playerOrder = new ArrayList<>();
-        this.playersWhoActedThisTurn = ConcurrentHashMap.newKeySet();
-        this.playerHealth = new ConcurrentHashMap<>();
-        this.playerClass = new ConcurrentHashMap<>();
+        this.entities = entities;
+        this.playersWhoActedThisTurn = new BitSet();
+        this.playerHealth = new int[0];
+        this.healthVersions = new long[0];
+        this.playerClass = new String[0];
         this.currentTurnIndex = 0;
         this.turnNumber = 0;
         this.gameActive = false;
+        this.stateVersion = 0;
+        this.checksumVersion = -1;
         this.mapGenerator = new MapGenerator();
-        this.inventoryManager = new InventoryManager(50);
+        this.inventoryManager = new InventoryManager(50, entities);
         this.lootSystem = new LootSystem();
         this.lootBridge = new LootInventoryBridge(lootSystem, inventoryManager);
     }
@@ -62,15 +79,18 @@ public class GameState {
     public void initializeGame(List<Player> players) {
         playerOrder.clear();
         players.forEach(p -> playerOrder.add(p.getPlayerId()));
+        players.forEach(p -> entities.register(p.getPlayerId()));
         Collections.shuffle(playerOrder);
         
-        playerHealth.clear();
-        players.forEach(p -> playerHealth.put(p.getPlayerId(), 100));
+        Arrays.fill(playerHealth, -1);
+        Arrays.fill(healthVersions, 0);
+        players.forEach(p -> setPlayerHP(p.getPlayerId(), 100));
         
         players.forEach(p -> inventoryManager.registerPlayer(p.getPlayerId()));
         
         currentTurnIndex = 0;
         turnNumber = 1;
+        turnVersion = ++stateVersion;
         gameActive = true;
         
         worldState.clear();
@@ -84,7 +104,7 @@ public class GameState {
     }
     
     private void generateMap(int playerCount) {
-        gameMap = mapGenerator.generateMap(playerCount);
+        gameMap = mapGenerator.generateMap(playerCount, entities);
         movementExecutor = new MovementExecutor(gameMap);
         logger.info("Map generated for {} players", playerCount);
     }
@@ -114,12 +134,13 @@ public class GameState {
             turnNumber++;
             playersWhoActedThisTurn.clear();
         }
+        turnVersion = ++stateVersion;
         logger.debug("Turn advanced to player {} (turn {})", getCurrentTurnPlayerId(), turnNumber);
     }
     
     public boolean registerPlayerAction(String playerId) {
-        playersWhoActedThisTurn.add(playerId);
-        boolean allActed = playersWhoActedThisTurn.size() >= playerOrder.size();
+        playersWhoActedThisTurn.set(entities.register(playerId));
+        boolean allActed = haveAllPlayersActed();
         if (allActed) {
             logger.info("Todos los jugadores actuaron - turno {} completo", turnNumber);
         }
@@ -127,7 +148,7 @@ public class GameState {
     }
     
     public boolean haveAllPlayersActed() {
-        return playersWhoActedThisTurn.size() >= playerOrder.size();
+        return playersWhoActedThisTurn.cardinality() >= playerOrder.size();
     }
     
     public int getTurnNumber() {
@@ -181,11 +202,33 @@ public class GameState {
     }
     
     public int getPlayerHP(String playerId) {
-        return playerHealth.getOrDefault(playerId, 100);
+        return getPlayerHP(entities.handleOf(playerId));
+    }
+    
+    public int getPlayerHP(int handle) {
+        boolean known = handle >= 0 && handle < playerHealth.length && playerHealth[handle] >= 0;
+        return known ? playerHealth[handle] : 100;
     }
     
     public void setPlayerHP(String playerId, int hp) {
-        playerHealth.put(playerId, Math.max(0, hp));
+        int handle = entities.register(playerId);
+        ensureCapacity(handle);
+        int value = Math.max(0, hp);
+        if (playerHealth[handle] != value) {
+            playerHealth[handle] = value;
+            healthVersions[handle] = ++stateVersion;
+        }
+    }
+    
+    private void ensureCapacity(int handle) {
+        if (handle >= playerHealth.length) {
+            int length = Math.max(handle + 1, playerHealth.length * 2);
+            int previous = playerHealth.length;
+            playerHealth = Arrays.copyOf(playerHealth, length);
+            Arrays.fill(playerHealth, previous, length, -1);
+            healthVersions = Arrays.copyOf(healthVersions, length);
+            playerClass = Arrays.copyOf(playerClass, length);
+        }
     }
     
     public boolean applyDamage(String playerId, int damage) {
@@ -197,15 +240,66 @@ public class GameState {
     }
     
     public void setPlayerClass(String playerId, String className) {
-        playerClass.put(playerId, className);
+        int handle = entities.register(playerId);
+        ensureCapacity(handle);
+        playerClass[handle] = className;
     }
     
     public String getPlayerClass(String playerId) {
-        return playerClass.getOrDefault(playerId, "guerrero");
+        int handle = entities.handleOf(playerId);
+        String className = handle >= 0 && handle < playerClass.length ? playerClass[handle] : null;
+        return className != null ? className : "guerrero";
     }
     
     public Map<String, Integer> getAllPlayerHealth() {
-        return new HashMap<>(playerHealth);
+        Map<String, Integer> health = new HashMap<>();
+        for (int handle = 0; handle < playerHealth.length; handle++) {
+            if (playerHealth[handle] >= 0) {
+                health.put(entities.idOf(handle), playerHealth[handle]);
+            }
+        }
+        return health;
+    }
+    
+    /**
+     * Versión del estado del heartbeat (turno y HP). Sube con cada cambio.
+     */
+    public long getStateVersion() {
+        return stateVersion;
+    }
+    
+    /**
+     * True si el turno avanzó después de la versión dada.
+     */
+    public boolean isTurnChangedSince(long version) {
+        return turnVersion > version;
+    }
+    
+    /**
+     * HP de los jugadores que cambiaron después de la versión dada, o null si ninguno.
+     */
+    public Map<String, Integer> getHealthChangedSince(long version) {
+        Map<String, Integer> changed = null;
+        for (int handle = 0; handle < healthVersions.length; handle++) {
+            if (healthVersions[handle] > version && playerHealth[handle] >= 0) {
+                if (changed == null) {
+                    changed = new HashMap<>();
+                }
+                changed.put(entities.idOf(handle), playerHealth[handle]);
+            }
+        }
+        return changed;
+    }
+    
+    /**
+     * Checksum del turno y del HP de todos (StateChecksum), calculado una vez por versión.
+     */
+    public int getStateChecksum() {
+        if (checksumVersion != stateVersion) {
+            checksum = StateChecksum.of(turnNumber, getCurrentTurnPlayerId(), getAllPlayerHealth());
+            checksumVersion = stateVersion;
+        }
+        return checksum;
     }
     
     public InventoryManager getInventoryManager() {
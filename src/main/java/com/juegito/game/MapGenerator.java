@@ -14,8 +14,8 @@ public class MapGenerator {
     private static final Logger logger = LoggerFactory.getLogger(MapGenerator.class);
     private final Random random;
     
-    // Configuración por defecto
-    private static final int DEFAULT_RADIUS = 5;
+    // Configuración por defecto (el radio se puede cambiar con -Dgame.map.radius)
+    private static final int DEFAULT_RADIUS = Integer.getInteger("game.map.radius", 5);
     private static final double FOREST_PROBABILITY = 0.35;
     private static final double MOUNTAIN_PROBABILITY = 0.25;
     private static final int RESOURCE_NODES_COUNT = 3;
@@ -36,13 +36,24 @@ public class MapGenerator {
         return generateMap(DEFAULT_RADIUS, playerCount);
     }
     
+    /**
+     * Genera el mapa por defecto con los handles de ocupantes del registro de la partida.
+     */
+    public GameMap generateMap(int playerCount, EntityRegistry entities) {
+        return generateMap(DEFAULT_RADIUS, playerCount, entities);
+    }
+    
     /**
      * Genera un mapa hexagonal con radio especificado.
      */
     public GameMap generateMap(int radius, int playerCount) {
+        return generateMap(radius, playerCount, new EntityRegistry());
+    }
+    
+    public GameMap generateMap(int radius, int playerCount, EntityRegistry entities) {
         logger.info("Generating map with radius {} for {} players", radius, playerCount);
         
-        GameMap map = new GameMap(radius);
+        GameMap map = new GameMap(radius, entities);
         List<HexCoordinate> allCoordinates = generateHexagonalCoordinates(radius);
         
         // Seleccionar puntos de spawn equidistantes
@@ -62,6 +73,7 @@ public class MapGenerator {
             Tile tile = new Tile(coord, biome, type);
             map.addTile(tile);
         }
+        map.buildGraph();
         
         logger.info("Map generated: {} tiles, {} spawns, {} resources, {} strategic",
             allCoordinates.size(), spawnPoints.size(), 
@@ -81,7 +93,7 @@ public class MapGenerator {
             int r2 = Math.min(radius, -q + radius);
             
             for (int r = r1; r <= r2; r++) {
-                coordinates.add(new HexCoordinate(q, r));
+                coordinates.add(HexCoordinate.of(q, r));
             }
         }
         
@@ -98,19 +110,19 @@ public class MapGenerator {
         
         if (count == 2) {
             // Para 2 jugadores: opuestos
-            spawnPoints.add(new HexCoordinate(-3, 0));
-            spawnPoints.add(new HexCoordinate(3, 0));
+            spawnPoints.add(HexCoordinate.of(-3, 0));
+            spawnPoints.add(HexCoordinate.of(3, 0));
         } else if (count == 3) {
             // Para 3 jugadores: triángulo equilátero
-            spawnPoints.add(new HexCoordinate(0, -3));
-            spawnPoints.add(new HexCoordinate(3, 0));
-            spawnPoints.add(new HexCoordinate(-3, 3));
+            spawnPoints.add(HexCoordinate.of(0, -3));
+            spawnPoints.add(HexCoordinate.of(3, 0));
+            spawnPoints.add(HexCoordinate.of(-3, 3));
         } else if (count == 4) {
             // Para 4 jugadores: cuadrado
-            spawnPoints.add(new HexCoordinate(-3, 0));
-            spawnPoints.add(new HexCoordinate(0, -3));
-            spawnPoints.add(new HexCoordinate(3, 0));
-            spawnPoints.add(new HexCoordinate(0, 3));
+            spawnPoints.add(HexCoordinate.of(-3, 0));
+            spawnPoints.add(HexCoordinate.of(0, -3));
+            spawnPoints.add(HexCoordinate.of(3, 0));
+            spawnPoints.add(HexCoordinate.of(0, 3));
         }
         
         // Filtrar solo coordenadas válidas
@@ -199,7 +211,7 @@ public class MapGenerator {
         for (int q = -2; q <= 2; q++) {
             for (int r = -2; r <= 2; r++) {
                 if (Math.abs(q + r) <= 2) {
-                    HexCoordinate coord = new HexCoordinate(q, r);
+                    HexCoordinate coord = HexCoordinate.of(q, r);
                     BiomeType biome = BiomeType.PLAINS;
                     TileType type = TileType.NORMAL;
                     
@@ -218,6 +230,7 @@ public class MapGenerator {
                 }
             }
         }
+        map.buildGraph();
         
         return map;
     }
@@ -71,45 +71,51 @@ public class MovementValidator {
     
     /**
      * Encuentra el camino más corto entre dos coordenadas usando A*.
+     * Recorre el grafo CSR del mapa por índice de celda: costos y predecesores en arrays y la
+     * cola ordenada por (f << 32 | índice); las entradas viejas de una celda se descartan al salir.
      */
     private List<HexCoordinate> findPath(HexCoordinate start, HexCoordinate goal) {
-        Map<HexCoordinate, HexCoordinate> cameFrom = new HashMap<>();
-        Map<HexCoordinate, Integer> gScore = new HashMap<>();
-        Map<HexCoordinate, Integer> fScore = new HashMap<>();
+        int startIndex = map.indexOf(start.getQ(), start.getR());
+        int goalIndex = map.indexOf(goal.getQ(), goal.getR());
+        if (startIndex < 0 || goalIndex < 0 || map.getTileAt(startIndex) == null) {
+            return null;
+        }
         
-        PriorityQueue<HexCoordinate> openSet = new PriorityQueue<>(
-            Comparator.comparingInt(coord -> fScore.getOrDefault(coord, Integer.MAX_VALUE))
-        );
+        MapGraph graph = map.getGraph();
+        int[] gScore = new int[map.getCellCount()];
+        int[] cameFrom = new int[map.getCellCount()];
+        Arrays.fill(gScore, Integer.MAX_VALUE);
+        Arrays.fill(cameFrom, -1);
         
-        gScore.put(start, 0);
-        fScore.put(start, start.distanceTo(goal));
-        openSet.add(start);
+        PriorityQueue<Long> openSet = new PriorityQueue<>();
+        gScore[startIndex] = 0;
+        openSet.add(((long) start.distanceTo(goal) << 32) | startIndex);
         
         while (!openSet.isEmpty()) {
-            HexCoordinate current = openSet.poll();
+            long entry = openSet.poll();
+            int current = (int) entry;
+            if ((int) (entry >>> 32) - distance(current, goal) > gScore[current]) {
+                continue; // Ya se llegó a esta celda por un camino más corto
+            }
             
-            if (current.equals(goal)) {
+            if (current == goalIndex) {
                 return reconstructPath(cameFrom, current);
             }
             
-            for (Tile neighbor : map.getAccessibleNeighbors(current)) {
-                HexCoordinate neighborCoord = neighbor.getCoordinate();
+            for (int edge = graph.edgeStart(current); edge < graph.edgeEnd(current); edge++) {
+                int neighborIndex = graph.edgeTarget(edge);
                 
                 // Saltar si está ocupado (excepto el destino)
-                if (neighbor.isOccupied() && !neighborCoord.equals(goal)) {
+                if (neighborIndex != goalIndex && map.isOccupied(neighborIndex)) {
                     continue;
                 }
                 
-                int tentativeGScore = gScore.get(current) + neighbor.getMovementCost();
-                
-                if (tentativeGScore < gScore.getOrDefault(neighborCoord, Integer.MAX_VALUE)) {
-                    cameFrom.put(neighborCoord, current);
-                    gScore.put(neighborCoord, tentativeGScore);
-                    fScore.put(neighborCoord, tentativeGScore + neighborCoord.distanceTo(goal));
-                    
-                    if (!openSet.contains(neighborCoord)) {
-                        openSet.add(neighborCoord);
-                    }
+                int tentativeGScore = gScore[current] + graph.getMovementCost(neighborIndex);
+                if (tentativeGScore < gScore[neighborIndex]) {
+                    cameFrom[neighborIndex] = current;
+                    gScore[neighborIndex] = tentativeGScore;
+                    long fScore = tentativeGScore + distance(neighborIndex, goal);
+                    openSet.add((fScore << 32) | neighborIndex);
                 }
             }
         }
@@ -117,21 +123,19 @@ public class MovementValidator {
         return null; // No hay camino
     }
     
+    private int distance(int index, HexCoordinate goal) {
+        return map.getTileAt(index).getCoordinate().distanceTo(goal);
+    }
+    
     /**
      * Reconstruye el camino desde el destino al inicio.
      */
-    private List<HexCoordinate> reconstructPath(
-            Map<HexCoordinate, HexCoordinate> cameFrom, 
-            HexCoordinate current) {
-        
+    private List<HexCoordinate> reconstructPath(int[] cameFrom, int current) {
         List<HexCoordinate> path = new ArrayList<>();
-        path.add(current);
-        
-        while (cameFrom.containsKey(current)) {
-            current = cameFrom.get(current);
-            path.add(0, current);
+        for (int index = current; index >= 0; index = cameFrom[index]) {
+            path.add(map.getTileAt(index).getCoordinate());
         }
-        
+        Collections.reverse(path);
         return path;
     }
     
@@ -160,30 +164,35 @@ public class MovementValidator {
      */
     public List<HexCoordinate> getReachableTiles(HexCoordinate from) {
         List<HexCoordinate> reachable = new ArrayList<>();
-        Set<HexCoordinate> visited = new HashSet<>();
-        Queue<PathNode> queue = new LinkedList<>();
+        int fromIndex = map.indexOf(from.getQ(), from.getR());
+        if (fromIndex < 0) {
+            reachable.add(from);
+            return reachable;
+        }
         
-        queue.add(new PathNode(from, 0));
-        visited.add(from);
+        // Costo con el que se encoló cada celda; -1 si no se visitó
+        MapGraph graph = map.getGraph();
+        int[] costs = new int[map.getCellCount()];
+        Arrays.fill(costs, -1);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        
+        costs[fromIndex] = 0;
+        queue.add(fromIndex);
         
         while (!queue.isEmpty()) {
-            PathNode current = queue.poll();
-            
-            if (current.cost > MAX_MOVEMENT_RANGE) {
-                continue;
-            }
-            
-            reachable.add(current.coordinate);
+            int current = queue.poll();
+            reachable.add(current == fromIndex ? from : map.getTileAt(current).getCoordinate());
             
-            for (Tile neighbor : map.getAccessibleNeighbors(current.coordinate)) {
-                HexCoordinate neighborCoord = neighbor.getCoordinate();
+            for (int edge = graph.edgeStart(current); edge < graph.edgeEnd(current); edge++) {
+                int neighborIndex = graph.edgeTarget(edge);
+                if (costs[neighborIndex] >= 0 || map.isOccupied(neighborIndex)) {
+                    continue;
+                }
                 
-                if (!visited.contains(neighborCoord) && !neighbor.isOccupied()) {
-                    int newCost = current.cost + neighbor.getMovementCost();
-                    if (newCost <= MAX_MOVEMENT_RANGE) {
-                        visited.add(neighborCoord);
-                        queue.add(new PathNode(neighborCoord, newCost));
-                    }
+                int newCost = costs[current] + graph.getMovementCost(neighborIndex);
+                if (newCost <= MAX_MOVEMENT_RANGE) {
+                    costs[neighborIndex] = newCost;
+                    queue.add(neighborIndex);
                 }
             }
         }
@@ -191,19 +200,6 @@ public class MovementValidator {
         return reachable;
     }
     
-    /**
-     * Clase auxiliar para pathfinding.
-     */
-    private static class PathNode {
-        final HexCoordinate coordinate;
-        final int cost;
-        
-        PathNode(HexCoordinate coordinate, int cost) {
-            this.coordinate = coordinate;
-            this.cost = cost;
-        }
-    }
-    
     /**
      * Resultado de validación de movimiento.
      */
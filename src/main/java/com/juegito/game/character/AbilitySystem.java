@@ -1,5 +1,6 @@
 package com.juegito.game.character;
 
+import com.juegito.model.EntityRegistry;
 import com.juegito.model.HexCoordinate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,14 +10,17 @@ import java.util.*;
 /**
  * Sistema de habilidades de jugadores.
  * Usa ClassAbilities para obtener las habilidades por clase.
+ * Los cooldowns van por handle del EntityRegistry de la partida.
  */
 public class AbilitySystem {
     private static final Logger logger = LoggerFactory.getLogger(AbilitySystem.class);
     
-    private final Map<String, Map<String, Integer>> playerCooldowns;
+    private final EntityRegistry entities;
+    private final List<Map<String, Integer>> playerCooldowns; // Por handle; null = sin cooldowns
     
-    public AbilitySystem() {
-        this.playerCooldowns = new HashMap<>();
+    public AbilitySystem(EntityRegistry entities) {
+        this.entities = entities;
+        this.playerCooldowns = new ArrayList<>();
     }
     
     public List<Ability> getAbilitiesForClass(PlayerClass playerClass) {
@@ -86,7 +90,7 @@ public class AbilitySystem {
     }
     
     public void updateCooldowns(String playerId) {
-        Map<String, Integer> cooldowns = playerCooldowns.get(playerId);
+        Map<String, Integer> cooldowns = cooldownsOf(playerId);
         if (cooldowns == null) {
             return;
         }
@@ -106,18 +110,28 @@ public class AbilitySystem {
     }
     
     private void setCooldown(String playerId, String abilityId, int turns) {
-        playerCooldowns
-            .computeIfAbsent(playerId, k -> new HashMap<>())
-            .put(abilityId, turns);
+        int handle = entities.register(playerId);
+        while (playerCooldowns.size() <= handle) {
+            playerCooldowns.add(null);
+        }
+        if (playerCooldowns.get(handle) == null) {
+            playerCooldowns.set(handle, new HashMap<>());
+        }
+        playerCooldowns.get(handle).put(abilityId, turns);
+    }
+    
+    private Map<String, Integer> cooldownsOf(String playerId) {
+        int handle = entities.handleOf(playerId);
+        return handle >= 0 && handle < playerCooldowns.size() ? playerCooldowns.get(handle) : null;
     }
     
     private boolean isOnCooldown(String playerId, String abilityId) {
-        Map<String, Integer> cooldowns = playerCooldowns.get(playerId);
+        Map<String, Integer> cooldowns = cooldownsOf(playerId);
         return cooldowns != null && cooldowns.containsKey(abilityId);
     }
     
     private int getCooldownRemaining(String playerId, String abilityId) {
-        Map<String, Integer> cooldowns = playerCooldowns.get(playerId);
+        Map<String, Integer> cooldowns = cooldownsOf(playerId);
         return cooldowns != null ? cooldowns.getOrDefault(abilityId, 0) : 0;
     }
     
@@ -130,7 +144,8 @@ public class AbilitySystem {
     }
     
     public Map<String, Integer> getPlayerCooldowns(String playerId) {
-        return new HashMap<>(playerCooldowns.getOrDefault(playerId, new HashMap<>()));
+        Map<String, Integer> cooldowns = cooldownsOf(playerId);
+        return cooldowns != null ? new HashMap<>(cooldowns) : new HashMap<>();
     }
     
     public static class AbilityValidation {
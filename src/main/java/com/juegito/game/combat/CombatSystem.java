@@ -2,7 +2,6 @@ package com.juegito.game.combat;
 
 import com.juegito.model.GameMap;
 import com.juegito.model.HexCoordinate;
-import com.juegito.model.Tile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -69,8 +68,8 @@ public class CombatSystem {
         }
         
         // Calcular defensa del terreno
-        Tile targetTile = map.getTile(targetPos);
-        int defenseBonus = targetTile != null ? targetTile.getDefenseBonus() : 0;
+        int targetIndex = map.indexOf(targetPos.getQ(), targetPos.getR());
+        int defenseBonus = targetIndex >= 0 ? map.getGraph().getDefenseBonus(targetIndex) : 0;
         
         // Determinar si es crítico
         boolean isCritical = random.nextDouble() < CRITICAL_CHANCE;
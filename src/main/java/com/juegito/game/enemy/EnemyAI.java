@@ -2,12 +2,13 @@ package com.juegito.game.enemy;
 
 import com.juegito.model.GameMap;
 import com.juegito.model.HexCoordinate;
+import com.juegito.model.MapGraph;
 import com.juegito.model.Tile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Random;
 
 /**
  * IA simple basada en reglas para enemigos.
@@ -76,53 +77,73 @@ public class EnemyAI {
      * Encuentra el jugador más cercano al enemigo.
      */
     private String findClosestPlayer(HexCoordinate enemyPos, Map<String, HexCoordinate> players) {
-        return players.entrySet().stream()
-            .min(Comparator.comparingInt(e -> enemyPos.distanceTo(e.getValue())))
-            .map(Map.Entry::getKey)
-            .orElse(null);
+        String closest = null;
+        int closestDistance = Integer.MAX_VALUE;
+        for (Map.Entry<String, HexCoordinate> entry : players.entrySet()) {
+            int distance = enemyPos.distanceTo(entry.getValue());
+            if (distance < closestDistance) {
+                closest = entry.getKey();
+                closestDistance = distance;
+            }
+        }
+        return closest;
     }
     
     /**
      * Encuentra la mejor casilla para moverse hacia el objetivo.
-     * Implementa DRY: reutiliza la lógica de vecinos del mapa.
+     * Recorre las aristas del grafo del mapa: devuelve la coordenada de la casilla, sin crear ninguna.
      */
     private HexCoordinate findMoveTowardsTarget(Enemy enemy, HexCoordinate target) {
         HexCoordinate currentPos = enemy.getPosition();
-        
-        // Obtener vecinos accesibles
-        List<Tile> neighbors = map.getAccessibleNeighbors(currentPos);
-        
-        if (neighbors.isEmpty()) {
+        int index = map.indexOf(currentPos.getQ(), currentPos.getR());
+        if (index < 0) {
             return null;
         }
         
-        // Encontrar vecino que acerque más al objetivo
-        return neighbors.stream()
-            .map(Tile::getCoordinate)
-            .filter(coord -> !coord.equals(currentPos))
-            .filter(coord -> !map.getTile(coord).isOccupied()) // No ocupado
-            .min(Comparator.comparingInt(coord -> coord.distanceTo(target)))
-            .orElse(null);
+        // Encontrar vecino libre que acerque más al objetivo
+        MapGraph graph = map.getGraph();
+        HexCoordinate best = null;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int edge = graph.edgeStart(index); edge < graph.edgeEnd(index); edge++) {
+            int neighborIndex = graph.edgeTarget(edge);
+            if (!map.isOccupied(neighborIndex)) {
+                Tile neighbor = map.getTileAt(neighborIndex);
+                int distance = neighbor.getCoordinate().distanceTo(target);
+                if (distance < bestDistance) {
+                    best = neighbor.getCoordinate();
+                    bestDistance = distance;
+                }
+            }
+        }
+        return best;
     }
     
     /**
      * Decide un movimiento aleatorio cuando no hay objetivos claros.
      */
     private EnemyAction decideRandomMove(Enemy enemy) {
-        List<Tile> neighbors = map.getAccessibleNeighbors(enemy.getPosition());
-        
-        // Filtrar casillas no ocupadas
-        List<HexCoordinate> validMoves = neighbors.stream()
-            .filter(tile -> !tile.isOccupied())
-            .map(Tile::getCoordinate)
-            .collect(Collectors.toList());
+        HexCoordinate position = enemy.getPosition();
+        int index = map.indexOf(position.getQ(), position.getR());
+        
+        // Casillas accesibles no ocupadas
+        Tile[] validMoves = new Tile[GameMap.DIRECTIONS];
+        int count = 0;
+        if (index >= 0) {
+            MapGraph graph = map.getGraph();
+            for (int edge = graph.edgeStart(index); edge < graph.edgeEnd(index); edge++) {
+                int neighborIndex = graph.edgeTarget(edge);
+                if (!map.isOccupied(neighborIndex)) {
+                    validMoves[count++] = map.getTileAt(neighborIndex);
+                }
+            }
+        }
         
-        if (validMoves.isEmpty()) {
+        if (count == 0) {
             return EnemyAction.skip(enemy.getId(), "No valid moves");
         }
         
         // Elegir movimiento aleatorio
-        HexCoordinate randomMove = validMoves.get(random.nextInt(validMoves.size()));
+        HexCoordinate randomMove = validMoves[random.nextInt(count)].getCoordinate();
         logger.info("Enemy {} moving randomly to {}", enemy.getId(), randomMove);
         
         return EnemyAction.move(enemy.getId(), randomMove);
@@ -1,6 +1,7 @@
 package com.juegito.game.inventory;
 
 import com.juegito.game.loot.Item;
+import com.juegito.model.EntityRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -10,34 +11,48 @@ import java.util.*;
  * Gestor central del sistema de inventario.
  * Coordina el inventario compartido (PartyInventory) y los equipamientos individuales (CharacterEquipment).
  * Implementa KISS: servidor tiene autoridad, validaciones simples.
+ * Los equipamientos van por handle del EntityRegistry de la partida.
  */
 public class InventoryManager {
     private static final Logger logger = LoggerFactory.getLogger(InventoryManager.class);
     
     private final PartyInventory partyInventory;
-    private final Map<String, CharacterEquipment> playerEquipments;
+    private final EntityRegistry entities;
+    private CharacterEquipment[] playerEquipments; // Por handle; null = no registrado
     
-    public InventoryManager(int partyInventoryCapacity) {
+    public InventoryManager(int partyInventoryCapacity, EntityRegistry entities) {
         this.partyInventory = new PartyInventory(partyInventoryCapacity);
-        this.playerEquipments = new HashMap<>();
+        this.entities = entities;
+        this.playerEquipments = new CharacterEquipment[0];
     }
     
     /**
      * Registra un jugador en el sistema de inventario.
      */
     public void registerPlayer(String playerId) {
-        if (!playerEquipments.containsKey(playerId)) {
-            playerEquipments.put(playerId, new CharacterEquipment(playerId));
+        int handle = entities.register(playerId);
+        if (handle >= playerEquipments.length) {
+            int length = Math.max(handle + 1, playerEquipments.length * 2);
+            playerEquipments = Arrays.copyOf(playerEquipments, length);
+        }
+        if (playerEquipments[handle] == null) {
+            playerEquipments[handle] = new CharacterEquipment(playerId);
             logger.info("Registered player {} in inventory system", playerId);
         }
     }
     
+    private CharacterEquipment equipmentOf(String playerId) {
+        int handle = entities.handleOf(playerId);
+        return handle >= 0 && handle < playerEquipments.length ? playerEquipments[handle] : null;
+    }
+    
     /**
      * Remueve un jugador del sistema.
      */
     public void unregisterPlayer(String playerId) {
-        CharacterEquipment equipment = playerEquipments.remove(playerId);
+        CharacterEquipment equipment = equipmentOf(playerId);
         if (equipment != null) {
+            playerEquipments[entities.handleOf(playerId)] = null;
             List<Item> items = equipment.unequipAll();
             partyInventory.addItems(items);
             logger.info("Unregistered player {} and returned items to party inventory", playerId);
@@ -55,7 +70,7 @@ public class InventoryManager {
      * Jugador equipa un item del inventario compartido.
      */
     public boolean equipItemFromParty(String playerId, String itemId, EquipmentSlot slot) {
-        CharacterEquipment equipment = playerEquipments.get(playerId);
+        CharacterEquipment equipment = equipmentOf(playerId);
         if (equipment == null) {
             logger.warn("Player {} not registered in inventory system", playerId);
             return false;
@@ -88,7 +103,7 @@ public class InventoryManager {
      * Jugador desequipa un item y lo devuelve al inventario compartido.
      */
     public boolean unequipItemToParty(String playerId, EquipmentSlot slot) {
-        CharacterEquipment equipment = playerEquipments.get(playerId);
+        CharacterEquipment equipment = equipmentOf(playerId);
         if (equipment == null) {
             return false;
         }
@@ -123,7 +138,7 @@ public class InventoryManager {
      * Obtiene el equipamiento de un jugador.
      */
     public Optional<CharacterEquipment> getPlayerEquipment(String playerId) {
-        return Optional.ofNullable(playerEquipments.get(playerId));
+        return Optional.ofNullable(equipmentOf(playerId));
     }
     
     /**
@@ -177,9 +192,12 @@ public class InventoryManager {
         state.capacity = partyInventory.getCurrentCapacity();
         state.maxCapacity = partyInventory.getMaxCapacity();
         
-        playerEquipments.forEach((playerId, equipment) -> {
-            state.playerEquipments.put(playerId, equipment.getAllEquippedItems());
-        });
+        for (int handle = 0; handle < playerEquipments.length; handle++) {
+            CharacterEquipment equipment = playerEquipments[handle];
+            if (equipment != null) {
+                state.playerEquipments.put(entities.idOf(handle), equipment.getAllEquippedItems());
+            }
+        }
         
         return state;
     }
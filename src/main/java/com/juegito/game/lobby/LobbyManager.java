@@ -1,7 +1,9 @@
 package com.juegito.game.lobby;
 
+import com.juegito.protocol.EncodedMessage;
 import com.juegito.protocol.Message;
 import com.juegito.protocol.MessageType;
+import com.juegito.protocol.StateChecksum;
 import com.juegito.protocol.dto.lobby.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,39 +11,87 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 
 /**
  * Gestor del lobby que coordina todas las operaciones.
  * Maneja la comunicación entre el LobbyState y los clientes.
+ * Solo envía cuando algo cambia: los eventos (PLAYER_JOINED, PLAYER_UPDATED...) son los
+ * deltas, y el snapshot completo sale para quien entra, para quien lo pide y, agrupado,
+ * para los cambios sin evento propio (configuración). Mientras nada cambia, un keep-alive
+ * lento lleva versión y checksum para que cada cliente verifique su copia.
+ * El snapshot y el keep-alive se serializan una vez por versión del LobbyState.
  */
 public class LobbyManager {
     private static final Logger logger = LoggerFactory.getLogger(LobbyManager.class);
-    private static final long SNAPSHOT_INTERVAL_MS = 300;
+    private static final long KEEPALIVE_INTERVAL_MS = 5000;
+    private static final long SNAPSHOT_COALESCE_MS = 100; // Agrupa cambios seguidos en un snapshot
     
     private final LobbyState lobbyState;
-    private final BiConsumer<String, Message> messageSender;
+    private final BiConsumer<String, EncodedMessage> messageSender;
     private final ScheduledExecutorService scheduler;
+    private final boolean ownsScheduler;
+    private final Executor commandExecutor;
+    private final Runnable matchStartListener;
     
     private volatile boolean running;
+    private ScheduledFuture<?> keepAliveTask;
+    private boolean snapshotPending;
+    
+    // Serializaciones de la última versión pedida del lobby
+    private long cachedVersion;
+    private EncodedMessage snapshotMessage;
+    private EncodedMessage keepAliveMessage;
     
     /**
-     * @param messageSender Función para enviar mensajes a un jugador específico (playerId, message)
+     * @param messageSender Función para enviar mensajes ya serializados a un jugador (playerId, message)
      */
-    public LobbyManager(BiConsumer<String, Message> messageSender) {
+    public LobbyManager(BiConsumer<String, EncodedMessage> messageSender) {
+        this(messageSender, Executors.newSingleThreadScheduledExecutor());
+    }
+    
+    /**
+     * @param messageSender Función para enviar mensajes ya serializados a un jugador (playerId, message)
+     * @param scheduler Scheduler del broadcast periódico (permite usar hilos virtuales)
+     */
+    public LobbyManager(BiConsumer<String, EncodedMessage> messageSender, ScheduledExecutorService scheduler) {
+        this(messageSender, scheduler, true, Runnable::run, () -> { });
+    }
+    
+    /**
+     * Lobby de una partida entre muchas: el scheduler es compartido, así que stop()
+     * solo cancela la tarea de este lobby.
+     * @param commandExecutor Cola de comandos de la partida: el keep-alive y el snapshot
+     *                        agrupado se aplican en ella, igual que los mensajes de los jugadores
+     * @param matchStartListener Se invoca cuando el lobby pasa a IN_GAME
+     */
+    public LobbyManager(BiConsumer<String, EncodedMessage> messageSender, ScheduledExecutorService sharedScheduler,
+                        Executor commandExecutor, Runnable matchStartListener) {
+        this(messageSender, sharedScheduler, false, commandExecutor, matchStartListener);
+    }
+    
+    private LobbyManager(BiConsumer<String, EncodedMessage> messageSender, ScheduledExecutorService scheduler,
+                         boolean ownsScheduler, Executor commandExecutor, Runnable matchStartListener) {
         this.lobbyState = new LobbyState();
         this.messageSender = messageSender;
-        this.scheduler = Executors.newSingleThreadScheduledExecutor();
+        this.scheduler = scheduler;
+        this.ownsScheduler = ownsScheduler;
+        this.commandExecutor = commandExecutor;
+        this.matchStartListener = matchStartListener;
         this.running = false;
+        this.snapshotPending = false;
+        this.cachedVersion = -1;
         
         logger.info("LobbyManager creado - esperando primer jugador (host)");
     }
     
     /**
-     * Inicia el broadcast periódico del lobby snapshot.
+     * Inicia el keep-alive periódico del lobby.
      */
     public void start() {
         if (running) {
@@ -49,14 +99,14 @@ public class LobbyManager {
         }
         
         running = true;
-        scheduler.scheduleAtFixedRate(
-            this::broadcastSnapshot,
-            SNAPSHOT_INTERVAL_MS,
-            SNAPSHOT_INTERVAL_MS,
+        keepAliveTask = scheduler.scheduleAtFixedRate(
+            () -> commandExecutor.execute(this::broadcastKeepAlive),
+            KEEPALIVE_INTERVAL_MS,
+            KEEPALIVE_INTERVAL_MS,
             TimeUnit.MILLISECONDS
         );
         
-        logger.info("LobbyManager iniciado - broadcasting cada {}ms", SNAPSHOT_INTERVAL_MS);
+        logger.info("LobbyManager iniciado - keep-alive cada {}ms", KEEPALIVE_INTERVAL_MS);
     }
     
     /**
@@ -64,6 +114,13 @@ public class LobbyManager {
      */
     public void stop() {
         running = false;
+        if (keepAliveTask != null) {
+            keepAliveTask.cancel(false);
+        }
+        if (!ownsScheduler) {
+            logger.info("LobbyManager detenido");
+            return;
+        }
         scheduler.shutdown();
         try {
             if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
@@ -87,7 +144,7 @@ public class LobbyManager {
         logger.info("Jugador {} ({}) agregado automáticamente al lobby", playerName, playerId);
         
         // Enviar snapshot actual al nuevo jugador inmediatamente
-        sendSnapshotToPlayer(player.getPlayerId());
+        sendSnapshot(player.getPlayerId());
         
         // Notificar a todos los demás jugadores
         PlayerJoinedDTO notification = new PlayerJoinedDTO(player.toDTO());
@@ -121,7 +178,7 @@ public class LobbyManager {
         broadcastToOthers(player.getPlayerId(), MessageType.PLAYER_JOINED, notification);
         
         // Enviar snapshot actual al nuevo jugador
-        sendSnapshotToPlayer(player.getPlayerId());
+        sendSnapshot(player.getPlayerId());
     }
     
     /**
@@ -187,6 +244,7 @@ public class LobbyManager {
             
             // Transicionar a IN_GAME
             lobbyState.transitionToInGame();
+            matchStartListener.run();
             
             logger.info("Game auto-started successfully in lobby {}", lobbyState.getLobbyId());
         }
@@ -257,8 +315,10 @@ public class LobbyManager {
         
         if (!success) {
             sendInvalidAction(requesterId, "CHANGE_SETTINGS", "No tienes permiso para cambiar la configuración");
+            return;
         }
-        // El snapshot periódico propagará los cambios
+        // La configuración no tiene evento propio: viaja en el snapshot
+        scheduleSnapshot();
     }
     
     /**
@@ -283,6 +343,7 @@ public class LobbyManager {
         
         // Transicionar a IN_GAME
         lobbyState.transitionToInGame();
+        matchStartListener.run();
         
         logger.info("Partida iniciada en lobby {}", lobbyState.getLobbyId());
     }
@@ -360,36 +421,89 @@ public class LobbyManager {
         }
     }
     
+    /**
+     * Maneja la reconexión de un jugador desconectado durante la partida.
+     */
+    public void handlePlayerReconnected(String playerId) {
+        lobbyState.markReconnected(playerId);
+        
+        PlayerLobbyData player = lobbyState.getPlayer(playerId);
+        if (player != null) {
+            PlayerUpdatedDTO notification = new PlayerUpdatedDTO(player.toDTO());
+            broadcastToAll(MessageType.PLAYER_UPDATED, notification);
+        }
+    }
+    
+    /**
+     * Programa un snapshot para todos; los cambios que lleguen antes de enviarlo
+     * salen en el mismo snapshot.
+     */
+    private void scheduleSnapshot() {
+        if (snapshotPending || !running) {
+            return;
+        }
+        snapshotPending = true;
+        scheduler.schedule(() -> commandExecutor.execute(this::broadcastSnapshot),
+            SNAPSHOT_COALESCE_MS, TimeUnit.MILLISECONDS);
+    }
+    
     /**
      * Envía el snapshot del lobby a todos los jugadores.
      */
     private void broadcastSnapshot() {
+        snapshotPending = false;
         if (!running) {
             return;
         }
         
-        LobbySnapshotDTO snapshot = lobbyState.createSnapshot();
-        Message message = new Message(MessageType.LOBBY_SNAPSHOT, "server", snapshot);
-        
+        EncodedMessage message = snapshotMessage();
         for (PlayerLobbyData player : lobbyState.getPlayers()) {
             messageSender.accept(player.getPlayerId(), message);
         }
     }
     
     /**
-     * Envía el snapshot a un jugador específico.
+     * Envía versión y checksum del lobby a todos mientras espera jugadores.
      */
-    private void sendSnapshotToPlayer(String playerId) {
-        LobbySnapshotDTO snapshot = lobbyState.createSnapshot();
-        Message message = new Message(MessageType.LOBBY_SNAPSHOT, "server", snapshot);
-        messageSender.accept(playerId, message);
+    private void broadcastKeepAlive() {
+        if (!running || lobbyState.getStatus() != LobbyStatus.WAITING) {
+            return;
+        }
+        
+        snapshotMessage(); // Actualiza el keep-alive de la versión actual
+        for (PlayerLobbyData player : lobbyState.getPlayers()) {
+            messageSender.accept(player.getPlayerId(), keepAliveMessage);
+        }
+    }
+    
+    /**
+     * Envía el snapshot a un jugador específico (al entrar o si su copia no coincide).
+     */
+    public void sendSnapshot(String playerId) {
+        messageSender.accept(playerId, snapshotMessage());
+    }
+    
+    /**
+     * Snapshot serializado de la versión actual del lobby. Al cambiar la versión se
+     * regeneran el snapshot y el keep-alive; mientras no cambie se reusan los mismos bytes.
+     */
+    private EncodedMessage snapshotMessage() {
+        long version = lobbyState.getVersion();
+        if (version != cachedVersion) {
+            LobbySnapshotDTO snapshot = lobbyState.createSnapshot();
+            int checksum = StateChecksum.ofLobby(snapshot.getHostId(), snapshot.getLobbyStatus(), snapshot.getPlayers());
+            snapshotMessage = encode(MessageType.LOBBY_SNAPSHOT, snapshot);
+            keepAliveMessage = encode(MessageType.LOBBY_KEEPALIVE, new LobbyKeepAliveDTO(version, checksum));
+            cachedVersion = version;
+        }
+        return snapshotMessage;
     }
     
     /**
      * Envía un mensaje a todos los jugadores.
      */
     private void broadcastToAll(MessageType type, Object payload) {
-        Message message = new Message(type, "server", payload);
+        EncodedMessage message = encode(type, payload);
         for (PlayerLobbyData player : lobbyState.getPlayers()) {
             messageSender.accept(player.getPlayerId(), message);
         }
@@ -399,7 +513,7 @@ public class LobbyManager {
      * Envía un mensaje a todos excepto uno.
      */
     private void broadcastToOthers(String excludePlayerId, MessageType type, Object payload) {
-        Message message = new Message(type, "server", payload);
+        EncodedMessage message = encode(type, payload);
         for (PlayerLobbyData player : lobbyState.getPlayers()) {
             if (!player.getPlayerId().equals(excludePlayerId)) {
                 messageSender.accept(player.getPlayerId(), message);
@@ -411,8 +525,15 @@ public class LobbyManager {
      * Envía un mensaje a un jugador específico.
      */
     private void sendToPlayer(String playerId, MessageType type, Object payload) {
-        Message message = new Message(type, "server", payload);
-        messageSender.accept(playerId, message);
+        messageSender.accept(playerId, encode(type, payload));
+    }
+    
+    /**
+     * Serializa una sola vez un mensaje del servidor.
+     * DRY: Todos los envíos del lobby comparten la misma serialización.
+     */
+    private EncodedMessage encode(MessageType type, Object payload) {
+        return EncodedMessage.of(new Message(type, "server", payload));
     }
     
     /**
@@ -12,6 +12,8 @@ import java.util.stream.Collectors;
 /**
  * Estado del lobby en el servidor.
  * Maneja toda la lógica de gestión de jugadores, validaciones y transiciones.
+ * Está versionado: cada cambio incrementa la versión, así LobbyManager sabe cuándo
+ * hay algo nuevo que enviar y puede reusar el snapshot serializado de una versión.
  */
 public class LobbyState {
     private static final Logger logger = LoggerFactory.getLogger(LobbyState.class);
@@ -27,6 +29,7 @@ public class LobbyState {
     private LobbyStatus status;
     
     private final Set<String> usedColors;
+    private long version; // Sube con cada cambio del lobby
     
     public LobbyState() {
         this.lobbyId = UUID.randomUUID().toString();
@@ -37,6 +40,7 @@ public class LobbyState {
         this.lobbySettings = new LobbyConfig();
         this.status = LobbyStatus.WAITING;
         this.usedColors = ConcurrentHashMap.newKeySet();
+        this.version = 1;
         
         logger.info("Lobby creado: {} - esperando primer jugador", lobbyId);
     }
@@ -64,6 +68,7 @@ public class LobbyState {
         PlayerLobbyData player = new PlayerLobbyData(playerId, playerName, isHost);
         player.setIpAddress(ipAddress);
         players.put(playerId, player);
+        markChanged();
         
         return player;
     }
@@ -124,6 +129,7 @@ public class LobbyState {
             if (player.getSelectedColor() != null) {
                 usedColors.remove(player.getSelectedColor());
             }
+            markChanged();
             logger.info("Jugador {} salió del lobby {}", player.getPlayerName(), lobbyId);
         }
         return player;
@@ -140,6 +146,7 @@ public class LobbyState {
         
         ConnectionStatus newStatus = ready ? ConnectionStatus.READY : ConnectionStatus.CONNECTED;
         player.setConnectionStatus(newStatus);
+        markChanged();
         
         logger.info("Jugador {} cambió ready a: {}", player.getPlayerName(), ready);
         return true;
@@ -161,6 +168,7 @@ public class LobbyState {
         }
         
         player.setSelectedClass(classId);
+        markChanged();
         logger.info("Jugador {} seleccionó clase: {}", player.getPlayerName(), classId);
         return true;
     }
@@ -188,6 +196,7 @@ public class LobbyState {
         // Asignar el nuevo color
         player.setSelectedColor(color);
         usedColors.add(color);
+        markChanged();
         
         logger.info("Jugador {} seleccionó color: {}", player.getPlayerName(), color);
         return true;
@@ -220,6 +229,7 @@ public class LobbyState {
         
         String oldName = player.getPlayerName();
         player.setPlayerName(newName);
+        markChanged();
         logger.info("Jugador {} cambió nombre de '{}' a '{}'", playerId, oldName, newName);
         return true;
     }
@@ -231,10 +241,23 @@ public class LobbyState {
         PlayerLobbyData player = players.get(playerId);
         if (player != null) {
             player.setConnectionStatus(ConnectionStatus.DISCONNECTED);
+            markChanged();
             logger.warn("Jugador {} desconectado", player.getPlayerName());
         }
     }
     
+    /**
+     * Marca como conectado a un jugador que volvió a la partida.
+     */
+    public void markReconnected(String playerId) {
+        PlayerLobbyData player = players.get(playerId);
+        if (player != null) {
+            player.setConnectionStatus(ConnectionStatus.CONNECTED);
+            markChanged();
+            logger.info("Jugador {} reconectado", player.getPlayerName());
+        }
+    }
+    
     /**
      * Actualiza la configuración del lobby (solo el host).
      */
@@ -250,6 +273,7 @@ public class LobbyState {
         }
         
         lobbySettings.update(newSettings);
+        markChanged();
         logger.info("Configuración del lobby actualizada por el host");
         return true;
     }
@@ -286,6 +310,7 @@ public class LobbyState {
      */
     public void startMatch() {
         status = LobbyStatus.STARTING;
+        markChanged();
         logger.info("Lobby {} iniciando partida con {} jugadores", lobbyId, players.size());
     }
     
@@ -294,6 +319,7 @@ public class LobbyState {
      */
     public void transitionToInGame() {
         status = LobbyStatus.IN_GAME;
+        markChanged();
         logger.info("Lobby {} transicionó a IN_GAME", lobbyId);
     }
     
@@ -332,6 +358,10 @@ public class LobbyState {
         return new StartMatchDTO(seed, lobbySettings.toDTO(), playerList);
     }
     
+    private void markChanged() {
+        version++;
+    }
+    
     private boolean isValidClass(String classId) {
         return com.juegito.game.character.PlayerClass.isValid(classId);
     }
@@ -346,6 +376,13 @@ public class LobbyState {
         return hostId;
     }
     
+    /**
+     * Versión actual del lobby (cambia con cada modificación).
+     */
+    public long getVersion() {
+        return version;
+    }
+    
     public LobbyStatus getStatus() {
         return status;
     }
@@ -0,0 +1,69 @@
+package com.juegito.model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Asigna handles enteros densos (0, 1, 2...) a los IDs de las entidades, así el estado
+ * del mapa guarda ints en arrays en vez de UUIDs. Un ID conserva su handle mientras viva
+ * el registro aunque la entidad salga del mapa.
+ * Registrar es sincronizado; las consultas no bloquean.
+ */
+public final class EntityRegistry {
+    public static final int NONE = -1;
+    
+    private final Map<String, Integer> handles;
+    private volatile String[] ids;
+    private volatile int size;
+    
+    public EntityRegistry() {
+        this.handles = new ConcurrentHashMap<>();
+        this.ids = new String[16];
+    }
+    
+    /**
+     * Handle del ID, asignando el siguiente si es nuevo.
+     */
+    public int register(String id) {
+        Integer handle = handles.get(id);
+        if (handle != null) {
+            return handle;
+        }
+        synchronized (this) {
+            handle = handles.get(id);
+            if (handle != null) {
+                return handle;
+            }
+            int next = size;
+            if (next == ids.length) {
+                ids = Arrays.copyOf(ids, next * 2);
+            }
+            ids[next] = id;
+            handles.put(id, next);
+            size = next + 1;
+            return next;
+        }
+    }
+    
+    /**
+     * Handle del ID, o NONE si nunca se registró.
+     */
+    public int handleOf(String id) {
+        Integer handle = handles.get(id);
+        return handle != null ? handle : NONE;
+    }
+    
+    /**
+     * ID del handle, o null si es NONE o no se asignó.
+     */
+    public String idOf(int handle) {
+        int count = size; // Antes que ids: el volatile publica el array que contiene al handle
+        String[] current = ids;
+        return handle >= 0 && handle < count ? current[handle] : null;
+    }
+    
+    public int size() {
+        return size;
+    }
+}
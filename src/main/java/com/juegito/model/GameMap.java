@@ -1,34 +1,105 @@
 package com.juegito.model;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Representa el mapa completo del juego con todas sus casillas.
  * Gestiona el estado del terreno y las posiciones de los jugadores.
+ * El terreno no cambia después de generarlo y se identifica por un hash de su contenido.
+ * Cada cambio de ocupación incrementa la versión del mapa y marca qué posiciones
+ * cambiaron, para poder enviar a cada cliente solo la diferencia.
+ * Las casillas se guardan en un arreglo denso: el hexágono de radio R se recorre por
+ * filas (q, luego r) y cada coordenada tiene un índice fijo, así una búsqueda es aritmética
+ * y no un hash. Los vecinos de cada índice están precalculados.
+ * El estado por casilla vive en arrays paralelos (bioma y tipo en bytes, ocupante como
+ * handle de EntityRegistry, -1 = libre); los Tile son la vista de objetos de esas celdas.
+ * Las posiciones de los jugadores también van por handle; los UUID solo aparecen en las
+ * consultas que arman mensajes (getPlayerPositions, getPlayersChangedSince).
  */
 public class GameMap {
+    /** Cantidad de vecinos de una casilla, en el orden de HexCoordinate.neighbor(int). */
+    public static final int DIRECTIONS = 6;
+    
     private final int radius; // Radio del mapa hexagonal
-    private final Map<HexCoordinate, Tile> tiles;
-    private final Map<String, HexCoordinate> playerPositions;
+    private final int[] rowStart; // Índice de la primera celda de cada fila q (por q + radius)
+    private final Tile[] cells; // Por índice; null = coordenada sin casilla
+    private final byte[] biomes; // Ordinal de BiomeType; -1 = sin casilla
+    private final byte[] types; // Ordinal de TileType; -1 = sin casilla
+    private final int[] occupants; // Handle del ocupante; EntityRegistry.NONE = libre
+    private final EntityRegistry entities;
+    private final int[] neighbors; // DIRECTIONS por celda: índice del vecino o -1 fuera del mapa
+    private volatile List<Tile> allTiles; // Vista en orden de índice; null = recalcular
+    private volatile MapGraph graph; // Adyacencia accesible y costos; null = armar
+    private int[] playerCells; // Por handle: celda del jugador, -1 = fuera del mapa
+    private int playerCount;
     private final List<HexCoordinate> spawnPoints;
     private final List<HexCoordinate> resourceNodes;
     private final List<HexCoordinate> strategicNodes;
     
+    // Por handle: versión en la que cambió por última vez su posición (0 = nunca; incluye removidos)
+    private long[] positionVersions;
+    private long version;
+    private long terrainHash; // 0 = sin calcular
+    
     public GameMap(int radius) {
+        this(radius, new EntityRegistry());
+    }
+    
+    /**
+     * @param entities Registro de handles de los ocupantes (puede compartirse con otros sistemas)
+     */
+    public GameMap(int radius, EntityRegistry entities) {
         this.radius = radius;
-        this.tiles = new ConcurrentHashMap<>();
-        this.playerPositions = new ConcurrentHashMap<>();
+        this.entities = entities;
+        HexCoordinate.intern(radius);
+        this.rowStart = new int[2 * radius + 1];
+        int cellCount = 0;
+        for (int q = -radius; q <= radius; q++) {
+            rowStart[q + radius] = cellCount;
+            cellCount += 2 * radius + 1 - Math.abs(q);
+        }
+        this.cells = new Tile[cellCount];
+        this.biomes = new byte[cellCount];
+        this.types = new byte[cellCount];
+        this.occupants = new int[cellCount];
+        Arrays.fill(biomes, (byte) -1);
+        Arrays.fill(types, (byte) -1);
+        Arrays.fill(occupants, EntityRegistry.NONE);
+        this.neighbors = new int[cellCount * DIRECTIONS];
+        for (int q = -radius; q <= radius; q++) {
+            int minR = Math.max(-radius, -q - radius);
+            int maxR = Math.min(radius, -q + radius);
+            for (int r = minR; r <= maxR; r++) {
+                int base = indexOf(q, r) * DIRECTIONS;
+                for (int direction = 0; direction < DIRECTIONS; direction++) {
+                    neighbors[base + direction] = indexOf(
+                        q + HexCoordinate.DIRECTION_Q[direction], r + HexCoordinate.DIRECTION_R[direction]);
+                }
+            }
+        }
+        this.playerCells = new int[0];
         this.spawnPoints = new ArrayList<>();
         this.resourceNodes = new ArrayList<>();
         this.strategicNodes = new ArrayList<>();
+        this.positionVersions = new long[0];
+        this.version = 0;
     }
     
     /**
-     * Añade una casilla al mapa.
+     * Añade una casilla al mapa. Debe estar dentro del radio.
      */
     public void addTile(Tile tile) {
-        tiles.put(tile.getCoordinate(), tile);
+        int index = indexOf(tile.getCoordinate().getQ(), tile.getCoordinate().getR());
+        if (index < 0) {
+            throw new IllegalArgumentException("Tile " + tile.getCoordinate() + " is outside radius " + radius);
+        }
+        cells[index] = tile;
+        biomes[index] = (byte) tile.getBiome().ordinal();
+        types[index] = (byte) tile.getType().ordinal();
+        tile.attach(this, index);
+        allTiles = null;
+        graph = null;
+        terrainHash = 0;
         
         // Registrar nodos especiales
         if (tile.getType() == TileType.SPAWN) {
@@ -40,41 +111,137 @@ public class GameMap {
         }
     }
     
+    /**
+     * Índice de la celda (q, r), o -1 si está fuera del hexágono.
+     */
+    public int indexOf(int q, int r) {
+        if (q < -radius || q > radius) {
+            return -1;
+        }
+        int minR = Math.max(-radius, -q - radius);
+        int maxR = Math.min(radius, -q + radius);
+        if (r < minR || r > maxR) {
+            return -1;
+        }
+        return rowStart[q + radius] + r - minR;
+    }
+    
+    /**
+     * Celdas del hexágono (3R(R+1)+1); los índices válidos van de 0 a getCellCount() - 1.
+     */
+    public int getCellCount() {
+        return cells.length;
+    }
+    
+    /**
+     * Casilla del índice, o null si esa coordenada no tiene casilla.
+     */
+    public Tile getTileAt(int index) {
+        return cells[index];
+    }
+    
+    /**
+     * True si hay una entidad en la celda.
+     */
+    public boolean isOccupied(int index) {
+        return occupants[index] != EntityRegistry.NONE;
+    }
+    
+    /**
+     * Handle de la entidad en la celda, o EntityRegistry.NONE.
+     */
+    public int getOccupant(int index) {
+        return occupants[index];
+    }
+    
+    /**
+     * Copia de la ocupación por celda (un arraycopy), para tomar una foto consistente del mapa.
+     */
+    public int[] copyOccupants() {
+        return occupants.clone();
+    }
+    
+    public EntityRegistry getEntities() {
+        return entities;
+    }
+    
+    /**
+     * Índice del vecino en la dirección dada (0 a DIRECTIONS - 1), o -1 fuera del mapa.
+     */
+    public int getNeighborIndex(int index, int direction) {
+        return neighbors[index * DIRECTIONS + direction];
+    }
+    
     /**
      * Obtiene una casilla por sus coordenadas.
      */
     public Tile getTile(HexCoordinate coordinate) {
-        return tiles.get(coordinate);
+        return getTile(coordinate.getQ(), coordinate.getR());
+    }
+    
+    public Tile getTile(int q, int r) {
+        int index = indexOf(q, r);
+        return index < 0 ? null : cells[index];
     }
     
     /**
      * Verifica si una coordenada existe en el mapa.
      */
     public boolean containsTile(HexCoordinate coordinate) {
-        return tiles.containsKey(coordinate);
+        return getTile(coordinate) != null;
     }
     
     /**
-     * Obtiene todas las casillas del mapa.
+     * Obtiene todas las casillas del mapa, en orden de índice (por q, luego r).
      */
-    public Collection<Tile> getAllTiles() {
-        return tiles.values();
+    public List<Tile> getAllTiles() {
+        List<Tile> tiles = allTiles;
+        if (tiles == null) {
+            tiles = new ArrayList<>(cells.length);
+            for (Tile tile : cells) {
+                if (tile != null) {
+                    tiles.add(tile);
+                }
+            }
+            tiles = Collections.unmodifiableList(tiles);
+            allTiles = tiles;
+        }
+        return tiles;
+    }
+    
+    /**
+     * Arma el grafo de movimiento del terreno. El generador lo llama al terminar el mapa.
+     */
+    public MapGraph buildGraph() {
+        MapGraph built = MapGraph.build(cells, neighbors);
+        graph = built;
+        return built;
+    }
+    
+    /**
+     * Grafo de movimiento (inmutable, compartible entre hilos); se arma si el terreno cambió.
+     */
+    public MapGraph getGraph() {
+        MapGraph current = graph;
+        return current != null ? current : buildGraph();
     }
     
     /**
      * Obtiene los vecinos accesibles de una coordenada.
      */
     public List<Tile> getAccessibleNeighbors(HexCoordinate coordinate) {
-        List<Tile> neighbors = new ArrayList<>();
+        List<Tile> accessible = new ArrayList<>(DIRECTIONS);
+        int index = indexOf(coordinate.getQ(), coordinate.getR());
+        if (index < 0) {
+            return accessible;
+        }
         
-        for (HexCoordinate neighbor : coordinate.getNeighbors()) {
-            Tile tile = getTile(neighbor);
-            if (tile != null && tile.isAccessible()) {
-                neighbors.add(tile);
-            }
+        MapGraph current = getGraph();
+        for (int edge = current.edgeStart(index); edge < current.edgeEnd(index); edge++) {
+            accessible.add(cells[current.edgeTarget(edge)]);
         }
         
-        return neighbors;
+        return accessible;
     }
     
     /**
@@ -87,18 +254,22 @@ public class GameMap {
             return false;
         }
         
+        version++;
+        
         // Remover jugador de posición anterior si existe
-        HexCoordinate oldPosition = playerPositions.get(playerId);
-        if (oldPosition != null) {
-            Tile oldTile = getTile(oldPosition);
-            if (oldTile != null) {
-                oldTile.setOccupyingPlayerId(null);
-            }
+        int handle = entities.register(playerId);
+        ensureCapacity(handle);
+        if (playerCells[handle] >= 0) {
+            vacate(playerCells[handle], handle);
+        } else {
+            playerCount++;
         }
         
         // Colocar en nueva posición
-        tile.setOccupyingPlayerId(playerId);
-        playerPositions.put(playerId, coordinate);
+        int index = indexOf(coordinate.getQ(), coordinate.getR());
+        occupants[index] = handle;
+        playerCells[handle] = index;
+        positionVersions[handle] = version;
         
         return true;
     }
@@ -107,20 +278,104 @@ public class GameMap {
      * Obtiene la posición actual de un jugador.
      */
     public HexCoordinate getPlayerPosition(String playerId) {
-        return playerPositions.get(playerId);
+        return getPlayerPosition(entities.handleOf(playerId));
+    }
+    
+    /**
+     * Posición del jugador con ese handle (la coordenada de su casilla), o null.
+     */
+    public HexCoordinate getPlayerPosition(int handle) {
+        int index = getPlayerCell(handle);
+        return index >= 0 ? cells[index].getCoordinate() : null;
+    }
+    
+    /**
+     * Celda del jugador con ese handle, o -1 si no está en el mapa.
+     */
+    public int getPlayerCell(int handle) {
+        return handle >= 0 && handle < playerCells.length ? playerCells[handle] : -1;
     }
     
     /**
      * Remueve un jugador del mapa.
      */
     public void removePlayer(String playerId) {
-        HexCoordinate position = playerPositions.remove(playerId);
-        if (position != null) {
-            Tile tile = getTile(position);
-            if (tile != null) {
-                tile.setOccupyingPlayerId(null);
+        int handle = entities.handleOf(playerId);
+        int index = getPlayerCell(handle);
+        if (index >= 0) {
+            version++;
+            positionVersions[handle] = version;
+            playerCells[handle] = -1;
+            playerCount--;
+            vacate(index, handle);
+        }
+    }
+    
+    private void vacate(int index, int handle) {
+        if (occupants[index] == handle) {
+            occupants[index] = EntityRegistry.NONE;
+        }
+    }
+    
+    private void ensureCapacity(int handle) {
+        if (handle >= playerCells.length) {
+            int length = Math.max(handle + 1, playerCells.length * 2);
+            int previous = playerCells.length;
+            playerCells = Arrays.copyOf(playerCells, length);
+            Arrays.fill(playerCells, previous, length, -1);
+            positionVersions = Arrays.copyOf(positionVersions, length);
+        }
+    }
+    
+    /**
+     * Versión actual del mapa: aumenta con cada cambio de ocupación.
+     */
+    public long getVersion() {
+        return version;
+    }
+    
+    /**
+     * Jugadores cuya posición cambió (o que salieron del mapa) después de la versión dada.
+     */
+    public List<String> getPlayersChangedSince(long sinceVersion) {
+        List<String> changed = new ArrayList<>();
+        for (int handle = 0; handle < positionVersions.length; handle++) {
+            if (positionVersions[handle] > sinceVersion) {
+                changed.add(entities.idOf(handle));
+            }
+        }
+        return changed;
+    }
+    
+    /**
+     * Hash del terreno (bioma, tipo, costo y defensa de cada casilla), estable
+     * entre procesos: dos mapas con el mismo terreno tienen el mismo hash.
+     */
+    public long getTerrainHash() {
+        if (terrainHash == 0) {
+            terrainHash = computeTerrainHash();
+        }
+        return terrainHash;
+    }
+    
+    // FNV-1a de 64 bits sobre las casillas ordenadas por coordenada (el orden de los índices)
+    private long computeTerrainHash() {
+        long hash = 0xcbf29ce484222325L;
+        for (int index = 0; index < cells.length; index++) {
+            Tile tile = cells[index];
+            if (tile == null) {
+                continue;
+            }
+            int[] fields = {
+                tile.getCoordinate().getQ(), tile.getCoordinate().getR(),
+                biomes[index], types[index],
+                tile.getMovementCost(), tile.getDefenseBonus()
+            };
+            for (int field : fields) {
+                hash = (hash ^ field) * 0x100000001b3L;
             }
         }
+        return hash != 0 ? hash : 1;
     }
     
     public int getRadius() {
@@ -140,7 +395,20 @@ public class GameMap {
     }
     
     public Map<String, HexCoordinate> getPlayerPositions() {
-        return new HashMap<>(playerPositions);
+        Map<String, HexCoordinate> positions = new HashMap<>();
+        for (int handle = 0; handle < playerCells.length; handle++) {
+            if (playerCells[handle] >= 0) {
+                positions.put(entities.idOf(handle), cells[playerCells[handle]].getCoordinate());
+            }
+        }
+        return positions;
+    }
+    
+    /**
+     * Cantidad de jugadores en el mapa.
+     */
+    public int getPlayerCount() {
+        return playerCount;
     }
     
     /**
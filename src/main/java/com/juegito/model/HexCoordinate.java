@@ -1,12 +1,20 @@
 package com.juegito.model;
 
-import java.util.Objects;
-
 /**
  * Representa coordenadas en un sistema hexagonal usando coordenadas cúbicas (q, r, s).
  * Las coordenadas cúbicas garantizan que q + r + s = 0.
+ * Es inmutable: of(q, r) devuelve la instancia canónica compartida dentro del radio
+ * internado (lo amplía cada GameMap al crearse), así vecinos y búsquedas no crean objetos.
  */
 public class HexCoordinate {
+    // Desplazamientos de los vecinos: Este, Noreste, Noroeste, Oeste, Suroeste, Sureste
+    static final int[] DIRECTION_Q = {1, 1, 0, -1, -1, 0};
+    static final int[] DIRECTION_R = {0, -1, -1, 0, 1, 1};
+    
+    // Instancias canónicas del cuadrado [-internRadius, internRadius]²; se reemplaza al crecer
+    private static volatile HexCoordinate[] interned = new HexCoordinate[0];
+    private static volatile int internRadius = -1;
+    
     private final int q; // Columna
     private final int r; // Fila
     private final int s; // Diagonal (calculado)
@@ -17,6 +25,42 @@ public class HexCoordinate {
         this.s = -q - r;
     }
     
+    /**
+     * Coordenada (q, r): la instancia canónica si está dentro del radio internado.
+     */
+    public static HexCoordinate of(int q, int r) {
+        int radius = internRadius;
+        HexCoordinate[] cache = interned;
+        if (Math.abs(q) > radius || Math.abs(r) > radius || Math.abs(q + r) > radius
+                || cache.length != (2 * radius + 1) * (2 * radius + 1)) {
+            return new HexCoordinate(q, r);
+        }
+        return cache[(q + radius) * (2 * radius + 1) + r + radius];
+    }
+    
+    /**
+     * Asegura instancias canónicas para todo el hexágono de ese radio.
+     */
+    public static synchronized void intern(int radius) {
+        int current = internRadius;
+        if (radius <= current) {
+            return;
+        }
+        int side = 2 * radius + 1;
+        HexCoordinate[] cache = new HexCoordinate[side * side];
+        HexCoordinate[] old = interned;
+        for (int q = -radius; q <= radius; q++) {
+            for (int r = Math.max(-radius, -q - radius); r <= Math.min(radius, -q + radius); r++) {
+                boolean existing = Math.abs(q) <= current && Math.abs(r) <= current && Math.abs(q + r) <= current;
+                cache[(q + radius) * side + r + radius] = existing
+                    ? old[(q + current) * (2 * current + 1) + r + current]
+                    : new HexCoordinate(q, r);
+            }
+        }
+        interned = cache;
+        internRadius = radius;
+    }
+    
     public int getQ() {
         return q;
     }
@@ -37,17 +81,10 @@ public class HexCoordinate {
     }
     
     /**
-     * Retorna una lista de coordenadas vecinas a esta casilla.
+     * Vecino en la dirección dada (0 a 5: Este, Noreste, Noroeste, Oeste, Suroeste, Sureste).
      */
-    public HexCoordinate[] getNeighbors() {
-        return new HexCoordinate[] {
-            new HexCoordinate(q + 1, r),      // Este
-            new HexCoordinate(q + 1, r - 1),  // Noreste
-            new HexCoordinate(q, r - 1),      // Noroeste
-            new HexCoordinate(q - 1, r),      // Oeste
-            new HexCoordinate(q - 1, r + 1),  // Suroeste
-            new HexCoordinate(q, r + 1)       // Sureste
-        };
+    public HexCoordinate neighbor(int direction) {
+        return of(q + DIRECTION_Q[direction], r + DIRECTION_R[direction]);
     }
     
     @Override
@@ -60,7 +97,7 @@ public class HexCoordinate {
     
     @Override
     public int hashCode() {
-        return Objects.hash(q, r, s);
+        return 31 * q + r; // s se deriva de q y r
     }
     
     @Override
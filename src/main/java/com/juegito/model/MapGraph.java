@@ -0,0 +1,104 @@
+package com.juegito.model;
+
+import java.util.Arrays;
+
+/**
+ * Grafo de movimiento del terreno en forma CSR (compressed sparse row), por índice de celda
+ * de GameMap: las aristas de la celda i son targets[offsets[i]] .. targets[offsets[i + 1] - 1]
+ * y solo llevan a vecinos con casilla accesible. Costo de entrada y defensa de cada celda
+ * van en arrays paralelos de bytes.
+ * Se arma una vez al terminar de generar el mapa; es inmutable, así que varias búsquedas
+ * pueden recorrerlo a la vez desde distintos hilos. La ocupación no está acá: cambia en cada
+ * turno y se consulta en el mapa.
+ */
+public final class MapGraph {
+    private final int[] offsets;
+    private final int[] targets;
+    private final byte[] movementCost; // 0 = sin casilla o bloqueada
+    private final byte[] defenseBonus;
+    
+    private MapGraph(int[] offsets, int[] targets, byte[] movementCost, byte[] defenseBonus) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.movementCost = movementCost;
+        this.defenseBonus = defenseBonus;
+    }
+    
+    /**
+     * Arma el grafo desde las celdas y la tabla de vecinos (GameMap.DIRECTIONS por celda, -1 fuera del mapa).
+     */
+    static MapGraph build(Tile[] cells, int[] neighbors) {
+        byte[] movementCost = new byte[cells.length];
+        byte[] defenseBonus = new byte[cells.length];
+        for (int index = 0; index < cells.length; index++) {
+            Tile tile = cells[index];
+            if (tile != null && tile.isAccessible()) {
+                movementCost[index] = toByte(tile.getMovementCost());
+                defenseBonus[index] = toByte(tile.getDefenseBonus());
+            }
+        }
+        
+        int[] offsets = new int[cells.length + 1];
+        int[] targets = new int[neighbors.length];
+        int edges = 0;
+        for (int index = 0; index < cells.length; index++) {
+            offsets[index] = edges;
+            for (int direction = 0; direction < GameMap.DIRECTIONS; direction++) {
+                int neighbor = neighbors[index * GameMap.DIRECTIONS + direction];
+                if (neighbor >= 0 && movementCost[neighbor] > 0) {
+                    targets[edges++] = neighbor;
+                }
+            }
+        }
+        offsets[cells.length] = edges;
+        
+        return new MapGraph(offsets, Arrays.copyOf(targets, edges), movementCost, defenseBonus);
+    }
+    
+    private static byte toByte(int value) {
+        if (value < 0 || value > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Terrain value out of range: " + value);
+        }
+        return (byte) value;
+    }
+    
+    public int getCellCount() {
+        return movementCost.length;
+    }
+    
+    /**
+     * Primera arista de la celda.
+     */
+    public int edgeStart(int index) {
+        return offsets[index];
+    }
+    
+    /**
+     * Fin (exclusivo) de las aristas de la celda.
+     */
+    public int edgeEnd(int index) {
+        return offsets[index + 1];
+    }
+    
+    /**
+     * Celda a la que lleva la arista.
+     */
+    public int edgeTarget(int edge) {
+        return targets[edge];
+    }
+    
+    public boolean isAccessible(int index) {
+        return movementCost[index] > 0;
+    }
+    
+    /**
+     * Costo de entrar a la celda (0 si no se puede).
+     */
+    public int getMovementCost(int index) {
+        return movementCost[index];
+    }
+    
+    public int getDefenseBonus(int index) {
+        return defenseBonus[index];
+    }
+}
@@ -1,10 +1,12 @@
 package com.juegito.model;
 
-import java.io.BufferedReader;
+import com.juegito.protocol.EncodedMessage;
+import com.juegito.protocol.Message;
+import com.juegito.server.transport.Connection;
+import com.juegito.server.transport.OutboundBatch;
+
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
-import java.net.Socket;
+import java.util.List;
 
 /**
  * Representa la conexión de red de un jugador.
@@ -14,16 +16,12 @@ import java.net.Socket;
 public class Player {
     private final String playerId;
     private String playerName;
-    private final Socket socket;
-    private final PrintWriter output;
-    private final BufferedReader input;
+    private final Connection connection;
     
-    public Player(String playerId, String playerName, Socket socket) throws IOException {
+    public Player(String playerId, String playerName, Connection connection) {
         this.playerId = playerId;
         this.playerName = playerName;
-        this.socket = socket;
-        this.output = new PrintWriter(socket.getOutputStream(), true);
-        this.input = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+        this.connection = connection;
     }
     
     public String getPlayerId() {
@@ -38,25 +36,30 @@ public class Player {
         this.playerName = playerName;
     }
     
-    public Socket getSocket() {
-        return socket;
+    public Connection getConnection() {
+        return connection;
+    }
+    
+    public String getRemoteAddress() {
+        return connection.getRemoteAddress();
+    }
+    
+    public void sendMessage(EncodedMessage message) {
+        connection.send(message);
     }
     
-    public void sendMessage(String message) {
-        output.println(message);
+    /**
+     * Envía varios mensajes que el cliente recibe juntos, en este orden.
+     */
+    public void sendBatch(List<EncodedMessage> messages) {
+        connection.send(new OutboundBatch(messages));
     }
     
-    public String receiveMessage() throws IOException {
-        return input.readLine();
+    public Message receiveMessage() throws IOException {
+        return connection.receive();
     }
     
     public void disconnect() {
-        try {
-            input.close();
-            output.close();
-            socket.close();
-        } catch (IOException e) {
-            // Log error
-        }
+        connection.close();
     }
 }
@@ -2,18 +2,25 @@ package com.juegito.model;
 
 /**
  * Representa una casilla individual en el mapa hexagonal.
+ * La ocupación no se guarda acá: una vez agregada al mapa, la casilla la lee de los
+ * arrays de GameMap.
  */
 public class Tile {
     private final HexCoordinate coordinate;
     private final BiomeType biome;
     private final TileType type;
-    private String occupyingPlayerId; // null si no hay jugador
+    private GameMap map; // null hasta que se agrega a un mapa
+    private int index;
     
     public Tile(HexCoordinate coordinate, BiomeType biome, TileType type) {
         this.coordinate = coordinate;
         this.biome = biome;
         this.type = type;
-        this.occupyingPlayerId = null;
+    }
+    
+    void attach(GameMap map, int index) {
+        this.map = map;
+        this.index = index;
     }
     
     public HexCoordinate getCoordinate() {
@@ -29,15 +36,11 @@ public class Tile {
     }
     
     public String getOccupyingPlayerId() {
-        return occupyingPlayerId;
-    }
-    
-    public void setOccupyingPlayerId(String playerId) {
-        this.occupyingPlayerId = playerId;
+        return map == null ? null : map.getEntities().idOf(map.getOccupant(index));
     }
     
     public boolean isOccupied() {
-        return occupyingPlayerId != null;
+        return map != null && map.isOccupied(index);
     }
     
     public boolean isBlocked() {
@@ -4,16 +4,26 @@ import com.juegito.model.*;
 import com.juegito.protocol.dto.*;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.stream.Collectors;
 
 /**
  * Convierte entre objetos del modelo y DTOs para transferencia.
  * Centraliza la lógica de conversión para mantener DRY.
+ * El terreno (estático) y la ocupación (dinámica) del mapa se convierten por separado.
  */
 public class MapDTOConverter {
+    /** Casillas por página de terreno: un mapa que no entra en una sola viaja en páginas. */
+    public static final int TERRAIN_PAGE_TILES = 256;
+    
+    // Terreno ya serializado por mapa; débil: se libera junto con el mapa de la partida
+    private static final Map<GameMap, List<EncodedMessage>> TERRAIN_MESSAGES =
+        Collections.synchronizedMap(new WeakHashMap<>());
     
     /**
      * Convierte HexCoordinate a DTO.
@@ -28,7 +38,7 @@ public class MapDTOConverter {
      */
     public static HexCoordinate fromDTO(HexCoordinateDTO dto) {
         if (dto == null) return null;
-        return new HexCoordinate(dto.getQ(), dto.getR());
+        return HexCoordinate.of(dto.getQ(), dto.getR());
     }
     
     /**
@@ -73,7 +83,7 @@ public class MapDTOConverter {
             .map(MapDTOConverter::toDTO)
             .collect(Collectors.toList());
         
-        return new GameMapDTO(
+        GameMapDTO dto = new GameMapDTO(
             map.getRadius(),
             tileDTOs,
             playerPositionDTOs,
@@ -81,6 +91,155 @@ public class MapDTOConverter {
             resourceDTOs,
             strategicDTOs
         );
+        dto.setVersion(map.getVersion());
+        return dto;
+    }
+    
+    /**
+     * Convierte el terreno del mapa a DTO (casillas sin ocupante y nodos especiales).
+     */
+    public static MapTerrainDTO toTerrainDTO(GameMap map) {
+        List<TileDTO> tileDTOs = map.getAllTiles().stream()
+            .map(MapDTOConverter::toTerrainTileDTO)
+            .collect(Collectors.toList());
+        
+        MapTerrainDTO terrain = toTerrainHeaderDTO(map, 0);
+        terrain.setTiles(tileDTOs);
+        return terrain;
+    }
+    
+    /**
+     * Cabecera del terreno de un mapa paginado: nodos especiales y cantidades, sin casillas.
+     */
+    public static MapTerrainDTO toTerrainHeaderDTO(GameMap map, int pageCount) {
+        MapTerrainDTO terrain = new MapTerrainDTO(
+            map.getTerrainHash(),
+            map.getRadius(),
+            null,
+            toDTOList(map.getSpawnPoints()),
+            toDTOList(map.getResourceNodes()),
+            toDTOList(map.getStrategicNodes())
+        );
+        terrain.setTileCount(map.getAllTiles().size());
+        terrain.setPageCount(pageCount);
+        return terrain;
+    }
+    
+    /**
+     * Casillas de una página del terreno: la página i cubre los índices del mapa
+     * [i * TERRAIN_PAGE_TILES, ...), que recorren el hexágono por filas (q, luego r).
+     * Se arma directamente desde el mapa, sin la lista de todas las casillas.
+     */
+    public static MapTerrainPageDTO toTerrainPageDTO(GameMap map, int page) {
+        int first = page * TERRAIN_PAGE_TILES;
+        int end = Math.min(first + TERRAIN_PAGE_TILES, map.getCellCount());
+        List<TileDTO> tileDTOs = new ArrayList<>(Math.max(0, end - first));
+        for (int index = first; index < end; index++) {
+            Tile tile = map.getTileAt(index);
+            if (tile != null) {
+                tileDTOs.add(toTerrainTileDTO(tile));
+            }
+        }
+        return new MapTerrainPageDTO(map.getTerrainHash(), page, tileDTOs);
+    }
+    
+    /**
+     * Mensajes del terreno del mapa, serializados una sola vez por mapa (por partida):
+     * los envíos siguientes, a cualquier jugador, reutilizan los mismos bytes.
+     * Si el mapa entra en una página es un solo MAP_TERRAIN; si no, la cabecera y las
+     * páginas MAP_TERRAIN_PAGE, construidas de a una y sin retener su DTO.
+     */
+    public static List<EncodedMessage> toTerrainMessages(GameMap map) {
+        return TERRAIN_MESSAGES.computeIfAbsent(map, key -> {
+            int pageCount = (key.getCellCount() + TERRAIN_PAGE_TILES - 1) / TERRAIN_PAGE_TILES;
+            if (pageCount <= 1) {
+                return Collections.singletonList(
+                    EncodedMessage.of(new Message(MessageType.MAP_TERRAIN, "server", toTerrainDTO(key))));
+            }
+            
+            List<EncodedMessage> messages = new ArrayList<>(pageCount + 1);
+            messages.add(EncodedMessage.of(
+                new Message(MessageType.MAP_TERRAIN, "server", toTerrainHeaderDTO(key, pageCount))));
+            for (int page = 0; page < pageCount; page++) {
+                messages.add(EncodedMessage.of(new Message(MessageType.MAP_TERRAIN_PAGE, "server",
+                    toTerrainPageDTO(key, page))).detachPayload());
+            }
+            return Collections.unmodifiableList(messages);
+        });
+    }
+    
+    private static TileDTO toTerrainTileDTO(Tile tile) {
+        return new TileDTO(
+            toDTO(tile.getCoordinate()),
+            tile.getBiome().name(),
+            tile.getType().name(),
+            null,
+            tile.getMovementCost(),
+            tile.getDefenseBonus());
+    }
+    
+    /**
+     * Convierte la ocupación actual del mapa (posiciones de los jugadores) a DTO.
+     */
+    public static MapOccupancyDTO toOccupancyDTO(GameMap map) {
+        int[] occupants = map.copyOccupants();
+        EntityRegistry entities = map.getEntities();
+        int count = 0;
+        for (int occupant : occupants) {
+            if (occupant != EntityRegistry.NONE) {
+                count++;
+            }
+        }
+        
+        String[] ids = new String[count];
+        int[] q = new int[count];
+        int[] r = new int[count];
+        int i = 0;
+        for (int index = 0; index < occupants.length; index++) {
+            if (occupants[index] != EntityRegistry.NONE) {
+                HexCoordinate coord = map.getTileAt(index).getCoordinate();
+                ids[i] = entities.idOf(occupants[index]);
+                q[i] = coord.getQ();
+                r[i] = coord.getR();
+                i++;
+            }
+        }
+        return new MapOccupancyDTO(map.getTerrainHash(), map.getVersion(), new PositionArraysDTO(ids, q, r));
+    }
+    
+    /**
+     * Convierte los cambios de posición desde baseVersion a un delta.
+     */
+    public static MapDeltaDTO toDeltaDTO(GameMap map, long baseVersion) {
+        Map<String, HexCoordinate> positions = map.getPlayerPositions();
+        List<String> moved = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        for (String playerId : map.getPlayersChangedSince(baseVersion)) {
+            if (positions.containsKey(playerId)) {
+                moved.add(playerId);
+            } else {
+                removed.add(playerId);
+            }
+        }
+        
+        return new MapDeltaDTO(baseVersion, map.getVersion(),
+            toPositionArrays(moved, positions), removed.toArray(new String[0]));
+    }
+    
+    private static PositionArraysDTO toPositionArrays(Collection<String> playerIds,
+                                                      Map<String, HexCoordinate> positions) {
+        String[] ids = new String[playerIds.size()];
+        int[] q = new int[ids.length];
+        int[] r = new int[ids.length];
+        int i = 0;
+        for (String playerId : playerIds) {
+            HexCoordinate position = positions.get(playerId);
+            ids[i] = playerId;
+            q[i] = position.getQ();
+            r[i] = position.getR();
+            i++;
+        }
+        return new PositionArraysDTO(ids, q, r);
     }
     
     /**
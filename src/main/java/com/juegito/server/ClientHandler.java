@@ -1,12 +1,14 @@
 package com.juegito.server;
 
-import com.juegito.game.lobby.LobbyManager;
 import com.juegito.model.Player;
+import com.juegito.protocol.EncodedMessage;
 import com.juegito.protocol.Message;
 import com.juegito.protocol.MessageType;
 import com.juegito.protocol.dto.*;
 import com.juegito.protocol.dto.lobby.*;
+import com.juegito.server.transport.ConnectionHandler;
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -16,22 +18,24 @@ import java.util.Map;
 
 /**
  * Maneja la comunicación con un cliente individual.
- * Ejecuta en su propio hilo para cada jugador conectado.
+ * Con el transporte bloqueante ejecuta en su propio hilo; con NIO el loop de I/O
+ * le entrega cada mensaje mediante onMessage.
  */
-public class ClientHandler implements Runnable {
+public class ClientHandler implements ConnectionHandler, IdleTimeoutWheel.Watched {
     private static final Logger logger = LoggerFactory.getLogger(ClientHandler.class);
-    private static final long TIMEOUT_MS = 60000; // 60 segundos sin mensajes = desconexión
     
-    private final Player player;
-    private final GameServer server;
+    private volatile Player player;
+    private final MatchManager matchManager;
+    private volatile Match match; // Partida actual: cambia con un JOIN_REQUEST a otro lobby o una reconexión
     private final Gson gson;
     private volatile boolean running;
-    private final String assignedPlayerId; // ID asignado desde el inicio (player.getPlayerId())
-    private volatile long lastMessageTime; // Timestamp del último mensaje recibido
+    private volatile String assignedPlayerId; // ID asignado desde el inicio (player.getPlayerId())
+    private volatile long lastMessageTime; // Timestamp del último mensaje recibido (lo vigila IdleTimeoutWheel)
     
-    public ClientHandler(Player player, GameServer server) {
+    public ClientHandler(Player player, MatchManager matchManager, Match match) {
         this.player = player;
-        this.server = server;
+        this.matchManager = matchManager;
+        this.match = match;
         this.gson = new Gson();
         this.running = true;
         this.assignedPlayerId = player.getPlayerId(); // Asignar desde el inicio
@@ -44,24 +48,15 @@ public class ClientHandler implements Runnable {
         
         try {
             while (running) {
-                String messageJson = player.receiveMessage();
+                Message message = player.receiveMessage();
                 
-                if (messageJson == null) {
+                if (message == null) {
                     // Cliente desconectado
                     handleDisconnect();
                     break;
                 }
                 
-                processMessage(messageJson);
-                
-                // Verificar timeout de inactividad
-                long inactiveTime = System.currentTimeMillis() - lastMessageTime;
-                if (inactiveTime > TIMEOUT_MS) {
-                    logger.warn("Client {} timed out after {}ms inactivity", 
-                        player.getPlayerId(), inactiveTime);
-                    handleDisconnect();
-                    break;
-                }
+                processMessage(message);
             }
         } catch (IOException e) {
             logger.error("Error reading from client {}: {}", player.getPlayerId(), e.getMessage());
@@ -69,19 +64,91 @@ public class ClientHandler implements Runnable {
         }
     }
     
-    private void processMessage(String messageJson) {
+    /**
+     * Entrada de mensajes para transportes no bloqueantes.
+     */
+    @Override
+    public void onMessage(Message message) {
+        if (running) {
+            processMessage(message);
+        }
+    }
+    
+    /**
+     * El transporte detectó que el cliente cerró la conexión.
+     */
+    @Override
+    public void onConnectionClosed() {
+        if (running) {
+            handleDisconnect();
+        }
+    }
+    
+    private void processMessage(Message message) {
         try {
             lastMessageTime = System.currentTimeMillis(); // Actualizar timestamp
             
-            Message message = gson.fromJson(messageJson, Message.class);
-            
-            if (message == null || message.getType() == null) {
+            if (message.getType() == null) {
                 logger.warn("Received invalid message from {}", player.getPlayerId());
                 return;
             }
             
             logger.debug("Received {} from {}", message.getType(), player.getPlayerId());
             
+            // Estos no tocan el estado de la partida: se atienden en el hilo de la conexión
+            switch (message.getType()) {
+                case PING:
+                    handlePing();
+                    return;
+                
+                case PONG:
+                    // Respuesta al PING del servidor: solo cuenta como actividad
+                    return;
+                
+                case RECONNECT_REQUEST:
+                    handleReconnectRequest(message);
+                    return;
+                
+                case PLAYER_DISCONNECT:
+                    handleDisconnect();
+                    return;
+                
+                default:
+                    break;
+            }
+            
+            // El resto se aplica en la cola de comandos de la partida (un único escritor).
+            // Si el jugador cambió de partida antes de aplicarse, el comando se descarta.
+            Match current = match;
+            current.execute(actionName(message), () -> {
+                if (current == match) {
+                    dispatch(message);
+                }
+            });
+        } catch (Exception e) {
+            logger.error("Error processing message: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Nombre de la acción para las estadísticas de salida: el tipo de acción
+     * para PLAYER_ACTION (MOVE, ATTACK...) y el tipo de mensaje para el resto.
+     */
+    private static String actionName(Message message) {
+        if (message.getType() == MessageType.PLAYER_ACTION && message.getPayload() instanceof PlayerActionDTO) {
+            String actionType = ((PlayerActionDTO) message.getPayload()).getActionType();
+            if (actionType != null) {
+                return actionType;
+            }
+        }
+        return message.getType().name();
+    }
+    
+    /**
+     * Aplica un mensaje del jugador sobre su partida. Corre en la cola de comandos.
+     */
+    private void dispatch(Message message) {
+        try {
             switch (message.getType()) {
                 // Mensajes del lobby
                 case JOIN_REQUEST:
@@ -132,17 +199,17 @@ public class ClientHandler implements Runnable {
                 case REQUEST_RESYNC:
                     handleRequestResync(message);
                     break;
-                    
-                case RECONNECT_REQUEST:
-                    handleReconnectRequest(message);
+                
+                case MAP_ACK:
+                    handleMapAck(message);
                     break;
-                    
-                case PING:
-                    handlePing();
+                
+                case REQUEST_STATE_SYNC:
+                    handleRequestStateSync();
                     break;
-                    
-                case PLAYER_DISCONNECT:
-                    handleDisconnect();
+                
+                case SESSION_ACK:
+                    handleSessionAck(message);
                     break;
                 
                 // FASE 4 - Nuevos mensajes de gameplay
@@ -169,12 +236,12 @@ public class ClientHandler implements Runnable {
     
     private void handlePlayerAction(Message message) {
         PlayerActionDTO action = deserializePayload(message, PlayerActionDTO.class);
-        server.handlePlayerAction(player.getPlayerId(), action);
+        match.handlePlayerAction(player.getPlayerId(), action);
     }
     
     private void handlePing() {
         Message pong = new Message(MessageType.PONG, "server", null);
-        player.sendMessage(gson.toJson(pong));
+        player.sendMessage(EncodedMessage.of(pong));
     }
     
     // ========== Handlers FASE 4 - Nuevos sistemas ==========
@@ -190,7 +257,7 @@ public class ClientHandler implements Runnable {
             actionData.put("attackType", request.getAttackType());
             action.setActionData(actionData);
             
-            server.handlePlayerAction(player.getPlayerId(), action);
+            match.handlePlayerAction(player.getPlayerId(), action);
         }
     }
     
@@ -210,14 +277,14 @@ public class ClientHandler implements Runnable {
             }
             action.setActionData(actionData);
             
-            server.handlePlayerAction(player.getPlayerId(), action);
+            match.handlePlayerAction(player.getPlayerId(), action);
         }
     }
     
     private void handleEventInteraction(Message message) {
         EventInteractionDTO request = deserializePayload(message, EventInteractionDTO.class);
         if (request != null) {
-            server.handleEventInteraction(
+            match.handleEventInteraction(
                 player.getPlayerId(),
                 request.getEventId(),
                 request.getOptionIndex()
@@ -229,9 +296,19 @@ public class ClientHandler implements Runnable {
     
     private void handleJoinRequest(Message message) {
         JoinRequestDTO request = deserializePayload(message, JoinRequestDTO.class);
-        String ipAddress = player.getSocket().getInetAddress().getHostAddress();
+        if (request == null) {
+            return;
+        }
+        
+        // Unirse a otro lobby: el MatchManager mueve la conexión a esa partida
+        if (request.getLobbyId() != null && !request.getLobbyId().equals(match.getMatchId())) {
+            matchManager.transfer(this, request.getLobbyId(), request.getPlayerName());
+            return;
+        }
+        
+        String ipAddress = player.getRemoteAddress();
         
-        server.getLobbyManager().handleJoinRequest(ipAddress, request, (success, response) -> {
+        match.getLobbyManager().handleJoinRequest(ipAddress, request, (success, response) -> {
             sendMessage(response);
             if (success) {
                 logger.info("Player joined with ID: {}", assignedPlayerId);
@@ -241,55 +318,55 @@ public class ClientHandler implements Runnable {
     
     private void handleLeaveLobby(Message message) {
         if (assignedPlayerId != null) {
-            server.getLobbyManager().handleLeaveRequest(assignedPlayerId);
+            match.getLobbyManager().handleLeaveRequest(assignedPlayerId);
         }
     }
     
     private void handleReadyStatusChange(Message message) {
         if (assignedPlayerId == null) return;
         ReadyStatusChangeDTO request = deserializePayload(message, ReadyStatusChangeDTO.class);
-        server.getLobbyManager().handleReadyStatusChange(assignedPlayerId, request);
+        match.getLobbyManager().handleReadyStatusChange(assignedPlayerId, request);
     }
     
     private void handleClassSelection(Message message) {
         if (assignedPlayerId == null) return;
         ClassSelectionDTO request = deserializePayload(message, ClassSelectionDTO.class);
-        server.getLobbyManager().handleClassSelection(assignedPlayerId, request);
+        match.getLobbyManager().handleClassSelection(assignedPlayerId, request);
     }
     
     private void handleColorSelection(Message message) {
         if (assignedPlayerId == null) return;
         ColorSelectionDTO request = deserializePayload(message, ColorSelectionDTO.class);
-        server.getLobbyManager().handleColorSelection(assignedPlayerId, request);
+        match.getLobbyManager().handleColorSelection(assignedPlayerId, request);
     }
     
     private void handleKickPlayer(Message message) {
         if (assignedPlayerId == null) return;
         KickPlayerDTO request = deserializePayload(message, KickPlayerDTO.class);
-        server.getLobbyManager().handleKickPlayer(assignedPlayerId, request);
+        match.getLobbyManager().handleKickPlayer(assignedPlayerId, request);
     }
     
     private void handleStartMatchRequest(Message message) {
         if (assignedPlayerId == null) return;
-        server.getLobbyManager().handleStartMatchRequest(assignedPlayerId);
+        match.getLobbyManager().handleStartMatchRequest(assignedPlayerId);
     }
     
     private void handleChangeLobbySettings(Message message) {
         if (assignedPlayerId == null) return;
         ChangeLobbySettingsDTO request = deserializePayload(message, ChangeLobbySettingsDTO.class);
-        server.getLobbyManager().handleChangeLobbySettings(assignedPlayerId, request);
+        match.getLobbyManager().handleChangeLobbySettings(assignedPlayerId, request);
     }
     
     private void handleChatMessage(Message message) {
         if (assignedPlayerId == null) return;
         ChatMessageRequestDTO request = deserializePayload(message, ChatMessageRequestDTO.class);
-        server.getLobbyManager().handleChatMessage(assignedPlayerId, request);
+        match.getLobbyManager().handleChatMessage(assignedPlayerId, request);
     }
     
     private void handleChangePlayerName(Message message) {
         if (assignedPlayerId == null) return;
         ChangePlayerNameDTO request = deserializePayload(message, ChangePlayerNameDTO.class);
-        server.getLobbyManager().handleChangePlayerName(assignedPlayerId, request);
+        match.getLobbyManager().handleChangePlayerName(assignedPlayerId, request);
     }
     
     /**
@@ -300,29 +377,51 @@ public class ClientHandler implements Runnable {
         if (assignedPlayerId == null) return;
         
         logger.info("Player {} requested resync", assignedPlayerId);
-        server.sendFullResync(assignedPlayerId);
+        match.sendFullResync(assignedPlayerId);
+    }
+    
+    /**
+     * El checksum del heartbeat o del lobby no coincidió: se reenvía solo ese estado, no todo.
+     */
+    private void handleRequestStateSync() {
+        if (assignedPlayerId == null) return;
+        
+        logger.debug("Player {} requested state sync", assignedPlayerId);
+        match.sendStateSync(assignedPlayerId);
+    }
+    
+    /**
+     * Registra la versión del mapa que el cliente ya aplicó, base de los próximos deltas.
+     */
+    private void handleMapAck(Message message) {
+        MapAckDTO ack = deserializePayload(message, MapAckDTO.class);
+        if (ack != null) {
+            match.handleMapAck(player.getPlayerId(), ack.getVersion());
+        }
+    }
+    
+    /**
+     * Registra hasta qué mensaje de la sesión procesó el cliente, para liberar el buffer de reenvío.
+     */
+    private void handleSessionAck(Message message) {
+        SessionAckDTO ack = deserializePayload(message, SessionAckDTO.class);
+        if (ack != null) {
+            match.handleSessionAck(player.getPlayerId(), ack.getSequence());
+        }
     }
     
     /**
      * Maneja solicitud de reconexión.
-     * Permite que un cliente desconectado vuelva a la partida.
+     * Permite que un cliente desconectado vuelva a la partida; la partida responde
+     * (RECONNECT_ACCEPTED y lo perdido o una resincronización) desde su cola de comandos.
      */
     private void handleReconnectRequest(Message message) {
         ReconnectRequestDTO request = deserializePayload(message, ReconnectRequestDTO.class);
         
         logger.info("Reconnection request from {}", request.getPlayerId());
         
-        // Validar que la partida sigue activa
-        boolean accepted = server.handleReconnect(request.getPlayerId());
-        
-        if (accepted) {
-            ReconnectResponseDTO response = ReconnectResponseDTO.accepted();
-            Message responseMsg = new Message(MessageType.RECONNECT_ACCEPTED, "server", response);
-            sendMessage(responseMsg);
-            
-            // Enviar resincronización completa
-            server.sendFullResync(request.getPlayerId());
-        } else {
+        // Validar que la sesión sigue en alguna partida
+        if (!matchManager.reconnect(request.getPlayerId(), request.getLastSequence(), this)) {
             ReconnectResponseDTO response = ReconnectResponseDTO.rejected("Game no longer active");
             Message responseMsg = new Message(MessageType.RECONNECT_REJECTED, "server", response);
             sendMessage(responseMsg);
@@ -330,11 +429,18 @@ public class ClientHandler implements Runnable {
     }
     
     /**
-     * Deserializa el payload de un mensaje a un tipo específico.
+     * Obtiene el payload de un mensaje como un tipo específico.
      * DRY: Evita repetir la lógica de deserialización en cada handler.
+     * Los decodificadores ya entregan el DTO registrado en PayloadRegistry; solo un
+     * payload sin DTO registrado (árbol JSON) se convierte aquí, sin pasar por String.
      */
     private <T> T deserializePayload(Message message, Class<T> clazz) {
-        return gson.fromJson(gson.toJson(message.getPayload()), clazz);
+        Object payload = message.getPayload();
+        if (payload == null || clazz.isInstance(payload)) {
+            return clazz.cast(payload);
+        }
+        JsonElement tree = payload instanceof JsonElement ? (JsonElement) payload : gson.toJsonTree(payload);
+        return gson.fromJson(tree, clazz);
     }
     
     // ========== Fin de handlers del lobby ==========
@@ -343,19 +449,70 @@ public class ClientHandler implements Runnable {
         logger.info("Player {} disconnected", player.getPlayerId());
         running = false;
         
-        // Notificar al lobby manager si el jugador estaba en el lobby
-        if (assignedPlayerId != null) {
-            server.getLobbyManager().handlePlayerDisconnected(assignedPlayerId);
+        // La partida notifica a su lobby
+        match.handlePlayerDisconnect(player.getPlayerId());
+    }
+    
+    /**
+     * IdleTimeoutWheel detectó que el cliente no envió nada en timeoutMs: se lo
+     * desconecta por el mismo camino que un cierre de conexión.
+     */
+    @Override
+    public void onIdleTimeout(long idleMs) {
+        if (running) {
+            logger.warn("Client {} timed out after {}ms inactivity", player.getPlayerId(), idleMs);
+            handleDisconnect();
         }
-        
-        server.handlePlayerDisconnect(player.getPlayerId());
+    }
+    
+    @Override
+    public long getLastActivity() {
+        return lastMessageTime;
+    }
+    
+    @Override
+    public boolean isRunning() {
+        return running;
     }
     
     /**
      * Envía un mensaje al cliente.
      */
     public void sendMessage(Message message) {
-        player.sendMessage(gson.toJson(message));
+        player.sendMessage(EncodedMessage.of(message));
+    }
+    
+    /**
+     * Envía un mensaje ya serializado (compartido con otros destinatarios).
+     */
+    @Override
+    public void sendMessage(EncodedMessage message) {
+        player.sendMessage(message);
+    }
+    
+    public Player getPlayer() {
+        return player;
+    }
+    
+    public Match getMatch() {
+        return match;
+    }
+    
+    /**
+     * Pasa a la partida indicada y aplica sus límites de tasa a la conexión.
+     */
+    void setMatch(Match match) {
+        this.match = match;
+        player.getConnection().setRateLimits(match.getRateLimits());
+        player.getConnection().setPlayerHandles(match.getPlayerHandles());
+    }
+    
+    /**
+     * Asocia este handler a la sesión recuperada por una reconexión.
+     */
+    void rebind(Player player) {
+        this.player = player;
+        this.assignedPlayerId = player.getPlayerId();
     }
     
     public void stop() {
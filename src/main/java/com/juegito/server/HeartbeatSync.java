@@ -0,0 +1,91 @@
+package com.juegito.server;
+
+import com.juegito.game.GameState;
+import com.juegito.model.Player;
+import com.juegito.protocol.EncodedMessage;
+import com.juegito.protocol.Message;
+import com.juegito.protocol.MessageType;
+import com.juegito.protocol.dto.GameHeartbeatDTO;
+
+/**
+ * Heartbeat del estado del juego de una partida, adaptativo y por diferencias.
+ * Cada heartbeat lleva la versión del estado (GameState.getStateVersion) y su checksum;
+ * si algo cambió desde el heartbeat anterior agrega el turno y el HP de quienes cambiaron.
+ * Mientras nada cambia se reenvía el mismo heartbeat ya serializado y el intervalo se
+ * duplica hasta MAX_INTERVAL_MS; el primer cambio lo vuelve a BASE_INTERVAL_MS.
+ * Un cliente cuya copia no coincide pide REQUEST_STATE_SYNC y recibe solo el heartbeat completo.
+ * Solo se usa desde la cola de comandos de la partida.
+ */
+class HeartbeatSync {
+    static final long BASE_INTERVAL_MS = 3000;
+    static final long MAX_INTERVAL_MS = 24000;
+    
+    private final NetworkService networkService;
+    private long sentVersion; // Versión del último heartbeat enviado (0 = ninguno)
+    private EncodedMessage idleMessage; // Heartbeat sin cambios para sentVersion
+    private long intervalMs;
+    
+    HeartbeatSync(NetworkService networkService) {
+        this.networkService = networkService;
+        this.sentVersion = 0;
+        this.intervalMs = BASE_INTERVAL_MS;
+    }
+    
+    /**
+     * Envía el heartbeat a todos y retorna cuánto esperar hasta el próximo.
+     */
+    long broadcast(GameState gameState) {
+        long version = gameState.getStateVersion();
+        if (version == sentVersion) {
+            if (idleMessage == null) {
+                idleMessage = encode(new GameHeartbeatDTO(version, version,
+                    gameState.getStateChecksum(), 0, null, null));
+            }
+            networkService.broadcastMessage(idleMessage);
+            intervalMs = Math.min(intervalMs * 2, MAX_INTERVAL_MS);
+            return intervalMs;
+        }
+        
+        GameHeartbeatDTO heartbeat = sentVersion == 0 ? full(gameState) : delta(gameState, sentVersion);
+        networkService.broadcastMessage(encode(heartbeat));
+        sentVersion = version;
+        idleMessage = null;
+        intervalMs = BASE_INTERVAL_MS;
+        return intervalMs;
+    }
+    
+    /**
+     * True si el intervalo creció por inactividad (un cambio debería adelantar el próximo heartbeat).
+     */
+    boolean isBackedOff() {
+        return intervalMs > BASE_INTERVAL_MS;
+    }
+    
+    void resetBackoff() {
+        intervalMs = BASE_INTERVAL_MS;
+    }
+    
+    /**
+     * Envía el heartbeat completo a un jugador (REQUEST_STATE_SYNC, resincronización o reconexión).
+     */
+    void sendFull(Player player, GameState gameState) {
+        networkService.sendMessageToPlayer(player, encode(full(gameState)));
+    }
+    
+    private static GameHeartbeatDTO full(GameState gameState) {
+        return new GameHeartbeatDTO(gameState.getStateVersion(), 0, gameState.getStateChecksum(),
+            gameState.getTurnNumber(), gameState.getCurrentTurnPlayerId(), gameState.getAllPlayerHealth());
+    }
+    
+    private static GameHeartbeatDTO delta(GameState gameState, long baseVersion) {
+        boolean turnChanged = gameState.isTurnChangedSince(baseVersion);
+        return new GameHeartbeatDTO(gameState.getStateVersion(), baseVersion, gameState.getStateChecksum(),
+            turnChanged ? gameState.getTurnNumber() : 0,
+            turnChanged ? gameState.getCurrentTurnPlayerId() : null,
+            gameState.getHealthChangedSince(baseVersion));
+    }
+    
+    private static EncodedMessage encode(GameHeartbeatDTO heartbeat) {
+        return EncodedMessage.of(new Message(MessageType.GAME_HEARTBEAT, "server", heartbeat));
+    }
+}
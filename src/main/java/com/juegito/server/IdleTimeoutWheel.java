@@ -0,0 +1,183 @@
+package com.juegito.server;
+
+import com.juegito.protocol.EncodedMessage;
+import com.juegito.protocol.Message;
+import com.juegito.protocol.MessageType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rueda de tiempos (hashed timing wheel) compartida por todas las conexiones para
+ * detectar clientes inactivos aunque no envíen nada.
+ * Cada conexión ocupa el casillero del tick en que vence su plazo; una sola tarea por
+ * tick revisa ese casillero entero. Registrar es O(1) y reiniciar el plazo no toca la
+ * rueda: el handler solo anota su última actividad y al vencer se recoloca según ella.
+ * Tras pingAfterMs sin mensajes se envía un PING (el cliente responde PONG); tras
+ * timeoutMs se desconecta al jugador como si hubiera cerrado la conexión.
+ */
+public final class IdleTimeoutWheel {
+    private static final Logger logger = LoggerFactory.getLogger(IdleTimeoutWheel.class);
+    private static final int MAX_SLOTS = 1024;
+    private static final EncodedMessage PING = EncodedMessage.of(new Message(MessageType.PING, "server", null));
+    
+    private final long timeoutMs;
+    private final long pingAfterMs;
+    private final long tickMs;
+    private final ArrayDeque<Entry>[] slots;
+    private final int mask;
+    // Altas desde los hilos de aceptación; solo el tick toca los casilleros
+    private final Queue<Entry> pending;
+    private final AtomicLong pingsSent;
+    private final AtomicLong timeouts;
+    private long currentTick;
+    private long startMs;
+    private ScheduledFuture<?> tickTask;
+    
+    /**
+     * @param timeoutMs Inactividad tras la cual se desconecta al cliente
+     * @param pingAfterMs Inactividad tras la cual el servidor envía un PING
+     * @param tickMs Resolución de la rueda
+     */
+    @SuppressWarnings("unchecked")
+    public IdleTimeoutWheel(long timeoutMs, long pingAfterMs, long tickMs) {
+        this.timeoutMs = timeoutMs;
+        this.pingAfterMs = Math.min(pingAfterMs, timeoutMs);
+        this.tickMs = Math.max(1, tickMs);
+        
+        // Potencia de dos que cubra el timeout completo, así casi nada da más de una vuelta
+        int size = 1;
+        while (size < MAX_SLOTS && size <= timeoutMs / this.tickMs) {
+            size <<= 1;
+        }
+        this.slots = (ArrayDeque<Entry>[]) new ArrayDeque<?>[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new ArrayDeque<>();
+        }
+        this.mask = size - 1;
+        this.pending = new ConcurrentLinkedQueue<>();
+        this.pingsSent = new AtomicLong();
+        this.timeouts = new AtomicLong();
+        this.startMs = System.currentTimeMillis();
+    }
+    
+    /**
+     * Arranca el tick en el pool compartido.
+     */
+    public void start(ScheduledExecutorService scheduler) {
+        startMs = System.currentTimeMillis();
+        tickTask = scheduler.scheduleAtFixedRate(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+    
+    public void stop() {
+        if (tickTask != null) {
+            tickTask.cancel(false);
+        }
+    }
+    
+    /**
+     * Empieza a vigilar una conexión. Se deja de vigilar sola cuando el handler se detiene.
+     */
+    public void register(Watched handler) {
+        pending.add(new Entry(handler));
+    }
+    
+    private void tick() {
+        tick(System.currentTimeMillis());
+    }
+    
+    /**
+     * Revisa el casillero del tick actual con la hora dada y avanza un tick.
+     */
+    void tick(long now) {
+        try {
+            Entry added;
+            while ((added = pending.poll()) != null) {
+                schedule(added, added.handler.getLastActivity() + pingAfterMs);
+            }
+            
+            ArrayDeque<Entry> slot = slots[(int) (currentTick & mask)];
+            // Solo las entradas que ya estaban: las recolocadas en este mismo casillero quedan para otra vuelta
+            for (int n = slot.size(); n > 0; n--) {
+                Entry entry = slot.poll();
+                if (entry.deadlineTick > currentTick) {
+                    slot.add(entry);
+                } else {
+                    expire(entry, now);
+                }
+            }
+            currentTick++;
+        } catch (Exception e) {
+            logger.error("Idle timeout tick failed: {}", e.getMessage());
+        }
+    }
+    
+    private void expire(Entry entry, long now) {
+        Watched handler = entry.handler;
+        if (!handler.isRunning()) {
+            return;
+        }
+        
+        long lastActivity = handler.getLastActivity();
+        long idleMs = now - lastActivity;
+        if (idleMs >= timeoutMs) {
+            timeouts.incrementAndGet();
+            handler.onIdleTimeout(idleMs);
+        } else if (idleMs >= pingAfterMs) {
+            if (entry.pingedAt != lastActivity) {
+                entry.pingedAt = lastActivity;
+                pingsSent.incrementAndGet();
+                handler.sendMessage(PING);
+            }
+            schedule(entry, lastActivity + timeoutMs);
+        } else {
+            schedule(entry, lastActivity + pingAfterMs);
+        }
+    }
+    
+    private void schedule(Entry entry, long deadlineMs) {
+        // Tick en que el casillero se revisa después del plazo (nunca el actual, que ya se está revisando)
+        long tick = (deadlineMs - startMs + tickMs - 1) / tickMs;
+        entry.deadlineTick = Math.max(tick, currentTick + 1);
+        slots[(int) (entry.deadlineTick & mask)].add(entry);
+    }
+    
+    public long getPingsSent() {
+        return pingsSent.get();
+    }
+    
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+    
+    /**
+     * Lo que la rueda necesita de una conexión vigilada (ClientHandler).
+     */
+    interface Watched {
+        long getLastActivity();
+        
+        boolean isRunning();
+        
+        void onIdleTimeout(long idleMs);
+        
+        void sendMessage(EncodedMessage message);
+    }
+    
+    private static final class Entry {
+        final Watched handler;
+        long deadlineTick;
+        long pingedAt; // Última actividad para la que ya se envió el PING
+        
+        Entry(Watched handler) {
+            this.handler = handler;
+            this.pingedAt = -1;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.juegito.server;
+
+import com.juegito.model.GameMap;
+import com.juegito.model.Player;
+import com.juegito.protocol.EncodedMessage;
+import com.juegito.protocol.MapDTOConverter;
+import com.juegito.protocol.Message;
+import com.juegito.protocol.MessageType;
+import com.juegito.protocol.dto.MapDeltaDTO;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sincronización del mapa con cada jugador de una partida.
+ * Recuerda la última versión que cada cliente confirmó (MAP_ACK) y la última que se le
+ * envió. A cada uno le manda solo lo que cambió desde su versión confirmada (MAP_DELTA),
+ * o la ocupación completa si nunca confirmó una o quedó tan atrás que el delta no conviene.
+ * El terreno se envía una sola vez por sesión (y al resincronizar), antes que la ocupación,
+ * con bytes que la partida serializa una vez (en páginas si el mapa es grande). Los deltas con la misma base comparten la serialización.
+ * Solo se usa desde la cola de comandos de la partida.
+ */
+class MapSync {
+    private final NetworkService networkService;
+    private final Map<String, Long> ackedVersions;
+    private final Map<String, Long> sentVersions;
+    private final Set<String> terrainSent;
+    
+    MapSync(NetworkService networkService) {
+        this.networkService = networkService;
+        this.ackedVersions = new HashMap<>();
+        this.sentVersions = new HashMap<>();
+        this.terrainSent = new HashSet<>();
+    }
+    
+    /**
+     * Lleva a cada jugador a la versión actual del mapa.
+     * A quien ya se le envió esta versión no se le manda nada.
+     */
+    void sync(Collection<Player> players, GameMap map) {
+        long version = map.getVersion();
+        EncodedMessage full = null;
+        Map<Long, EncodedMessage> deltas = new HashMap<>();
+        
+        for (Player player : players) {
+            String playerId = player.getPlayerId();
+            Long sent = sentVersions.get(playerId);
+            if (sent != null && sent == version) {
+                continue; // Ya la tiene o está en camino
+            }
+            
+            Long acked = ackedVersions.get(playerId);
+            if (acked != null && acked == version) {
+                sentVersions.put(playerId, version);
+                continue; // Ya la aplicó
+            }
+            EncodedMessage message = null;
+            if (acked != null && acked <= version) {
+                message = deltas.containsKey(acked) ? deltas.get(acked) : encodeDelta(map, acked);
+                deltas.put(acked, message);
+            }
+            if (message == null) {
+                if (full == null) {
+                    full = encodeFull(map);
+                }
+                message = full;
+            }
+            if (terrainSent.add(playerId)) {
+                sendTerrain(player, map);
+            }
+            networkService.sendMessageToPlayer(player, message);
+            sentVersions.put(playerId, version);
+        }
+    }
+    
+    /**
+     * Envía el terreno y la ocupación completa (resincronización o reconexión).
+     */
+    void sendFull(Player player, GameMap map) {
+        terrainSent.add(player.getPlayerId());
+        sendTerrain(player, map);
+        networkService.sendMessageToPlayer(player, encodeFull(map));
+        sentVersions.put(player.getPlayerId(), map.getVersion());
+    }
+    
+    void acknowledge(String playerId, long version) {
+        ackedVersions.put(playerId, version);
+    }
+    
+    /**
+     * Olvida las versiones del jugador (se desconectó: al volver recibe la ocupación completa).
+     * El terreno no cambia: si reanuda la sesión ya lo tiene, y una resincronización lo reenvía.
+     */
+    void forget(String playerId) {
+        ackedVersions.remove(playerId);
+        sentVersions.remove(playerId);
+    }
+    
+    /**
+     * El terreno, en uno o varios mensajes (cabecera y páginas) según el tamaño del mapa.
+     */
+    private void sendTerrain(Player player, GameMap map) {
+        for (EncodedMessage message : MapDTOConverter.toTerrainMessages(map)) {
+            networkService.sendMessageToPlayer(player, message);
+        }
+    }
+    
+    /**
+     * Delta desde baseVersion, o null si el cliente quedó tan atrás que cambiaron
+     * todas las posiciones (la ocupación completa ocupa lo mismo y no depende de la base).
+     */
+    private static EncodedMessage encodeDelta(GameMap map, long baseVersion) {
+        MapDeltaDTO delta = MapDTOConverter.toDeltaDTO(map, baseVersion);
+        int changed = delta.getMovedPlayers().size() + delta.getRemovedPlayers().length;
+        if (changed >= map.getPlayerCount()) {
+            return null;
+        }
+        return EncodedMessage.of(new Message(MessageType.MAP_DELTA, "server", delta));
+    }
+    
+    private static EncodedMessage encodeFull(GameMap map) {
+        return EncodedMessage.of(new Message(MessageType.MAP_STATE, "server", MapDTOConverter.toOccupancyDTO(map)));
+    }
+}
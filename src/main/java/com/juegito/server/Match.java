@@ -0,0 +1,1014 @@
+package com.juegito.server;
+
+import com.juegito.game.ActionValidator;
+import com.juegito.game.GameState;
+import com.juegito.game.MovementExecutor;
+import com.juegito.game.character.Ability;
+import com.juegito.game.character.AbilitySystem;
+import com.juegito.game.combat.CombatSystem;
+import com.juegito.game.enemy.EnemyAI;
+import com.juegito.game.event.RandomEvent;
+import com.juegito.game.event.RandomEventSystem;
+import com.juegito.game.lobby.LobbyManager;
+import com.juegito.game.loot.LootSystem;
+import com.juegito.model.EntityRegistry;
+import com.juegito.model.HexCoordinate;
+import com.juegito.model.Player;
+import com.juegito.protocol.EncodedMessage;
+import com.juegito.protocol.MapDTOConverter;
+import com.juegito.protocol.CombatDTOConverter;
+import com.juegito.protocol.ItemDTOConverter;
+import com.juegito.protocol.EventDTOConverter;
+import com.juegito.protocol.Message;
+import com.juegito.protocol.MessageType;
+import com.juegito.protocol.binary.PlayerHandleTable;
+import com.juegito.protocol.dto.GameStateDTO;
+import com.juegito.protocol.dto.PlayerConnectDTO;
+import com.juegito.protocol.dto.PlayerActionDTO;
+import com.juegito.protocol.dto.MovementDTO;
+import com.juegito.protocol.dto.CombatResultDTO;
+import com.juegito.protocol.dto.ItemDTO;
+import com.juegito.protocol.dto.LootDistributionDTO;
+import com.juegito.protocol.dto.EventResultDTO;
+import com.juegito.protocol.dto.ReconnectResponseDTO;
+import com.juegito.protocol.dto.lobby.JoinResponseDTO;
+import com.juegito.protocol.dto.lobby.LobbyStatus;
+import com.juegito.server.transport.RateLimitPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Una partida independiente: su propio lobby, estado del juego y sistemas de gameplay.
+ * El servidor aloja muchas a la vez (ver MatchManager); el ID de la partida es el ID
+ * de su lobby.
+ * Todo lo que toca el estado de la partida (mensajes de jugadores, conexiones,
+ * desconexiones, snapshot del lobby, heartbeat) se aplica en su MatchCommandQueue,
+ * con un único escritor a la vez, así que el estado no usa locks. Los métodos públicos
+ * que vienen de otros hilos solo encolan.
+ */
+public class Match {
+    private static final Logger logger = LoggerFactory.getLogger(Match.class);
+    // Pasado este número de jugadores distintos en la partida, los IDs nuevos viajan como texto
+    private static final int MAX_PLAYER_HANDLES = 4096;
+    
+    private final String matchId;
+    private final LobbyManager lobbyManager;
+    private final NetworkService networkService;
+    private final EntityRegistry entities; // Handles de jugadores y enemigos, compartidos por los sistemas
+    private final GameState gameState;
+    private final ActionValidator actionValidator;
+    private final Map<String, ClientHandler> clientHandlers;
+    private final Map<String, Player> players; // Networking layer
+    private final Map<String, Player> disconnectedPlayers; // Sesiones de partida esperando reconexión
+    private final ScheduledExecutorService scheduler;
+    private final Consumer<Match> closeListener;
+    private final Consumer<ClientHandler> orphanListener;
+    private final MatchCommandQueue commands;
+    private final MapSync mapSync;
+    private final HeartbeatSync heartbeatSync;
+    // Lugares ocupados: se reserva al asignar, antes de que el comando de alta se aplique
+    private final AtomicInteger seats;
+    private final int minPlayers;
+    private final RateLimitPolicy rateLimits;
+    private final long reconnectWindowMs;
+    private final PlayerHandleTable playerHandles; // Compartida por las conexiones de la partida
+    
+    // FASE 4 - Sistemas de gameplay (inicializados cuando el mapa esté listo)
+    private CombatSystem combatSystem;
+    private final AbilitySystem abilitySystem;
+    private EnemyAI enemyAI;
+    private RandomEventSystem randomEventSystem;
+    private final LootSystem lootSystem;
+    
+    private ScheduledFuture<?> heartbeatTask;
+    private int heartbeatGeneration; // Solo el heartbeat programado más reciente se aplica
+    private volatile boolean gameStarted;
+    private volatile boolean closed;
+    
+    /**
+     * @param scheduler Pool de workers compartido entre partidas
+     * @param rateLimits Límites de tasa de los mensajes de los jugadores de esta partida
+     * @param reconnectWindowMs Cuánto se conserva la sesión de un jugador desconectado en partida
+     * @param closeListener Se invoca una vez cuando la partida se cierra
+     * @param orphanListener Recibe a quienes quedan en el lobby si el host lo cierra
+     */
+    public Match(ScheduledExecutorService scheduler, int minPlayers, RateLimitPolicy rateLimits,
+                 long reconnectWindowMs, Consumer<Match> closeListener, Consumer<ClientHandler> orphanListener) {
+        this.scheduler = scheduler;
+        this.minPlayers = minPlayers;
+        this.rateLimits = rateLimits;
+        this.reconnectWindowMs = reconnectWindowMs;
+        this.playerHandles = PlayerHandleTable.assigning(MAX_PLAYER_HANDLES);
+        this.closeListener = closeListener;
+        this.orphanListener = orphanListener;
+        
+        this.clientHandlers = new ConcurrentHashMap<>();
+        this.players = new ConcurrentHashMap<>();
+        this.disconnectedPlayers = new ConcurrentHashMap<>();
+        this.networkService = new NetworkService(players, clientHandlers);
+        this.commands = new MatchCommandQueue(scheduler, networkService::flush);
+        this.mapSync = new MapSync(networkService);
+        this.heartbeatSync = new HeartbeatSync(networkService);
+        this.seats = new AtomicInteger();
+        
+        // El primer jugador que entra será el host
+        this.lobbyManager = new LobbyManager(networkService::sendMessageToPlayer, scheduler,
+            command -> execute("LOBBY_SYNC", command), this::startGame);
+        this.matchId = lobbyManager.getLobbyState().getLobbyId();
+        
+        this.entities = new EntityRegistry();
+        this.gameState = new GameState(entities);
+        this.actionValidator = new ActionValidator(gameState);
+        
+        // FASE 4 - Sistemas se inicializarán cuando el mapa esté disponible
+        this.combatSystem = null;
+        this.abilitySystem = new AbilitySystem(entities);
+        this.enemyAI = null;
+        this.randomEventSystem = null;
+        this.lootSystem = new LootSystem();
+        
+        this.gameStarted = false;
+        this.closed = false;
+    }
+    
+    /**
+     * Inicia el broadcast periódico del lobby.
+     */
+    public void start() {
+        lobbyManager.start();
+    }
+    
+    /**
+     * Encola un comando en la partida (mensajes de un jugador ya decodificados).
+     * @param action Nombre de la acción para las estadísticas de salida (OutboundStats)
+     */
+    public void execute(String action, Runnable command) {
+        commands.execute(() -> {
+            networkService.beginCommand(action);
+            command.run();
+        });
+    }
+    
+    /**
+     * Una partida admite jugadores nuevos mientras su lobby espera y tiene lugar.
+     * Cubre todo lo que applyAddPlayer rechaza, así un jugador rechazado no vuelve a caer acá.
+     */
+    public boolean isOpen() {
+        return !closed && !gameStarted && lobbyManager.isRunning()
+            && lobbyManager.getStatus() == LobbyStatus.WAITING && !lobbyManager.isFull()
+            && seats.get() < lobbyManager.getMaxPlayers();
+    }
+    
+    /**
+     * Agrega un jugador recién conectado (o transferido) al lobby de la partida.
+     * El lugar se reserva ya; el alta se aplica en la cola, antes que sus mensajes.
+     *
+     * @param confirmJoin Si el jugador pidió este lobby: recibe JOIN_RESPONSE cuando el alta se aplica o se rechaza
+     */
+    void addPlayer(Player player, ClientHandler handler, boolean confirmJoin) {
+        seats.incrementAndGet();
+        handler.setMatch(this);
+        execute("JOIN", () -> applyAddPlayer(player, handler, confirmJoin));
+    }
+    
+    private void applyAddPlayer(Player player, ClientHandler handler, boolean confirmJoin) {
+        // Entre la reserva y el alta la partida pudo empezar o cerrarse
+        if (closed || gameStarted || lobbyManager.getStatus() != LobbyStatus.WAITING || lobbyManager.isFull()) {
+            seats.decrementAndGet();
+            if (confirmJoin) {
+                networkService.sendMessageToPlayer(player, new Message(MessageType.JOIN_RESPONSE, "server",
+                    JoinResponseDTO.failure("Lobby no disponible")));
+            }
+            orphanListener.accept(handler);
+            return;
+        }
+        
+        if (confirmJoin) {
+            networkService.sendMessageToPlayer(player, new Message(MessageType.JOIN_RESPONSE, "server",
+                JoinResponseDTO.success(player.getPlayerId())));
+        }
+        players.put(player.getPlayerId(), player);
+        clientHandlers.put(player.getPlayerId(), handler);
+        
+        lobbyManager.autoAddPlayer(player.getPlayerId(), player.getPlayerName(), player.getRemoteAddress());
+        notifyPlayerConnected(player);
+        
+        logger.info("Player {} ({}) joined match {}", player.getPlayerName(), player.getPlayerId(), matchId);
+    }
+    
+    /**
+     * Saca del lobby a un jugador que se va a otra partida (sin cerrar su conexión).
+     */
+    void removePlayer(String playerId) {
+        execute("LEAVE", () -> {
+            if (players.remove(playerId) != null) {
+                seats.decrementAndGet();
+            }
+            clientHandlers.remove(playerId);
+            // Se fue a otra partida: su sesión ya no se va a reanudar
+            disconnectedPlayers.remove(playerId);
+            networkService.endSession(playerId);
+            lobbyManager.handleLeaveRequest(playerId);
+            closeIfAbandoned();
+        });
+    }
+    
+    boolean hasDisconnectedPlayer(String playerId) {
+        return disconnectedPlayers.containsKey(playerId);
+    }
+    
+    private void notifyPlayerConnected(Player player) {
+        PlayerConnectDTO dto = new PlayerConnectDTO(player.getPlayerName(), player.getPlayerId());
+        Message message = new Message(MessageType.PLAYER_CONNECT, "server", dto);
+        networkService.sendMessageToPlayer(player, message);
+    }
+    
+    /**
+     * Inicia el juego cuando se cumplen las condiciones.
+     */
+    private void startGame() {
+        if (gameStarted || closed) {
+            return;
+        }
+        
+        gameStarted = true;
+        List<Player> playerList = new ArrayList<>(players.values());
+        gameState.initializeGame(playerList);
+        
+        // FASE 4 - Inicializar sistemas que requieren el mapa
+        if (gameState.getGameMap() != null) {
+            this.combatSystem = new CombatSystem(gameState.getGameMap());
+            this.enemyAI = new EnemyAI(gameState.getGameMap());
+            this.randomEventSystem = new RandomEventSystem(gameState.getGameMap(), lootSystem);
+            logger.info("FASE 4 systems initialized with game map");
+        }
+        
+        logger.info("Starting game in match {} with {} players", matchId, playerList.size());
+        
+        // Desde START_GAME se numera lo que recibe cada jugador (reconexión con reenvío)
+        for (Player player : playerList) {
+            networkService.startSession(player);
+        }
+        
+        Message startMessage = new Message(MessageType.START_GAME, "server", null);
+        networkService.broadcastMessage(startMessage);
+        
+        broadcastGameState();
+        notifyTurnStart();
+        
+        // Iniciar heartbeat periódico del juego
+        startGameHeartbeat();
+    }
+    
+    /**
+     * Inicia el heartbeat del estado del juego (ver HeartbeatSync).
+     */
+    private void startGameHeartbeat() {
+        scheduleGameHeartbeat(HeartbeatSync.BASE_INTERVAL_MS);
+        logger.info("Game heartbeat started - broadcasting every {}-{}ms",
+            HeartbeatSync.BASE_INTERVAL_MS, HeartbeatSync.MAX_INTERVAL_MS);
+    }
+    
+    /**
+     * Programa el próximo heartbeat. El intervalo varía (backoff), así que cada
+     * heartbeat programa al siguiente en lugar de usar una tasa fija.
+     */
+    private void scheduleGameHeartbeat(long delayMs) {
+        int generation = ++heartbeatGeneration;
+        heartbeatTask = scheduler.schedule(
+            () -> execute("GAME_HEARTBEAT", () -> broadcastGameHeartbeat(generation)),
+            delayMs,
+            TimeUnit.MILLISECONDS
+        );
+    }
+    
+    /**
+     * Envía el heartbeat con la versión del estado y lo que cambió, y programa el siguiente.
+     * DRY: Método centralizado para enviar información periódica.
+     */
+    private void broadcastGameHeartbeat(int generation) {
+        if (!gameStarted || closed || generation != heartbeatGeneration) {
+            return;
+        }
+        
+        long nextDelayMs = heartbeatSync.broadcast(gameState);
+        scheduleGameHeartbeat(nextDelayMs);
+        
+        logger.trace("Game heartbeat sent - Version: {}, next in {}ms", gameState.getStateVersion(), nextDelayMs);
+    }
+    
+    /**
+     * Si el heartbeat estaba espaciado por inactividad, lo vuelve al intervalo base
+     * para que los cambios recientes no esperen el intervalo largo.
+     */
+    private void resetGameHeartbeatBackoff() {
+        if (heartbeatTask != null && heartbeatSync.isBackedOff()) {
+            heartbeatTask.cancel(false);
+            heartbeatSync.resetBackoff();
+            scheduleGameHeartbeat(HeartbeatSync.BASE_INTERVAL_MS);
+        }
+    }
+    
+    /**
+     * Transmite el estado del juego a todos los jugadores.
+     */
+    private void broadcastGameState() {
+        GameStateDTO stateDTO = gameState.toDTO();
+        Message message = new Message(MessageType.GAME_STATE, "server", stateDTO);
+        networkService.broadcastMessage(message);
+        resetGameHeartbeatBackoff();
+        
+        // También enviar el estado del mapa
+        broadcastMapState();
+    }
+    
+    /**
+     * Transmite el estado del mapa a todos los jugadores: a cada uno solo lo que
+     * cambió desde la última versión que confirmó.
+     */
+    private void broadcastMapState() {
+        if (gameState.getGameMap() != null) {
+            mapSync.sync(players.values(), gameState.getGameMap());
+        }
+    }
+    
+    /**
+     * Registra la última versión del mapa que aplicó un cliente (MAP_ACK).
+     */
+    public void handleMapAck(String playerId, long version) {
+        if (players.containsKey(playerId)) {
+            mapSync.acknowledge(playerId, version);
+        }
+    }
+    
+    /**
+     * Libera del buffer de reenvío lo que el cliente ya procesó (SESSION_ACK).
+     */
+    public void handleSessionAck(String playerId, long sequence) {
+        if (players.containsKey(playerId)) {
+            networkService.acknowledgeSession(playerId, sequence);
+        }
+    }
+    
+    private void notifyTurnStart() {
+        String currentPlayerId = gameState.getCurrentTurnPlayerId();
+        if (currentPlayerId != null) {
+            Player player = players.get(currentPlayerId);
+            if (player != null) {
+                Message turnStart = new Message(MessageType.TURN_START, "server",
+                    Map.of("turnNumber", gameState.getTurnNumber()));
+                networkService.sendMessageToPlayer(player, turnStart);
+                
+                logger.debug("Turn started for player {}", currentPlayerId);
+            }
+        }
+    }
+    
+    /**
+     * Maneja una acción recibida de un jugador. Se aplica en la cola de comandos.
+     */
+    public void handlePlayerAction(String playerId, PlayerActionDTO action) {
+        // Manejar movimiento si es de ese tipo
+        if ("MOVE".equals(action.getActionType())) {
+            handleMovementAction(playerId, action);
+            return;
+        }
+        
+        // Manejar ataque
+        if ("ATTACK".equals(action.getActionType())) {
+            handleAttackAction(playerId, action);
+            return;
+        }
+        
+        // Manejar uso de habilidad
+        if ("USE_ABILITY".equals(action.getActionType())) {
+            handleAbilityAction(playerId, action);
+            return;
+        }
+        
+        // Otras acciones
+        ActionValidator.ValidationResult result = actionValidator.validate(playerId, action);
+        
+        if (result.isValid()) {
+            processValidAction(playerId, action);
+        } else {
+            notifyInvalidAction(playerId, result.getReason());
+        }
+    }
+    
+    /**
+     * Maneja una acción de movimiento.
+     */
+    private void handleMovementAction(String playerId, PlayerActionDTO action) {
+        Object rawActionData = action.getActionData();
+        if (!(rawActionData instanceof Map)) {
+            notifyInvalidAction(playerId, "Datos de movimiento inválidos");
+            return;
+        }
+        
+        @SuppressWarnings("unchecked")
+        Map<String, Object> actionData = (Map<String, Object>) rawActionData;
+        if (actionData == null) {
+            notifyInvalidAction(playerId, "Datos de movimiento faltantes");
+            return;
+        }
+        
+        // Extraer coordenadas de destino
+        Object qObj = actionData.get("q");
+        Object rObj = actionData.get("r");
+        
+        if (qObj == null || rObj == null) {
+            notifyInvalidAction(playerId, "Coordenadas de destino inválidas");
+            return;
+        }
+        
+        int q = ((Number) qObj).intValue();
+        int r = ((Number) rObj).intValue();
+        HexCoordinate destination = HexCoordinate.of(q, r);
+        
+        // Ejecutar movimiento
+        MovementExecutor.MovementResult result =
+            gameState.executePlayerMovement(playerId, destination);
+        
+        if (result.isSuccess()) {
+            // Notificar resultado al jugador
+            MovementDTO movementDTO = MapDTOConverter.toDTO(playerId, result);
+            Message message = new Message(MessageType.MOVEMENT_RESULT, "server", movementDTO);
+            Player player = players.get(playerId);
+            if (player != null) {
+                networkService.sendMessageToPlayer(player, message);
+            }
+            
+            // Avanzar turno
+            gameState.advanceTurn();
+            broadcastGameState();
+            notifyTurnStart();
+        } else {
+            notifyInvalidAction(playerId, result.getMessage());
+        }
+    }
+    
+    /**
+     * Maneja una acción de ataque (FASE 4).
+     */
+    private void handleAttackAction(String playerId, PlayerActionDTO action) {
+        if (combatSystem == null) {
+            notifyInvalidAction(playerId, "Sistema de combate no inicializado");
+            return;
+        }
+        
+        Object rawActionData = action.getActionData();
+        if (!(rawActionData instanceof Map)) {
+            notifyInvalidAction(playerId, "Datos de ataque inválidos");
+            return;
+        }
+        
+        @SuppressWarnings("unchecked")
+        Map<String, Object> actionData = (Map<String, Object>) rawActionData;
+        
+        String targetId = (String) actionData.get("targetId");
+        String attackType = (String) actionData.get("attackType");
+        
+        if (targetId == null || attackType == null) {
+            notifyInvalidAction(playerId, "Datos de ataque incompletos");
+            return;
+        }
+        
+        // Obtener baseDamage del jugador según su clase
+        String playerClassStr = gameState.getPlayerClass(playerId);
+        com.juegito.game.character.PlayerClass playerClass =
+            com.juegito.game.character.PlayerClass.fromString(playerClassStr);
+        int baseDamage = playerClass != null ? playerClass.getBaseDamage() : 15;
+        
+        // Ejecutar ataque
+        CombatSystem.CombatResult result = combatSystem.resolveAttack(
+            playerId,
+            targetId,
+            CombatSystem.AttackType.valueOf(attackType),
+            baseDamage
+        );
+        
+        if (result != null && result.isValid()) {
+            // Aplicar daño al objetivo en GameState
+            boolean targetDied = gameState.applyDamage(targetId, result.getDamage());
+            
+            // Broadcast resultado de combate
+            CombatResultDTO resultDTO = CombatDTOConverter.toDTO(result);
+            Message message = new Message(MessageType.COMBAT_RESULT, "server", resultDTO);
+            networkService.broadcastMessage(message);
+            
+            // Si el objetivo murió, notificar a todos los clientes
+            if (targetDied) {
+                Map<String, Object> deathEvent = new HashMap<>();
+                deathEvent.put("playerId", targetId);
+                deathEvent.put("killerId", playerId);
+                deathEvent.put("message", "Player " + targetId + " has been defeated!");
+                Message deathMessage = new Message(MessageType.PLAYER_DIED, "server", deathEvent);
+                networkService.broadcastMessage(deathMessage);
+                logger.info("Player {} killed by {}", targetId, playerId);
+            }
+            
+            // Avanzar turno
+            gameState.advanceTurn();
+            broadcastGameState();
+            notifyTurnStart();
+        } else {
+            notifyInvalidAction(playerId, "Ataque inválido");
+        }
+    }
+    
+    /**
+     * Maneja una acción de uso de habilidad (FASE 4).
+     */
+    private void handleAbilityAction(String playerId, PlayerActionDTO action) {
+        Object rawActionData = action.getActionData();
+        if (!(rawActionData instanceof Map)) {
+            notifyInvalidAction(playerId, "Datos de habilidad inválidos");
+            return;
+        }
+        
+        @SuppressWarnings("unchecked")
+        Map<String, Object> actionData = (Map<String, Object>) rawActionData;
+        
+        String abilityId = (String) actionData.get("abilityId");
+        if (abilityId == null) {
+            notifyInvalidAction(playerId, "ID de habilidad faltante");
+            return;
+        }
+        
+        // Verificar cooldown
+        if (!abilitySystem.isAbilityAvailable(playerId, abilityId)) {
+            int remaining = abilitySystem.getRemainingCooldown(playerId, abilityId);
+            notifyInvalidAction(playerId, "Habilidad en cooldown (" + remaining + " turnos)");
+            return;
+        }
+        
+        // Usar habilidad
+        String playerClassStr = gameState.getPlayerClass(playerId);
+        com.juegito.game.character.PlayerClass playerClass =
+            com.juegito.game.character.PlayerClass.fromString(playerClassStr);
+        boolean success = abilitySystem.useAbility(playerId, abilityId, playerClass);
+        
+        if (success) {
+            // Notificar uso de habilidad
+            Message message = new Message(MessageType.ABILITY_RESULT, "server",
+                Map.of("playerId", playerId, "abilityId", abilityId, "success", true));
+            networkService.broadcastMessage(message);
+            
+            // Actualizar cooldowns
+            broadcastAbilityCooldowns(playerId);
+            
+            // Avanzar turno
+            gameState.advanceTurn();
+            broadcastGameState();
+            notifyTurnStart();
+            
+            logger.info("Player {} used ability {}", playerId, abilityId);
+        } else {
+            notifyInvalidAction(playerId, "No se pudo usar la habilidad");
+        }
+    }
+    
+    /**
+     * Maneja interacción con evento aleatorio (FASE 4). Se aplica en la cola de comandos.
+     */
+    public void handleEventInteraction(String playerId, String eventId, int optionIndex) {
+        if (randomEventSystem == null) {
+            notifyInvalidAction(playerId, "Sistema de eventos no inicializado");
+            return;
+        }
+        
+        RandomEvent event = randomEventSystem.getActiveEvent(eventId);
+        if (event == null) {
+            notifyInvalidAction(playerId, "Evento no encontrado");
+            return;
+        }
+        
+        // Resolver evento
+        RandomEventSystem.EventResult result = randomEventSystem.resolveEvent(
+            eventId, optionIndex
+        );
+        
+        if (result != null) {
+            // Broadcast resultado
+            EventResultDTO resultDTO = EventDTOConverter.toDTO(result, eventId);
+            Message message = new Message(MessageType.EVENT_RESULT, "server", resultDTO);
+            networkService.broadcastMessage(message);
+            
+            // Distribuir loot si hay
+            if (!result.getItems().isEmpty()) {
+                distributeLootToPlayer(playerId, result.getItems(), "Evento: " + event.getTitle());
+            }
+            
+            // Remover evento activo
+            randomEventSystem.removeActiveEvent(eventId);
+            
+            logger.info("Player {} resolved event {} - Success: {}",
+                playerId, eventId, result.isSuccess());
+        }
+    }
+    
+    /**
+     * Broadcast de cooldowns de habilidades de un jugador.
+     */
+    private void broadcastAbilityCooldowns(String playerId) {
+        // Obtener clase del jugador
+        String playerClassStr = gameState.getPlayerClass(playerId);
+        com.juegito.game.character.PlayerClass playerClass =
+            com.juegito.game.character.PlayerClass.fromString(playerClassStr);
+        
+        // Obtener habilidades de la clase
+        List<Ability> classAbilities = abilitySystem.getAbilitiesForClass(playerClass);
+        
+        // Crear mapa con habilidad -> cooldowns
+        Map<String, Map<String, Object>> abilitiesData = new HashMap<>();
+        for (Ability ability : classAbilities) {
+            Map<String, Object> abilityInfo = new HashMap<>();
+            abilityInfo.put("name", ability.getName());
+            abilityInfo.put("baseCooldown", ability.getCooldownTurns());
+            abilityInfo.put("remainingCooldown", abilitySystem.getRemainingCooldown(playerId, ability.getId()));
+            abilitiesData.put(ability.getId(), abilityInfo);
+        }
+        
+        Message message = new Message(MessageType.ABILITY_COOLDOWN_UPDATE, "server",
+            Map.of("playerId", playerId, "abilities", abilitiesData));
+        networkService.broadcastMessage(message);
+    }
+    
+    /**
+     * Distribuir loot a un jugador específico.
+     */
+    private void distributeLootToPlayer(String playerId, List<com.juegito.game.loot.Item> items, String source) {
+        Map<String, List<ItemDTO>> distribution = new HashMap<>();
+        distribution.put(playerId, ItemDTOConverter.toDTOList(items));
+        
+        LootDistributionDTO dto = new LootDistributionDTO(distribution, source);
+        Message message = new Message(MessageType.LOOT_DISTRIBUTION, "server", dto);
+        networkService.broadcastMessage(message);
+        
+        logger.info("Distributed {} items to player {} from {}", items.size(), playerId, source);
+    }
+    
+    private void processValidAction(String playerId, PlayerActionDTO action) {
+        logger.info("Processing action {} from player {}", action.getActionType(), playerId);
+        
+        // Registrar que este jugador actuó (count check)
+        boolean allActed = gameState.registerPlayerAction(playerId);
+        
+        // Notificar que la acción es válida
+        Player player = players.get(playerId);
+        if (player != null) {
+            Message validMsg = new Message(MessageType.ACTION_VALID, "server", action);
+            networkService.sendMessageToPlayer(player, validMsg);
+        }
+        
+        // Aquí se procesaría la lógica específica de cada acción
+        // Por ahora, simplemente broadcast de la acción
+        
+        Message turnEnd = new Message(MessageType.TURN_END, "server",
+            Map.of("playerId", playerId, "action", action));
+        networkService.broadcastMessage(turnEnd);
+        
+        // Si todos actuaron, avanzar el turno automáticamente (count check)
+        if (allActed) {
+            logger.info("Count check completo - todos actuaron, avanzando turno");
+            gameState.advanceTurn();
+            broadcastGameState();
+            notifyTurnStart();
+        }
+    }
+    
+    private void notifyInvalidAction(String playerId, String reason) {
+        Player player = players.get(playerId);
+        if (player != null) {
+            Message invalidMsg = new Message(MessageType.ACTION_INVALID, "server",
+                Map.of("reason", reason));
+            networkService.sendMessageToPlayer(player, invalidMsg);
+            
+            logger.debug("Invalid action from {}: {}", playerId, reason);
+        }
+    }
+    
+    /**
+     * Maneja la desconexión de un jugador (se encola desde el hilo de la conexión).
+     */
+    public void handlePlayerDisconnect(String playerId) {
+        execute("DISCONNECT", () -> applyDisconnect(playerId));
+    }
+    
+    private void applyDisconnect(String playerId) {
+        Player player = players.get(playerId);
+        if (player == null) {
+            return;
+        }
+        
+        logger.info("Handling disconnect for player {}", playerId);
+        
+        ClientHandler handler = clientHandlers.remove(playerId);
+        if (handler != null) {
+            handler.stop();
+        }
+        
+        player.disconnect();
+        players.remove(playerId);
+        mapSync.forget(playerId);
+        seats.decrementAndGet();
+        
+        // En partida la sesión se conserva para que el jugador pueda reconectarse
+        if (gameStarted) {
+            disconnectedPlayers.put(playerId, player);
+            networkService.suspendSession(playerId);
+            scheduler.schedule(() -> execute("RECONNECT_EXPIRED", () -> expireSession(player)),
+                reconnectWindowMs, TimeUnit.MILLISECONDS);
+        }
+        
+        // Notificar al lobby manager
+        lobbyManager.handlePlayerDisconnected(playerId);
+        
+        if (gameStarted) {
+            handleDisconnectDuringGame(playerId);
+        }
+        closeIfAbandoned();
+    }
+    
+    private void handleDisconnectDuringGame(String playerId) {
+        // Si el juego está en curso, notificar a todos
+        Message disconnectMsg = new Message(MessageType.PLAYER_DISCONNECT, "server",
+            Map.of("playerId", playerId));
+        networkService.broadcastMessage(disconnectMsg);
+        
+        // Si era el turno del jugador desconectado, avanzar
+        if (playerId.equals(gameState.getCurrentTurnPlayerId())) {
+            gameState.advanceTurn();
+            broadcastGameState();
+            notifyTurnStart();
+        }
+        
+        // Si no quedan suficientes jugadores, terminar el juego
+        if (lobbyManager.getPlayerCount() < minPlayers) {
+            logger.warn("Not enough players, ending game");
+            gameState.setGameActive(false);
+            broadcastGameState();
+        }
+    }
+    
+    /**
+     * Envía resincronización completa a un jugador. Se aplica en la cola de comandos.
+     * KISS: Envía todo el estado necesario en un solo mensaje.
+     */
+    public void sendFullResync(String playerId) {
+        Player player = players.get(playerId);
+        if (player == null) {
+            logger.warn("Cannot send resync to unknown player: {}", playerId);
+            return;
+        }
+        
+        logger.info("Sending full resync to player {}", playerId);
+        
+        // Enviar estado del juego
+        GameStateDTO stateDTO = gameState.toDTO();
+        Message gameStateMsg = new Message(MessageType.FULL_RESYNC, "server", stateDTO);
+        networkService.sendMessageToPlayer(player, gameStateMsg);
+        
+        // Enviar estado del mapa
+        if (gameState.getGameMap() != null) {
+            mapSync.sendFull(player, gameState.getGameMap());
+        }
+        
+        // Enviar turno y HP con la versión actual, base de los próximos heartbeats
+        heartbeatSync.sendFull(player, gameState);
+        
+        // Enviar turno actual
+        Message turnMsg = new Message(MessageType.TURN_START, "server",
+            Map.of("turnNumber", gameState.getTurnNumber()));
+        networkService.sendMessageToPlayer(player, turnMsg);
+        
+        logger.info("Full resync sent to player {}", playerId);
+    }
+    
+    /**
+     * Responde a REQUEST_STATE_SYNC de un jugador cuya copia no coincide: en partida,
+     * solo el heartbeat completo; en el lobby, el snapshot. Se aplica en la cola de comandos.
+     */
+    public void sendStateSync(String playerId) {
+        Player player = players.get(playerId);
+        if (player == null) {
+            return;
+        }
+        if (gameStarted) {
+            heartbeatSync.sendFull(player, gameState);
+        } else {
+            lobbyManager.sendSnapshot(playerId);
+        }
+        logger.debug("State sync sent to player {}", playerId);
+    }
+    
+    /**
+     * Vence la sesión de un jugador que no volvió dentro de la ventana de reconexión.
+     * Si entretanto se reconectó (y quizá se volvió a cortar) la entrada es otra y no se toca.
+     */
+    private void expireSession(Player player) {
+        String playerId = player.getPlayerId();
+        if (closed || !disconnectedPlayers.remove(playerId, player)) {
+            return;
+        }
+        networkService.endSession(playerId);
+        logger.info("Session of {} expired after {} ms without reconnecting", playerId, reconnectWindowMs);
+        closeIfAbandoned();
+    }
+    
+    /**
+     * Encola la reconexión de un jugador a su sesión en esta partida.
+     * Responde RECONNECT_ACCEPTED seguido de lo que el jugador se perdió desde lastSequence
+     * o, si eso ya no está en el buffer, de una resincronización completa. Si la sesión
+     * no existe responde RECONNECT_REJECTED y la conexión vuelve a repartirse como una nueva.
+     */
+    void reconnect(String playerId, long lastSequence, ClientHandler handler) {
+        handler.setMatch(this);
+        execute("RECONNECT", () -> {
+            if (!handleReconnect(playerId, lastSequence, handler)) {
+                handler.sendMessage(new Message(MessageType.RECONNECT_REJECTED, "server",
+                    ReconnectResponseDTO.rejected("Game no longer active")));
+                orphanListener.accept(handler);
+            }
+        });
+    }
+    
+    /**
+     * Si la sesión sigue disponible, la asocia a la conexión del handler y la pone al día.
+     * Retorna true si se acepta la reconexión.
+     */
+    private boolean handleReconnect(String playerId, long lastSequence, ClientHandler handler) {
+        // Validar que el jugador existe y el juego está activo
+        if (!gameStarted || closed) {
+            logger.warn("Reconnect rejected for {}: game not active", playerId);
+            return false;
+        }
+        
+        Player previous = disconnectedPlayers.remove(playerId);
+        if (previous == null) {
+            logger.warn("Reconnect rejected for {}: unknown player", playerId);
+            return false;
+        }
+        
+        Player player = new Player(playerId, previous.getPlayerName(), handler.getPlayer().getConnection());
+        handler.rebind(player);
+        boolean resumed = resumeSession(player, lastSequence);
+        players.put(playerId, player);
+        clientHandlers.put(playerId, handler);
+        seats.incrementAndGet();
+        lobbyManager.handlePlayerReconnected(playerId);
+        
+        // La conexión pudo recibir un ID provisorio al entrar: se le confirma el original
+        notifyPlayerConnected(player);
+        
+        if (!resumed) {
+            sendFullResync(playerId);
+        } else if (gameState.getGameMap() != null) {
+            // El mapa se sincroniza por jugador (no queda en el buffer): ocupación actual, el terreno ya lo tiene
+            mapSync.sync(Collections.singletonList(player), gameState.getGameMap());
+        }
+        
+        logger.info("Reconnect accepted for player {} ({})", playerId, resumed ? "resumed" : "full resync");
+        return true;
+    }
+    
+    /**
+     * Envía RECONNECT_ACCEPTED y, si el buffer de la sesión aún cubre lastSequence,
+     * los mensajes perdidos tal como se numeraron. Va directo a la conexión, antes que
+     * lo que el comando deje pendiente, que el cliente ya cuenta a continuación.
+     * Retorna false si hace falta una resincronización completa.
+     */
+    private boolean resumeSession(Player player, long lastSequence) {
+        List<EncodedMessage> missed = networkService.resumeSession(player, lastSequence);
+        boolean resumed = missed != null;
+        long sequence = resumed ? lastSequence : networkService.getSessionSequence(player.getPlayerId());
+        
+        List<EncodedMessage> batch = new ArrayList<>();
+        batch.add(EncodedMessage.of(new Message(MessageType.RECONNECT_ACCEPTED, "server",
+            ReconnectResponseDTO.accepted(resumed, sequence))));
+        if (resumed) {
+            batch.addAll(missed);
+            logger.info("Resuming session of {} from sequence {}: {} messages replayed",
+                player.getPlayerId(), lastSequence, missed.size());
+        }
+        player.sendBatch(batch);
+        return resumed;
+    }
+    
+    /**
+     * Cierra la partida si ya no puede continuar: el lobby se cerró antes de empezar
+     * (se fue el host) o no queda ningún jugador conectado ni sesión esperando reconexión.
+     * Si todos se cortaron a la vez la partida sigue abierta hasta que vuelva alguno o
+     * venza la última sesión.
+     */
+    private void closeIfAbandoned() {
+        if (players.isEmpty()) {
+            if (disconnectedPlayers.isEmpty()) {
+                closeNow();
+            }
+        } else if (!gameStarted && !lobbyManager.isRunning()) {
+            dissolve();
+        }
+    }
+    
+    /**
+     * El host cerró el lobby antes de empezar: en lugar de cortar la conexión
+     * de los demás, se los entrega al MatchManager para ubicarlos en otra partida.
+     */
+    private void dissolve() {
+        if (!markClosed()) {
+            return;
+        }
+        
+        List<ClientHandler> orphans = new ArrayList<>(clientHandlers.values());
+        clientHandlers.clear();
+        players.clear();
+        seats.set(0);
+        
+        logger.info("Match {} dissolved - reassigning {} players", matchId, orphans.size());
+        closeListener.accept(this);
+        for (ClientHandler handler : orphans) {
+            orphanListener.accept(handler);
+        }
+    }
+    
+    /**
+     * Cierra la partida: detiene sus tareas periódicas y desconecta a quienes queden.
+     */
+    public void close() {
+        execute("CLOSE", this::closeNow);
+    }
+    
+    private void closeNow() {
+        if (!markClosed()) {
+            return;
+        }
+        
+        for (ClientHandler handler : clientHandlers.values()) {
+            handler.stop();
+        }
+        for (Player player : players.values()) {
+            player.disconnect();
+        }
+        
+        logger.info("Match {} closed - {} commands applied in {} batches",
+            matchId, commands.getCommandsApplied(), commands.getBatches());
+        closeListener.accept(this);
+    }
+    
+    /**
+     * Marca la partida como cerrada y detiene sus tareas periódicas.
+     * Retorna false si ya estaba cerrada.
+     */
+    private boolean markClosed() {
+        if (closed) {
+            return false;
+        }
+        closed = true;
+        
+        if (heartbeatTask != null) {
+            heartbeatTask.cancel(false);
+        }
+        if (lobbyManager.isRunning()) {
+            lobbyManager.stop();
+        }
+        return true;
+    }
+    
+    public String getMatchId() {
+        return matchId;
+    }
+    
+    public RateLimitPolicy getRateLimits() {
+        return rateLimits;
+    }
+    
+    public PlayerHandleTable getPlayerHandles() {
+        return playerHandles;
+    }
+    
+    /**
+     * Obtiene el LobbyManager de la partida.
+     */
+    public LobbyManager getLobbyManager() {
+        return lobbyManager;
+    }
+    
+    public int getPlayerCount() {
+        return seats.get();
+    }
+    
+    public boolean isGameStarted() {
+        return gameStarted;
+    }
+    
+    public boolean isClosed() {
+        return closed;
+    }
+}
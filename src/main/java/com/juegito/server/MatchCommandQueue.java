@@ -0,0 +1,100 @@
+package com.juegito.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cola de comandos de una partida con un único escritor.
+ * Los hilos de red y los timers solo encolan; un worker del pool compartido drena la cola
+ * en lotes, aplicando los comandos en orden de llegada, y al terminar cada lote vacía la
+ * salida. Nunca hay dos workers drenando la misma partida, así que su estado no necesita
+ * locks y el orden de aplicación es determinista. Muchas partidas comparten el pool sin
+ * competir entre sí.
+ */
+public class MatchCommandQueue implements Executor {
+    private static final Logger logger = LoggerFactory.getLogger(MatchCommandQueue.class);
+    private static final int MAX_BATCH = 64; // Tras un lote se cede el worker a otras partidas
+    
+    private final Executor workers;
+    private final Runnable afterBatch;
+    private final ConcurrentLinkedQueue<Runnable> pending;
+    private final AtomicBoolean draining;
+    private final AtomicLong commandsApplied;
+    private final AtomicLong batches;
+    
+    /**
+     * @param workers Pool compartido entre partidas
+     * @param afterBatch Se ejecuta al final de cada lote (vacía los mensajes salientes)
+     */
+    public MatchCommandQueue(Executor workers, Runnable afterBatch) {
+        this.workers = workers;
+        this.afterBatch = afterBatch;
+        this.pending = new ConcurrentLinkedQueue<>();
+        this.draining = new AtomicBoolean(false);
+        this.commandsApplied = new AtomicLong();
+        this.batches = new AtomicLong();
+    }
+    
+    /**
+     * Encola un comando. Se aplica después de todos los encolados antes.
+     */
+    @Override
+    public void execute(Runnable command) {
+        pending.offer(command);
+        scheduleDrain();
+    }
+    
+    private void scheduleDrain() {
+        if (!draining.compareAndSet(false, true)) {
+            return; // Ya hay un worker drenando: tomará este comando
+        }
+        try {
+            workers.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            draining.set(false);
+            logger.debug("Dropped {} match commands - workers stopped", pending.size());
+        }
+    }
+    
+    private void drain() {
+        try {
+            int applied = 0;
+            Runnable command;
+            while (applied < MAX_BATCH && (command = pending.poll()) != null) {
+                try {
+                    command.run();
+                } catch (RuntimeException e) {
+                    logger.error("Match command failed: {}", e.getMessage(), e);
+                }
+                applied++;
+            }
+            commandsApplied.addAndGet(applied);
+            batches.incrementAndGet();
+            
+            afterBatch.run();
+        } catch (RuntimeException e) {
+            logger.error("Error flushing match output: {}", e.getMessage(), e);
+        } finally {
+            draining.set(false);
+        }
+        
+        // Comandos que llegaron durante el lote (o que superaron MAX_BATCH)
+        if (!pending.isEmpty()) {
+            scheduleDrain();
+        }
+    }
+    
+    public long getCommandsApplied() {
+        return commandsApplied.get();
+    }
+    
+    public long getBatches() {
+        return batches.get();
+    }
+}
@@ -0,0 +1,237 @@
+package com.juegito.server;
+
+import com.juegito.model.Player;
+import com.juegito.protocol.Message;
+import com.juegito.protocol.MessageType;
+import com.juegito.protocol.dto.lobby.JoinResponseDTO;
+import com.juegito.server.transport.Connection;
+import com.juegito.server.transport.RateLimitPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Aloja muchas partidas independientes en un mismo proceso.
+ * Cada conexión nueva entra al lobby de una partida abierta (o a una nueva si no hay);
+ * un JOIN_REQUEST con lobbyId la mueve a ese lobby y un RECONNECT_REQUEST la devuelve
+ * a la partida donde quedó su sesión. Las tareas periódicas de todas las partidas
+ * comparten un pool fijo de workers en lugar de usar hilos propios.
+ */
+public class MatchManager {
+    private static final Logger logger = LoggerFactory.getLogger(MatchManager.class);
+    
+    private final ScheduledExecutorService workers;
+    private final IdleTimeoutWheel idleWheel; // Vigila la inactividad de todas las conexiones
+    private final RateLimitPolicy rateLimits; // Límites de tasa de cada partida nueva
+    private final long reconnectWindowMs;
+    private final Map<String, Match> matches; // Por ID de lobby
+    private final int maxMatches;
+    private final int minPlayers;
+    // Serializa la asignación para que dos jugadores no ocupen el último lugar de un lobby
+    private final ReentrantLock assignLock;
+    private final AtomicLong matchesCreated;
+    private volatile boolean running;
+    
+    /**
+     * @param workers Pool compartido por las tareas periódicas de todas las partidas
+     * @param maxMatches Máximo de partidas simultáneas
+     * @param idleWheel Rueda de timeouts de inactividad; su tick corre en el mismo pool
+     * @param reconnectWindowMs Cuánto espera cada partida a un jugador que se cortó en juego
+     */
+    public MatchManager(ScheduledExecutorService workers, int maxMatches, int minPlayers,
+                        IdleTimeoutWheel idleWheel, RateLimitPolicy rateLimits, long reconnectWindowMs) {
+        this.workers = workers;
+        this.idleWheel = idleWheel;
+        this.rateLimits = rateLimits;
+        this.reconnectWindowMs = reconnectWindowMs;
+        this.matches = new ConcurrentHashMap<>();
+        this.maxMatches = maxMatches;
+        this.minPlayers = minPlayers;
+        this.assignLock = new ReentrantLock();
+        this.matchesCreated = new AtomicLong();
+        this.running = true;
+        idleWheel.start(workers);
+    }
+    
+    /**
+     * Asigna una conexión nueva a una partida abierta, creando una si hace falta.
+     * @param activator Activa la conexión con su handler antes de entrar al lobby
+     * @return false si se alcanzó el máximo de partidas
+     */
+    public boolean admit(Connection connection, Consumer<ClientHandler> activator) {
+        assignLock.lock();
+        try {
+            Match match = findOrCreateOpenMatch();
+            if (match == null) {
+                return false;
+            }
+            
+            String playerId = UUID.randomUUID().toString();
+            String playerName = "Player_" + (match.getPlayerCount() + 1);
+            Player player = new Player(playerId, playerName, connection);
+            ClientHandler handler = new ClientHandler(player, this, match);
+            activator.accept(handler);
+            idleWheel.register(handler);
+            match.addPlayer(player, handler, false);
+            return true;
+        } finally {
+            assignLock.unlock();
+        }
+    }
+    
+    /**
+     * Mueve al jugador del handler al lobby indicado.
+     * Si el lobby no existe, ya empezó o está lleno, el jugador queda donde estaba.
+     */
+    public void transfer(ClientHandler handler, String lobbyId, String playerName) {
+        assignLock.lock();
+        try {
+            Match target = matches.get(lobbyId);
+            if (target == null || !target.isOpen()) {
+                handler.sendMessage(new Message(MessageType.JOIN_RESPONSE, "server",
+                    JoinResponseDTO.failure("Lobby no disponible")));
+                return;
+            }
+            
+            Player player = handler.getPlayer();
+            Match current = handler.getMatch();
+            if (current != null) {
+                current.removePlayer(player.getPlayerId());
+            }
+            if (playerName != null && !playerName.trim().isEmpty()) {
+                player.setPlayerName(playerName.trim());
+            }
+            // La partida confirma (o rechaza) el alta desde su cola
+            target.addPlayer(player, handler, true);
+            
+            logger.info("Player {} moved to match {}", player.getPlayerId(), lobbyId);
+        } finally {
+            assignLock.unlock();
+        }
+    }
+    
+    /**
+     * Devuelve la conexión del handler a la partida donde quedó la sesión del jugador.
+     * Retorna false si ninguna partida tiene esa sesión; si no, la partida responde.
+     */
+    public boolean reconnect(String playerId, long lastSequence, ClientHandler handler) {
+        assignLock.lock();
+        try {
+            Match target = findMatchWithSession(playerId);
+            if (target == null) {
+                logger.warn("Reconnect rejected for {}: unknown player", playerId);
+                return false;
+            }
+            
+            // Al conectar entró a un lobby provisorio: se lo saca antes de volver
+            Match current = handler.getMatch();
+            if (current != null && current != target) {
+                current.removePlayer(handler.getPlayer().getPlayerId());
+            }
+            target.reconnect(playerId, lastSequence, handler);
+            return true;
+        } finally {
+            assignLock.unlock();
+        }
+    }
+    
+    /**
+     * Ubica en otra partida a un jugador cuyo lobby se disolvió.
+     * Si no hay lugar, se lo desconecta.
+     */
+    private void reassign(ClientHandler handler) {
+        assignLock.lock();
+        try {
+            Match match = findOrCreateOpenMatch();
+            if (match == null) {
+                handler.stop();
+                handler.getPlayer().disconnect();
+                return;
+            }
+            match.addPlayer(handler.getPlayer(), handler, false);
+        } finally {
+            assignLock.unlock();
+        }
+    }
+    
+    private Match findOrCreateOpenMatch() {
+        if (!running) {
+            return null;
+        }
+        for (Match match : matches.values()) {
+            if (match.isOpen()) {
+                return match;
+            }
+        }
+        if (matches.size() >= maxMatches) {
+            logger.warn("Match limit reached ({})", maxMatches);
+            return null;
+        }
+        
+        Match match = new Match(workers, minPlayers, rateLimits, reconnectWindowMs, this::onMatchClosed,
+            this::reassign);
+        matches.put(match.getMatchId(), match);
+        matchesCreated.incrementAndGet();
+        match.start();
+        logger.info("Match {} created ({} active)", match.getMatchId(), matches.size());
+        return match;
+    }
+    
+    private Match findMatchWithSession(String playerId) {
+        for (Match match : matches.values()) {
+            if (match.hasDisconnectedPlayer(playerId)) {
+                return match;
+            }
+        }
+        return null;
+    }
+    
+    private void onMatchClosed(Match match) {
+        matches.remove(match.getMatchId());
+        logger.info("Match {} removed ({} active)", match.getMatchId(), matches.size());
+    }
+    
+    public Match getMatch(String lobbyId) {
+        return matches.get(lobbyId);
+    }
+    
+    public int getActiveMatchCount() {
+        return matches.size();
+    }
+    
+    public long getMatchesCreated() {
+        return matchesCreated.get();
+    }
+    
+    public IdleTimeoutWheel getIdleWheel() {
+        return idleWheel;
+    }
+    
+    /**
+     * Cierra todas las partidas y detiene el pool de workers.
+     */
+    public void stop() {
+        running = false;
+        idleWheel.stop();
+        for (Match match : matches.values()) {
+            match.close();
+        }
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,38 +1,153 @@
 package com.juegito.server;
 
 import com.juegito.model.Player;
+import com.juegito.protocol.EncodedMessage;
 import com.juegito.protocol.Message;
-import com.google.gson.Gson;
+import com.juegito.protocol.MessageType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Servicio de red que maneja el broadcasting de mensajes.
  * Responsabilidad única: gestión de comunicación de red.
+ * Cada mensaje se serializa una sola vez (EncodedMessage) y se comparte entre destinatarios.
+ * Los envíos se acumulan mientras la partida aplica un lote de comandos y se entregan
+ * juntos en flush(); solo lo usa el hilo que drena la cola de comandos de la partida.
+ * En el flush, de cada snapshot (mapa, estado, lobby) solo sobrevive el más
+ * reciente por destinatario, y lo que queda para un mismo jugador sale como un único lote.
+ * Durante la partida cada jugador tiene una sesión (SessionReplay) que numera lo que se
+ * le entrega y guarda lo reciente para reenviarlo si se reconecta.
  */
 public class NetworkService {
     private static final Logger logger = LoggerFactory.getLogger(NetworkService.class);
+    // Mensajes que reemplazan por completo al anterior del mismo tipo. Un MAP_DELTA posterior
+    // parte de una versión que el cliente ya confirmó, así que también cubre al anterior.
+    // GAME_HEARTBEAT no: cada uno parte de la versión del anterior, que el cliente necesita.
+    private static final Set<MessageType> SNAPSHOT_TYPES = EnumSet.of(
+        MessageType.MAP_STATE, MessageType.MAP_DELTA, MessageType.GAME_STATE,
+        MessageType.LOBBY_SNAPSHOT, MessageType.LOBBY_KEEPALIVE);
+    private static final String UNLABELED = "OTHER";
     
     private final Map<String, Player> players;
     private final Map<String, ClientHandler> clientHandlers;
-    private final Gson gson;
+    private final Map<String, SessionReplay> sessions; // Por jugador, desde que empieza la partida
+    
+    // Salida del lote en curso, en orden de envío (listas paralelas: sin un objeto por mensaje)
+    private final List<Player> pendingTargets;
+    private final List<EncodedMessage> pendingMessages;
+    private final List<String> pendingActions;
+    private String currentAction;
     
     public NetworkService(Map<String, Player> players, Map<String, ClientHandler> clientHandlers) {
         this.players = players;
         this.clientHandlers = clientHandlers;
-        this.gson = new Gson();
+        this.sessions = new HashMap<>();
+        this.pendingTargets = new ArrayList<>();
+        this.pendingMessages = new ArrayList<>();
+        this.pendingActions = new ArrayList<>();
+        this.currentAction = UNLABELED;
+    }
+    
+    /**
+     * Indica qué acción origina los envíos que siguen (para OutboundStats).
+     */
+    public void beginCommand(String action) {
+        currentAction = action != null ? action : UNLABELED;
+    }
+    
+    /**
+     * Entrega a las conexiones todo lo acumulado desde el último flush:
+     * descarta los snapshots que quedaron viejos y agrupa por destinatario.
+     */
+    public void flush() {
+        int count = pendingTargets.size();
+        if (count == 0) {
+            return;
+        }
+        
+        // De atrás hacia adelante: el primer snapshot de cada tipo que aparece es el más nuevo
+        boolean[] superseded = new boolean[count];
+        Map<Player, Set<MessageType>> seenSnapshots = new HashMap<>();
+        for (int i = count - 1; i >= 0; i--) {
+            MessageType type = pendingMessages.get(i).getType();
+            if (SNAPSHOT_TYPES.contains(type)) {
+                Set<MessageType> seen = seenSnapshots.computeIfAbsent(pendingTargets.get(i),
+                    key -> EnumSet.noneOf(MessageType.class));
+                superseded[i] = !seen.add(type);
+            }
+        }
+        
+        Map<Player, List<EncodedMessage>> byPlayer = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String action = pendingActions.get(i);
+            if (superseded[i]) {
+                OutboundStats.recordSuperseded(action);
+                continue;
+            }
+            Player target = pendingTargets.get(i);
+            EncodedMessage message = pendingMessages.get(i);
+            SessionReplay session = sessions.isEmpty() ? null : sessions.get(target.getPlayerId());
+            if (session != null && i >= session.getPendingFrom()) {
+                session.record(message);
+                if (!session.isConnected()) {
+                    continue; // Solo se guarda para cuando vuelva
+                }
+            }
+            byPlayer.computeIfAbsent(target, key -> new ArrayList<>()).add(message);
+            OutboundStats.recordSent(action, target.getConnection().sizeOf(message));
+        }
+        pendingTargets.clear();
+        pendingMessages.clear();
+        pendingActions.clear();
+        for (SessionReplay session : sessions.values()) {
+            session.setPendingFrom(0);
+        }
+        
+        for (Map.Entry<Player, List<EncodedMessage>> entry : byPlayer.entrySet()) {
+            List<EncodedMessage> messages = entry.getValue();
+            if (messages.size() == 1) {
+                entry.getKey().sendMessage(messages.get(0));
+            } else {
+                entry.getKey().sendBatch(messages);
+            }
+            OutboundStats.recordWrite();
+        }
+    }
+    
+    private void enqueue(Player player, EncodedMessage message) {
+        pendingTargets.add(player);
+        pendingMessages.add(message);
+        pendingActions.add(currentAction);
+        OutboundStats.recordProduced(currentAction);
     }
     
     /**
      * Envía un mensaje a todos los jugadores conectados.
      */
     public void broadcastMessage(Message message) {
-        String messageJson = gson.toJson(message);
+        broadcastMessage(EncodedMessage.of(message));
+    }
+    
+    /**
+     * Envía un mensaje ya serializado a todos los jugadores conectados.
+     */
+    public void broadcastMessage(EncodedMessage message) {
         for (Player player : players.values()) {
-            player.sendMessage(messageJson);
+            enqueue(player, message);
+        }
+        for (SessionReplay session : sessions.values()) {
+            if (!session.isConnected()) {
+                enqueue(session.getPlayer(), message);
+            }
         }
         logger.debug("Broadcast message type: {}", message.getType());
     }
@@ -41,9 +156,17 @@ public class NetworkService {
      * Envía un mensaje a un jugador específico.
      */
     public void sendMessageToPlayer(String playerId, Message message) {
+        sendMessageToPlayer(playerId, EncodedMessage.of(message));
+    }
+    
+    /**
+     * Envía un mensaje ya serializado a un jugador específico.
+     * Los broadcast del lobby lo usan para compartir la misma serialización.
+     */
+    public void sendMessageToPlayer(String playerId, EncodedMessage message) {
         ClientHandler handler = clientHandlers.get(playerId);
         if (handler != null) {
-            handler.sendMessage(message);
+            enqueue(handler.getPlayer(), message);
             logger.debug("Sent message type {} to player {}", message.getType(), playerId);
         } else {
             logger.warn("Cannot send message to player {}: handler not found", playerId);
@@ -55,7 +178,17 @@ public class NetworkService {
      */
     public void sendMessageToPlayer(Player player, Message message) {
         if (player != null) {
-            player.sendMessage(gson.toJson(message));
+            enqueue(player, EncodedMessage.of(message));
+            logger.debug("Sent message type {} to player {}", message.getType(), player.getPlayerId());
+        }
+    }
+    
+    /**
+     * Envía un mensaje ya serializado usando el objeto Player.
+     */
+    public void sendMessageToPlayer(Player player, EncodedMessage message) {
+        if (player != null) {
+            enqueue(player, message);
             logger.debug("Sent message type {} to player {}", message.getType(), player.getPlayerId());
         }
     }
@@ -64,9 +197,63 @@ public class NetworkService {
      * Envía un mensaje a una colección de jugadores.
      */
     public void broadcastToPlayers(Collection<Player> players, Message message) {
-        String messageJson = gson.toJson(message);
+        EncodedMessage encoded = EncodedMessage.of(message);
         for (Player player : players) {
-            player.sendMessage(messageJson);
+            enqueue(player, encoded);
+        }
+    }
+    
+    // ========== Sesiones de partida (secuencia y reenvío) ==========
+    
+    /**
+     * Empieza a numerar lo que recibe el jugador. Lo ya encolado en este lote no cuenta:
+     * el primer mensaje de la sesión es el siguiente que se le envíe (START_GAME).
+     */
+    public void startSession(Player player) {
+        sessions.put(player.getPlayerId(), new SessionReplay(player, pendingTargets.size()));
+    }
+    
+    /**
+     * El jugador se desconectó en partida: sus broadcasts se siguen registrando.
+     */
+    public void suspendSession(String playerId) {
+        SessionReplay session = sessions.get(playerId);
+        if (session != null) {
+            session.suspend();
         }
     }
+    
+    /**
+     * Reanuda la sesión en la conexión nueva del jugador.
+     * @return Lo que siguió a lastSequence (a enviar tal cual, ya numerado), o null si ya
+     *         no está en el buffer y hace falta una resincronización completa
+     */
+    public List<EncodedMessage> resumeSession(Player player, long lastSequence) {
+        SessionReplay session = sessions.get(player.getPlayerId());
+        if (session == null) {
+            return null;
+        }
+        flush(); // Lo pendiente para la conexión anterior entra en la secuencia antes de reenviar
+        session.resume(player);
+        return session.since(lastSequence);
+    }
+    
+    /**
+     * Último número de secuencia asignado en la sesión (0 si no hay sesión).
+     */
+    public long getSessionSequence(String playerId) {
+        SessionReplay session = sessions.get(playerId);
+        return session != null ? session.getSequence() : 0;
+    }
+    
+    public void acknowledgeSession(String playerId, long sequence) {
+        SessionReplay session = sessions.get(playerId);
+        if (session != null) {
+            session.acknowledge(sequence);
+        }
+    }
+    
+    public void endSession(String playerId) {
+        sessions.remove(playerId);
+    }
 }
@@ -0,0 +1,75 @@
+package com.juegito.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores de salida por acción que la originó (MOVE, GAME_HEARTBEAT, JOIN...).
+ * Permiten ver qué comandos producen más mensajes y bytes, cuántos snapshots se
+ * descartaron por quedar viejos dentro del mismo lote y cuántas escrituras
+ * (un lote por destinatario) se ahorraron. Compartidos por todas las partidas.
+ */
+public final class OutboundStats {
+    private static final Map<String, ActionStats> BY_ACTION = new ConcurrentHashMap<>();
+    private static final LongAdder MESSAGES = new LongAdder();
+    private static final LongAdder BYTES = new LongAdder();
+    private static final LongAdder WRITES = new LongAdder();
+    
+    private OutboundStats() {
+    }
+    
+    static void recordProduced(String action) {
+        stats(action).produced.increment();
+    }
+    
+    static void recordSuperseded(String action) {
+        stats(action).superseded.increment();
+    }
+    
+    /**
+     * Un mensaje entregado a un destinatario; bytes es su tamaño en el formato de esa conexión.
+     */
+    static void recordSent(String action, long bytes) {
+        ActionStats stats = stats(action);
+        stats.sent.increment();
+        stats.bytes.add(bytes);
+        MESSAGES.increment();
+        BYTES.add(bytes);
+    }
+    
+    /**
+     * Una entrega a un destinatario (un mensaje suelto o un lote).
+     */
+    static void recordWrite() {
+        WRITES.increment();
+    }
+    
+    private static ActionStats stats(String action) {
+        return BY_ACTION.computeIfAbsent(action, key -> new ActionStats());
+    }
+    
+    /**
+     * Resumen legible para el log de cierre: una línea por acción y una global.
+     */
+    public static List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, ActionStats> entry : new TreeMap<>(BY_ACTION).entrySet()) {
+            ActionStats stats = entry.getValue();
+            lines.add(String.format("%s: %d produced, %d superseded, %d sent (%d bytes)",
+                entry.getKey(), stats.produced.sum(), stats.superseded.sum(), stats.sent.sum(), stats.bytes.sum()));
+        }
+        lines.add(String.format("total: %d messages (%d bytes) in %d writes", MESSAGES.sum(), BYTES.sum(), WRITES.sum()));
+        return lines;
+    }
+    
+    private static final class ActionStats {
+        private final LongAdder produced = new LongAdder();
+        private final LongAdder superseded = new LongAdder();
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+    }
+}
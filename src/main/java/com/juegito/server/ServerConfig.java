@@ -0,0 +1,215 @@
+package com.juegito.server;
+
+import com.juegito.protocol.wire.FrameCompressor;
+import com.juegito.protocol.MessageType;
+import com.juegito.server.transport.OutboundLimits;
+import com.juegito.server.transport.RateLimitPolicy;
+import com.juegito.server.transport.TransportMode;
+import com.juegito.server.transport.WireSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.Deflater;
+
+/**
+ * Configuración del servidor.
+ * Lee server.properties del classpath; cualquier clave puede sobrescribirse
+ * con una propiedad de sistema (-Dclave=valor).
+ */
+public class ServerConfig {
+    private static final Logger logger = LoggerFactory.getLogger(ServerConfig.class);
+    private static final String RESOURCE = "/server.properties";
+    
+    private final Properties properties;
+    
+    public ServerConfig(Properties properties) {
+        this.properties = properties;
+    }
+    
+    /**
+     * Carga la configuración desde server.properties.
+     */
+    public static ServerConfig load() {
+        Properties properties = new Properties();
+        try (InputStream in = ServerConfig.class.getResourceAsStream(RESOURCE)) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (IOException e) {
+            logger.warn("Could not read {}: {}", RESOURCE, e.getMessage());
+        }
+        return new ServerConfig(properties);
+    }
+    
+    /**
+     * Modo de transporte de red (NIO por defecto).
+     */
+    public TransportMode getTransportMode() {
+        return TransportMode.fromString(getString("server.transport", "NIO"));
+    }
+    
+    /**
+     * Hilos de I/O del transporte NIO. 0 = automático según núcleos.
+     */
+    public int getIoThreads() {
+        int configured = getInt("server.io.threads", 0);
+        if (configured > 0) {
+            return configured;
+        }
+        return Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    }
+    
+    /**
+     * Workers del pool compartido por las tareas periódicas de las partidas. 0 = uno por núcleo.
+     */
+    public int getMatchWorkers() {
+        int configured = getInt("server.match.workers", 0);
+        if (configured > 0) {
+            return configured;
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+    
+    /**
+     * Máximo de partidas simultáneas en el proceso.
+     */
+    public int getMaxMatches() {
+        return getInt("server.max.matches", 500);
+    }
+    
+    /**
+     * Tamaño de cada buffer del pool de I/O.
+     */
+    public int getIoBufferSize() {
+        return getInt("server.io.buffer.size", 16 * 1024);
+    }
+    
+    /**
+     * Tamaño máximo de un mensaje entrante antes de cerrar la conexión.
+     */
+    public int getMaxInboundMessageBytes() {
+        return getInt("server.io.max.message.bytes", 1024 * 1024);
+    }
+    
+    /**
+     * Formato de cable: tamaño máximo de mensaje y compresión de frames grandes.
+     */
+    public WireSettings getWireSettings() {
+        FrameCompressor compressor = null;
+        if (getBoolean("server.compression.enabled", true)) {
+            compressor = new FrameCompressor(
+                getInt("server.compression.threshold.bytes", 1024),
+                getInt("server.compression.level", Deflater.BEST_SPEED));
+        }
+        return new WireSettings(getMaxInboundMessageBytes(), compressor);
+    }
+    
+    /**
+     * Timeouts de inactividad de las conexiones: PING tras ping.after.ms sin mensajes
+     * y desconexión tras timeout.ms, revisados una vez por tick.ms.
+     */
+    public IdleTimeoutWheel getIdleTimeoutWheel() {
+        return new IdleTimeoutWheel(
+            getLong("server.idle.timeout.ms", 60000),
+            getLong("server.idle.ping.after.ms", 20000),
+            getLong("server.idle.tick.ms", 1000));
+    }
+    
+    /**
+     * Cuánto se conserva la sesión de un jugador que se cortó durante la partida: dentro de
+     * esa ventana puede reconectarse y, si todos se cortaron, la partida sigue abierta.
+     */
+    public long getReconnectWindowMs() {
+        return getLong("server.reconnect.window.ms", 60000);
+    }
+    
+    /**
+     * Límites de la cola de salida por conexión (marcas alta/baja y expulsión).
+     */
+    public OutboundLimits getOutboundLimits() {
+        OutboundLimits defaults = OutboundLimits.defaults();
+        return new OutboundLimits(
+            getLong("server.outbound.high.watermark", defaults.getHighWatermark()),
+            getLong("server.outbound.low.watermark", defaults.getLowWatermark()),
+            getLong("server.outbound.max.bytes", defaults.getMaxQueuedBytes()),
+            getLong("server.outbound.slow.consumer.ms", defaults.getSlowConsumerTimeoutMs())
+        );
+    }
+    
+    /**
+     * Límites de tasa de los mensajes entrantes por conexión, que cada partida aplica a sus
+     * jugadores. El total se configura con server.ratelimit.per.second y server.ratelimit.burst
+     * (0 = sin límite) y cada tipo con server.ratelimit.TIPO=por_segundo:ráfaga (0 = sin límite
+     * propio), p. ej. server.ratelimit.PLAYER_ACTION=10:20.
+     */
+    public RateLimitPolicy getRateLimitPolicy() {
+        RateLimitPolicy defaults = RateLimitPolicy.defaults();
+        Map<MessageType, RateLimitPolicy.Limit> perType = new EnumMap<>(MessageType.class);
+        for (MessageType type : MessageType.values()) {
+            RateLimitPolicy.Limit limit = getRateLimit("server.ratelimit." + type.name(), defaults.getLimit(type));
+            if (limit != null) {
+                perType.put(type, limit);
+            }
+        }
+        
+        RateLimitPolicy.Limit total = null;
+        int perSecond = getInt("server.ratelimit.per.second", (int) defaults.getTotal().getPerSecond());
+        if (perSecond > 0) {
+            total = new RateLimitPolicy.Limit(perSecond,
+                Math.max(1, getInt("server.ratelimit.burst", defaults.getTotal().getBurst())));
+        }
+        return new RateLimitPolicy(total, perType);
+    }
+    
+    private RateLimitPolicy.Limit getRateLimit(String key, RateLimitPolicy.Limit defaultValue) {
+        String value = getString(key, "");
+        if (value.isEmpty()) {
+            return defaultValue;
+        }
+        if (value.equals("0")) {
+            return null;
+        }
+        try {
+            String[] parts = value.split(":");
+            double perSecond = Double.parseDouble(parts[0].trim());
+            int burst = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : (int) Math.ceil(perSecond);
+            return new RateLimitPolicy.Limit(perSecond, burst);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid value for {}: '{}', using {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+    
+    public String getString(String key, String defaultValue) {
+        return System.getProperty(key, properties.getProperty(key, defaultValue)).trim();
+    }
+    
+    public int getInt(String key, int defaultValue) {
+        String value = getString(key, String.valueOf(defaultValue));
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid value for {}: '{}', using {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+    
+    public long getLong(String key, long defaultValue) {
+        String value = getString(key, String.valueOf(defaultValue));
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid value for {}: '{}', using {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+    
+    public boolean getBoolean(String key, boolean defaultValue) {
+        return Boolean.parseBoolean(getString(key, String.valueOf(defaultValue)));
+    }
+}
@@ -0,0 +1,104 @@
+package com.juegito.server;
+
+import com.juegito.model.Player;
+import com.juegito.protocol.EncodedMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Secuencia de salida de la sesión de partida de un jugador y buffer circular con los
+ * últimos mensajes aún no confirmados (ya serializados y compartidos, no se copian).
+ * Cada mensaje de la partida (MessageType.isSequenced) que la sesión recibe toma el
+ * siguiente número; mientras el jugador está desconectado se siguen registrando los
+ * broadcasts. Una reconexión que confirma un número aún cubierto por el buffer recibe
+ * solo lo que siguió; si quedó más atrás, una resincronización completa.
+ * Solo se usa desde la cola de comandos de la partida (vía NetworkService).
+ */
+class SessionReplay {
+    static final int CAPACITY = 512;
+    
+    private final EncodedMessage[] buffer;
+    private Player player;
+    private boolean connected;
+    private long sequence;    // Último número asignado
+    private long acknowledged; // Último que el cliente confirmó
+    private int pendingFrom;   // Posición de la salida pendiente desde la que se registra
+    
+    SessionReplay(Player player, int pendingFrom) {
+        this.buffer = new EncodedMessage[CAPACITY];
+        this.player = player;
+        this.connected = true;
+        this.pendingFrom = pendingFrom;
+    }
+    
+    /**
+     * Asigna el siguiente número al mensaje si cuenta en la secuencia.
+     */
+    void record(EncodedMessage message) {
+        if (message.getType().isSequenced()) {
+            sequence++;
+            buffer[index(sequence)] = message;
+        }
+    }
+    
+    /**
+     * Libera lo confirmado por el cliente. Una confirmación vieja o adelantada se ignora.
+     */
+    void acknowledge(long confirmed) {
+        long upTo = Math.min(confirmed, sequence);
+        for (long seq = Math.max(acknowledged, sequence - CAPACITY) + 1; seq <= upTo; seq++) {
+            buffer[index(seq)] = null;
+        }
+        acknowledged = Math.max(acknowledged, upTo);
+    }
+    
+    /**
+     * Mensajes posteriores a lastSequence, en orden, o null si ya no están todos en el buffer.
+     * Un cliente que no numera la sesión envía 0 (START_GAME ya es el 1): resincronización completa.
+     */
+    List<EncodedMessage> since(long lastSequence) {
+        if (lastSequence <= 0 || lastSequence > sequence || lastSequence < acknowledged
+                || sequence - lastSequence > CAPACITY) {
+            return null;
+        }
+        List<EncodedMessage> missed = new ArrayList<>((int) (sequence - lastSequence));
+        for (long seq = lastSequence + 1; seq <= sequence; seq++) {
+            missed.add(buffer[index(seq)]);
+        }
+        return missed;
+    }
+    
+    void suspend() {
+        connected = false;
+    }
+    
+    void resume(Player player) {
+        this.player = player;
+        this.connected = true;
+    }
+    
+    boolean isConnected() {
+        return connected;
+    }
+    
+    Player getPlayer() {
+        return player;
+    }
+    
+    long getSequence() {
+        return sequence;
+    }
+    
+    int getPendingFrom() {
+        return pendingFrom;
+    }
+    
+    void setPendingFrom(int pendingFrom) {
+        this.pendingFrom = pendingFrom;
+    }
+    
+    private static int index(long seq) {
+        return (int) (seq % CAPACITY);
+    }
+}
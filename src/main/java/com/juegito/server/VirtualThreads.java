@@ -0,0 +1,87 @@
+package com.juegito.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Acceso a hilos virtuales (Java 21) sin exigir Java 21 para compilar.
+ * Se resuelven por reflexión; en un JVM anterior se recurre a hilos de plataforma.
+ */
+public final class VirtualThreads {
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreads.class);
+    
+    private static final Method NEW_PER_TASK_EXECUTOR = findNewPerTaskExecutor();
+    private static final Method OF_VIRTUAL = findOfVirtual();
+    
+    private VirtualThreads() {
+    }
+    
+    /**
+     * Indica si el JVM actual soporta hilos virtuales.
+     */
+    public static boolean isAvailable() {
+        return NEW_PER_TASK_EXECUTOR != null && OF_VIRTUAL != null;
+    }
+    
+    /**
+     * Executor que crea un hilo virtual por tarea.
+     * Sin soporte, retorna un pool cacheado de hilos de plataforma.
+     */
+    public static ExecutorService newPerTaskExecutor() {
+        if (isAvailable()) {
+            try {
+                return (ExecutorService) NEW_PER_TASK_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                logger.warn("Could not create virtual thread executor: {}", e.getMessage());
+            }
+        }
+        return Executors.newCachedThreadPool();
+    }
+    
+    /**
+     * Fábrica de hilos virtuales con nombre prefijo-N.
+     * Sin soporte, retorna una fábrica de hilos de plataforma daemon.
+     */
+    public static ThreadFactory factory(String prefix) {
+        if (isAvailable()) {
+            try {
+                // Se usa la interfaz pública Thread.Builder: la implementación no es accesible
+                Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+                Object builder = OF_VIRTUAL.invoke(null);
+                builder = builderType.getMethod("name", String.class, long.class)
+                    .invoke(builder, prefix + "-", 0L);
+                return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            } catch (ReflectiveOperationException e) {
+                logger.warn("Could not create virtual thread factory: {}", e.getMessage());
+            }
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+    
+    private static Method findNewPerTaskExecutor() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+    
+    private static Method findOfVirtual() {
+        try {
+            return Thread.class.getMethod("ofVirtual");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.juegito.server.transport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Transporte clásico: un hilo por cliente bloqueado en la lectura más un hilo escritor.
+ * El executor decide el tipo de hilo (pool cacheado o hilos virtuales).
+ */
+public class BlockingTransport implements Transport {
+    private static final Logger logger = LoggerFactory.getLogger(BlockingTransport.class);
+    
+    private final int port;
+    private final ExecutorService threadPool;
+    private final WireSettings wireSettings;
+    private final OutboundLimits outboundLimits;
+    private ServerSocket serverSocket;
+    private volatile boolean running;
+    
+    public BlockingTransport(int port, WireSettings wireSettings, OutboundLimits outboundLimits) {
+        this(port, Executors.newCachedThreadPool(), wireSettings, outboundLimits);
+    }
+    
+    public BlockingTransport(int port, ExecutorService threadPool, WireSettings wireSettings,
+                             OutboundLimits outboundLimits) {
+        this.port = port;
+        this.threadPool = threadPool;
+        this.wireSettings = wireSettings;
+        this.outboundLimits = outboundLimits;
+    }
+    
+    @Override
+    public void serve(ConnectionAcceptor acceptor) throws IOException {
+        serverSocket = new ServerSocket(port);
+        running = true;
+        logger.info("Blocking transport listening on port {}", port);
+        
+        while (running) {
+            try {
+                Socket clientSocket = serverSocket.accept();
+                acceptor.accept(new SocketConnection(clientSocket, wireSettings, outboundLimits));
+            } catch (IOException e) {
+                if (running) {
+                    logger.error("Error accepting connection: {}", e.getMessage());
+                }
+            }
+        }
+    }
+    
+    @Override
+    public void activate(Connection connection, ConnectionHandler handler) {
+        // Un hilo escritor por conexión: un cliente lento solo bloquea a su propio escritor
+        threadPool.execute(((SocketConnection) connection).writer());
+        threadPool.execute(handler);
+    }
+    
+    @Override
+    public void stop() {
+        running = false;
+        threadPool.shutdown();
+        try {
+            if (serverSocket != null && !serverSocket.isClosed()) {
+                serverSocket.close();
+            }
+        } catch (IOException e) {
+            logger.error("Error closing server socket: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.juegito.server.transport;
+
+import com.juegito.protocol.EncodedMessage;
+import com.juegito.protocol.Message;
+import com.juegito.protocol.binary.PlayerHandleTable;
+
+import java.io.IOException;
+
+/**
+ * Conexión de red con un cliente, independiente del modelo de I/O.
+ */
+public interface Connection {
+    
+    /**
+     * Encola un mensaje ya serializado para el cliente.
+     * Los bytes del mensaje se comparten entre conexiones y no se copian.
+     */
+    void send(EncodedMessage message);
+    
+    /**
+     * Encola varios mensajes que el cliente recibe juntos (un frame BATCH si lo negoció).
+     */
+    void send(OutboundBatch batch);
+    
+    /**
+     * Bytes que ocupa el mensaje en el formato negociado por el cliente (el que cuenta para
+     * la cola de salida). Construye la forma compartida que el envío después reutiliza.
+     */
+    int sizeOf(EncodedMessage message);
+    
+    /**
+     * Lee y decodifica el siguiente mensaje (bloqueante). Retorna null si el cliente cerró.
+     * Solo lo usan los transportes bloqueantes; NIO entrega los mensajes
+     * directamente al ConnectionHandler.
+     */
+    Message receive() throws IOException;
+    
+    /**
+     * Dirección IP del cliente.
+     */
+    String getRemoteAddress();
+    
+    boolean isOpen();
+    
+    /**
+     * Límites de tasa de los mensajes entrantes (los de la partida); null = sin límite.
+     * Los mensajes que los exceden se descartan antes de deserializarlos.
+     */
+    void setRateLimits(RateLimitPolicy policy);
+    
+    /**
+     * Tabla de handles de jugador de la partida, compartida por todas sus conexiones.
+     */
+    void setPlayerHandles(PlayerHandleTable handles);
+    
+    /**
+     * Cierra la conexión sin notificar al handler.
+     */
+    void close();
+}
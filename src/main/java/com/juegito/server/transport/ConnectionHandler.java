@@ -0,0 +1,22 @@
+package com.juegito.server.transport;
+
+import com.juegito.protocol.Message;
+
+/**
+ * Receptor de los eventos de una conexión.
+ * Los transportes bloqueantes ejecutan run() en un hilo propio que lee con
+ * Connection.receive(); los no bloqueantes invocan onMessage desde el loop de I/O.
+ */
+public interface ConnectionHandler extends Runnable {
+    
+    /**
+     * Procesa un mensaje completo recibido del cliente, ya decodificado
+     * desde JSON o desde el codec binario.
+     */
+    void onMessage(Message message);
+    
+    /**
+     * El cliente cerró la conexión o la conexión falló.
+     */
+    void onConnectionClosed();
+}
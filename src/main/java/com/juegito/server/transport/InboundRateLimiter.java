@@ -0,0 +1,103 @@
+package com.juegito.server.transport;
+
+import com.juegito.protocol.MessageType;
+
+/**
+ * Token buckets de los mensajes entrantes de una conexión, según la política de su partida.
+ * Decide solo con el tipo, antes de deserializar el payload. Lo usa únicamente el hilo
+ * que decodifica la conexión; la política puede cambiar desde otro (al entrar a una partida)
+ * y entonces los buckets vuelven a empezar llenos.
+ */
+final class InboundRateLimiter {
+    private static final int TYPE_COUNT = MessageType.values().length;
+    
+    private volatile RateLimitPolicy policy;
+    private RateLimitPolicy appliedPolicy;
+    private TokenBucket total;
+    private final TokenBucket[] perType;
+    
+    InboundRateLimiter() {
+        this.perType = new TokenBucket[TYPE_COUNT];
+    }
+    
+    void setPolicy(RateLimitPolicy policy) {
+        this.policy = policy;
+    }
+    
+    /**
+     * False si no hay límites: no hace falta averiguar el tipo.
+     */
+    boolean isActive() {
+        return policy != null;
+    }
+    
+    /**
+     * Consume un token del tipo y uno del total si ambos tienen; si alguno está vacío
+     * rechaza sin consumir ninguno. Un tipo desconocido (null) solo cuenta en el total.
+     */
+    boolean tryAcquire(MessageType type, long nowNanos) {
+        RateLimitPolicy current = policy;
+        if (current != appliedPolicy) {
+            apply(current, nowNanos);
+        }
+        if (current == null) {
+            return true;
+        }
+        
+        TokenBucket bucket = type == null ? null : perType[type.ordinal()];
+        if ((bucket != null && !bucket.hasToken(nowNanos)) || (total != null && !total.hasToken(nowNanos))) {
+            return false;
+        }
+        if (bucket != null) {
+            bucket.take();
+        }
+        if (total != null) {
+            total.take();
+        }
+        return true;
+    }
+    
+    private void apply(RateLimitPolicy current, long nowNanos) {
+        appliedPolicy = current;
+        total = null;
+        for (int i = 0; i < TYPE_COUNT; i++) {
+            perType[i] = null;
+        }
+        if (current == null) {
+            return;
+        }
+        if (current.getTotal() != null) {
+            total = new TokenBucket(current.getTotal(), nowNanos);
+        }
+        for (MessageType type : MessageType.values()) {
+            RateLimitPolicy.Limit limit = current.getLimit(type);
+            if (limit != null) {
+                perType[type.ordinal()] = new TokenBucket(limit, nowNanos);
+            }
+        }
+    }
+    
+    private static final class TokenBucket {
+        private final double tokensPerNano;
+        private final int burst;
+        private double tokens;
+        private long lastRefill;
+        
+        TokenBucket(RateLimitPolicy.Limit limit, long nowNanos) {
+            this.tokensPerNano = limit.getPerSecond() / 1e9;
+            this.burst = limit.getBurst();
+            this.tokens = burst;
+            this.lastRefill = nowNanos;
+        }
+        
+        boolean hasToken(long nowNanos) {
+            tokens = Math.min(burst, tokens + (nowNanos - lastRefill) * tokensPerNano);
+            lastRefill = nowNanos;
+            return tokens >= 1;
+        }
+        
+        void take() {
+            tokens -= 1;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.juegito.server.transport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Demora en cola por clase de prioridad, de todas las conexiones del proceso:
+ * desde que se encola una entrada hasta que el escritor la toma para el socket.
+ * También los bytes que se escribieron de cada clase, en el formato de cada conexión.
+ * Contadores sin bloqueo; el servidor los registra al detenerse.
+ */
+public final class LaneStats {
+    /** Objetivo de demora para los mensajes de juego (p. ej. TURN_START mientras se envía un mapa). */
+    public static final long TARGET_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    
+    private static final OutboundLane[] LANES = OutboundLane.values();
+    private static final LongAdder[] COUNT = adders();
+    private static final LongAdder[] TOTAL_NANOS = adders();
+    private static final LongAdder[] OVER_TARGET = adders();
+    private static final LongAdder[] WRITTEN_BYTES = adders();
+    private static final LongAccumulator[] MAX_NANOS = new LongAccumulator[LANES.length];
+    
+    static {
+        for (int i = 0; i < LANES.length; i++) {
+            MAX_NANOS[i] = new LongAccumulator(Long::max, 0);
+        }
+    }
+    
+    private LaneStats() {
+    }
+    
+    static void record(OutboundLane lane, long delayNanos) {
+        int index = lane.ordinal();
+        COUNT[index].increment();
+        TOTAL_NANOS[index].add(delayNanos);
+        MAX_NANOS[index].accumulate(delayNanos);
+        if (delayNanos > TARGET_NANOS) {
+            OVER_TARGET[index].increment();
+        }
+    }
+    
+    static void recordWritten(OutboundLane lane, int bytes) {
+        WRITTEN_BYTES[lane.ordinal()].add(bytes);
+    }
+    
+    /**
+     * Una línea por clase con tráfico: entradas, demora media y máxima, y cuántas superaron el objetivo.
+     */
+    public static List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        for (OutboundLane lane : LANES) {
+            int index = lane.ordinal();
+            long count = COUNT[index].sum();
+            if (count == 0) {
+                continue;
+            }
+            lines.add(String.format("%s: %d entries, %d bytes written, avg %.3f ms, max %.3f ms, %d over %d ms",
+                lane, count, WRITTEN_BYTES[index].sum(), TOTAL_NANOS[index].sum() / 1e6 / count,
+                MAX_NANOS[index].get() / 1e6, OVER_TARGET[index].sum(),
+                TimeUnit.NANOSECONDS.toMillis(TARGET_NANOS)));
+        }
+        return lines;
+    }
+    
+    private static LongAdder[] adders() {
+        LongAdder[] adders = new LongAdder[LANES.length];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
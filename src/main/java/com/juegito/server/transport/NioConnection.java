@@ -0,0 +1,263 @@
+package com.juegito.server.transport;
+
+import com.juegito.protocol.EncodedMessage;
+import com.juegito.protocol.Message;
+import com.juegito.protocol.binary.PlayerHandleTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Conexión no bloqueante atendida por un NioEventLoop.
+ * Los envíos se encolan desde cualquier hilo; el loop los escribe cuando el canal lo permite.
+ */
+public class NioConnection implements Connection {
+    private static final Logger logger = LoggerFactory.getLogger(NioConnection.class);
+    
+    private final SocketChannel channel;
+    private final NioEventLoop loop;
+    private final String remoteAddress;
+    private final WireSession wire;
+    private final OutboundQueue outbound;
+    private final AtomicBoolean flushScheduled;
+    private final AtomicBoolean closed;
+    private final AtomicBoolean evicting;
+    
+    // Solo accedidos desde el hilo del loop
+    private SelectionKey key;
+    private ByteBuffer current;      // Mensaje que se está copiando al buffer de escritura
+    private ByteBuffer pendingWrite; // Bytes que el socket no aceptó
+    
+    private volatile ConnectionHandler handler;
+    
+    NioConnection(SocketChannel channel, NioEventLoop loop, WireSettings wireSettings, OutboundLimits outboundLimits) {
+        this.channel = channel;
+        this.loop = loop;
+        this.remoteAddress = resolveRemoteAddress(channel);
+        this.outbound = new OutboundQueue(outboundLimits);
+        this.wire = new WireSession(wireSettings, message -> handler.onMessage(message), this::scheduleFlush, outbound);
+        this.flushScheduled = new AtomicBoolean(false);
+        this.closed = new AtomicBoolean(false);
+        this.evicting = new AtomicBoolean(false);
+    }
+    
+    /**
+     * Asocia el handler y empieza a leer del canal.
+     */
+    void activate(ConnectionHandler handler) {
+        this.handler = handler;
+        loop.register(this);
+    }
+    
+    @Override
+    public void send(EncodedMessage message) {
+        if (closed.get() || evicting.get()) {
+            return;
+        }
+        if (!outbound.offer(message, wire.sizeOf(message))) {
+            evict();
+            return;
+        }
+        scheduleFlush();
+    }
+    
+    @Override
+    public void send(OutboundBatch batch) {
+        if (closed.get() || evicting.get()) {
+            return;
+        }
+        if (!outbound.offer(batch, wire.sizeOf(batch))) {
+            evict();
+            return;
+        }
+        scheduleFlush();
+    }
+    
+    @Override
+    public int sizeOf(EncodedMessage message) {
+        return wire.sizeOf(message);
+    }
+    
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            loop.requestFlush(this);
+        }
+    }
+    
+    /**
+     * El cliente no consume lo que se le envía: se cierra desde el loop y el handler
+     * lo trata como una desconexión (camino de reconexión).
+     */
+    private void evict() {
+        if (evicting.compareAndSet(false, true)) {
+            logger.warn("Evicting slow consumer {} ({} bytes queued)", remoteAddress, outbound.getQueuedBytes());
+            loop.execute(this::onRemoteClose);
+        }
+    }
+    
+    @Override
+    public Message receive() throws IOException {
+        throw new IOException("NIO connections deliver messages to the handler directly");
+    }
+    
+    @Override
+    public String getRemoteAddress() {
+        return remoteAddress;
+    }
+    
+    @Override
+    public boolean isOpen() {
+        return !closed.get();
+    }
+    
+    @Override
+    public void setRateLimits(RateLimitPolicy policy) {
+        wire.setRateLimits(policy);
+    }
+    
+    @Override
+    public void setPlayerHandles(PlayerHandleTable handles) {
+        wire.setPlayerHandles(handles);
+    }
+    
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            loop.execute(this::release);
+        }
+    }
+    
+    // ========== Métodos invocados por el NioEventLoop ==========
+    
+    SocketChannel channel() {
+        return channel;
+    }
+    
+    void attach(SelectionKey key) {
+        this.key = key;
+    }
+    
+    /**
+     * Decodifica los bytes leídos del canal y entrega los mensajes completos al handler.
+     */
+    void onRead(ByteBuffer data) throws IOException {
+        wire.feed(data.array(), data.arrayOffset() + data.position(), data.remaining());
+        data.position(data.limit());
+    }
+    
+    /**
+     * Escribe todo lo posible usando el buffer de escritura del loop.
+     * Retorna true si no queda nada pendiente.
+     */
+    boolean flush(ByteBuffer writeBuffer) throws IOException {
+        while (true) {
+            writeBuffer.clear();
+            if (pendingWrite != null) {
+                writeBuffer.put(pendingWrite);
+                pendingWrite = null;
+            }
+            while (writeBuffer.hasRemaining() && nextOutbound()) {
+                int length = Math.min(current.remaining(), writeBuffer.remaining());
+                int limit = current.limit();
+                current.limit(current.position() + length);
+                writeBuffer.put(current);
+                current.limit(limit);
+            }
+            writeBuffer.flip();
+            if (!writeBuffer.hasRemaining()) {
+                return finishFlush(writeBuffer);
+            }
+            
+            channel.write(writeBuffer);
+            if (writeBuffer.hasRemaining()) {
+                // Socket lleno: conservar el resto y esperar OP_WRITE
+                pendingWrite = ByteBuffer.allocate(writeBuffer.remaining());
+                pendingWrite.put(writeBuffer).flip();
+                setWriteInterest(true);
+                return false;
+            }
+        }
+    }
+    
+    /**
+     * Deja en current el próximo contenido a escribir: primero la respuesta del
+     * handshake, luego los mensajes en el formato negociado y, cuando no queda
+     * ninguno, la siguiente parte de un mensaje fragmentado.
+     */
+    private boolean nextOutbound() {
+        if (current != null && current.hasRemaining()) {
+            return true;
+        }
+        byte[] reply = wire.pollHandshakeReply();
+        if (reply != null) {
+            current = ByteBuffer.wrap(reply);
+            return true;
+        }
+        Object entry = outbound.poll();
+        byte[] next = entry != null ? wire.encode(entry) : wire.pollFragment();
+        current = next == null ? null : ByteBuffer.wrap(next);
+        return current != null;
+    }
+    
+    private boolean finishFlush(ByteBuffer writeBuffer) throws IOException {
+        setWriteInterest(false);
+        flushScheduled.set(false);
+        // Un envío pudo llegar después de vaciar la cola pero antes de liberar el flag
+        if (!outbound.isEmpty() && flushScheduled.compareAndSet(false, true)) {
+            return flush(writeBuffer);
+        }
+        return true;
+    }
+    
+    private void setWriteInterest(boolean enabled) {
+        if (key == null || !key.isValid()) {
+            return;
+        }
+        int ops = key.interestOps();
+        int updated = enabled ? ops | SelectionKey.OP_WRITE : ops & ~SelectionKey.OP_WRITE;
+        if (ops != updated) {
+            key.interestOps(updated);
+        }
+    }
+    
+    /**
+     * El cliente cerró o falló la conexión: notificar al handler una sola vez.
+     */
+    void onRemoteClose() {
+        if (closed.compareAndSet(false, true)) {
+            release();
+            ConnectionHandler current = handler;
+            if (current != null) {
+                current.onConnectionClosed();
+            }
+        }
+    }
+    
+    private void release() {
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.debug("Error closing channel {}: {}", remoteAddress, e.getMessage());
+        }
+        wire.release();
+        outbound.close();
+        current = null;
+        pendingWrite = null;
+    }
+    
+    private static String resolveRemoteAddress(SocketChannel channel) {
+        try {
+            return channel.socket().getInetAddress().getHostAddress();
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+}
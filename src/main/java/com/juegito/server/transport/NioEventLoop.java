@@ -0,0 +1,211 @@
+package com.juegito.server.transport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hilo de I/O que atiende muchas conexiones con un único Selector.
+ * Usa un buffer de lectura y uno de escritura del pool, compartidos por todas sus conexiones.
+ */
+public class NioEventLoop implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(NioEventLoop.class);
+    private static final int MAX_READS_PER_EVENT = 16;
+    
+    private final String name;
+    private final Selector selector;
+    private final BufferPool readPool;
+    private final BufferPool writePool;
+    private final Queue<Runnable> tasks;
+    private final AtomicBoolean wakeupPending;
+    private volatile boolean running;
+    private Thread thread;
+    
+    // Solo accedidos desde el hilo del loop
+    private ByteBuffer readBuffer;
+    private ByteBuffer writeBuffer;
+    
+    public NioEventLoop(String name, BufferPool readPool, BufferPool writePool) throws IOException {
+        this.name = name;
+        this.selector = Selector.open();
+        this.readPool = readPool;
+        this.writePool = writePool;
+        this.tasks = new ConcurrentLinkedQueue<>();
+        this.wakeupPending = new AtomicBoolean(false);
+    }
+    
+    public void start() {
+        running = true;
+        thread = new Thread(this, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    @Override
+    public void run() {
+        readBuffer = readPool.acquire();
+        writeBuffer = writePool.acquire();
+        logger.debug("{} started", name);
+        
+        try {
+            while (running) {
+                // Las tareas encoladas desde este mismo hilo no despiertan al selector
+                if (tasks.isEmpty()) {
+                    selector.select();
+                } else {
+                    selector.selectNow();
+                }
+                wakeupPending.set(false);
+                runTasks();
+                processSelectedKeys();
+            }
+        } catch (IOException e) {
+            logger.error("{} selector failure: {}", name, e.getMessage());
+        } finally {
+            closeAll();
+            readPool.release(readBuffer);
+            writePool.release(writeBuffer);
+            logger.debug("{} stopped", name);
+        }
+    }
+    
+    private void processSelectedKeys() {
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            NioConnection connection = (NioConnection) key.attachment();
+            try {
+                if (key.isValid() && key.isReadable()) {
+                    read(connection);
+                }
+                if (key.isValid() && key.isWritable()) {
+                    connection.flush(writeBuffer);
+                }
+            } catch (IOException | CancelledKeyException e) {
+                logger.debug("Connection {} closed: {}", connection.getRemoteAddress(), e.getMessage());
+                connection.onRemoteClose();
+            } catch (RuntimeException e) {
+                logger.error("Unexpected error on {}: {}", connection.getRemoteAddress(), e.getMessage());
+                connection.onRemoteClose();
+            }
+        }
+    }
+    
+    private void read(NioConnection connection) throws IOException {
+        for (int i = 0; i < MAX_READS_PER_EVENT; i++) {
+            readBuffer.clear();
+            int read = connection.channel().read(readBuffer);
+            if (read < 0) {
+                connection.onRemoteClose();
+                return;
+            }
+            if (read == 0) {
+                return;
+            }
+            readBuffer.flip();
+            connection.onRead(readBuffer);
+            if (read < readBuffer.capacity()) {
+                return;
+            }
+        }
+    }
+    
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.error("{} task failed: {}", name, e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Registra una conexión en el selector de este loop.
+     */
+    void register(NioConnection connection) {
+        execute(() -> {
+            try {
+                SelectionKey key = connection.channel().register(selector, SelectionKey.OP_READ, connection);
+                connection.attach(key);
+                if (!connection.isOpen()) {
+                    key.cancel();
+                }
+            } catch (IOException e) {
+                logger.warn("Could not register connection {}: {}", connection.getRemoteAddress(), e.getMessage());
+                connection.onRemoteClose();
+            }
+        });
+    }
+    
+    /**
+     * Programa la escritura de los mensajes encolados en una conexión.
+     */
+    void requestFlush(NioConnection connection) {
+        execute(() -> flushFromTask(connection));
+    }
+    
+    private void flushFromTask(NioConnection connection) {
+        if (!connection.isOpen()) {
+            return;
+        }
+        try {
+            connection.flush(writeBuffer);
+        } catch (IOException | CancelledKeyException e) {
+            logger.debug("Write failed for {}: {}", connection.getRemoteAddress(), e.getMessage());
+            connection.onRemoteClose();
+        }
+    }
+    
+    /**
+     * Ejecuta una tarea en el hilo del loop.
+     */
+    void execute(Runnable task) {
+        tasks.add(task);
+        if (Thread.currentThread() != thread && wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+    
+    public void stop() {
+        running = false;
+        selector.wakeup();
+    }
+    
+    private void closeAll() {
+        for (SelectionKey key : selector.keys()) {
+            Object attachment = key.attachment();
+            if (attachment instanceof NioConnection) {
+                ((NioConnection) attachment).close();
+            }
+        }
+        runTasksQuietly();
+        try {
+            selector.close();
+        } catch (IOException e) {
+            logger.debug("Error closing selector: {}", e.getMessage());
+        }
+    }
+    
+    private void runTasksQuietly() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                // Cierre en curso
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.juegito.server.transport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Transporte no bloqueante basado en Selector.
+ * Un hilo acepta conexiones y las reparte en round-robin entre un número fijo de NioEventLoop,
+ * de modo que miles de clientes inactivos no consumen un hilo cada uno.
+ */
+public class NioTransport implements Transport {
+    private static final Logger logger = LoggerFactory.getLogger(NioTransport.class);
+    
+    private final int port;
+    private final WireSettings wireSettings;
+    private final OutboundLimits outboundLimits;
+    private final BufferPool readPool;
+    private final BufferPool writePool;
+    private final NioEventLoop[] loops;
+    private ServerSocketChannel serverChannel;
+    private volatile boolean running;
+    private int nextLoop;
+    
+    public NioTransport(int port, int ioThreads, int bufferSize, WireSettings wireSettings,
+                        OutboundLimits outboundLimits) throws IOException {
+        this.port = port;
+        this.wireSettings = wireSettings;
+        this.outboundLimits = outboundLimits;
+        // Lectura en heap (se decodifica desde el array); escritura en buffers directos
+        this.readPool = new BufferPool(bufferSize, ioThreads, false);
+        this.writePool = new BufferPool(bufferSize, ioThreads, true);
+        this.loops = new NioEventLoop[ioThreads];
+        for (int i = 0; i < ioThreads; i++) {
+            loops[i] = new NioEventLoop("nio-io-" + i, readPool, writePool);
+        }
+    }
+    
+    @Override
+    public void serve(ConnectionAcceptor acceptor) throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), 1024);
+        running = true;
+        
+        for (NioEventLoop loop : loops) {
+            loop.start();
+        }
+        logger.info("NIO transport listening on port {} with {} I/O threads", port, loops.length);
+        
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                acceptor.accept(new NioConnection(channel, nextLoop(), wireSettings, outboundLimits));
+            } catch (IOException e) {
+                if (running) {
+                    logger.error("Error accepting connection: {}", e.getMessage());
+                }
+            }
+        }
+    }
+    
+    private NioEventLoop nextLoop() {
+        NioEventLoop loop = loops[nextLoop];
+        nextLoop = (nextLoop + 1) % loops.length;
+        return loop;
+    }
+    
+    @Override
+    public void activate(Connection connection, ConnectionHandler handler) {
+        ((NioConnection) connection).activate(handler);
+    }
+    
+    @Override
+    public void stop() {
+        running = false;
+        for (NioEventLoop loop : loops) {
+            loop.stop();
+        }
+        try {
+            if (serverChannel != null && serverChannel.isOpen()) {
+                serverChannel.close();
+            }
+        } catch (IOException e) {
+            logger.error("Error closing server channel: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.juegito.server.transport;
+
+import com.juegito.protocol.EncodedMessage;
+
+import java.util.List;
+
+/**
+ * Mensajes para un mismo cliente que salen juntos, en orden.
+ * Si el cliente negoció CAP_BATCH viajan en un único frame BATCH; si no, se
+ * escriben seguidos en la misma escritura. Cada mensaje conserva sus bytes
+ * compartidos (EncodedMessage), así que armar el lote solo concatena.
+ */
+public final class OutboundBatch {
+    private final List<EncodedMessage> messages;
+    
+    public OutboundBatch(List<EncodedMessage> messages) {
+        this.messages = messages;
+    }
+    
+    public List<EncodedMessage> getMessages() {
+        return messages;
+    }
+}
@@ -0,0 +1,56 @@
+package com.juegito.server.transport;
+
+import com.juegito.protocol.EncodedMessage;
+import com.juegito.protocol.MessageType;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Clase de prioridad de un mensaje en la cola de salida de una conexión.
+ * CONTROL (ping, respuestas de conexión) se adelanta a todo lo encolado; GAMEPLAY y BULK
+ * salen en orden, pero los BULK grandes se fragmentan si el cliente lo negoció y sus
+ * partes restantes solo se escriben cuando no hay nada más esperando.
+ */
+public enum OutboundLane {
+    CONTROL,
+    GAMEPLAY,
+    BULK;
+    
+    // Estado completo del mapa, del juego o del lobby: pesados y reemplazables
+    private static final Set<MessageType> BULK_TYPES = EnumSet.of(
+        MessageType.MAP_STATE, MessageType.MAP_TERRAIN, MessageType.MAP_TERRAIN_PAGE, MessageType.FULL_RESYNC,
+        MessageType.GAME_STATE, MessageType.LOBBY_SNAPSHOT, MessageType.LOBBY_STATE);
+    
+    /**
+     * Los de control son los que no cuentan en la secuencia de la sesión: adelantarlos
+     * no cambia el orden en que el cliente numera los mensajes de la partida.
+     */
+    public static OutboundLane of(MessageType type) {
+        if (type == null) {
+            return GAMEPLAY;
+        }
+        if (!type.isSequenced()) {
+            return CONTROL;
+        }
+        return BULK_TYPES.contains(type) ? BULK : GAMEPLAY;
+    }
+    
+    static OutboundLane of(EncodedMessage message) {
+        return of(message.getType());
+    }
+    
+    /**
+     * Un lote solo es CONTROL o BULK si todos sus mensajes lo son; si no, sale como GAMEPLAY.
+     */
+    static OutboundLane of(OutboundBatch batch) {
+        boolean allControl = true;
+        boolean allBulk = true;
+        for (EncodedMessage message : batch.getMessages()) {
+            OutboundLane lane = of(message);
+            allControl &= lane == CONTROL;
+            allBulk &= lane == BULK;
+        }
+        return allControl ? CONTROL : allBulk ? BULK : GAMEPLAY;
+    }
+}
@@ -0,0 +1,47 @@
+package com.juegito.server.transport;
+
+/**
+ * Límites de la cola de salida de cada conexión.
+ * Por encima de highWatermark la conexión se considera lenta; vuelve a la
+ * normalidad al bajar de lowWatermark. Si permanece lenta más de
+ * slowConsumerTimeoutMs, o supera maxQueuedBytes, se expulsa.
+ */
+public class OutboundLimits {
+    private final long highWatermark;
+    private final long lowWatermark;
+    private final long maxQueuedBytes;
+    private final long slowConsumerTimeoutMs;
+    
+    public OutboundLimits(long highWatermark, long lowWatermark, long maxQueuedBytes, long slowConsumerTimeoutMs) {
+        if (lowWatermark > highWatermark || highWatermark > maxQueuedBytes) {
+            throw new IllegalArgumentException("Expected low <= high <= max outbound bytes");
+        }
+        this.highWatermark = highWatermark;
+        this.lowWatermark = lowWatermark;
+        this.maxQueuedBytes = maxQueuedBytes;
+        this.slowConsumerTimeoutMs = slowConsumerTimeoutMs;
+    }
+    
+    /**
+     * Límites por defecto: 256 KB / 64 KB, máximo 1 MB, 5 segundos de gracia.
+     */
+    public static OutboundLimits defaults() {
+        return new OutboundLimits(256 * 1024, 64 * 1024, 1024 * 1024, 5000);
+    }
+    
+    public long getHighWatermark() {
+        return highWatermark;
+    }
+    
+    public long getLowWatermark() {
+        return lowWatermark;
+    }
+    
+    public long getMaxQueuedBytes() {
+        return maxQueuedBytes;
+    }
+    
+    public long getSlowConsumerTimeoutMs() {
+        return slowConsumerTimeoutMs;
+    }
+}
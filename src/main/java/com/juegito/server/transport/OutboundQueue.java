@@ -0,0 +1,195 @@
+package com.juegito.server.transport;
+
+import com.juegito.protocol.EncodedMessage;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cola de salida de una conexión, acotada por bytes.
+ * Quien envía solo encola (nunca bloquea); un escritor dedicado o el loop de I/O
+ * la vacía y elige el formato de cable al escribir. offer() indica cuándo el
+ * cliente debe expulsarse por no consumir.
+ * Las entradas CONTROL (ver OutboundLane) se adelantan al resto, que sale en orden;
+ * la demora de cada entrada en la cola se registra por clase en LaneStats.
+ * Las partes pendientes de un mensaje fragmentado ya salieron de la cola pero siguen
+ * contando (charge/discharge) para el máximo y las marcas de agua.
+ */
+public class OutboundQueue {
+    private static final Object CLOSED = new Object();
+    private static final Object WAKE_UP = new Object();
+    
+    private final OutboundLimits limits;
+    private final LinkedBlockingQueue<Object> queue; // Entradas en orden (y marcas WAKE_UP/CLOSED)
+    private final Queue<Queued> control;
+    private final AtomicLong queuedBytes;
+    private volatile long overHighWatermarkSince; // 0 = por debajo del límite
+    private volatile boolean closed;
+    
+    public OutboundQueue(OutboundLimits limits) {
+        this.limits = limits;
+        this.queue = new LinkedBlockingQueue<>();
+        this.control = new ConcurrentLinkedQueue<>();
+        this.queuedBytes = new AtomicLong();
+    }
+    
+    /**
+     * Encola un mensaje ya codificado; bytes es su tamaño en el formato de la conexión.
+     * Retorna false si el cliente superó el máximo o lleva demasiado tiempo
+     * por encima de la marca alta.
+     */
+    public boolean offer(EncodedMessage message, long bytes) {
+        return add(new Queued(message, OutboundLane.of(message), bytes));
+    }
+    
+    /**
+     * Encola un lote de mensajes que se escribe de una sola vez.
+     */
+    public boolean offer(OutboundBatch batch, long bytes) {
+        return add(new Queued(batch, OutboundLane.of(batch), bytes));
+    }
+    
+    private boolean add(Queued entry) {
+        if (closed) {
+            return true;
+        }
+        long queued = queuedBytes.addAndGet(entry.bytes);
+        if (entry.lane == OutboundLane.CONTROL) {
+            control.add(entry);
+            queue.add(WAKE_UP); // Un escritor bloqueado en take() la ve enseguida
+        } else {
+            queue.add(entry);
+        }
+        return withinLimits(queued);
+    }
+    
+    /**
+     * Suma bytes que esperan fuera de la cola (las partes de un mensaje fragmentado).
+     * No expulsa: el próximo offer() ve el total y decide.
+     */
+    public void charge(long bytes) {
+        if (!closed) {
+            withinLimits(queuedBytes.addAndGet(bytes));
+        }
+    }
+    
+    /**
+     * Descuenta bytes sumados con charge() a medida que se escriben.
+     */
+    public void discharge(long bytes) {
+        if (!closed) {
+            discharged(queuedBytes.addAndGet(-bytes));
+        }
+    }
+    
+    /**
+     * Actualiza la marca alta con el total encolado; false si el cliente debe expulsarse.
+     */
+    private boolean withinLimits(long queued) {
+        if (queued > limits.getMaxQueuedBytes()) {
+            return false;
+        }
+        if (queued > limits.getHighWatermark()) {
+            long now = System.currentTimeMillis();
+            if (overHighWatermarkSince == 0) {
+                overHighWatermarkSince = now;
+            } else if (now - overHighWatermarkSince > limits.getSlowConsumerTimeoutMs()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private void discharged(long queued) {
+        if (queued <= limits.getLowWatermark()) {
+            overHighWatermarkSince = 0;
+        }
+    }
+    
+    /**
+     * Retira la siguiente entrada (EncodedMessage u OutboundBatch), o null si la cola está vacía.
+     */
+    public Object poll() {
+        Queued urgent = control.poll();
+        if (urgent != null) {
+            return release(urgent);
+        }
+        Object next;
+        while ((next = queue.poll()) == WAKE_UP) {
+            // Ignorar despertares pendientes
+        }
+        return next == null || next == CLOSED ? null : release((Queued) next);
+    }
+    
+    /**
+     * Retira la siguiente entrada esperando si hace falta.
+     * Retorna null si la cola se cierra o alguien llamó a wakeUp().
+     */
+    public Object take() throws InterruptedException {
+        Queued urgent = control.poll();
+        if (urgent != null) {
+            return release(urgent);
+        }
+        Object next = queue.take();
+        if (next == WAKE_UP) {
+            urgent = control.poll();
+            return urgent == null ? null : release(urgent);
+        }
+        return next == CLOSED ? null : release((Queued) next);
+    }
+    
+    /**
+     * Despierta al escritor bloqueado en take() sin encolar un mensaje.
+     */
+    public void wakeUp() {
+        queue.add(WAKE_UP);
+    }
+    
+    public boolean isEmpty() {
+        return closed || (queue.isEmpty() && control.isEmpty());
+    }
+    
+    public boolean isClosed() {
+        return closed;
+    }
+    
+    /**
+     * Descarta lo pendiente y despierta al escritor bloqueado en take().
+     */
+    public void close() {
+        closed = true;
+        queue.clear();
+        control.clear();
+        queuedBytes.set(0);
+        queue.add(CLOSED);
+    }
+    
+    public long getQueuedBytes() {
+        return queuedBytes.get();
+    }
+    
+    private Object release(Queued next) {
+        LaneStats.record(next.lane, System.nanoTime() - next.enqueuedNanos);
+        discharged(queuedBytes.addAndGet(-next.bytes));
+        return next.entry;
+    }
+    
+    /**
+     * Entrada encolada: el mensaje o lote (compartido entre conexiones) con su clase y hora de llegada.
+     */
+    private static final class Queued {
+        final Object entry;
+        final OutboundLane lane;
+        final long bytes;
+        final long enqueuedNanos;
+        
+        Queued(Object entry, OutboundLane lane, long bytes) {
+            this.entry = entry;
+            this.lane = lane;
+            this.bytes = bytes;
+            this.enqueuedNanos = System.nanoTime();
+        }
+    }
+}
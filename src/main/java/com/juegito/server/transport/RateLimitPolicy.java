@@ -0,0 +1,81 @@
+package com.juegito.server.transport;
+
+import com.juegito.protocol.MessageType;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Límites de los mensajes entrantes de cada conexión, como token buckets: uno para el
+ * total y uno opcional por tipo de mensaje. Cada bucket admite ráfagas de hasta burst
+ * mensajes y se recarga a perSecond mensajes por segundo.
+ * Inmutable: la comparten todas las conexiones de una partida.
+ */
+public class RateLimitPolicy {
+    private static final MessageType[] TYPES = MessageType.values();
+    
+    private final Limit total;
+    private final Limit[] limits; // Por ordinal de MessageType; null = solo cuenta en el total
+    
+    /**
+     * @param total Límite de todos los mensajes, o null para no limitar el total
+     * @param perType Límites por tipo; los tipos ausentes solo cuentan en el total
+     */
+    public RateLimitPolicy(Limit total, Map<MessageType, Limit> perType) {
+        this.total = total;
+        this.limits = new Limit[TYPES.length];
+        perType.forEach((type, limit) -> limits[type.ordinal()] = limit);
+    }
+    
+    /**
+     * Límites por defecto: 50 mensajes/s (ráfagas de 100) en total; PING y chat 2/s
+     * (ráfagas de 5), acciones de juego 10/s (ráfagas de 20).
+     */
+    public static RateLimitPolicy defaults() {
+        Map<MessageType, Limit> perType = new EnumMap<>(MessageType.class);
+        perType.put(MessageType.PING, new Limit(2, 5));
+        perType.put(MessageType.CHAT_MESSAGE_REQUEST, new Limit(2, 5));
+        perType.put(MessageType.PLAYER_ACTION, new Limit(10, 20));
+        return new RateLimitPolicy(new Limit(50, 100), perType);
+    }
+    
+    public Limit getTotal() {
+        return total;
+    }
+    
+    /**
+     * Límite propio del tipo, o null si solo cuenta en el total.
+     */
+    public Limit getLimit(MessageType type) {
+        return limits[type.ordinal()];
+    }
+    
+    /**
+     * Un token bucket: ráfagas de hasta burst mensajes, recarga de perSecond por segundo.
+     */
+    public static class Limit {
+        private final double perSecond;
+        private final int burst;
+        
+        public Limit(double perSecond, int burst) {
+            if (perSecond <= 0 || burst < 1) {
+                throw new IllegalArgumentException("Expected a positive rate and a burst of at least 1");
+            }
+            this.perSecond = perSecond;
+            this.burst = burst;
+        }
+        
+        public double getPerSecond() {
+            return perSecond;
+        }
+        
+        public int getBurst() {
+            return burst;
+        }
+        
+        @Override
+        public String toString() {
+            return perSecond + "/s burst " + burst;
+        }
+    }
+}
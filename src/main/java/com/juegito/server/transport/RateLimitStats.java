@@ -0,0 +1,59 @@
+package com.juegito.server.transport;
+
+import com.juegito.protocol.MessageType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mensajes entrantes descartados por los límites de tasa, por tipo, de todas las
+ * conexiones del proceso. Contadores sin bloqueo; el servidor los registra al detenerse.
+ */
+public final class RateLimitStats {
+    private static final MessageType[] TYPES = MessageType.values();
+    // Uno por tipo más uno para los de tipo desconocido
+    private static final LongAdder[] DROPPED = new LongAdder[TYPES.length + 1];
+    
+    static {
+        for (int i = 0; i < DROPPED.length; i++) {
+            DROPPED[i] = new LongAdder();
+        }
+    }
+    
+    private RateLimitStats() {
+    }
+    
+    static void recordDropped(MessageType type) {
+        DROPPED[type == null ? TYPES.length : type.ordinal()].increment();
+    }
+    
+    /**
+     * Mensajes descartados de un tipo (null = tipo desconocido).
+     */
+    public static long getDropped(MessageType type) {
+        return DROPPED[type == null ? TYPES.length : type.ordinal()].sum();
+    }
+    
+    public static long getTotalDropped() {
+        long total = 0;
+        for (LongAdder dropped : DROPPED) {
+            total += dropped.sum();
+        }
+        return total;
+    }
+    
+    /**
+     * Una línea por tipo con descartes.
+     */
+    public static List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < DROPPED.length; i++) {
+            long dropped = DROPPED[i].sum();
+            if (dropped > 0) {
+                lines.add(String.format("%s: %d dropped", i < TYPES.length ? TYPES[i] : "UNKNOWN", dropped));
+            }
+        }
+        return lines;
+    }
+}
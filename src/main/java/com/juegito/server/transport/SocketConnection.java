@@ -0,0 +1,153 @@
+package com.juegito.server.transport;
+
+import com.juegito.protocol.EncodedMessage;
+import com.juegito.protocol.Message;
+import com.juegito.protocol.binary.PlayerHandleTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Conexión bloqueante sobre un Socket clásico.
+ * Un hilo por cliente lee y decodifica la entrada (frames o líneas) y otro escribe
+ * lo que haya en la cola de salida, de modo que send() nunca bloquea al hilo que envía.
+ */
+public class SocketConnection implements Connection {
+    private static final Logger logger = LoggerFactory.getLogger(SocketConnection.class);
+    
+    private static final int READ_BUFFER_SIZE = 8192;
+    
+    private final Socket socket;
+    private final OutputStream output;
+    private final InputStream input;
+    private final OutboundQueue outbound;
+    private final WireSession wire;
+    private final ArrayDeque<Message> received; // Solo accedido por el hilo lector
+    private final AtomicBoolean closed;
+    private byte[] readBuffer;
+    
+    public SocketConnection(Socket socket, WireSettings wireSettings, OutboundLimits limits) throws IOException {
+        this.socket = socket;
+        this.output = new BufferedOutputStream(socket.getOutputStream());
+        this.input = socket.getInputStream();
+        this.outbound = new OutboundQueue(limits);
+        this.received = new ArrayDeque<>();
+        this.wire = new WireSession(wireSettings, received::add, outbound::wakeUp, outbound);
+        this.closed = new AtomicBoolean(false);
+    }
+    
+    @Override
+    public void send(EncodedMessage message) {
+        if (!closed.get() && !outbound.offer(message, wire.sizeOf(message))) {
+            evict();
+        }
+    }
+    
+    @Override
+    public void send(OutboundBatch batch) {
+        if (!closed.get() && !outbound.offer(batch, wire.sizeOf(batch))) {
+            evict();
+        }
+    }
+    
+    @Override
+    public int sizeOf(EncodedMessage message) {
+        return wire.sizeOf(message);
+    }
+    
+    private void evict() {
+        logger.warn("Evicting slow consumer {} ({} bytes queued)", getRemoteAddress(), outbound.getQueuedBytes());
+        // Cerrar el socket despierta al lector, que sigue el camino normal de desconexión
+        close();
+    }
+    
+    /**
+     * Tarea que vacía la cola de salida hacia el socket.
+     * Agrupa todo lo encolado en una sola escritura antes de hacer flush. Entre parte y
+     * parte de un mensaje fragmentado vuelve a mirar la cola, así lo nuevo se intercala.
+     */
+    public Runnable writer() {
+        return () -> {
+            try {
+                while (!outbound.isClosed()) {
+                    // take() también retorna null cuando hay que responder el handshake
+                    Object next = wire.hasFragments() ? outbound.poll() : outbound.take();
+                    byte[] reply = wire.pollHandshakeReply();
+                    if (reply != null) {
+                        output.write(reply);
+                    }
+                    byte[] data = next != null ? wire.encode(next) : wire.pollFragment();
+                    while (data != null) {
+                        output.write(data);
+                        next = outbound.poll();
+                        data = next != null ? wire.encode(next) : wire.pollFragment();
+                    }
+                    output.flush();
+                }
+            } catch (IOException e) {
+                logger.debug("Error writing to {}: {}", getRemoteAddress(), e.getMessage());
+                close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+            }
+        };
+    }
+    
+    @Override
+    public Message receive() throws IOException {
+        while (received.isEmpty()) {
+            if (readBuffer == null) {
+                readBuffer = new byte[READ_BUFFER_SIZE];
+            }
+            int read = input.read(readBuffer);
+            if (read < 0) {
+                readBuffer = null;
+                wire.release();
+                return null;
+            }
+            wire.feed(readBuffer, 0, read);
+        }
+        return received.poll();
+    }
+    
+    @Override
+    public String getRemoteAddress() {
+        return socket.getInetAddress().getHostAddress();
+    }
+    
+    @Override
+    public boolean isOpen() {
+        return !closed.get();
+    }
+    
+    @Override
+    public void setRateLimits(RateLimitPolicy policy) {
+        wire.setRateLimits(policy);
+    }
+    
+    @Override
+    public void setPlayerHandles(PlayerHandleTable handles) {
+        wire.setPlayerHandles(handles);
+    }
+    
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        outbound.close();
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Ignorar: la conexión ya está cerrada
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.juegito.server.transport;
+
+import java.io.IOException;
+
+/**
+ * Estrategia de transporte de red del servidor.
+ * Acepta conexiones y entrega sus mensajes a un ConnectionHandler.
+ */
+public interface Transport {
+    
+    /**
+     * Acepta conexiones hasta que se detenga el transporte.
+     * Bloquea al hilo que lo invoca.
+     */
+    void serve(ConnectionAcceptor acceptor) throws IOException;
+    
+    /**
+     * Empieza a entregar los mensajes de la conexión al handler.
+     */
+    void activate(Connection connection, ConnectionHandler handler);
+    
+    void stop();
+    
+    /**
+     * Callback invocado por cada conexión aceptada.
+     */
+    interface ConnectionAcceptor {
+        void accept(Connection connection) throws IOException;
+    }
+}
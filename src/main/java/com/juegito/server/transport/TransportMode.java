@@ -0,0 +1,30 @@
+package com.juegito.server.transport;
+
+/**
+ * Modos de transporte de red soportados por el servidor.
+ */
+public enum TransportMode {
+    /**
+     * Selector NIO con un conjunto fijo y pequeño de hilos de I/O.
+     */
+    NIO,
+    
+    /**
+     * Un hilo del pool por cliente bloqueado en la lectura del socket.
+     */
+    BLOCKING,
+    
+    /**
+     * Igual que BLOCKING pero cada cliente usa un hilo virtual (requiere Java 21).
+     */
+    VIRTUAL;
+    
+    public static TransportMode fromString(String value) {
+        for (TransportMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(value)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown transport mode: " + value);
+    }
+}
@@ -0,0 +1,398 @@
+package com.juegito.server.transport;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.juegito.protocol.EncodedMessage;
+import com.juegito.protocol.Message;
+import com.juegito.protocol.MessageType;
+import com.juegito.protocol.MessageTypeAdapter;
+import com.juegito.protocol.binary.BinaryCodec;
+import com.juegito.protocol.binary.PlayerHandleTable;
+import com.juegito.protocol.wire.Frame;
+import com.juegito.protocol.wire.FrameCodec;
+import com.juegito.protocol.wire.FrameCompressor;
+import com.juegito.protocol.wire.FrameType;
+import com.juegito.protocol.wire.Handshake;
+import com.juegito.protocol.wire.Varint;
+import com.juegito.protocol.wire.WireDecoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Estado del formato de cable de una conexión.
+ * Decodifica la entrada (líneas, frames JSON o binarios) y decide cómo codificar la
+ * salida: JSON por líneas hasta que el cliente negocia frames (y opcionalmente el codec
+ * binario y la compresión de frames grandes) en el handshake. La salida cambia de formato
+ * justo después de escribir la respuesta del handshake, de modo que el cliente sabe
+ * exactamente desde qué byte llegan frames.
+ * Si el cliente negoció CAP_FRAGMENTS, un mensaje BULK de más de FRAGMENT_BYTES sale en
+ * frames FRAGMENT: el primero en su lugar y el resto cuando la cola no tiene otra cosa.
+ * Dentro de un lote solo se fragmenta el último mensaje, así nada del mismo lote lo adelanta.
+ * Las partes pendientes cuentan para el límite de la cola de salida hasta que se escriben.
+ * Los mensajes entrantes pasan por los límites de tasa de la partida con solo leer su
+ * tipo: los que se descartan nunca se deserializan.
+ * Los handles de jugador son de la partida: todas sus conexiones comparten la tabla, así la
+ * forma binaria de un broadcast se codifica una vez. Al pasar a otra partida la conexión
+ * vuelve a definir cada handle antes de usarlo.
+ */
+class WireSession implements WireDecoder.Listener {
+    private static final Logger logger = LoggerFactory.getLogger(WireSession.class);
+    private static final Gson GSON = MessageTypeAdapter.createGson();
+    static final int FRAGMENT_BYTES = 1024;
+    // Tabla propia hasta que la conexión entra a una partida (mensajes previos al lobby)
+    private static final int MAX_PLAYER_HANDLES = 64;
+    
+    private final WireDecoder decoder;
+    private final int maxMessageBytes;
+    private final FrameCompressor compressor;
+    private final int supportedCapabilities;
+    private final Consumer<Message> messageConsumer;
+    private final Runnable handshakeListener;
+    private final OutboundQueue outbound; // Donde se cargan los bytes de las partes pendientes
+    private final InboundRateLimiter rateLimiter; // Solo lo usa el hilo que decodifica
+    private volatile PlayerHandleTable playerHandles;
+    private boolean throttled; // Ya se avisó del primer descarte
+    private volatile int acceptedCapabilities;
+    private volatile boolean replyPending;
+    // Solo accedidos por el escritor
+    private boolean framedOutput;
+    private boolean binaryOutput;
+    private boolean compressedOutput;
+    private boolean batchOutput;
+    private boolean fragmentedOutput;
+    private BitSet definedHandles;
+    private PlayerHandleTable definedTable; // Tabla a la que pertenecen los handles definidos
+    private final ArrayDeque<byte[]> fragments; // Partes pendientes de los mensajes fragmentados, en orden
+    private int nextStream;
+    
+    /**
+     * @param messageConsumer Recibe cada mensaje completo ya decodificado
+     * @param handshakeListener Se invoca al recibir el handshake para que el escritor responda
+     * @param outbound Cola de salida de la conexión
+     */
+    WireSession(WireSettings settings, Consumer<Message> messageConsumer, Runnable handshakeListener,
+                OutboundQueue outbound) {
+        this.decoder = new WireDecoder(settings.getMaxMessageBytes());
+        this.maxMessageBytes = settings.getMaxMessageBytes();
+        this.compressor = settings.getCompressor();
+        this.supportedCapabilities = Handshake.CAP_FRAMES | Handshake.CAP_BINARY | Handshake.CAP_BATCH
+            | Handshake.CAP_FRAGMENTS | (settings.isCompressionEnabled() ? Handshake.CAP_DEFLATE : 0);
+        this.messageConsumer = messageConsumer;
+        this.handshakeListener = handshakeListener;
+        this.outbound = outbound;
+        this.rateLimiter = new InboundRateLimiter();
+        this.playerHandles = PlayerHandleTable.assigning(MAX_PLAYER_HANDLES);
+        this.fragments = new ArrayDeque<>();
+    }
+    
+    /**
+     * Límites de los mensajes entrantes (los de la partida de la conexión); null = sin límite.
+     */
+    void setRateLimits(RateLimitPolicy policy) {
+        rateLimiter.setPolicy(policy);
+    }
+    
+    /**
+     * Tabla de handles de la partida de la conexión; la salida binaria la usa desde el próximo mensaje.
+     */
+    void setPlayerHandles(PlayerHandleTable handles) {
+        playerHandles = handles;
+    }
+    
+    void feed(byte[] data, int offset, int length) throws IOException {
+        decoder.feed(data, offset, length, this);
+    }
+    
+    @Override
+    public void onHandshake(int capabilities) {
+        int accepted = capabilities & supportedCapabilities;
+        if ((accepted & Handshake.CAP_FRAMES) == 0) {
+            accepted = 0; // El codec binario y la compresión solo viajan en frames
+        }
+        acceptedCapabilities = accepted;
+        replyPending = true;
+        handshakeListener.run();
+    }
+    
+    @Override
+    public void onLine(String line) {
+        if (admitJson(line)) {
+            deliverJson(line);
+        }
+    }
+    
+    @Override
+    public void onFrame(Frame frame) throws IOException {
+        byte[] payload = frame.getPayload();
+        if (frame.hasFlag(Frame.FLAG_COMPRESSED)) {
+            if ((acceptedCapabilities & Handshake.CAP_DEFLATE) == 0) {
+                throw new ProtocolException("Compression was not negotiated");
+            }
+            payload = compressor.inflate(payload, maxMessageBytes);
+        }
+        switch (frame.getType()) {
+            case JSON:
+                String json = new String(payload, StandardCharsets.UTF_8);
+                if (admitJson(json)) {
+                    deliverJson(json);
+                }
+                break;
+            case BINARY:
+                if (!rateLimiter.isActive() || admit(BinaryCodec.peekType(payload))) {
+                    messageConsumer.accept(BinaryCodec.decode(payload, playerHandles));
+                }
+                break;
+            default:
+                throw new ProtocolException("Unsupported frame type " + frame.getType());
+        }
+    }
+    
+    private boolean admitJson(String json) {
+        return !rateLimiter.isActive() || admit(MessageTypeAdapter.peekType(json));
+    }
+    
+    /**
+     * Consume del límite del tipo; si no alcanza, el mensaje se descarta y se cuenta.
+     */
+    private boolean admit(MessageType type) {
+        if (rateLimiter.tryAcquire(type, System.nanoTime())) {
+            return true;
+        }
+        RateLimitStats.recordDropped(type);
+        if (!throttled) {
+            throttled = true;
+            logger.warn("Inbound {} over its rate limit: dropping (further drops are only counted)", type);
+        }
+        return false;
+    }
+    
+    /**
+     * Un JSON mal formado se descarta sin cerrar la conexión, como antes de los frames.
+     */
+    private void deliverJson(String json) {
+        Message message;
+        try {
+            message = GSON.fromJson(json, Message.class);
+        } catch (JsonParseException e) {
+            logger.warn("Ignoring malformed message: {}", e.getMessage());
+            return;
+        }
+        if (message != null) {
+            messageConsumer.accept(message);
+        }
+    }
+    
+    /**
+     * Respuesta del handshake pendiente de escribir (una sola vez), o null.
+     * Solo la llama el escritor; a partir de aquí la salida usa el formato negociado.
+     */
+    byte[] pollHandshakeReply() {
+        if (!replyPending) {
+            return null;
+        }
+        replyPending = false;
+        int capabilities = acceptedCapabilities;
+        framedOutput = (capabilities & Handshake.CAP_FRAMES) != 0;
+        binaryOutput = (capabilities & Handshake.CAP_BINARY) != 0;
+        compressedOutput = (capabilities & Handshake.CAP_DEFLATE) != 0;
+        batchOutput = (capabilities & Handshake.CAP_BATCH) != 0;
+        fragmentedOutput = (capabilities & Handshake.CAP_FRAGMENTS) != 0;
+        if (binaryOutput) {
+            definedHandles = new BitSet();
+        }
+        return Handshake.encode(capabilities);
+    }
+    
+    /**
+     * Tamaño de lo que se escribirá para el mensaje con el formato negociado, sin definiciones
+     * de handles ni cabeceras de fragmento; acota la cola de salida. Lo llama quien envía:
+     * construye la forma compartida que el escritor después reutiliza.
+     */
+    int sizeOf(EncodedMessage message) {
+        int capabilities = acceptedCapabilities;
+        FrameCompressor frameCompressor = (capabilities & Handshake.CAP_DEFLATE) != 0 ? compressor : null;
+        if ((capabilities & Handshake.CAP_BINARY) != 0 && message.hasBinary()) {
+            return message.getBinarySize(playerHandles, frameCompressor);
+        }
+        if (frameCompressor != null) {
+            return message.getFrame(frameCompressor).length;
+        }
+        return (capabilities & Handshake.CAP_FRAMES) != 0 ? message.getFrame().length : message.getLine().length;
+    }
+    
+    long sizeOf(OutboundBatch batch) {
+        long bytes = 0;
+        for (EncodedMessage message : batch.getMessages()) {
+            bytes += sizeOf(message);
+        }
+        return bytes;
+    }
+    
+    /**
+     * Bytes de una entrada de la cola de salida (EncodedMessage u OutboundBatch).
+     */
+    byte[] encode(Object entry) {
+        byte[] encoded;
+        OutboundLane lane;
+        if (entry instanceof OutboundBatch) {
+            encoded = encode((OutboundBatch) entry);
+            lane = OutboundLane.of((OutboundBatch) entry);
+        } else {
+            encoded = encode((EncodedMessage) entry);
+            lane = OutboundLane.of((EncodedMessage) entry);
+        }
+        LaneStats.recordWritten(lane, encoded.length);
+        return encoded;
+    }
+    
+    /**
+     * Los mensajes del lote seguidos, envueltos en un frame BATCH si el cliente lo negoció.
+     * Cada mensaje usa su forma compartida (binaria, comprimida, etc.); el lote no se recomprime.
+     * Un lote que excedería el máximo de un frame viaja como frames sueltos.
+     * Solo el último mensaje puede fragmentarse: el resto del lote saldría antes que sus partes.
+     */
+    byte[] encode(OutboundBatch batch) {
+        List<EncodedMessage> messages = batch.getMessages();
+        byte[][] parts = new byte[messages.size()][];
+        int length = 0;
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = encode(messages.get(i), i == parts.length - 1);
+            length += parts[i].length;
+        }
+        
+        boolean wrap = batchOutput && parts.length > 1 && length <= maxMessageBytes;
+        int headerBytes = wrap ? 2 + Varint.size(length) : 0;
+        byte[] encoded = new byte[headerBytes + length];
+        if (wrap) {
+            encoded[0] = (byte) FrameType.BATCH.getCode();
+            encoded[1] = 0;
+            Varint.write(length, encoded, 2);
+        }
+        int position = headerBytes;
+        for (byte[] part : parts) {
+            System.arraycopy(part, 0, encoded, position, part.length);
+            position += part.length;
+        }
+        return encoded;
+    }
+    
+    /**
+     * Bytes del mensaje en el formato de salida actual (compartidos, no modificar).
+     * En binario, si el mensaje usa handles que el cliente aún no conoce, se antepone
+     * un frame HANDLES con sus definiciones. Los frames grandes van comprimidos si se negoció.
+     * Un BULK grande devuelve solo su primer FRAGMENT; el resto queda en pollFragment().
+     */
+    byte[] encode(EncodedMessage message) {
+        return encode(message, true);
+    }
+    
+    private byte[] encode(EncodedMessage message, boolean fragmentable) {
+        byte[] definitions = null;
+        byte[] frame;
+        if (binaryOutput && message.hasBinary()) {
+            PlayerHandleTable handles = outputHandles();
+            frame = compressedOutput
+                ? message.getBinaryFrame(handles, compressor) : message.getBinaryFrame(handles);
+            definitions = newHandleDefinitions(handles, message.getPlayerHandles(handles));
+            message.recordDelivery(handles);
+        } else {
+            if (compressedOutput) {
+                frame = message.getFrame(compressor);
+            } else {
+                frame = framedOutput ? message.getFrame() : message.getLine();
+            }
+            message.recordDelivery();
+        }
+        
+        // Las definiciones de handles nunca se fragmentan: otro mensaje puede usarlas antes de que termine
+        if (fragmentable && fragmentedOutput && frame.length > FRAGMENT_BYTES
+                && OutboundLane.of(message) == OutboundLane.BULK) {
+            frame = fragment(frame);
+        }
+        if (definitions == null) {
+            return frame;
+        }
+        byte[] combined = Arrays.copyOf(definitions, definitions.length + frame.length);
+        System.arraycopy(frame, 0, combined, definitions.length, frame.length);
+        return combined;
+    }
+    
+    /**
+     * Parte los bytes del frame en un stream nuevo: retorna el primer FRAGMENT y encola el resto,
+     * cargado a la cola de salida.
+     */
+    private byte[] fragment(byte[] frame) {
+        int stream = nextStream;
+        nextStream = (nextStream + 1) & 0xFFFF;
+        for (int offset = FRAGMENT_BYTES; offset < frame.length; offset += FRAGMENT_BYTES) {
+            int length = Math.min(FRAGMENT_BYTES, frame.length - offset);
+            byte[] part = FrameCodec.encodeFragment(stream, offset + length == frame.length, frame, offset, length);
+            fragments.add(part);
+            outbound.charge(part.length);
+        }
+        return FrameCodec.encodeFragment(stream, false, frame, 0, FRAGMENT_BYTES);
+    }
+    
+    /**
+     * Próxima parte pendiente de un mensaje fragmentado, o null. El escritor la pide
+     * solo cuando la cola de salida está vacía, así todo lo demás pasa antes.
+     */
+    byte[] pollFragment() {
+        byte[] next = fragments.poll();
+        if (next != null) {
+            outbound.discharge(next.length);
+            LaneStats.recordWritten(OutboundLane.BULK, next.length);
+        }
+        return next;
+    }
+    
+    boolean hasFragments() {
+        return !fragments.isEmpty();
+    }
+    
+    /**
+     * Tabla actual para la salida. Si la conexión cambió de partida, lo que el cliente conoce
+     * es de otra tabla: se redefine cada handle la primera vez que se use (la definición pisa
+     * la anterior en el cliente).
+     */
+    private PlayerHandleTable outputHandles() {
+        PlayerHandleTable handles = playerHandles;
+        if (handles != definedTable) {
+            definedTable = handles;
+            definedHandles.clear();
+        }
+        return handles;
+    }
+    
+    private byte[] newHandleDefinitions(PlayerHandleTable table, int[] handles) {
+        int[] missing = null;
+        int count = 0;
+        for (int handle : handles) {
+            if (!definedHandles.get(handle)) {
+                if (missing == null) {
+                    missing = new int[handles.length];
+                }
+                missing[count++] = handle;
+                definedHandles.set(handle);
+            }
+        }
+        if (missing == null) {
+            return null;
+        }
+        return FrameCodec.encode(FrameType.HANDLES, 0, table.encodeDefinitions(missing, count));
+    }
+    
+    void release() {
+        decoder.reset();
+        fragments.clear();
+    }
+}
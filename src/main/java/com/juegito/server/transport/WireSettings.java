@@ -0,0 +1,32 @@
+package com.juegito.server.transport;
+
+import com.juegito.protocol.wire.FrameCompressor;
+
+/**
+ * Parámetros del formato de cable compartidos por todas las conexiones.
+ */
+public class WireSettings {
+    private final int maxMessageBytes;
+    private final FrameCompressor compressor;
+    
+    /**
+     * @param maxMessageBytes Tamaño máximo de un mensaje entrante (línea o payload de frame)
+     * @param compressor Compresión de frames grandes, o null para no ofrecerla
+     */
+    public WireSettings(int maxMessageBytes, FrameCompressor compressor) {
+        this.maxMessageBytes = maxMessageBytes;
+        this.compressor = compressor;
+    }
+    
+    public int getMaxMessageBytes() {
+        return maxMessageBytes;
+    }
+    
+    public FrameCompressor getCompressor() {
+        return compressor;
+    }
+    
+    public boolean isCompressionEnabled() {
+        return compressor != null;
+    }
+}
@@ -0,0 +1,165 @@
+package com.juegito.server;
+
+import com.juegito.protocol.EncodedMessage;
+import com.juegito.protocol.MessageType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdleTimeoutWheelTest {
+    private static final long TIMEOUT_MS = 1000;
+    private static final long PING_AFTER_MS = 400;
+    private static final long TICK_MS = 100;
+    
+    private long start;
+    private long now;
+    
+    @Test
+    void idleClientIsPingedOnceThenTimedOut() {
+        IdleTimeoutWheel wheel = newWheel(TIMEOUT_MS, PING_AFTER_MS, TICK_MS);
+        FakeClient client = new FakeClient(start);
+        wheel.register(client);
+        
+        runUntil(wheel, start + 2 * TIMEOUT_MS, TICK_MS);
+        
+        assertEquals(1, client.pings);
+        assertBetween(start + PING_AFTER_MS, start + PING_AFTER_MS + 2 * TICK_MS, client.firstPingAt);
+        assertEquals(1, client.timeouts);
+        assertBetween(start + TIMEOUT_MS, start + TIMEOUT_MS + 2 * TICK_MS, client.timedOutAt);
+        assertEquals(1, wheel.getPingsSent());
+        assertEquals(1, wheel.getTimeouts());
+    }
+    
+    /**
+     * La actividad no toca la rueda: al vencer, la entrada se recoloca según la última.
+     */
+    @Test
+    void activityPushesDeadlineBack() {
+        IdleTimeoutWheel wheel = newWheel(TIMEOUT_MS, PING_AFTER_MS, TICK_MS);
+        FakeClient client = new FakeClient(start);
+        wheel.register(client);
+        
+        runUntil(wheel, start + 300, TICK_MS);
+        client.lastActivity = now;
+        runUntil(wheel, start + 1200, TICK_MS);
+        
+        assertEquals(0, client.timeouts);
+        assertEquals(1, client.pings);
+        assertBetween(start + 300 + PING_AFTER_MS, start + 300 + PING_AFTER_MS + 2 * TICK_MS, client.firstPingAt);
+        
+        runUntil(wheel, start + 300 + TIMEOUT_MS + 2 * TICK_MS, TICK_MS);
+        
+        assertEquals(1, client.timeouts);
+        assertBetween(start + 300 + TIMEOUT_MS, start + 300 + TIMEOUT_MS + 2 * TICK_MS, client.timedOutAt);
+    }
+    
+    /**
+     * Un mensaje después del PING vuelve a habilitar otro PING para el nuevo período.
+     */
+    @Test
+    void clientThatAnswersIsPingedAgainOnlyAfterNewSilence() {
+        IdleTimeoutWheel wheel = newWheel(TIMEOUT_MS, PING_AFTER_MS, TICK_MS);
+        FakeClient client = new FakeClient(start);
+        wheel.register(client);
+        
+        runUntil(wheel, start + 700, TICK_MS);
+        assertEquals(1, client.pings);
+        client.lastActivity = now; // PONG
+        runUntil(wheel, start + 1600, TICK_MS);
+        
+        assertEquals(2, client.pings);
+        assertEquals(0, client.timeouts);
+    }
+    
+    @Test
+    void stoppedHandlerIsDropped() {
+        IdleTimeoutWheel wheel = newWheel(TIMEOUT_MS, PING_AFTER_MS, TICK_MS);
+        FakeClient client = new FakeClient(start);
+        wheel.register(client);
+        client.running = false;
+        
+        runUntil(wheel, start + 3 * TIMEOUT_MS, TICK_MS);
+        
+        assertEquals(0, client.pings);
+        assertEquals(0, client.timeouts);
+    }
+    
+    /**
+     * Con más ticks de timeout que casilleros la entrada da vueltas hasta su tick.
+     */
+    @Test
+    void deadlineBeyondOneTurnWaitsForItsTick() {
+        long timeoutMs = 5000;
+        long pingAfterMs = 4000;
+        IdleTimeoutWheel wheel = newWheel(timeoutMs, pingAfterMs, 1);
+        FakeClient client = new FakeClient(start);
+        wheel.register(client);
+        
+        runUntil(wheel, start + pingAfterMs - 10, 1);
+        assertEquals(0, client.pings);
+        runUntil(wheel, start + timeoutMs + 10, 1);
+        
+        assertEquals(1, client.pings);
+        assertEquals(1, client.timeouts);
+    }
+    
+    private IdleTimeoutWheel newWheel(long timeoutMs, long pingAfterMs, long tickMs) {
+        start = System.currentTimeMillis();
+        IdleTimeoutWheel wheel = new IdleTimeoutWheel(timeoutMs, pingAfterMs, tickMs);
+        now = start;
+        return wheel;
+    }
+    
+    /**
+     * Avanza la rueda tick a tick con un reloj simulado.
+     */
+    private void runUntil(IdleTimeoutWheel wheel, long until, long tickMs) {
+        while (now + tickMs <= until) {
+            now += tickMs;
+            wheel.tick(now);
+        }
+    }
+    
+    private static void assertBetween(long from, long to, long actual) {
+        assertTrue(actual >= from && actual <= to, actual - from + " ms after " + from);
+    }
+    
+    private class FakeClient implements IdleTimeoutWheel.Watched {
+        long lastActivity;
+        boolean running = true;
+        int pings;
+        long firstPingAt = -1;
+        int timeouts;
+        long timedOutAt = -1;
+        
+        FakeClient(long lastActivity) {
+            this.lastActivity = lastActivity;
+        }
+        
+        @Override
+        public long getLastActivity() {
+            return lastActivity;
+        }
+        
+        @Override
+        public boolean isRunning() {
+            return running;
+        }
+        
+        @Override
+        public void onIdleTimeout(long idleMs) {
+            timeouts++;
+            timedOutAt = now;
+            running = false;
+        }
+        
+        @Override
+        public void sendMessage(EncodedMessage message) {
+            assertEquals(MessageType.PING, message.getType());
+            if (pings++ == 0) {
+                firstPingAt = now;
+            }
+        }
+    }
+}
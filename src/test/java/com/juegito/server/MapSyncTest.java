@@ -0,0 +1,216 @@
+package com.juegito.server;
+
+import com.juegito.model.BiomeType;
+import com.juegito.model.GameMap;
+import com.juegito.model.HexCoordinate;
+import com.juegito.model.Player;
+import com.juegito.model.Tile;
+import com.juegito.model.TileType;
+import com.juegito.protocol.EncodedMessage;
+import com.juegito.protocol.Message;
+import com.juegito.protocol.MessageType;
+import com.juegito.protocol.binary.PlayerHandleTable;
+import com.juegito.server.transport.Connection;
+import com.juegito.server.transport.OutboundBatch;
+import com.juegito.server.transport.RateLimitPolicy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MapSyncTest {
+    private static final int RADIUS = 2;
+    
+    private NetworkService networkService;
+    private MapSync mapSync;
+    private GameMap map;
+    private List<Player> players;
+    
+    @BeforeEach
+    void setUp() {
+        networkService = new NetworkService(new HashMap<>(), new HashMap<>());
+        mapSync = new MapSync(networkService);
+        map = new GameMap(RADIUS);
+        for (int q = -RADIUS; q <= RADIUS; q++) {
+            for (int r = Math.max(-RADIUS, -q - RADIUS); r <= Math.min(RADIUS, -q + RADIUS); r++) {
+                map.addTile(new Tile(HexCoordinate.of(q, r), BiomeType.PLAINS, TileType.NORMAL));
+            }
+        }
+        players = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Player player = new Player("player-" + i, "Player_" + i, new RecordingConnection());
+            players.add(player);
+            map.placePlayer(player.getPlayerId(), HexCoordinate.of(i, 0));
+        }
+    }
+    
+    @Test
+    void firstSyncSendsTerrainThenOccupancy() {
+        sync();
+        
+        List<MessageType> types = types(players.get(0));
+        assertEquals(MessageType.MAP_TERRAIN, types.get(0));
+        assertEquals(MessageType.MAP_STATE, types.get(types.size() - 1));
+    }
+    
+    @Test
+    void sameVersionIsNotSentTwice() {
+        sync();
+        clear();
+        
+        sync();
+        
+        assertTrue(sent(players.get(0)).isEmpty());
+    }
+    
+    /**
+     * Quien confirmó una versión recibe solo el delta; quien no, la ocupación completa otra vez.
+     */
+    @Test
+    void acknowledgedPlayerGetsDelta() {
+        sync();
+        mapSync.acknowledge("player-0", map.getVersion());
+        clear();
+        
+        map.placePlayer("player-1", HexCoordinate.of(-1, 0));
+        sync();
+        
+        assertEquals(List.of(MessageType.MAP_DELTA), types(players.get(0)));
+        assertEquals(List.of(MessageType.MAP_STATE), types(players.get(1)));
+    }
+    
+    @Test
+    void deltasFromSameBaseShareTheSerialization() {
+        sync();
+        long base = map.getVersion();
+        mapSync.acknowledge("player-0", base);
+        mapSync.acknowledge("player-1", base);
+        clear();
+        
+        map.placePlayer("player-2", HexCoordinate.of(-1, 0));
+        sync();
+        
+        EncodedMessage delta = single(players.get(0));
+        assertEquals(MessageType.MAP_DELTA, delta.getType());
+        assertSame(delta, single(players.get(1)));
+    }
+    
+    /**
+     * Si se movieron todos, el delta ocupa lo mismo que la ocupación completa.
+     */
+    @Test
+    void deltaFallsBackToFullWhenEveryoneMoved() {
+        sync();
+        mapSync.acknowledge("player-0", map.getVersion());
+        clear();
+        
+        for (int i = 0; i < players.size(); i++) {
+            map.placePlayer("player-" + i, HexCoordinate.of(i - 1, 1));
+        }
+        sync();
+        
+        assertEquals(List.of(MessageType.MAP_STATE), types(players.get(0)));
+    }
+    
+    /**
+     * Tras una desconexión se olvida lo confirmado: al volver recibe la ocupación completa, sin terreno.
+     */
+    @Test
+    void forgottenPlayerGetsFullOccupancyWithoutTerrain() {
+        sync();
+        mapSync.acknowledge("player-0", map.getVersion());
+        mapSync.forget("player-0");
+        clear();
+        
+        map.placePlayer("player-1", HexCoordinate.of(-1, 0));
+        sync();
+        
+        assertEquals(List.of(MessageType.MAP_STATE), types(players.get(0)));
+    }
+    
+    private void sync() {
+        mapSync.sync(players, map);
+        networkService.flush();
+    }
+    
+    private void clear() {
+        for (Player player : players) {
+            sent(player).clear();
+        }
+    }
+    
+    private static EncodedMessage single(Player player) {
+        List<EncodedMessage> sent = sent(player);
+        assertEquals(1, sent.size());
+        assertNotNull(sent.get(0));
+        return sent.get(0);
+    }
+    
+    private static List<MessageType> types(Player player) {
+        List<MessageType> types = new ArrayList<>();
+        for (EncodedMessage message : sent(player)) {
+            types.add(message.getType());
+        }
+        return types;
+    }
+    
+    private static List<EncodedMessage> sent(Player player) {
+        return ((RecordingConnection) player.getConnection()).sent;
+    }
+    
+    /**
+     * Conexión que guarda los mensajes tal como se los entrega NetworkService.
+     */
+    private static class RecordingConnection implements Connection {
+        private final List<EncodedMessage> sent = new ArrayList<>();
+        
+        @Override
+        public void send(EncodedMessage message) {
+            sent.add(message);
+        }
+        
+        @Override
+        public void send(OutboundBatch batch) {
+            sent.addAll(batch.getMessages());
+        }
+        
+        @Override
+        public int sizeOf(EncodedMessage message) {
+            return message.getLine().length;
+        }
+        
+        @Override
+        public Message receive() {
+            return null;
+        }
+        
+        @Override
+        public String getRemoteAddress() {
+            return "test";
+        }
+        
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+        
+        @Override
+        public void setRateLimits(RateLimitPolicy policy) {
+        }
+        
+        @Override
+        public void setPlayerHandles(PlayerHandleTable handles) {
+        }
+        
+        @Override
+        public void close() {
+        }
+    }
+}
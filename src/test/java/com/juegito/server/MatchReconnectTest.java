@@ -0,0 +1,253 @@
+package com.juegito.server;
+
+import com.google.gson.Gson;
+import com.juegito.protocol.EncodedMessage;
+import com.juegito.protocol.Message;
+import com.juegito.protocol.MessageType;
+import com.juegito.protocol.MessageTypeAdapter;
+import com.juegito.protocol.binary.PlayerHandleTable;
+import com.juegito.protocol.dto.ReconnectRequestDTO;
+import com.juegito.protocol.dto.ReconnectResponseDTO;
+import com.juegito.protocol.dto.lobby.ReadyStatusChangeDTO;
+import com.juegito.server.transport.Connection;
+import com.juegito.server.transport.OutboundBatch;
+import com.juegito.server.transport.RateLimitPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Reconexión a una partida en curso a través de MatchManager, con conexiones en memoria.
+ */
+class MatchReconnectTest {
+    private static final Gson GSON = MessageTypeAdapter.createGson();
+    private static final long TIMEOUT_MS = 5000;
+    
+    private MatchManager matchManager;
+    
+    @AfterEach
+    void stop() {
+        if (matchManager != null) {
+            matchManager.stop();
+        }
+    }
+    
+    @Test
+    void reconnectReplaysWhatWasMissed() {
+        matchManager = newMatchManager(60_000);
+        RecordingConnection first = new RecordingConnection();
+        ClientHandler player = startGame(first);
+        long lastSequence = first.sequencedSinceStart();
+        
+        disconnect(player);
+        RecordingConnection second = new RecordingConnection();
+        reconnect(second, player.getPlayer().getPlayerId(), lastSequence);
+        
+        ReconnectResponseDTO response = awaitReconnectResponse(second);
+        assertTrue(response.isAccepted());
+        assertTrue(response.isResumed());
+        assertEquals(lastSequence, response.getSequence());
+        List<MessageType> replayed = second.typesAfter(MessageType.RECONNECT_ACCEPTED);
+        assertTrue(replayed.contains(MessageType.PLAYER_DISCONNECT), replayed.toString());
+        assertFalse(replayed.contains(MessageType.FULL_RESYNC), replayed.toString());
+    }
+    
+    @Test
+    void reconnectWithoutSequenceGetsFullResync() {
+        matchManager = newMatchManager(60_000);
+        RecordingConnection first = new RecordingConnection();
+        ClientHandler player = startGame(first);
+        
+        disconnect(player);
+        RecordingConnection second = new RecordingConnection();
+        reconnect(second, player.getPlayer().getPlayerId(), 0);
+        
+        ReconnectResponseDTO response = awaitReconnectResponse(second);
+        assertTrue(response.isAccepted());
+        assertFalse(response.isResumed());
+        await(() -> second.received(MessageType.FULL_RESYNC));
+    }
+    
+    @Test
+    void sessionExpiresAfterReconnectWindow() {
+        matchManager = newMatchManager(300);
+        RecordingConnection first = new RecordingConnection();
+        ClientHandler player = startGame(first);
+        Match match = player.getMatch();
+        String playerId = player.getPlayer().getPlayerId();
+        
+        disconnect(player);
+        await(() -> !match.hasDisconnectedPlayer(playerId));
+        RecordingConnection second = new RecordingConnection();
+        reconnect(second, playerId, first.sequencedSinceStart());
+        
+        assertFalse(awaitReconnectResponse(second).isAccepted());
+    }
+    
+    private static MatchManager newMatchManager(long reconnectWindowMs) {
+        // Un jugador alcanza para empezar: la partida arranca cuando marca ready
+        return new MatchManager(Executors.newScheduledThreadPool(2), 4, 1,
+            new IdleTimeoutWheel(60_000, 30_000, 1000), RateLimitPolicy.defaults(), reconnectWindowMs);
+    }
+    
+    private ClientHandler admit(RecordingConnection connection) {
+        List<ClientHandler> admitted = new ArrayList<>();
+        assertTrue(matchManager.admit(connection, admitted::add));
+        return admitted.get(0);
+    }
+    
+    private ClientHandler startGame(RecordingConnection connection) {
+        ClientHandler handler = admit(connection);
+        await(() -> connection.received(MessageType.PLAYER_CONNECT));
+        handler.onMessage(new Message(MessageType.READY_STATUS_CHANGE, handler.getPlayer().getPlayerId(),
+            new ReadyStatusChangeDTO(true)));
+        await(() -> connection.received(MessageType.TURN_START));
+        return handler;
+    }
+    
+    /**
+     * Cierra la conexión y espera a que la partida conserve la sesión.
+     */
+    private static void disconnect(ClientHandler handler) {
+        Match match = handler.getMatch();
+        String playerId = handler.getPlayer().getPlayerId();
+        handler.onConnectionClosed();
+        await(() -> match.hasDisconnectedPlayer(playerId));
+    }
+    
+    /**
+     * Una conexión nueva entra a un lobby provisorio y pide volver a su sesión.
+     */
+    private void reconnect(RecordingConnection connection, String playerId, long lastSequence) {
+        ClientHandler handler = admit(connection);
+        handler.onMessage(new Message(MessageType.RECONNECT_REQUEST, null,
+            new ReconnectRequestDTO(playerId, null, lastSequence)));
+    }
+    
+    private static ReconnectResponseDTO awaitReconnectResponse(RecordingConnection connection) {
+        await(() -> connection.received(MessageType.RECONNECT_ACCEPTED)
+            || connection.received(MessageType.RECONNECT_REJECTED));
+        return (ReconnectResponseDTO) connection.first(MessageType.RECONNECT_ACCEPTED,
+            MessageType.RECONNECT_REJECTED).getPayload();
+    }
+    
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Timed out");
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("Interrupted");
+            }
+        }
+    }
+    
+    /**
+     * Conexión que guarda lo que se le envía, decodificado como lo recibe el cliente.
+     */
+    private static class RecordingConnection implements Connection {
+        private final List<Message> sent = new ArrayList<>();
+        private volatile boolean open = true;
+        
+        @Override
+        public synchronized void send(EncodedMessage message) {
+            sent.add(GSON.fromJson(new String(message.getLine(), StandardCharsets.UTF_8), Message.class));
+        }
+        
+        @Override
+        public synchronized void send(OutboundBatch batch) {
+            for (EncodedMessage message : batch.getMessages()) {
+                send(message);
+            }
+        }
+        
+        @Override
+        public int sizeOf(EncodedMessage message) {
+            return message.getLine().length;
+        }
+        
+        @Override
+        public Message receive() {
+            return null;
+        }
+        
+        @Override
+        public String getRemoteAddress() {
+            return "test";
+        }
+        
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+        
+        @Override
+        public void setRateLimits(RateLimitPolicy policy) {
+        }
+        
+        @Override
+        public void setPlayerHandles(PlayerHandleTable handles) {
+        }
+        
+        @Override
+        public void close() {
+            open = false;
+        }
+        
+        synchronized boolean received(MessageType type) {
+            return first(type) != null;
+        }
+        
+        synchronized Message first(MessageType... types) {
+            for (Message message : sent) {
+                for (MessageType type : types) {
+                    if (message.getType() == type) {
+                        return message;
+                    }
+                }
+            }
+            return null;
+        }
+        
+        /**
+         * Mensajes de la sesión recibidos hasta ahora: START_GAME es el primero.
+         */
+        synchronized long sequencedSinceStart() {
+            long count = 0;
+            for (Message message : sent) {
+                if (count > 0 || message.getType() == MessageType.START_GAME) {
+                    if (message.getType().isSequenced()) {
+                        count++;
+                    }
+                }
+            }
+            return count;
+        }
+        
+        synchronized List<MessageType> typesAfter(MessageType marker) {
+            List<MessageType> types = new ArrayList<>();
+            boolean found = false;
+            for (Message message : sent) {
+                if (found) {
+                    types.add(message.getType());
+                }
+                found |= message.getType() == marker;
+            }
+            return types;
+        }
+    }
+}
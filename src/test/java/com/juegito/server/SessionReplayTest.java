@@ -0,0 +1,114 @@
+package com.juegito.server;
+
+import com.juegito.protocol.EncodedMessage;
+import com.juegito.protocol.Message;
+import com.juegito.protocol.MessageType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionReplayTest {
+    
+    @Test
+    void replaysWhatFollowedLastSequence() {
+        SessionReplay session = new SessionReplay(null, 0);
+        EncodedMessage[] sent = record(session, 5);
+        
+        List<EncodedMessage> missed = session.since(3);
+        
+        assertEquals(List.of(sent[3], sent[4]), missed);
+        assertTrue(session.since(5).isEmpty());
+    }
+    
+    @Test
+    void unsequencedMessagesDoNotTakeANumber() {
+        SessionReplay session = new SessionReplay(null, 0);
+        record(session, 2);
+        
+        session.record(EncodedMessage.of(new Message(MessageType.PONG, "server", null)));
+        
+        assertEquals(2, session.getSequence());
+    }
+    
+    /**
+     * Después de dar la vuelta al buffer sigue cubierto lo último (CAPACITY mensajes).
+     */
+    @Test
+    void bufferWrapsAroundAtCapacity() {
+        SessionReplay session = new SessionReplay(null, 0);
+        int total = SessionReplay.CAPACITY + 100;
+        EncodedMessage[] sent = record(session, total);
+        
+        List<EncodedMessage> missed = session.since(total - SessionReplay.CAPACITY);
+        
+        assertEquals(SessionReplay.CAPACITY, missed.size());
+        assertSame(sent[total - SessionReplay.CAPACITY], missed.get(0));
+        assertSame(sent[total - 1], missed.get(missed.size() - 1));
+        assertNull(session.since(total - SessionReplay.CAPACITY - 1));
+    }
+    
+    @Test
+    void unnumberedClientGetsFullResync() {
+        SessionReplay session = new SessionReplay(null, 0);
+        record(session, 3);
+        
+        assertNull(session.since(0));
+    }
+    
+    @Test
+    void sequenceAheadOfSessionGetsFullResync() {
+        SessionReplay session = new SessionReplay(null, 0);
+        record(session, 3);
+        
+        assertNull(session.since(4));
+    }
+    
+    /**
+     * Lo confirmado ya se liberó: una reconexión que vuelve más atrás no se puede reanudar.
+     */
+    @Test
+    void sequenceBeforeAcknowledgedGetsFullResync() {
+        SessionReplay session = new SessionReplay(null, 0);
+        EncodedMessage[] sent = record(session, 10);
+        
+        session.acknowledge(6);
+        
+        assertNull(session.since(5));
+        assertEquals(List.of(sent[6], sent[7], sent[8], sent[9]), session.since(6));
+    }
+    
+    @Test
+    void staleOrFutureAcknowledgementIsClamped() {
+        SessionReplay session = new SessionReplay(null, 0);
+        EncodedMessage[] sent = record(session, 10);
+        
+        session.acknowledge(6);
+        session.acknowledge(2);
+        assertEquals(List.of(sent[6], sent[7], sent[8], sent[9]), session.since(6));
+        
+        session.acknowledge(50); // Solo confirma hasta lo asignado
+        EncodedMessage next = record(session, 1)[0];
+        
+        assertNull(session.since(9));
+        assertEquals(List.of(next), session.since(10));
+    }
+    
+    /**
+     * Registra count mensajes de partida (numerados 1..count); sent[i] lleva el número i + 1.
+     */
+    private static EncodedMessage[] record(SessionReplay session, int count) {
+        EncodedMessage[] sent = new EncodedMessage[count];
+        for (int i = 0; i < count; i++) {
+            sent[i] = EncodedMessage.of(new Message(MessageType.PLAYER_DISCONNECT, "server",
+                Map.of("playerId", "player-" + i)));
+            session.record(sent[i]);
+        }
+        return sent;
+    }
+}
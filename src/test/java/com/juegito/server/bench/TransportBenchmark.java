@@ -0,0 +1,361 @@
+package com.juegito.server.bench;
+
+import com.google.gson.Gson;
+import com.juegito.protocol.Message;
+import com.juegito.protocol.MessageType;
+import com.juegito.server.GameServer;
+import com.juegito.server.VirtualThreads;
+import com.juegito.server.transport.TransportMode;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compara los modos de transporte con miles de conexiones simultáneas contra un GameServer
+ * real: cada conexión entra a un lobby como cualquier jugador.
+ * Mide memoria por conexión (heap, RSS e hilos de plataforma, incluidas las partidas) y
+ * latencia p50/p99 de un comando de partida: REQUEST_STATE_SYNC pasa por ClientHandler y la
+ * cola de comandos de la partida, que responde con el LOBBY_SNAPSHOT.
+ *
+ * Vive en las fuentes de test para no viajar en el jar del servidor; no es un test de surefire.
+ * Uso (tras mvn test-compile, ver INSTRUCCIONES_EJECUCION.md):
+ * java -cp target/classes:target/test-classes:DEPENDENCIAS com.juegito.server.bench.TransportBenchmark
+ *     [conexiones] [rondas] [modo]
+ * Para medir hilos virtuales reales ejecutar con un JDK 21 (el modo VIRTUAL los resuelve al ejecutar).
+ * Se recomienda un proceso por modo para que las mediciones no se contaminen.
+ */
+public class TransportBenchmark {
+    private static final int DEFAULT_CONNECTIONS = 5000;
+    private static final int DEFAULT_ROUNDS = 10;
+    private static final int BASE_PORT = 19000;
+    private static final int WINDOW = 250; // Comandos en vuelo a la vez
+    private static final int MIN_PLAYERS = 2;
+    private static final int MAX_PLAYERS = 4;
+    private static final String JOINED = "\"type\":\"PLAYER_CONNECT\"";
+    private static final String REPLY = "\"type\":\"LOBBY_SNAPSHOT\"";
+    // Con pocos CPUs los modos de un hilo por conexión tardan en aceptar: -Dbench.connect.timeout.ms
+    private static final long CONNECT_TIMEOUT_MS = Long.getLong("bench.connect.timeout.ms", 60000);
+    private static final int CONNECT_ATTEMPT_TIMEOUT_MS = 2000;
+    
+    private final Gson gson = new Gson();
+    private final byte[] request;
+    
+    public TransportBenchmark() {
+        String json = gson.toJson(new Message(MessageType.REQUEST_STATE_SYNC, "bench", null)) + "\n";
+        this.request = json.getBytes(StandardCharsets.UTF_8);
+    }
+    
+    public static void main(String[] args) throws Exception {
+        int connections = args.length >= 1 ? Integer.parseInt(args[0]) : DEFAULT_CONNECTIONS;
+        int rounds = args.length >= 2 ? Integer.parseInt(args[1]) : DEFAULT_ROUNDS;
+        List<TransportMode> modes = args.length >= 3
+            ? List.of(TransportMode.fromString(args[2]))
+            : List.of(TransportMode.BLOCKING, TransportMode.VIRTUAL, TransportMode.NIO);
+        
+        System.out.printf("Java %s, virtual threads %s, %d connections, %d rounds%n",
+            System.getProperty("java.version"),
+            VirtualThreads.isAvailable() ? "available" : "NOT available (VIRTUAL falls back to platform threads)",
+            connections, rounds);
+        
+        TransportBenchmark benchmark = new TransportBenchmark();
+        List<Result> results = new ArrayList<>();
+        for (int i = 0; i < modes.size(); i++) {
+            results.add(benchmark.run(modes.get(i), BASE_PORT + i, connections, rounds));
+        }
+        
+        System.out.println();
+        System.out.printf("%-9s %14s %14s %10s %10s %10s%n",
+            "mode", "heap B/conn", "rss B/conn", "threads", "p50 us", "p99 us");
+        for (Result result : results) {
+            System.out.printf("%-9s %14d %14s %10d %10d %10d%n",
+                result.mode, result.heapPerConnection,
+                result.rssPerConnection < 0 ? "n/a" : String.valueOf(result.rssPerConnection),
+                result.threadDelta, result.p50Micros, result.p99Micros);
+        }
+    }
+    
+    private Result run(TransportMode mode, int port, int connections, int rounds) throws Exception {
+        System.out.printf("%n== %s ==%n", mode);
+        Snapshot before = Snapshot.take();
+        
+        GameServer server = startServer(mode, port, connections);
+        
+        Selector selector = Selector.open();
+        SocketChannel[] channels = connect(selector, port, connections);
+        int opened = channels.length;
+        LineReader reader = new LineReader(opened);
+        
+        // Todos en su lobby y sin broadcasts de altas pendientes antes de medir memoria
+        awaitJoined(selector, reader, opened);
+        Thread.sleep(1000);
+        drain(selector, reader);
+        Snapshot connected = Snapshot.take();
+        
+        measureLatency(selector, reader, channels, 1); // calentamiento
+        long[] latencies = measureLatency(selector, reader, channels, rounds);
+        Arrays.sort(latencies);
+        
+        for (SocketChannel channel : channels) {
+            channel.close();
+        }
+        selector.close();
+        server.stop();
+        
+        Result result = new Result();
+        result.mode = mode;
+        result.heapPerConnection = (connected.heapBytes - before.heapBytes) / opened;
+        result.rssPerConnection = before.rssBytes < 0 ? -1 : (connected.rssBytes - before.rssBytes) / opened;
+        result.threadDelta = connected.threads - before.threads;
+        result.p50Micros = percentile(latencies, 0.50) / 1000;
+        result.p99Micros = percentile(latencies, 0.99) / 1000;
+        System.out.printf("heap %d B/conn, rss %s B/conn, +%d platform threads, p50 %d us, p99 %d us%n",
+            result.heapPerConnection, result.rssPerConnection < 0 ? "n/a" : result.rssPerConnection,
+            result.threadDelta, result.p50Micros, result.p99Micros);
+        
+        // Esperar a que los hilos del modo anterior terminen
+        Thread.sleep(2000);
+        return result;
+    }
+    
+    /**
+     * Servidor del modo pedido con lugar para todas las conexiones. Mientras se abren miles de
+     * conexiones las primeras quedan inactivas: salvo que se configure otra cosa, no se las expulsa.
+     */
+    private static GameServer startServer(TransportMode mode, int port, int connections) {
+        System.setProperty("server.transport", mode.name());
+        defaultProperty("server.max.matches", String.valueOf(connections / MAX_PLAYERS + 1));
+        defaultProperty("server.idle.timeout.ms", String.valueOf(60 * 60 * 1000));
+        defaultProperty("server.idle.ping.after.ms", String.valueOf(60 * 60 * 1000));
+        
+        GameServer server = new GameServer(port, MIN_PLAYERS, MAX_PLAYERS, "bench");
+        Thread acceptThread = new Thread(() -> {
+            try {
+                server.start();
+            } catch (IOException e) {
+                System.err.println("Server failed: " + e.getMessage());
+            }
+        }, "bench-server");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+        return server;
+    }
+    
+    private static void defaultProperty(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+    
+    /**
+     * Abre las conexiones. Si el host no admite tantas antes del timeout
+     * (p. ej. por el límite de hilos en modo BLOCKING), continúa con las abiertas.
+     */
+    private static SocketChannel[] connect(Selector selector, int port, int connections) throws Exception {
+        InetSocketAddress address = new InetSocketAddress("127.0.0.1", port);
+        List<SocketChannel> channels = new ArrayList<>();
+        long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT_MS;
+        
+        while (channels.size() < connections && System.currentTimeMillis() < deadline) {
+            SocketChannel channel = SocketChannel.open();
+            try {
+                channel.socket().connect(address, CONNECT_ATTEMPT_TIMEOUT_MS);
+            } catch (IOException e) {
+                // El servidor aún no escucha, el backlog está lleno o no da abasto
+                channel.close();
+                continue;
+            }
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ, channels.size());
+            channels.add(channel);
+        }
+        if (channels.size() < connections) {
+            System.out.printf("WARNING: only %d of %d connections could be opened%n",
+                channels.size(), connections);
+        }
+        return channels.toArray(new SocketChannel[0]);
+    }
+    
+    /**
+     * Espera a que cada conexión reciba su PLAYER_CONNECT: el alta ya se aplicó en la partida.
+     */
+    private static void awaitJoined(Selector selector, LineReader reader, int connections) throws IOException {
+        boolean[] joined = new boolean[connections];
+        int pending = connections;
+        long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT_MS;
+        while (pending > 0) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IOException(pending + " connections never joined a lobby");
+            }
+            selector.select(1000);
+            for (SelectionKey key : selector.selectedKeys()) {
+                int index = (Integer) key.attachment();
+                if (reader.read(key, JOINED) > 0 && !joined[index]) {
+                    joined[index] = true;
+                    pending--;
+                }
+            }
+            selector.selectedKeys().clear();
+        }
+    }
+    
+    /**
+     * Descarta por un segundo lo que llegue (los broadcasts de las últimas altas). No se espera
+     * silencio: los keep-alive de cientos de lobbies no paran.
+     */
+    private static void drain(Selector selector, LineReader reader) throws IOException {
+        long deadline = System.currentTimeMillis() + 1000;
+        while (System.currentTimeMillis() < deadline) {
+            selector.select(100);
+            for (SelectionKey key : selector.selectedKeys()) {
+                reader.read(key, REPLY);
+            }
+            selector.selectedKeys().clear();
+        }
+    }
+    
+    /**
+     * Envía un REQUEST_STATE_SYNC por conexión en ventanas de WINDOW y mide el tiempo hasta
+     * su LOBBY_SNAPSHOT. Lo demás que llegue (keep-alives del lobby) no cuenta.
+     */
+    private long[] measureLatency(Selector selector, LineReader reader, SocketChannel[] channels,
+                                  int rounds) throws IOException {
+        long[] latencies = new long[channels.length * rounds];
+        long[] sentAt = new long[channels.length];
+        int recorded = 0;
+        
+        for (int round = 0; round < rounds; round++) {
+            for (int start = 0; start < channels.length; start += WINDOW) {
+                int end = Math.min(channels.length, start + WINDOW);
+                for (int i = start; i < end; i++) {
+                    sentAt[i] = System.nanoTime();
+                    writeFully(channels[i], ByteBuffer.wrap(request));
+                }
+                
+                int pending = end - start;
+                while (pending > 0) {
+                    if (selector.select(5000) == 0) {
+                        throw new IOException("Timed out waiting for " + pending + " responses");
+                    }
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        int index = (Integer) key.attachment();
+                        int replies = reader.read(key, REPLY);
+                        long now = System.nanoTime();
+                        for (int r = 0; r < replies; r++) {
+                            latencies[recorded++] = now - sentAt[index];
+                            pending--;
+                        }
+                    }
+                    selector.selectedKeys().clear();
+                }
+            }
+        }
+        return latencies;
+    }
+    
+    private static void writeFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+    
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+    
+    /**
+     * Arma las líneas JSON de cada conexión (una lectura puede cortar una línea al medio)
+     * y cuenta las que contienen el texto buscado.
+     */
+    private static class LineReader {
+        private final StringBuilder[] partial;
+        private final ByteBuffer buffer;
+        
+        LineReader(int connections) {
+            this.partial = new StringBuilder[connections];
+            for (int i = 0; i < connections; i++) {
+                partial[i] = new StringBuilder();
+            }
+            this.buffer = ByteBuffer.allocate(64 * 1024);
+        }
+        
+        int read(SelectionKey key, String marker) throws IOException {
+            int index = (Integer) key.attachment();
+            buffer.clear();
+            int read = ((SocketChannel) key.channel()).read(buffer);
+            if (read < 0) {
+                throw new IOException("Server closed connection " + index);
+            }
+            StringBuilder line = partial[index];
+            line.append(new String(buffer.array(), 0, read, StandardCharsets.UTF_8));
+            int matches = 0;
+            int end;
+            while ((end = line.indexOf("\n")) >= 0) {
+                if (line.substring(0, end).contains(marker)) {
+                    matches++;
+                }
+                line.delete(0, end + 1);
+            }
+            return matches;
+        }
+    }
+    
+    /**
+     * Memoria y cantidad de hilos de plataforma tras forzar GC.
+     */
+    private static class Snapshot {
+        long heapBytes;
+        long rssBytes;
+        int threads;
+        
+        static Snapshot take() throws InterruptedException {
+            for (int i = 0; i < 3; i++) {
+                System.gc();
+                Thread.sleep(100);
+            }
+            Snapshot snapshot = new Snapshot();
+            snapshot.heapBytes = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+            snapshot.rssBytes = readRss();
+            snapshot.threads = ManagementFactory.getThreadMXBean().getThreadCount();
+            return snapshot;
+        }
+        
+        private static long readRss() {
+            try {
+                for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                    if (line.startsWith("VmRSS:")) {
+                        return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                // Fuera de Linux no hay RSS disponible
+            }
+            return -1;
+        }
+    }
+    
+    private static class Result {
+        TransportMode mode;
+        long heapPerConnection;
+        long rssPerConnection;
+        int threadDelta;
+        long p50Micros;
+        long p99Micros;
+    }
+}
@@ -0,0 +1,259 @@
+package com.juegito.server.transport;
+
+import com.google.gson.Gson;
+import com.juegito.protocol.EncodedMessage;
+import com.juegito.protocol.Message;
+import com.juegito.protocol.MessageType;
+import com.juegito.protocol.MessageTypeAdapter;
+import com.juegito.protocol.binary.BinaryCodec;
+import com.juegito.protocol.binary.PlayerHandleTable;
+import com.juegito.protocol.dto.MapDeltaDTO;
+import com.juegito.protocol.dto.MapOccupancyDTO;
+import com.juegito.protocol.dto.PositionArraysDTO;
+import com.juegito.protocol.wire.FragmentAssembler;
+import com.juegito.protocol.wire.Frame;
+import com.juegito.protocol.wire.Handshake;
+import com.juegito.protocol.wire.WireDecoder;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WireSessionTest {
+    private static final Gson GSON = MessageTypeAdapter.createGson();
+    private static final int MAX_MESSAGE_BYTES = 64 * 1024;
+    private static final long TERRAIN_HASH = 42;
+    
+    @Test
+    void snapshotFollowedByDeltaInBatchIsNotFragmented() throws IOException {
+        WireSession session = framedSession();
+        
+        byte[] written = session.encode((Object) new OutboundBatch(List.of(mapState(2), mapDelta(2, 3))));
+        
+        assertFalse(session.hasFragments());
+        List<Message> received = decode(written);
+        assertEquals(List.of(MessageType.MAP_STATE, MessageType.MAP_DELTA), types(received));
+        assertEquals(2, ((MapOccupancyDTO) received.get(0).getPayload()).getVersion());
+        assertEquals(3, ((MapDeltaDTO) received.get(1).getPayload()).getVersion());
+    }
+    
+    @Test
+    void snapshotAtEndOfBatchIsFragmented() throws IOException {
+        WireSession session = framedSession();
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        
+        written.write(session.encode((Object) new OutboundBatch(List.of(mapDelta(1, 2), mapState(3)))));
+        assertTrue(session.hasFragments());
+        byte[] fragment;
+        while ((fragment = session.pollFragment()) != null) {
+            written.write(fragment);
+        }
+        
+        assertEquals(List.of(MessageType.MAP_DELTA, MessageType.MAP_STATE), types(decode(written.toByteArray())));
+    }
+    
+    /**
+     * El cliente nunca drena las partes: siguen contando para el límite de la cola aunque
+     * cada snapshot ya haya salido de ella, hasta que la conexión se expulsa.
+     */
+    @Test
+    void undrainedFragmentsCountTowardsQueueLimit() {
+        OutboundQueue outbound = new OutboundQueue(new OutboundLimits(4 * 1024, 1024, 8 * 1024, 60_000));
+        WireSession session = framedSession(outbound);
+        
+        boolean accepted = true;
+        for (int sent = 0; sent < 10 && accepted; sent++) {
+            EncodedMessage snapshot = mapState(sent);
+            accepted = outbound.offer(snapshot, session.sizeOf(snapshot));
+            session.encode(outbound.poll());
+        }
+        
+        assertFalse(accepted);
+        assertTrue(outbound.getQueuedBytes() > 8 * 1024);
+    }
+    
+    @Test
+    void writtenFragmentsReleaseTheirBytes() {
+        OutboundQueue outbound = new OutboundQueue(OutboundLimits.defaults());
+        WireSession session = framedSession(outbound);
+        EncodedMessage snapshot = mapState(1);
+        
+        outbound.offer(snapshot, session.sizeOf(snapshot));
+        session.encode(outbound.poll());
+        assertTrue(outbound.getQueuedBytes() > 0);
+        while (session.pollFragment() != null) {
+            // El escritor las manda al socket
+        }
+        
+        assertEquals(0, outbound.getQueuedBytes());
+    }
+    
+    @Test
+    void sessionsOfOneMatchShareTheBinaryFrame() throws IOException {
+        PlayerHandleTable matchHandles = PlayerHandleTable.assigning(16);
+        WireSession first = binarySession(matchHandles);
+        WireSession second = binarySession(matchHandles);
+        EncodedMessage delta = mapDelta(1, 2);
+        
+        byte[] toFirst = first.encode((Object) delta);
+        byte[] frame = delta.getBinaryFrame(matchHandles);
+        byte[] toSecond = second.encode((Object) delta);
+        
+        assertSame(frame, delta.getBinaryFrame(matchHandles));
+        assertEquals("player-0", firstMoved(decode(toFirst, PlayerHandleTable.learning())));
+        assertEquals("player-0", firstMoved(decode(toSecond, PlayerHandleTable.learning())));
+    }
+    
+    /**
+     * Al pasar a otra partida, los handles que el cliente ya conoce se vuelven a definir.
+     */
+    @Test
+    void handlesAreRedefinedAfterSwitchingMatch() throws IOException {
+        WireSession session = binarySession(PlayerHandleTable.assigning(16));
+        PlayerHandleTable client = PlayerHandleTable.learning();
+        
+        assertEquals("player-other", firstMoved(decode(session.encode((Object) mapDelta("player-other", 1, 2)), client)));
+        session.setPlayerHandles(PlayerHandleTable.assigning(16)); // player-0 recibe el mismo handle
+        List<Message> received = decode(session.encode((Object) mapDelta("player-0", 2, 3)), client);
+        
+        assertEquals("player-0", firstMoved(received));
+    }
+    
+    @Test
+    void onlyReusedFormsCountAsAvoidedSerializations() {
+        EncodedMessage delta = mapDelta(1, 2);
+        long serialized = EncodedMessage.getSerializationCount();
+        long avoided = EncodedMessage.getSerializationsAvoided();
+        
+        binarySession(PlayerHandleTable.assigning(16)).encode((Object) delta);
+        binarySession(PlayerHandleTable.assigning(16)).encode((Object) delta);
+        assertEquals(serialized + 2, EncodedMessage.getSerializationCount());
+        assertEquals(avoided, EncodedMessage.getSerializationsAvoided());
+        
+        framedSession().encode((Object) delta);
+        framedSession().encode((Object) delta);
+        assertEquals(serialized + 3, EncodedMessage.getSerializationCount());
+        assertEquals(avoided + 1, EncodedMessage.getSerializationsAvoided());
+    }
+    
+    private static WireSession binarySession(PlayerHandleTable handles) {
+        WireSession session = session(new OutboundQueue(OutboundLimits.defaults()));
+        session.onHandshake(Handshake.CAP_FRAMES | Handshake.CAP_BINARY);
+        session.pollHandshakeReply();
+        session.setPlayerHandles(handles);
+        return session;
+    }
+    
+    private static String firstMoved(List<Message> received) {
+        assertEquals(List.of(MessageType.MAP_DELTA), types(received));
+        return ((MapDeltaDTO) received.get(0).getPayload()).getMovedPlayers().getPlayerIds()[0];
+    }
+    
+    private static WireSession framedSession() {
+        return framedSession(new OutboundQueue(OutboundLimits.defaults()));
+    }
+    
+    private static WireSession framedSession(OutboundQueue outbound) {
+        WireSession session = session(outbound);
+        session.onHandshake(Handshake.CAP_FRAMES | Handshake.CAP_BATCH | Handshake.CAP_FRAGMENTS);
+        session.pollHandshakeReply();
+        return session;
+    }
+    
+    private static WireSession session(OutboundQueue outbound) {
+        return new WireSession(new WireSettings(MAX_MESSAGE_BYTES, null), message -> { }, () -> { }, outbound);
+    }
+    
+    /**
+     * Ocupación con suficientes jugadores para superar FRAGMENT_BYTES.
+     */
+    private static EncodedMessage mapState(long version) {
+        int players = 64;
+        String[] ids = new String[players];
+        int[] q = new int[players];
+        int[] r = new int[players];
+        for (int i = 0; i < players; i++) {
+            ids[i] = String.format("player-%032d", i);
+            q[i] = i % 8;
+            r[i] = i / 8;
+        }
+        MapOccupancyDTO occupancy = new MapOccupancyDTO(TERRAIN_HASH, version, new PositionArraysDTO(ids, q, r));
+        return EncodedMessage.of(new Message(MessageType.MAP_STATE, null, occupancy));
+    }
+    
+    private static EncodedMessage mapDelta(long baseVersion, long version) {
+        return mapDelta("player-0", baseVersion, version);
+    }
+    
+    private static EncodedMessage mapDelta(String playerId, long baseVersion, long version) {
+        PositionArraysDTO moved = new PositionArraysDTO(new String[] {playerId}, new int[] {1}, new int[] {0});
+        MapDeltaDTO delta = new MapDeltaDTO(baseVersion, version, moved, new String[0]);
+        return EncodedMessage.of(new Message(MessageType.MAP_DELTA, null, delta));
+    }
+    
+    /**
+     * Decodifica la salida como lo hace el cliente: lotes y fragmentos reensamblados.
+     */
+    private static List<Message> decode(byte[] written) throws IOException {
+        return decode(written, PlayerHandleTable.learning());
+    }
+    
+    private static List<Message> decode(byte[] written, PlayerHandleTable handles) throws IOException {
+        WireDecoder decoder = new WireDecoder(MAX_MESSAGE_BYTES);
+        FragmentAssembler fragments = new FragmentAssembler(MAX_MESSAGE_BYTES);
+        List<Message> received = new ArrayList<>();
+        decoder.feed(written, 0, written.length, new WireDecoder.Listener() {
+            @Override
+            public void onHandshake(int capabilities) {
+            }
+            
+            @Override
+            public void onLine(String line) {
+                received.add(GSON.fromJson(line, Message.class));
+            }
+            
+            @Override
+            public void onFrame(Frame frame) throws IOException {
+                switch (frame.getType()) {
+                    case JSON:
+                        onLine(new String(frame.getPayload(), StandardCharsets.UTF_8));
+                        break;
+                    case BINARY:
+                        received.add(BinaryCodec.decode(frame.getPayload(), handles));
+                        break;
+                    case HANDLES:
+                        handles.applyDefinitions(frame.getPayload());
+                        break;
+                    case BATCH:
+                        decoder.feedBatch(frame.getPayload(), this);
+                        break;
+                    case FRAGMENT:
+                        byte[] unit = fragments.add(frame);
+                        if (unit != null) {
+                            decoder.feedBatch(unit, this);
+                        }
+                        break;
+                    default:
+                        throw new IOException("Unexpected frame " + frame.getType());
+                }
+            }
+        });
+        return received;
+    }
+    
+    private static List<MessageType> types(List<Message> messages) {
+        List<MessageType> types = new ArrayList<>();
+        for (Message message : messages) {
+            types.add(message.getType());
+        }
+        return types;
+    }
+}